@@ -0,0 +1,223 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Suggests the names (e.g. the artists of a catalog) starting with a typed prefix, most popular first.
+ * <p>
+ * The distinct names are sorted by their folded form (see {@link TextTokenizer#fold}), so the names
+ * starting with a prefix, whatever its case and accents, form one range found by two binary searches.
+ * Every name has a weight, the highest {@link SongProperty#POPULARITY} of its songs, and a sparse table
+ * gives the heaviest name of any range in constant time. The top N names of a range are then taken from a
+ * priority queue of sub-ranges: the heaviest name of the range is taken, the range is split around it,
+ * and the two halves are queued with their own heaviest names. A lookup costs O(log(names) + N log N),
+ * however many names share the prefix.
+ */
+public class AutocompleteIndex {
+
+    private final String[] values;
+    private final String[] keys;
+    private final double[] weights;
+    // sparseTable[level][i] is the position of the heaviest name among positions i to i + 2^level - 1
+    private final int[][] sparseTable;
+
+    /**
+     * Builds the index over weighted names.
+     *
+     * @param weightedValues the weight of every name.
+     */
+    public AutocompleteIndex(Map<String, Double> weightedValues) {
+        int size = weightedValues.size();
+        String[] unsortedValues = weightedValues.keySet().toArray(new String[0]);
+        String[] unsortedKeys = new String[size];
+        for (int value = 0; value < size; value++) {
+            unsortedKeys[value] = TextTokenizer.fold(unsortedValues[value]);
+        }
+        Integer[] order = new Integer[size];
+        Arrays.setAll(order, value -> value);
+        Arrays.sort(order, Comparator.<Integer, String>comparing(value -> unsortedKeys[value])
+                .thenComparing(value -> unsortedValues[value]));
+
+        this.values = new String[size];
+        this.keys = new String[size];
+        this.weights = new double[size];
+        for (int position = 0; position < size; position++) {
+            values[position] = unsortedValues[order[position]];
+            keys[position] = unsortedKeys[order[position]];
+            weights[position] = weightedValues.get(values[position]);
+        }
+
+        int levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(size));
+        this.sparseTable = new int[levels][];
+        sparseTable[0] = new int[size];
+        Arrays.setAll(sparseTable[0], position -> position);
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int[] below = sparseTable[level - 1];
+            int[] current = new int[size - (1 << level) + 1];
+            for (int position = 0; position < current.length; position++) {
+                current[position] = heavier(below[position], below[position + half]);
+            }
+            sparseTable[level] = current;
+        }
+    }
+
+    /**
+     * Builds the index over the values of a detail, each weighted by the highest popularity of its songs.
+     *
+     * @param songEntries the song entries.
+     * @param songDetail the detail whose values are suggested.
+     * @return the index of the detail.
+     */
+    public static AutocompleteIndex of(List<SongEntry> songEntries, SongDetail songDetail) {
+        Map<String, Double> weightedValues = new HashMap<>();
+        for (SongEntry songEntry : songEntries) {
+            weightedValues.merge(songEntry.getSongDetail(songDetail),
+                    songEntry.getSongProperty(SongProperty.POPULARITY), Math::max);
+        }
+        return new AutocompleteIndex(weightedValues);
+    }
+
+    /**
+     * @return the number of distinct names in the index.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the most popular names starting with a prefix. Case and accents are ignored, so "tie" gives
+     * "Ti&euml;sto". Names of equal popularity are given in alphabetical order.
+     *
+     * @param prefix the typed prefix; an empty prefix suggests the most popular names overall.
+     * @param limit the maximum number of names to return.
+     * @return up to limit names, most popular first.
+     * @throws IllegalArgumentException if limit is negative.
+     */
+    public List<String> suggest(String prefix, int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative (was " + limit + ").");
+        }
+        List<String> suggestions = new ArrayList<>(Math.min(limit, values.length));
+        int[] range = findPrefixRange(prefix);
+        if (range[0] == range[1] || limit == 0) {
+            return suggestions;
+        }
+        // Each queued range is {from, to (exclusive), position of its heaviest name}.
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compareWeights(a[2], b[2]));
+        ranges.add(new int[]{range[0], range[1], heaviestIn(range[0], range[1])});
+        while (!ranges.isEmpty() && suggestions.size() < limit) {
+            int[] heaviest = ranges.poll();
+            suggestions.add(values[heaviest[2]]);
+            if (heaviest[0] < heaviest[2]) {
+                ranges.add(new int[]{heaviest[0], heaviest[2], heaviestIn(heaviest[0], heaviest[2])});
+            }
+            if (heaviest[2] + 1 < heaviest[1]) {
+                ranges.add(new int[]{heaviest[2] + 1, heaviest[1], heaviestIn(heaviest[2] + 1, heaviest[1])});
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the name spelled like a text, ignoring case and accents. Among names that differ only in case
+     * or accents, the one spelled exactly like the text is preferred, then the most popular one.
+     *
+     * @param text the text to look up.
+     * @return the name, or null if there is none.
+     */
+    public String find(String text) {
+        int[] range = findKeyRange(TextTokenizer.fold(text), false);
+        int found = -1;
+        for (int position = range[0]; position < range[1]; position++) {
+            if (values[position].equals(text)) {
+                return text;
+            }
+            if (found < 0 || compareWeights(position, found) < 0) {
+                found = position;
+            }
+        }
+        return found < 0 ? null : values[found];
+    }
+
+    /**
+     * Returns the positions of the names starting with a prefix, in the order of the folded names.
+     *
+     * @param prefix the prefix; case and accents are ignored.
+     * @return {from, to}: the names at positions from (inclusive) to to (exclusive) start with the prefix.
+     */
+    public int[] findPrefixRange(String prefix) {
+        return findKeyRange(TextTokenizer.fold(prefix), true);
+    }
+
+    private int[] findKeyRange(String key, boolean prefix) {
+        // The keys starting with (or equal to) key follow each other from the first key not less than it.
+        int from = lowerBound(key);
+        return new int[]{from, upperBound(key, prefix, from)};
+    }
+
+    /**
+     * Returns the first position whose key is not less than key.
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first position from "from" on whose key does not start with (or equal) key.
+     */
+    private int upperBound(String key, boolean prefix, int from) {
+        int low = from;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prefix ? keys[middle].startsWith(key) : keys[middle].equals(key)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position of the heaviest name from "from" (inclusive) to "to" (exclusive), from two
+     * overlapping ranges of the sparse table.
+     */
+    private int heaviestIn(int from, int to) {
+        int level = 31 - Integer.numberOfLeadingZeros(to - from);
+        return heavier(sparseTable[level][from], sparseTable[level][to - (1 << level)]);
+    }
+
+    private int heavier(int a, int b) {
+        return compareWeights(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * Orders positions by descending weight, then by position (i.e. alphabetically).
+     */
+    private int compareWeights(int a, int b) {
+        int byWeight = Double.compare(weights[b], weights[a]);
+        return byWeight != 0 ? byWeight : Integer.compare(a, b);
+    }
+}
@@ -0,0 +1,205 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.gui.CustomChartAxisValues;
+import uk.ac.sheffield.com1003.assignment2023.gui.CustomChart;
+import uk.ac.sheffield.com1003.assignment2023.gui.CustomChartRenderer;
+
+import javax.imageio.ImageIO;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Writes the statistics of a song catalog and the results of its queries to a directory, without a window,
+ * e.g. to run the queries of a large catalog on a server:
+ * <ul>
+ *     <li>{@code summary.txt} - the statistics the CLI prints about the whole catalog.</li>
+ *     <li>{@code queries.txt} - every query with its row count, running time, scan and the minimum, maximum
+ *     and average of every property over its results.</li>
+ *     <li>{@code query-NN.tsv} - the song entries returned by the NN-th query.</li>
+ *     <li>{@code query-NN.png} - the custom chart of those song entries, if there are any.</li>
+ * </ul>
+ * The queries run in parallel, each writing its own files. The charts are drawn by a
+ * {@link CustomChartRenderer} on offscreen images, so no Swing component is created and the report can be
+ * written with {@code java.awt.headless=true}.
+ */
+public class BatchReport {
+
+    public static final int CHART_WIDTH = 900;
+    public static final int CHART_HEIGHT = 450;
+
+    private final SongCatalog songCatalog;
+    private final List<Query> queries;
+    private final DistinctCounter distinctCounter;
+
+    /**
+     * The outcome of one query, written to the query report once every query has run.
+     */
+    private static class QueryOutcome {
+        private final Query query;
+        private final List<SongEntry> results;
+        private final ScanStatistics scanStatistics;
+        private final double elapsedMillis;
+        private final Map<SongProperty, CustomChartAxisValues> axesValues;
+
+        private QueryOutcome(Query query, List<SongEntry> results, ScanStatistics scanStatistics,
+                             double elapsedMillis, Map<SongProperty, CustomChartAxisValues> axesValues) {
+            this.query = query;
+            this.results = results;
+            this.scanStatistics = scanStatistics;
+            this.elapsedMillis = elapsedMillis;
+            this.axesValues = axesValues;
+        }
+    }
+
+    /**
+     * @param songCatalog the song catalog to report on.
+     * @param queries the queries to run against it.
+     * @param distinctCounter counts the unique songs and artists of the summary.
+     */
+    public BatchReport(SongCatalog songCatalog, List<Query> queries, DistinctCounter distinctCounter) {
+        this.songCatalog = songCatalog;
+        this.queries = List.copyOf(queries);
+        this.distinctCounter = distinctCounter;
+    }
+
+    /**
+     * Runs the queries and writes the report, creating the directory if needed and replacing the files of
+     * an earlier report.
+     *
+     * @param directory the directory to write the report to.
+     * @throws IOException if a file cannot be written.
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        // Start every query, then write the summary while they run
+        List<CompletableFuture<QueryOutcome>> outcomes = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            Query query = queries.get(i);
+            String fileName = String.format("query-%02d", i + 1);
+            outcomes.add(CompletableFuture.supplyAsync(() -> runQuery(query, directory, fileName)));
+        }
+        writeSummary(directory.resolve("summary.txt"));
+
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("queries.txt"),
+                StandardCharsets.UTF_8)) {
+            writer.write(String.format("%d queries against %d rows%n", queries.size(),
+                    songCatalog.getRowCount(songCatalog.getSongEntriesList())));
+            for (int i = 0; i < outcomes.size(); i++) {
+                writer.newLine();
+                writeOutcome(writer, String.format("query-%02d", i + 1), join(outcomes.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Waits for a query, rethrowing the IOException of its files if writing them failed.
+     */
+    private static QueryOutcome join(CompletableFuture<QueryOutcome> outcome) throws IOException {
+        try {
+            return outcome.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a query and writes its results and chart, on a thread of the common pool.
+     */
+    private QueryOutcome runQuery(Query query, Path directory, String fileName) {
+        ScanStatistics scanStatistics = new ScanStatistics();
+        long start = System.nanoTime();
+        List<SongEntry> results = songCatalog.executeQuery(query, scanStatistics);
+        double elapsedMillis = (System.nanoTime() - start) / 1e6;
+
+        try {
+            writeResults(directory.resolve(fileName + ".tsv"), results);
+            Map<SongProperty, CustomChartAxisValues> axesValues = null;
+            if (!results.isEmpty()) {
+                axesValues = CustomChart.computeAxesValues(songCatalog, results);
+                ImageIO.write(CustomChartRenderer.renderImage(CHART_WIDTH, CHART_HEIGHT, axesValues,
+                        true, true, true, null), "png", directory.resolve(fileName + ".png").toFile());
+            }
+            return new QueryOutcome(query, results, scanStatistics, elapsedMillis, axesValues);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes song entries as tab-separated values, with a header row.
+     */
+    private static void writeResults(Path file, List<SongEntry> songEntries) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder("id\tname\tartist\talbum_name");
+            for (SongProperty songProperty : SongProperty.values()) {
+                line.append('\t').append(songProperty.getName());
+            }
+            writer.write(line.toString());
+            writer.newLine();
+            for (SongEntry songEntry : songEntries) {
+                line.setLength(0);
+                line.append(songEntry.getId()).append('\t').append(songEntry.getSongName())
+                        .append('\t').append(songEntry.getSongArtist())
+                        .append('\t').append(songEntry.getSongAlbumName());
+                for (SongProperty songProperty : SongProperty.values()) {
+                    line.append('\t').append(songEntry.getSongProperty(songProperty));
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes the statistics of the whole catalog, as printed by the CLI (see {@link CatalogSummary}).
+     */
+    private void writeSummary(Path file) throws IOException {
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        List<String> lines = new ArrayList<>();
+        lines.add(CatalogSummary.formatUniqueSongs(distinctCounter.countUniqueSongs(songEntries),
+                songCatalog.getRowCount(songEntries), distinctCounter));
+        lines.add(CatalogSummary.formatUniqueArtists(distinctCounter.countUniqueArtists(songEntries),
+                distinctCounter));
+        try {
+            lines.addAll(CatalogSummary.formatPropertyStatistics(songCatalog, songEntries));
+        } catch (NoSuchElementException e) {
+            lines.add(CatalogSummary.EMPTY_CATALOG);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the entry of one query in the query report.
+     */
+    private void writeOutcome(BufferedWriter writer, String fileName, QueryOutcome outcome) throws IOException {
+        writer.write(String.format("%s %s%n", fileName, outcome.query));
+        writer.write(String.format("Rows: %d (%d song entries) in %.2f ms%n",
+                songCatalog.getRowCount(outcome.results), outcome.results.size(), outcome.elapsedMillis));
+        writer.write(String.format("Scan: %s%n", outcome.scanStatistics));
+        if (outcome.axesValues == null) {
+            return;
+        }
+        for (SongProperty songProperty : SongProperty.values()) {
+            CustomChartAxisValues axisValues = outcome.axesValues.get(songProperty);
+            writer.write(String.format("%s: min %s, max %s, average %s%n", songProperty.getName(),
+                    axisValues.getMin(), axisValues.getMax(), axisValues.getAverage()));
+        }
+    }
+}
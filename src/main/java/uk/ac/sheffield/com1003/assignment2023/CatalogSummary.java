@@ -0,0 +1,65 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.AbstractSongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Formats the statistics of a whole song catalog, one line each. The CLI prints them and {@link BatchReport}
+ * writes them to its summary, so both always word them the same way.
+ */
+public final class CatalogSummary {
+
+    /**
+     * Reported instead of the property statistics when there are no song entries.
+     */
+    public static final String EMPTY_CATALOG = "Song entries list is empty!";
+
+    private CatalogSummary() {
+    }
+
+    /**
+     * @param uniqueSongs the number of unique songs.
+     * @param rowCount the number of rows of the song file.
+     * @param distinctCounter the counter that counted them.
+     * @return the line reporting the number of unique songs.
+     */
+    public static String formatUniqueSongs(long uniqueSongs, long rowCount, DistinctCounter distinctCounter) {
+        return String.format("The total number of unique songs in the dataset is: %s out of %s (%s).",
+                uniqueSongs, rowCount, distinctCounter.describe());
+    }
+
+    /**
+     * @param uniqueArtists the number of unique artists.
+     * @param distinctCounter the counter that counted them.
+     * @return the line reporting the number of unique artists.
+     */
+    public static String formatUniqueArtists(long uniqueArtists, DistinctCounter distinctCounter) {
+        return String.format("The total number of different artists in the dataset is: %s (%s).",
+                uniqueArtists, distinctCounter.describe());
+    }
+
+    /**
+     * Formats the average duration and tempo, the maximum loudness and the minimum tempo of song entries.
+     *
+     * @param songCatalog the catalog of the song entries.
+     * @param songEntries the song entries.
+     * @return a line per statistic.
+     * @throws NoSuchElementException if there are no song entries.
+     */
+    public static List<String> formatPropertyStatistics(AbstractSongCatalog songCatalog,
+                                                        List<SongEntry> songEntries) throws NoSuchElementException {
+        return List.of(
+                String.format("The average duration of a song in the dataset is: [%s].",
+                        songCatalog.getAverageValue(SongProperty.DURATION, songEntries)),
+                String.format("The average tempo of a song in the dataset is: [%s].",
+                        songCatalog.getAverageValue(SongProperty.TEMPO, songEntries)),
+                String.format("The maximum loudness in the dataset is [%s].",
+                        songCatalog.getMaximumValue(SongProperty.LOUDNESS, songEntries)),
+                String.format("The minimum tempo in the dataset [%s].",
+                        songCatalog.getMinimumValue(SongProperty.TEMPO, songEntries)));
+    }
+}
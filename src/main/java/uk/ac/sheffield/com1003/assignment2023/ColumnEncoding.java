@@ -0,0 +1,26 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * This is a helper enum with constants representing how the values of a numeric column are stored.
+ * The scaled encodings store {@code round(value * 10^decimals) - base} as an unsigned integer of the given
+ * width and are only chosen when dividing back gives exactly the original double.
+ */
+public enum ColumnEncoding {
+    BYTE("Scaled decimal in 1 byte", 1),
+    SHORT("Scaled decimal in 2 bytes", 2),
+    INT("Scaled decimal in 4 bytes", 4),
+    FLOAT("Single-precision float", 4),
+    DOUBLE("Double-precision float", 8);
+
+    private final String description;
+    private final int bytesPerValue;
+
+    ColumnEncoding(String description, int bytesPerValue) {
+        this.description = description;
+        this.bytesPerValue = bytesPerValue;
+    }
+
+    public String getDescription() { return this.description; }
+
+    public int getBytesPerValue() { return this.bytesPerValue; }
+}
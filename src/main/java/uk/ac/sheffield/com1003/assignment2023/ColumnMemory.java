@@ -0,0 +1,26 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * This is a helper enum with constants representing where the columns of a song catalog are held.
+ */
+public enum ColumnMemory {
+    HEAP("Arrays on the Java heap"),
+    DIRECT("Direct buffers outside the Java heap"),
+    MAPPED("A memory-mapped snapshot file outside the Java heap");
+
+    private final String description;
+
+    ColumnMemory(String description) { this.description = description; }
+
+    public String getDescription() { return this.description; }
+
+    /**
+     * Convert a name String (e.g. "mapped") to the matching ColumnMemory.
+     * @param name the String to convert, dashes and underscores are interchangeable
+     * @return the matching ColumnMemory
+     * @throws IllegalArgumentException if the String does not match any ColumnMemory
+     */
+    public static ColumnMemory fromName(String name) throws IllegalArgumentException {
+        return ColumnMemory.valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,72 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongPropertyMap;
+
+/**
+ * A song entry whose values live in a row of {@link SongColumns} rather than in its own property map.
+ * It behaves exactly like a SongEntry built from the same line of the song file.
+ * <p>
+ * The columns create a new view whenever a row is read, so views are compared by their columns and row,
+ * and the cluster of the row is kept by the columns too.
+ */
+public class ColumnarSongEntry extends SongEntry {
+
+    private final SongColumns songColumns;
+    private final int row;
+
+    /**
+     * @param id the ID of the song entry.
+     * @param multiplicity the number of identical rows of the song file the entry stands for.
+     * @param songColumns the columns holding the values.
+     * @param row the row of the entry in the columns.
+     */
+    public ColumnarSongEntry(int id, int multiplicity, SongColumns songColumns, int row) {
+        super(id, multiplicity);
+        this.songColumns = songColumns;
+        this.row = row;
+    }
+
+    @Override
+    public double getSongProperty(SongProperty songProperty) {
+        return songColumns.getProperty(row, songProperty);
+    }
+
+    @Override
+    public String getSongDetail(SongDetail songDetail) {
+        return songColumns.getDetail(row, songDetail);
+    }
+
+    /**
+     * @return the cluster the row was assigned to by the clustering of its catalog, or {@link #NO_CLUSTER}.
+     */
+    @Override
+    public int getClusterId() {
+        return songColumns.getClusterId(row);
+    }
+
+    /**
+     * Builds a standalone property map with the values of this entry.
+     *
+     * @return a new property map.
+     */
+    @Override
+    public SongPropertyMap getSongPropertyMap() {
+        return songColumns.toSongPropertyMap(row);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof ColumnarSongEntry other && other.songColumns == songColumns && other.row == row;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(songColumns) + row;
+    }
+}
@@ -0,0 +1,170 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the command-line configuration of the SpotifyDashboardApp.
+ * <p>
+ * Positional arguments are, in order, the song data file and the query file; both default to the
+ * files shipped in src/main/resources. Optional settings are given as {@code --name=value} flags and
+ * may appear anywhere on the command line:
+ * <ul>
+ *     <li>{@code --distinct=exact|approximate} - how unique songs and artists are counted.</li>
+ *     <li>{@code --hll-precision=4..18} - the HyperLogLog precision used by the approximate count.</li>
+ *     <li>{@code --load-mode=all-rows|collapse-duplicates} - whether identical rows are collapsed on load.</li>
+ *     <li>{@code --clusters=N} - the number of k-means clusters songs are grouped into.</li>
+ *     <li>{@code --row-order=file|PROPERTY|zorder:PROPERTY,PROPERTY...} - how rows are ordered after loading.</li>
+ *     <li>{@code --storage=columns|objects} - the layout the song entries are stored in.</li>
+ *     <li>{@code --column-memory=heap|direct|mapped} - where the song columns are held; "mapped" uses a
+ *     snapshot file next to the song file, written on first use.</li>
+ *     <li>{@code --snapshot-dir=DIR} - keep the snapshot file of "mapped" columns in DIR instead, e.g. when
+ *     the directory of the song file is read-only.</li>
+ *     <li>{@code --report-dir=DIR} - write a report of the catalog and the queries to DIR instead of
+ *     starting the CLI and the GUI (see {@link BatchReport}).</li>
+ * </ul>
+ */
+public class DashboardOptions {
+
+    public static final String DEFAULT_SONG_FILE = "./src/main/resources/spotify_songs.tsv";
+    public static final String DEFAULT_QUERY_FILE = "./src/main/resources/queries.txt";
+
+    private String songFile = DEFAULT_SONG_FILE;
+    private String queryFile = DEFAULT_QUERY_FILE;
+    private DistinctCounter.Mode distinctMode = DistinctCounter.Mode.EXACT;
+    private int hllPrecision = HyperLogLog.DEFAULT_PRECISION;
+    private LoadMode loadMode = LoadMode.ALL_ROWS;
+    private int clusterCount = KMeansClustering.DEFAULT_CLUSTER_COUNT;
+    private RowOrder rowOrder = RowOrder.FILE_ORDER;
+    private StorageBackend storageBackend = StorageBackend.COLUMNS;
+    private ColumnMemory columnMemory = ColumnMemory.HEAP;
+    private String snapshotDirectory;
+    private String reportDirectory;
+
+    /**
+     * Parses the command-line arguments passed to the application.
+     *
+     * @param args the raw command-line arguments.
+     * @return the parsed options, using defaults for everything that was not specified.
+     * @throws IllegalArgumentException if a flag is unknown or its value is malformed.
+     */
+    public static DashboardOptions fromArgs(String[] args) throws IllegalArgumentException {
+        DashboardOptions options = new DashboardOptions();
+        List<String> positionalArgs = new ArrayList<>();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                positionalArgs.add(arg);
+                continue;
+            }
+            // Split "--name=value" into its name and (possibly empty) value.
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg.substring(2) : arg.substring(2, separator);
+            String value = separator < 0 ? "" : arg.substring(separator + 1);
+            options.applyFlag(name, value);
+        }
+
+        if (!positionalArgs.isEmpty()) {
+            options.songFile = positionalArgs.get(0);
+        }
+        if (positionalArgs.size() > 1) {
+            options.queryFile = positionalArgs.get(1);
+        }
+        return options;
+    }
+
+    /**
+     * Applies a single {@code --name=value} flag.
+     *
+     * @param name the flag name without the leading dashes.
+     * @param value the flag value.
+     * @throws IllegalArgumentException if the flag is unknown or its value is malformed.
+     */
+    private void applyFlag(String name, String value) throws IllegalArgumentException {
+        switch (name) {
+            case "distinct" -> distinctMode = DistinctCounter.Mode.fromName(value);
+            case "hll-precision" -> hllPrecision = parseInt(name, value);
+            case "load-mode" -> loadMode = LoadMode.fromName(value);
+            case "clusters" -> clusterCount = parseInt(name, value);
+            case "row-order" -> rowOrder = RowOrder.fromName(value);
+            case "storage" -> storageBackend = StorageBackend.fromName(value);
+            case "column-memory" -> columnMemory = ColumnMemory.fromName(value);
+            case "snapshot-dir" -> snapshotDirectory = parseDirectory(name, value);
+            case "report-dir" -> reportDirectory = parseDirectory(name, value);
+            default -> throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+    }
+
+    /**
+     * Parses an integer flag value, reporting the flag name if it is malformed.
+     */
+    private static int parseInt(String name, String value) throws IllegalArgumentException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + name + " expects an integer (was '" + value + "').");
+        }
+    }
+
+    /**
+     * Checks that a directory flag names a directory, reporting the flag name if it is empty.
+     */
+    private static String parseDirectory(String name, String value) throws IllegalArgumentException {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Option --" + name + " expects a directory.");
+        }
+        return value;
+    }
+
+    public String getSongFile() {
+        return songFile;
+    }
+
+    public String getQueryFile() {
+        return queryFile;
+    }
+
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    public RowOrder getRowOrder() {
+        return rowOrder;
+    }
+
+    public StorageBackend getStorageBackend() {
+        return storageBackend;
+    }
+
+    public ColumnMemory getColumnMemory() {
+        return columnMemory;
+    }
+
+    /**
+     * @return the directory of the snapshot file of mapped columns, or null for the directory of the song file.
+     */
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    /**
+     * @return the directory the batch report is written to, or null to start the CLI and the GUI.
+     */
+    public String getReportDirectory() {
+        return reportDirectory;
+    }
+
+    /**
+     * Builds the distinct counter configured by the {@code --distinct} and {@code --hll-precision} flags.
+     *
+     * @return a new DistinctCounter.
+     * @throws IllegalArgumentException if the configured precision is out of range.
+     */
+    public DistinctCounter createDistinctCounter() throws IllegalArgumentException {
+        return new DistinctCounter(distinctMode, hllPrecision);
+    }
+}
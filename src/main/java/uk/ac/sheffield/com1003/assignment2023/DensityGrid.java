@@ -0,0 +1,198 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Counts song entries in a grid of bins over two properties, e.g. for a scatter plot, so
+ * that a plot of millions of entries is drawn from a fixed number of counts rather than from the entries.
+ * <p>
+ * Binning is done in parallel: the entries are split into one partition per thread, each partition is
+ * counted into its own grid, and the grids are added up. Every entry counts as many times as the rows it
+ * stands for (its multiplicity). Entries whose values are outside the ranges of the grid are not binned
+ * but counted apart.
+ */
+public class DensityGrid {
+
+    // Smallest number of song entries worth binning on a thread of their own
+    private static final int MIN_PARTITION_SIZE = 1 << 15;
+
+    private final SongProperty xProperty;
+    private final SongProperty yProperty;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final int columns;
+    private final int rows;
+    // Count of every bin, row by row from the smallest y values
+    private final long[] counts;
+    private long maxCount;
+    private long totalCount;
+    private long outsideCount;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param xProperty the property of the columns.
+     * @param minX the smallest value of the first column.
+     * @param maxX the largest value of the last column.
+     * @param yProperty the property of the rows.
+     * @param minY the smallest value of the first row.
+     * @param maxY the largest value of the last row.
+     * @param columns the number of columns.
+     * @param rows the number of rows.
+     * @throws IllegalArgumentException if there are no columns or rows, or a range is empty.
+     */
+    public DensityGrid(SongProperty xProperty, double minX, double maxX, SongProperty yProperty, double minY,
+                       double maxY, int columns, int rows) throws IllegalArgumentException {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("A density grid needs at least one column and one row (was " +
+                    columns + " x " + rows + ").");
+        }
+        if (!(minX <= maxX) || !(minY <= maxY)) {
+            throw new IllegalArgumentException("The ranges of a density grid must not be empty (were [" + minX +
+                    ", " + maxX + "] and [" + minY + ", " + maxY + "]).");
+        }
+        this.xProperty = xProperty;
+        this.yProperty = yProperty;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.columns = columns;
+        this.rows = rows;
+        counts = new long[columns * rows];
+    }
+
+    /**
+     * Adds song entries to the counts of their bins, in parallel.
+     *
+     * @param songEntries the song entries to add.
+     */
+    public void addAll(List<SongEntry> songEntries) {
+        int size = songEntries.size();
+        int partitions = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_PARTITION_SIZE));
+        // Every partition counts into its own grid; the last cell holds the count of the entries outside it
+        long[] sums = IntStream.range(0, partitions).parallel()
+                .mapToObj(partition -> binPartition(songEntries, (int) ((long) size * partition / partitions),
+                        (int) ((long) size * (partition + 1) / partitions)))
+                .reduce(DensityGrid::addCounts)
+                .orElseGet(() -> new long[counts.length + 1]);
+        addCounts(counts, sums);
+        outsideCount += sums[counts.length];
+        maxCount = 0;
+        totalCount = 0;
+        for (long count : counts) {
+            maxCount = Math.max(maxCount, count);
+            totalCount += count;
+        }
+    }
+
+    private long[] binPartition(List<SongEntry> songEntries, int from, int to) {
+        long[] partitionCounts = new long[counts.length + 1];
+        for (int index = from; index < to; index++) {
+            SongEntry songEntry = songEntries.get(index);
+            int column = getColumn(songEntry.getSongProperty(xProperty));
+            int row = getRow(songEntry.getSongProperty(yProperty));
+            int cell = column < 0 || row < 0 ? counts.length : row * columns + column;
+            partitionCounts[cell] += songEntry.getMultiplicity();
+        }
+        return partitionCounts;
+    }
+
+    /**
+     * Adds the counts of the second array to the first one, which may be shorter.
+     */
+    private static long[] addCounts(long[] sums, long[] added) {
+        for (int cell = 0; cell < sums.length; cell++) {
+            sums[cell] += added[cell];
+        }
+        return sums;
+    }
+
+    /**
+     * Returns the column of a value of the x property; the largest value is in the last column.
+     *
+     * @param x the value.
+     * @return its column, or -1 if it is outside the range of the grid.
+     */
+    public int getColumn(double x) {
+        return getBin(x, minX, maxX, columns);
+    }
+
+    /**
+     * Returns the row of a value of the y property; the largest value is in the last row.
+     *
+     * @param y the value.
+     * @return its row, or -1 if it is outside the range of the grid.
+     */
+    public int getRow(double y) {
+        return getBin(y, minY, maxY, rows);
+    }
+
+    private static int getBin(double value, double min, double max, int bins) {
+        if (!(value >= min && value <= max)) {
+            return -1;
+        }
+        if (max == min) {
+            return 0;
+        }
+        return Math.min(bins - 1, (int) ((value - min) / (max - min) * bins));
+    }
+
+    /**
+     * @param column the column of the bin, counted from the smallest x values.
+     * @param row the row of the bin, counted from the smallest y values.
+     * @return the number of rows of song entries in the bin.
+     * @throws IndexOutOfBoundsException if there is no such bin.
+     */
+    public long getCount(int column, int row) throws IndexOutOfBoundsException {
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("No bin (" + column + ", " + row + ") in a grid of " + columns +
+                    " x " + rows + ".");
+        }
+        return counts[row * columns + column];
+    }
+
+    public SongProperty getXProperty() {
+        return xProperty;
+    }
+
+    public SongProperty getYProperty() {
+        return yProperty;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the largest count of a bin.
+     */
+    public long getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return the number of rows binned.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the number of rows not binned because a value was outside the ranges of the grid.
+     */
+    public long getOutsideCount() {
+        return outsideCount;
+    }
+}
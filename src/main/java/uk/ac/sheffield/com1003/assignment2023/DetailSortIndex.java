@@ -0,0 +1,89 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Ranks the song entries of a catalog by one of their names (artist, album or song), ignoring case, so
+ * that a list of them can be sorted by that name like {@link PropertySortIndex} sorts by a property.
+ * <p>
+ * The distinct names are sorted once with {@link String#CASE_INSENSITIVE_ORDER} into a dictionary whose
+ * codes are the ranks: names equal ignoring case share a rank. Sorting a list of m entries then radix sorts
+ * their ranks, in O(m) time, instead of comparing Strings. As ranks are stored by ID, the index is not
+ * affected by reordering the rows of the catalog.
+ */
+public class DetailSortIndex {
+
+    private final SongDetail songDetail;
+    // Rank of the name of every song entry, by ID; -1 for IDs with no song entry
+    private final int[] ranksById;
+    private final int distinctValueCount;
+
+    /**
+     * Ranks song entries by a name.
+     *
+     * @param songEntries the song entries of the catalog.
+     * @param songDetail the name to rank them by.
+     */
+    public DetailSortIndex(List<SongEntry> songEntries, SongDetail songDetail) {
+        this.songDetail = songDetail;
+        Map<String, Integer> ranksByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int maximumId = -1;
+        for (SongEntry songEntry : songEntries) {
+            ranksByName.put(songEntry.getSongDetail(songDetail), 0);
+            maximumId = Math.max(maximumId, songEntry.getId());
+        }
+        int rank = 0;
+        for (Map.Entry<String, Integer> name : ranksByName.entrySet()) {
+            name.setValue(rank++);
+        }
+        distinctValueCount = rank;
+
+        ranksById = new int[maximumId + 1];
+        Arrays.fill(ranksById, -1);
+        for (SongEntry songEntry : songEntries) {
+            ranksById[songEntry.getId()] = ranksByName.get(songEntry.getSongDetail(songDetail));
+        }
+    }
+
+    public SongDetail getSongDetail() {
+        return songDetail;
+    }
+
+    /**
+     * @return the number of distinct names, ignoring case.
+     */
+    public int getDistinctValueCount() {
+        return distinctValueCount;
+    }
+
+    /**
+     * Returns the rank of the name of a song entry: the number of distinct names sorting before it.
+     *
+     * @param id the ID of the song entry.
+     * @return its rank.
+     * @throws NoSuchElementException if the index has no song entry with that ID.
+     */
+    public int getRank(int id) throws NoSuchElementException {
+        return PropertySortIndex.getRank(ranksById, id);
+    }
+
+    /**
+     * Sorts a list of song entries of the catalog by the name, ignoring case. Entries with equal names
+     * keep their order in the list.
+     *
+     * @param songEntries the song entries to sort.
+     * @param ascending whether names sorting first come first.
+     * @return the indexes in the list of the song entries, in sorted order.
+     * @throws NoSuchElementException if a song entry is not in the catalog the index was built from.
+     */
+    public int[] sort(List<SongEntry> songEntries, boolean ascending) throws NoSuchElementException {
+        return PropertySortIndex.sortByRank(ranksById, distinctValueCount, songEntries, ascending);
+    }
+}
@@ -0,0 +1,31 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.util.NoSuchElementException;
+
+/**
+ * This is a helper enum with constants representing the distances used to compare songs in feature space.
+ */
+public enum DistanceMetric {
+    EUCLIDEAN("Euclidean"),
+    COSINE("Cosine");
+
+    private final String metricName;
+
+    DistanceMetric(String mName) { metricName = mName; }
+
+    public String getName() { return this.metricName; }
+
+    /**
+     * Convert a metric name String (e.g. "Cosine") to the matching DistanceMetric
+     * @param name the String to convert
+     * @return the matching DistanceMetric
+     * @throws NoSuchElementException if the String does not match any DistanceMetric
+     */
+    public static DistanceMetric fromName(String name) throws NoSuchElementException {
+        for (DistanceMetric metric : DistanceMetric.values()) {
+            if (metric.getName().equalsIgnoreCase(name) || metric.name().equalsIgnoreCase(name))
+                return metric;
+        }
+        throw new NoSuchElementException("No such distance metric (" + name + ")!");
+    }
+}
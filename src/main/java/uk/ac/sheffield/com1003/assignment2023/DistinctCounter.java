@@ -0,0 +1,199 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Counts unique songs and unique artists in a list of song entries, either exactly or approximately.
+ * <p>
+ * The exact mode stores one 128-bit {@link SongFingerprint} per distinct row in a {@link FingerprintSet}.
+ * The approximate mode feeds the same fingerprints into a {@link HyperLogLog} sketch of configurable
+ * precision, which keeps memory constant and counts large lists in parallel.
+ * Both the CLI and the GUI use this class so that they always report the same numbers. The rows of a
+ * {@link SongRows} list are fingerprinted from its storage by row index.
+ */
+public class DistinctCounter {
+
+    /**
+     * The counting strategy used by a {@link DistinctCounter}.
+     */
+    public enum Mode {
+        EXACT,
+        APPROXIMATE;
+
+        /**
+         * Convert a name String (e.g. "exact") to the matching Mode.
+         *
+         * @param name the String to convert.
+         * @return the matching Mode.
+         * @throws IllegalArgumentException if the String does not match any Mode.
+         */
+        public static Mode fromName(String name) throws IllegalArgumentException {
+            return Mode.valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    // Lists smaller than this are sketched on the calling thread; splitting them costs more than it saves.
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final Mode mode;
+    private final int precision;
+
+    /**
+     * Constructs an exact distinct counter.
+     */
+    public DistinctCounter() {
+        this(Mode.EXACT, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs a distinct counter.
+     *
+     * @param mode whether to count exactly or estimate with HyperLogLog.
+     * @param precision the HyperLogLog precision, only used in {@link Mode#APPROXIMATE} mode.
+     * @throws IllegalArgumentException if the precision is out of range.
+     */
+    public DistinctCounter(Mode mode, int precision) throws IllegalArgumentException {
+        // Validate the precision eagerly so misconfigurations are reported at startup.
+        new HyperLogLog(precision);
+        this.mode = mode;
+        this.precision = precision;
+    }
+
+    /**
+     * Counts the songs in the list that differ in at least one detail or property.
+     *
+     * @param songEntriesList the song entries to count.
+     * @return the (exact or estimated) number of unique songs.
+     */
+    public long countUniqueSongs(List<SongEntry> songEntriesList) {
+        return count(songEntriesList, true);
+    }
+
+    /**
+     * Counts the distinct artist names in the list.
+     *
+     * @param songEntriesList the song entries to count.
+     * @return the (exact or estimated) number of unique artists.
+     */
+    public long countUniqueArtists(List<SongEntry> songEntriesList) {
+        return count(songEntriesList, false);
+    }
+
+    /**
+     * @return the counting mode of this counter.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the HyperLogLog precision used in approximate mode.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Describes how the counts were obtained, e.g. for labelling CLI and GUI output.
+     *
+     * @return "exact", or the approximate mode with its relative standard error.
+     */
+    public String describe() {
+        if (mode == Mode.EXACT) {
+            return "exact";
+        }
+        return String.format("approximate, +/-%.2f%%", HyperLogLog.relativeStandardError(precision) * 100);
+    }
+
+    /**
+     * Dispatches to the exact or approximate counting strategy.
+     *
+     * @param songEntriesList the song entries to count.
+     * @param wholeSong true to fingerprint whole rows; false to fingerprint artist names only.
+     * @return the number of distinct fingerprints.
+     */
+    private long count(List<SongEntry> songEntriesList, boolean wholeSong) {
+        if (mode == Mode.EXACT) {
+            return countExactly(songEntriesList, wholeSong);
+        }
+        return estimate(songEntriesList, wholeSong);
+    }
+
+    /**
+     * Counts distinct fingerprints exactly using a primitive fingerprint set.
+     */
+    private static long countExactly(List<SongEntry> songEntriesList, boolean wholeSong) {
+        FingerprintSet fingerprintSet = new FingerprintSet(songEntriesList.size());
+        SongFingerprint fingerprint = new SongFingerprint();
+        for (int index = 0; index < songEntriesList.size(); index++) {
+            fingerprint(fingerprint, songEntriesList, index, wholeSong);
+            fingerprintSet.add(fingerprint.getHigh(), fingerprint.getLow());
+        }
+        return fingerprintSet.size();
+    }
+
+    /**
+     * Estimates the number of distinct fingerprints with HyperLogLog, sketching large lists in parallel
+     * chunks that are merged at the end.
+     */
+    private long estimate(List<SongEntry> songEntriesList, boolean wholeSong) {
+        int size = songEntriesList.size();
+        if (size < PARALLEL_THRESHOLD) {
+            return sketch(songEntriesList, 0, size, wholeSong).estimate();
+        }
+
+        int chunkCount = Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+        // Every chunk owns its sketch, so merging into the left-hand operand is safe.
+        HyperLogLog merged = IntStream.range(0, chunkCount)
+                .parallel()
+                .mapToObj(chunk -> sketch(songEntriesList, Math.min(size, chunk * chunkSize),
+                        Math.min(size, (chunk + 1) * chunkSize), wholeSong))
+                .reduce((left, right) -> {
+                    left.merge(right);
+                    return left;
+                })
+                .orElseGet(() -> new HyperLogLog(precision));
+        return merged.estimate();
+    }
+
+    /**
+     * Builds a HyperLogLog sketch over a contiguous range of the list.
+     */
+    private HyperLogLog sketch(List<SongEntry> songEntriesList, int from, int to, boolean wholeSong) {
+        HyperLogLog hyperLogLog = new HyperLogLog(precision);
+        SongFingerprint fingerprint = new SongFingerprint();
+        for (int index = from; index < to; index++) {
+            fingerprint(fingerprint, songEntriesList, index, wholeSong);
+            hyperLogLog.offer(fingerprint.getHigh());
+        }
+        return hyperLogLog;
+    }
+
+    /**
+     * Fingerprints either a whole row or only its artist name into the reusable accumulator.
+     */
+    private static void fingerprint(SongFingerprint fingerprint, List<SongEntry> songEntriesList, int index,
+                                    boolean wholeSong) {
+        if (songEntriesList instanceof SongRows songRows) {
+            SongStorage songStorage = songRows.getSongStorage();
+            int row = songRows.getRow(index);
+            if (wholeSong) {
+                fingerprint.fingerprintRow(songStorage, row);
+            } else {
+                fingerprint.fingerprintString(songStorage.getDetail(row, SongDetail.ARTIST));
+            }
+            return;
+        }
+        SongEntry songEntry = songEntriesList.get(index);
+        if (wholeSong) {
+            fingerprint.fingerprintSong(songEntry);
+        } else {
+            fingerprint.fingerprintString(songEntry.getSongArtist());
+        }
+    }
+}
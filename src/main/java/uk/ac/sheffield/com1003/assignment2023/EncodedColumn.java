@@ -0,0 +1,342 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * A column of doubles stored in the narrowest {@link ColumnEncoding} that gives every value back exactly.
+ * <p>
+ * Values read from the song file are decimals with few digits (e.g. popularity 0-100, duration in whole
+ * milliseconds, danceability with three decimals). If, for some number of decimals d, every value v
+ * satisfies {@code (double) round(v * 10^d) / 10^d == v} bit for bit, the column stores the scaled integers
+ * relative to their minimum in 1, 2 or 4 bytes, depending on their range. The division is correctly
+ * rounded, so it yields the same double as parsing the decimal text did. Otherwise the column falls back to
+ * float if every value survives a round trip through float, and to double as a last resort.
+ * <p>
+ * The values are kept in a little-endian {@link ByteBuffer}: a heap buffer when the column is encoded, a
+ * direct buffer after {@link #toDirect()}, or a slice of a memory-mapped snapshot file (see
+ * {@link SongColumnsSnapshot}). Reads use absolute indexes, so a column can be shared between threads.
+ */
+public class EncodedColumn {
+
+    // Largest number of decimals tried for the scaled encodings
+    static final int MAX_DECIMALS = 9;
+
+    // Scaled values must stay exactly representable as doubles
+    private static final long MAX_SCALED_MAGNITUDE = 1L << 52;
+
+    private final ColumnEncoding encoding;
+    private final int size;
+    private final int decimals;
+    private final double scale;
+    private final long base;
+
+    // size * encoding.getBytesPerValue() bytes, in the layout given by the encoding
+    private final ByteBuffer values;
+
+    private EncodedColumn(ColumnEncoding encoding, int size, int decimals, long base, ByteBuffer values) {
+        this.encoding = encoding;
+        this.size = size;
+        this.decimals = decimals;
+        this.scale = Math.pow(10, decimals);
+        this.base = base;
+        this.values = values.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Wraps values that were already encoded, e.g. read back from a snapshot file.
+     *
+     * @param encoding the encoding of the values.
+     * @param size the number of rows.
+     * @param decimals the number of decimals of a scaled encoding, 0 otherwise.
+     * @param base the offset added to the stored integers of a scaled encoding, 0 otherwise.
+     * @param values exactly {@code size * encoding.getBytesPerValue()} bytes, little-endian.
+     * @return the column.
+     * @throws IllegalArgumentException if the number of bytes does not match the size.
+     */
+    public static EncodedColumn wrap(ColumnEncoding encoding, int size, int decimals, long base, ByteBuffer values)
+            throws IllegalArgumentException {
+        if (values.remaining() != (long) size * encoding.getBytesPerValue()) {
+            throw new IllegalArgumentException("A " + encoding + " column of " + size + " rows needs " +
+                    (long) size * encoding.getBytesPerValue() + " bytes (was " + values.remaining() + ").");
+        }
+        return new EncodedColumn(encoding, size, decimals, base, values.slice());
+    }
+
+    /**
+     * Encodes the given values with the narrowest exact encoding.
+     *
+     * @param values the values of the column; the array is not kept.
+     * @return the encoded column.
+     */
+    public static EncodedColumn encode(double[] values) {
+        int size = values.length;
+
+        // Scaled decimals: find the fewest decimals that reproduce every value.
+        for (int decimals = 0; decimals <= MAX_DECIMALS; decimals++) {
+            double scale = Math.pow(10, decimals);
+            if (!IntStream.range(0, size).parallel().allMatch(row -> isExactlyScalable(values[row], scale))) {
+                continue;
+            }
+            long minimum = Long.MAX_VALUE;
+            long maximum = Long.MIN_VALUE;
+            for (double value : values) {
+                long scaled = Math.round(value * scale);
+                minimum = Math.min(minimum, scaled);
+                maximum = Math.max(maximum, scaled);
+            }
+            long base = size == 0 ? 0 : minimum;
+            long range = size == 0 ? 0 : maximum - minimum;
+            ColumnEncoding encoding;
+            if (range <= 0xFFL) {
+                encoding = ColumnEncoding.BYTE;
+            } else if (range <= 0xFFFFL) {
+                encoding = ColumnEncoding.SHORT;
+            } else if (range <= 0xFFFFFFFFL) {
+                encoding = ColumnEncoding.INT;
+            } else {
+                // The range is too wide for 4 bytes; more decimals would only widen it.
+                break;
+            }
+            ByteBuffer buffer = allocate(encoding, size);
+            IntStream.range(0, size).parallel().forEach(row -> {
+                long stored = Math.round(values[row] * scale) - base;
+                switch (encoding) {
+                    case BYTE -> buffer.put(row, (byte) stored);
+                    case SHORT -> buffer.putShort(row * Short.BYTES, (short) stored);
+                    default -> buffer.putInt(row * Integer.BYTES, (int) stored);
+                }
+            });
+            return new EncodedColumn(encoding, size, decimals, base, buffer);
+        }
+
+        // Floats: every value survives the round trip through single precision.
+        if (IntStream.range(0, size).parallel().allMatch(row -> sameBits((float) values[row], values[row]))) {
+            ByteBuffer buffer = allocate(ColumnEncoding.FLOAT, size);
+            IntStream.range(0, size).parallel().forEach(row ->
+                    buffer.putFloat(row * Float.BYTES, (float) values[row]));
+            return new EncodedColumn(ColumnEncoding.FLOAT, size, 0, 0, buffer);
+        }
+
+        ByteBuffer buffer = allocate(ColumnEncoding.DOUBLE, size);
+        IntStream.range(0, size).parallel().forEach(row -> buffer.putDouble(row * Double.BYTES, values[row]));
+        return new EncodedColumn(ColumnEncoding.DOUBLE, size, 0, 0, buffer);
+    }
+
+    private static ByteBuffer allocate(ColumnEncoding encoding, int size) {
+        return ByteBuffer.allocate(Math.multiplyExact(size, encoding.getBytesPerValue()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Checks whether a value is given back bit for bit by scaling, rounding and dividing it again.
+     */
+    private static boolean isExactlyScalable(double value, double scale) {
+        double scaled = value * scale;
+        if (!(Math.abs(scaled) < MAX_SCALED_MAGNITUDE)) {
+            return false;  // also rejects NaN and infinities
+        }
+        return sameBits(Math.round(scaled) / scale, value);
+    }
+
+    private static boolean sameBits(double first, double second) {
+        return Double.doubleToRawLongBits(first) == Double.doubleToRawLongBits(second);
+    }
+
+    /**
+     * Returns the value of a row, identical to the double it was encoded from.
+     *
+     * @param row the row index.
+     * @return the value of the row.
+     */
+    public double get(int row) {
+        switch (encoding) {
+            case BYTE:
+                return (base + (values.get(row) & 0xFFL)) / scale;
+            case SHORT:
+                return (base + (values.getShort(row * Short.BYTES) & 0xFFFFL)) / scale;
+            case INT:
+                return (base + (values.getInt(row * Integer.BYTES) & 0xFFFFFFFFL)) / scale;
+            case FLOAT:
+                return values.getFloat(row * Float.BYTES);
+            default:
+                return values.getDouble(row * Double.BYTES);
+        }
+    }
+
+    /**
+     * Finds the rows whose value is within a range. A scaled encoding converts the bounds to stored integers
+     * once, checking the conversion against the decoded values, and compares the stored integers of the rows,
+     * without decoding them to doubles.
+     *
+     * @param from the lower bound, inclusive.
+     * @param to the upper bound, exclusive.
+     * @return the matching rows, in increasing order.
+     */
+    public int[] findRows(double from, double to) {
+        if (!(from < to)) {
+            return new int[0];
+        }
+        if (encoding == ColumnEncoding.FLOAT || encoding == ColumnEncoding.DOUBLE) {
+            return IntStream.range(0, size).parallel().filter(row -> {
+                double value = get(row);
+                return value >= from && value < to;
+            }).toArray();
+        }
+        long maxStored = encoding == ColumnEncoding.BYTE ? 0xFFL : encoding == ColumnEncoding.SHORT ? 0xFFFFL :
+                0xFFFFFFFFL;
+        long storedFrom = toStoredBound(from, maxStored);
+        long storedTo = toStoredBound(to, maxStored);
+        switch (encoding) {
+            case BYTE:
+                return IntStream.range(0, size).parallel().filter(row -> {
+                    long stored = values.get(row) & 0xFFL;
+                    return stored >= storedFrom && stored < storedTo;
+                }).toArray();
+            case SHORT:
+                return IntStream.range(0, size).parallel().filter(row -> {
+                    long stored = values.getShort(row * Short.BYTES) & 0xFFFFL;
+                    return stored >= storedFrom && stored < storedTo;
+                }).toArray();
+            default:
+                return IntStream.range(0, size).parallel().filter(row -> {
+                    long stored = values.getInt(row * Integer.BYTES) & 0xFFFFFFFFL;
+                    return stored >= storedFrom && stored < storedTo;
+                }).toArray();
+        }
+    }
+
+    /**
+     * Finds the rows of a range of rows whose value is within a range, like {@link #findRows(double, double)}
+     * but on the calling thread, e.g. for a block of rows a scan could not skip.
+     *
+     * @param from the lower bound, inclusive.
+     * @param to the upper bound, exclusive.
+     * @param fromRow the first row to check.
+     * @param toRow the row after the last row to check.
+     * @return the matching rows, in increasing order.
+     * @throws IndexOutOfBoundsException if the range of rows is not within the column.
+     */
+    public int[] findRows(double from, double to, int fromRow, int toRow) throws IndexOutOfBoundsException {
+        Objects.checkFromToIndex(fromRow, toRow, size);
+        if (!(from < to)) {
+            return new int[0];
+        }
+        int[] rows = new int[toRow - fromRow];
+        int count = 0;
+        if (encoding == ColumnEncoding.FLOAT || encoding == ColumnEncoding.DOUBLE) {
+            for (int row = fromRow; row < toRow; row++) {
+                double value = get(row);
+                if (value >= from && value < to) {
+                    rows[count++] = row;
+                }
+            }
+            return Arrays.copyOf(rows, count);
+        }
+        long maxStored = encoding == ColumnEncoding.BYTE ? 0xFFL : encoding == ColumnEncoding.SHORT ? 0xFFFFL :
+                0xFFFFFFFFL;
+        long storedFrom = toStoredBound(from, maxStored);
+        long storedTo = toStoredBound(to, maxStored);
+        for (int row = fromRow; row < toRow; row++) {
+            long stored = encoding == ColumnEncoding.BYTE ? values.get(row) & 0xFFL :
+                    encoding == ColumnEncoding.SHORT ? values.getShort(row * Short.BYTES) & 0xFFFFL :
+                    values.getInt(row * Integer.BYTES) & 0xFFFFFFFFL;
+            if (stored >= storedFrom && stored < storedTo) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Returns the smallest stored integer whose decoded value is not smaller than a bound, from 0 up to one
+     * past the largest stored integer. Scaling the bound is only an estimate: e.g. 1.1 * 100 is slightly
+     * more than 110, so the estimate is moved until it agrees with the decoded values, which grow with the
+     * stored integers.
+     */
+    private long toStoredBound(double bound, long maxStored) {
+        double estimate = Math.rint(bound * scale) - base;
+        long stored = (long) Math.max(0, Math.min(maxStored + 1, estimate));
+        while (stored > 0 && decode(stored - 1) >= bound) {
+            stored--;
+        }
+        while (stored <= maxStored && decode(stored) < bound) {
+            stored++;
+        }
+        return stored;
+    }
+
+    /**
+     * Returns the value of a stored integer of a scaled encoding, as {@link #get(int)} does.
+     */
+    private double decode(long stored) {
+        return (base + stored) / scale;
+    }
+
+    /**
+     * Copies the column into memory outside the Java heap.
+     *
+     * @return a column with the same values held in a direct buffer.
+     */
+    public EncodedColumn toDirect() {
+        ByteBuffer direct = ByteBuffer.allocateDirect(values.capacity());
+        direct.put(values.duplicate().clear());
+        return new EncodedColumn(encoding, size, decimals, base, direct.clear());
+    }
+
+    /**
+     * @return whether the values are held outside the Java heap (in a direct or mapped buffer).
+     */
+    public boolean isDirect() {
+        return values.isDirect();
+    }
+
+    /**
+     * Returns a read-only view of the stored bytes, e.g. to write them to a snapshot file.
+     *
+     * @return the {@code size * encoding.getBytesPerValue()} bytes of the column, little-endian.
+     */
+    public ByteBuffer getBytes() {
+        return values.asReadOnlyBuffer().clear().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public ColumnEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the number of decimals kept by a scaled encoding, 0 for float and double.
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+    /**
+     * @return the offset added to the stored integers of a scaled encoding, 0 for float and double.
+     */
+    public long getBase() {
+        return base;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes taken by the values of the column.
+     */
+    public long getMemoryBytes() {
+        return (long) size * encoding.getBytesPerValue();
+    }
+
+    @Override
+    public String toString() {
+        if (encoding == ColumnEncoding.FLOAT || encoding == ColumnEncoding.DOUBLE) {
+            return encoding.name();
+        }
+        return encoding.name() + " (" + decimals + " decimals)";
+    }
+}
@@ -0,0 +1,260 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Groups the song entries of a catalog by artist, then album, then song name, so that the entries and the
+ * artists, albums and songs left by a selection of names come straight from the groups they belong to.
+ * <p>
+ * Every distinct (artist, album, song) combination is a facet holding the positions of its song entries,
+ * their number of rows and their highest popularity. The facets are sorted by artist, album and song,
+ * so the albums of an artist and the songs of an album are consecutive. Each artist, album and song name
+ * (ignoring case, as the dashboard's selections do) maps to the list of its facets. A selection is answered
+ * from the shortest list among the selected names, so its cost grows with the number of facets of that
+ * name, not with the size of the catalog.
+ * <p>
+ * The positions are those of the song entries list the index is built from, so it must be rebuilt when
+ * that list is reordered.
+ */
+public class FacetIndex {
+
+    private final List<SongEntry> songEntries;
+    private final int facetCount;
+    // Per facet, in artist, album and song order: the value of every detail (ordinal order), its folded
+    // (lower case) key, the positions of its song entries, its rows and its highest popularity
+    private final String[][] facetValues;
+    private final String[][] facetKeys;
+    private final int[][] facetPositions;
+    private final long[] facetRowCounts;
+    private final double[] facetPopularities;
+    // Facets of every (lower case) name, in facet order
+    private final Map<SongDetail, Map<String, int[]>> facetsByKey = new EnumMap<>(SongDetail.class);
+
+    /**
+     * A name offered by a selection, with the rows and highest popularity of its song entries.
+     */
+    public static class FacetValue {
+
+        private final String value;
+        private final long rowCount;
+        private final double popularity;
+
+        public FacetValue(String value, long rowCount, double popularity) {
+            this.value = value;
+            this.rowCount = rowCount;
+            this.popularity = popularity;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public double getPopularity() {
+            return popularity;
+        }
+
+        @Override
+        public String toString() {
+            return value + " (" + rowCount + ")";
+        }
+    }
+
+    /**
+     * Builds the facets of a list of song entries.
+     *
+     * @param songEntries the song entries, whose positions the index refers to.
+     */
+    public FacetIndex(List<SongEntry> songEntries) {
+        this.songEntries = songEntries;
+        SongDetail[] hierarchy = {SongDetail.ARTIST, SongDetail.ALBUM_NAME, SongDetail.NAME};
+
+        // Collect the positions of every distinct combination of names.
+        Map<List<String>, List<Integer>> positionsByCombination = new HashMap<>();
+        for (int position = 0; position < songEntries.size(); position++) {
+            SongEntry songEntry = songEntries.get(position);
+            List<String> combination = new ArrayList<>(hierarchy.length);
+            for (SongDetail songDetail : hierarchy) {
+                combination.add(songEntry.getSongDetail(songDetail));
+            }
+            positionsByCombination.computeIfAbsent(combination, key -> new ArrayList<>()).add(position);
+        }
+        List<List<String>> combinations = new ArrayList<>(positionsByCombination.keySet());
+        // Sort by artist, album and song ignoring case, then by exact spelling.
+        Comparator<List<String>> byNames = Comparator.<List<String>, String>comparing(names -> key(names.get(0)))
+                .thenComparing(names -> key(names.get(1)))
+                .thenComparing(names -> key(names.get(2)))
+                .thenComparing(names -> String.join("\n", names));
+        combinations.sort(byNames);
+
+        this.facetCount = combinations.size();
+        this.facetValues = new String[facetCount][SongDetail.values().length];
+        this.facetKeys = new String[facetCount][SongDetail.values().length];
+        this.facetPositions = new int[facetCount][];
+        this.facetRowCounts = new long[facetCount];
+        this.facetPopularities = new double[facetCount];
+        Map<SongDetail, Map<String, List<Integer>>> facetLists = new EnumMap<>(SongDetail.class);
+        for (SongDetail songDetail : hierarchy) {
+            facetLists.put(songDetail, new HashMap<>());
+        }
+        for (int facet = 0; facet < facetCount; facet++) {
+            List<String> combination = combinations.get(facet);
+            for (int level = 0; level < hierarchy.length; level++) {
+                SongDetail songDetail = hierarchy[level];
+                facetValues[facet][songDetail.ordinal()] = combination.get(level);
+                facetKeys[facet][songDetail.ordinal()] = key(combination.get(level));
+                facetLists.get(songDetail)
+                        .computeIfAbsent(facetKeys[facet][songDetail.ordinal()], key -> new ArrayList<>())
+                        .add(facet);
+            }
+            facetPositions[facet] = positionsByCombination.get(combination).stream()
+                    .mapToInt(Integer::intValue).toArray();
+            double popularity = Double.NEGATIVE_INFINITY;
+            for (int position : facetPositions[facet]) {
+                SongEntry songEntry = songEntries.get(position);
+                facetRowCounts[facet] += songEntry.getMultiplicity();
+                popularity = Math.max(popularity, songEntry.getSongProperty(SongProperty.POPULARITY));
+            }
+            facetPopularities[facet] = popularity;
+        }
+        for (SongDetail songDetail : hierarchy) {
+            Map<String, int[]> facets = new HashMap<>();
+            facetLists.get(songDetail).forEach((key, list) ->
+                    facets.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+            facetsByKey.put(songDetail, facets);
+        }
+    }
+
+    /**
+     * @return the number of distinct (artist, album, song) combinations.
+     */
+    public int getFacetCount() {
+        return facetCount;
+    }
+
+    /**
+     * Returns the song entries matching a selection of names, in the order of the song entries list.
+     * Names are compared ignoring case; an empty name selects any value.
+     *
+     * @param artistName the selected artist, or "".
+     * @param albumName the selected album, or "".
+     * @param songName the selected song, or "".
+     * @return the matching song entries.
+     */
+    public List<SongEntry> getSongEntries(String artistName, String albumName, String songName) {
+        int[] facets = findFacets(artistName, albumName, songName);
+        int matchCount = 0;
+        for (int facet : facets) {
+            matchCount += facetPositions[facet].length;
+        }
+        int[] positions = new int[matchCount];
+        int filled = 0;
+        for (int facet : facets) {
+            System.arraycopy(facetPositions[facet], 0, positions, filled, facetPositions[facet].length);
+            filled += facetPositions[facet].length;
+        }
+        Arrays.sort(positions);
+        List<SongEntry> matchingEntries = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            matchingEntries.add(songEntries.get(position));
+        }
+        return matchingEntries;
+    }
+
+    /**
+     * Returns the number of rows of the song file matching a selection of names.
+     *
+     * @param artistName the selected artist, or "".
+     * @param albumName the selected album, or "".
+     * @param songName the selected song, or "".
+     * @return the number of matching rows.
+     */
+    public long getRowCount(String artistName, String albumName, String songName) {
+        long rowCount = 0;
+        for (int facet : findFacets(artistName, albumName, songName)) {
+            rowCount += facetRowCounts[facet];
+        }
+        return rowCount;
+    }
+
+    /**
+     * Returns the values of a detail among the song entries matching a selection of names, with their
+     * row counts, e.g. the albums of an artist or the artists who recorded a song. The values come in
+     * artist, album and song order.
+     *
+     * @param songDetail the detail whose values are wanted.
+     * @param artistName the selected artist, or "".
+     * @param albumName the selected album, or "".
+     * @param songName the selected song, or "".
+     * @return the distinct values of the detail, each with the rows and highest popularity of its entries.
+     */
+    public List<FacetValue> getFacetValues(SongDetail songDetail, String artistName, String albumName,
+                                           String songName) {
+        Map<String, long[]> rowCounts = new LinkedHashMap<>();
+        Map<String, Double> popularities = new HashMap<>();
+        for (int facet : findFacets(artistName, albumName, songName)) {
+            String value = facetValues[facet][songDetail.ordinal()];
+            rowCounts.computeIfAbsent(value, key -> new long[1])[0] += facetRowCounts[facet];
+            popularities.merge(value, facetPopularities[facet], Math::max);
+        }
+        List<FacetValue> values = new ArrayList<>(rowCounts.size());
+        rowCounts.forEach((value, rowCount) ->
+                values.add(new FacetValue(value, rowCount[0], popularities.get(value))));
+        return values;
+    }
+
+    /**
+     * Returns the facets matching every non-empty name, starting from the shortest facet list among them.
+     */
+    private int[] findFacets(String artistName, String albumName, String songName) {
+        String[] selectedKeys = new String[SongDetail.values().length];
+        selectedKeys[SongDetail.ARTIST.ordinal()] = key(artistName);
+        selectedKeys[SongDetail.ALBUM_NAME.ordinal()] = key(albumName);
+        selectedKeys[SongDetail.NAME.ordinal()] = key(songName);
+
+        int[] shortest = null;
+        for (SongDetail songDetail : SongDetail.values()) {
+            String selectedKey = selectedKeys[songDetail.ordinal()];
+            if (selectedKey.isEmpty()) {
+                continue;
+            }
+            int[] facets = facetsByKey.get(songDetail).getOrDefault(selectedKey, new int[0]);
+            if (shortest == null || facets.length < shortest.length) {
+                shortest = facets;
+            }
+        }
+        if (shortest == null) {
+            int[] allFacets = new int[facetCount];
+            Arrays.setAll(allFacets, facet -> facet);
+            return allFacets;
+        }
+        return Arrays.stream(shortest).filter(facet -> {
+            for (SongDetail songDetail : SongDetail.values()) {
+                String selectedKey = selectedKeys[songDetail.ordinal()];
+                if (!selectedKey.isEmpty() && !selectedKey.equals(facetKeys[facet][songDetail.ordinal()])) {
+                    return false;
+                }
+            }
+            return true;
+        }).toArray();
+    }
+
+    private static String key(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,482 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Applies an ordered list of filters ({@link SubQuery} objects) to a list of song entries, remembering the
+ * result after every prefix of the list so that changing one filter does not rescan the song entries.
+ * <p>
+ * The result of the first k filters is cached as the positions of its song entries in the base list. To
+ * compute the current result, the longest cached prefix of the current filters is looked up and only the
+ * filters after it are applied, caching each new prefix on the way. Adding a filter therefore scans only
+ * the previous result; removing or moving a filter reuses every filter before it; and {@link #undo()}
+ * returns to a list of filters whose result is usually still cached.
+ * <p>
+ * The cache is bounded in bytes (four per cached position): when it grows beyond the bound, the least
+ * recently used prefixes are dropped.
+ * <p>
+ * The dashboard computes results on a background thread while the filters are changed on the event
+ * dispatch thread, so every method is thread-safe. {@link #getResult()} only holds the lock of the stack
+ * while it looks up and updates the cache, not while it scans song entries, and it gives up with a
+ * {@link CancellationException} when its thread is interrupted.
+ */
+public class FilterStack {
+
+    // Default bound of the cached results, in bytes
+    public static final long DEFAULT_MEMORY_BOUND = 16L << 20;
+
+    // Number of previous lists of filters kept for undo
+    private static final int MAX_UNDO_STEPS = 100;
+
+    // Number of song entries scanned between two checks for interruption
+    private static final int INTERRUPT_CHECK_INTERVAL = 1 << 12;
+
+    private final long memoryBound;
+    private List<SongEntry> baseEntries;
+    // Replaced, never modified, by every change, so getResult can scan a snapshot of it without the lock
+    private List<SubQuery> subQueries = new ArrayList<>();
+    private final Deque<List<SubQuery>> history = new ArrayDeque<>();
+    // Positions in baseEntries of the result of every cached prefix, least recently used first
+    private final LinkedHashMap<List<SubQuery>, int[]> prefixResults = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    // Number of filters taken from the cache and applied by the last call to getResult
+    private int reusedCount;
+    private int appliedCount;
+
+    /**
+     * @param baseEntries the song entries to filter.
+     */
+    public FilterStack(List<SongEntry> baseEntries) {
+        this(baseEntries, DEFAULT_MEMORY_BOUND);
+    }
+
+    /**
+     * @param baseEntries the song entries to filter.
+     * @param memoryBound the most bytes the cached results may take.
+     * @throws IllegalArgumentException if the memory bound is negative.
+     */
+    public FilterStack(List<SongEntry> baseEntries, long memoryBound) throws IllegalArgumentException {
+        if (memoryBound < 0) {
+            throw new IllegalArgumentException("The memory bound must not be negative (was " + memoryBound + ").");
+        }
+        this.memoryBound = memoryBound;
+        this.baseEntries = baseEntries;
+    }
+
+    /**
+     * Sets the song entries to filter, e.g. when another artist is selected. The cached results are
+     * dropped unless the list is the same object as before, which is checked without comparing its song
+     * entries; the filters and the undo history are kept.
+     *
+     * @param baseEntries the song entries to filter.
+     */
+    public synchronized void setBaseEntries(List<SongEntry> baseEntries) {
+        if (baseEntries != this.baseEntries) {
+            prefixResults.clear();
+            cachedBytes = 0;
+        }
+        this.baseEntries = baseEntries;
+    }
+
+    /**
+     * @return the current filters, in the order they are applied.
+     */
+    public synchronized List<SubQuery> getSubQueries() {
+        return List.copyOf(subQueries);
+    }
+
+    /**
+     * Adds a filter after the current ones.
+     *
+     * @param subQuery the filter to add.
+     */
+    public synchronized void add(SubQuery subQuery) {
+        List<SubQuery> changed = new ArrayList<>(subQueries);
+        changed.add(subQuery);
+        change(changed);
+    }
+
+    /**
+     * Adds filters after the current ones, as a single change (undone at once).
+     *
+     * @param added the filters to add, in order.
+     */
+    public synchronized void addAll(List<SubQuery> added) {
+        List<SubQuery> changed = new ArrayList<>(subQueries);
+        changed.addAll(added);
+        change(changed);
+    }
+
+    /**
+     * Removes one filter; the results of the filters before it are reused.
+     *
+     * @param index the position of the filter to remove.
+     * @throws IndexOutOfBoundsException if there is no filter at that position.
+     */
+    public synchronized void remove(int index) throws IndexOutOfBoundsException {
+        List<SubQuery> changed = new ArrayList<>(subQueries);
+        changed.remove(index);
+        change(changed);
+    }
+
+    /**
+     * Moves one filter to another position; the results of the filters before both positions are reused.
+     *
+     * @param from the current position of the filter.
+     * @param to its new position.
+     * @throws IndexOutOfBoundsException if either position is not that of a filter.
+     */
+    public synchronized void move(int from, int to) throws IndexOutOfBoundsException {
+        List<SubQuery> changed = new ArrayList<>(subQueries);
+        changed.add(to, changed.remove(from));
+        change(changed);
+    }
+
+    /**
+     * Removes every filter. The cached results are kept, so undoing this is instant.
+     */
+    public synchronized void clear() {
+        if (!subQueries.isEmpty()) {
+            change(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Returns to the filters before the last change.
+     *
+     * @return false if there was nothing to undo.
+     */
+    public synchronized boolean undo() {
+        if (history.isEmpty()) {
+            return false;
+        }
+        subQueries = history.pop();
+        return true;
+    }
+
+    public synchronized boolean canUndo() {
+        return !history.isEmpty();
+    }
+
+    private void change(List<SubQuery> changed) {
+        history.push(subQueries);
+        if (history.size() > MAX_UNDO_STEPS) {
+            history.removeLast();
+        }
+        subQueries = changed;
+    }
+
+    /**
+     * The result of the current filters, with the song entries the filters applied to compute it removed.
+     * <p>
+     * The filters after the longest cached prefix are applied to the result of that prefix, so the removed
+     * entries are those of the prefix's result that the result does not contain. A view that counted the
+     * prefix's result (see {@link #narrows(List, List)}) can therefore be updated by subtracting the removed
+     * entries, in time proportional to their number, instead of counting the result again.
+     */
+    public static class Result {
+
+        private final List<SongEntry> baseEntries;
+        private final List<SubQuery> subQueries;
+        private final int reusedCount;
+        private final List<SongEntry> songEntries;
+        private final List<SongEntry> removedEntries;
+
+        private Result(List<SongEntry> baseEntries, List<SubQuery> subQueries, int reusedCount,
+                       List<SongEntry> songEntries, List<SongEntry> removedEntries) {
+            this.baseEntries = baseEntries;
+            this.subQueries = subQueries;
+            this.reusedCount = reusedCount;
+            this.songEntries = songEntries;
+            this.removedEntries = removedEntries;
+        }
+
+        /**
+         * @return the song entries that were filtered.
+         */
+        public List<SongEntry> getBaseEntries() {
+            return baseEntries;
+        }
+
+        /**
+         * @return the filters of the result, in the order they were applied.
+         */
+        public List<SubQuery> getSubQueries() {
+            return subQueries;
+        }
+
+        /**
+         * @return the number of filters whose result was taken from the cache.
+         */
+        public int getReusedCount() {
+            return reusedCount;
+        }
+
+        /**
+         * @return the base song entries that satisfy every filter, in their base order.
+         */
+        public List<SongEntry> getSongEntries() {
+            return songEntries;
+        }
+
+        /**
+         * @return the song entries of the result of the reused filters that the applied filters removed, in
+         * their base order.
+         */
+        public List<SongEntry> getRemovedEntries() {
+            return removedEntries;
+        }
+
+        /**
+         * Tells whether this result was computed by filtering the result of other filters of the same base
+         * entries, so that it is that result without the {@link #getRemovedEntries() removed entries}.
+         *
+         * @param baseEntries the base entries of the other result.
+         * @param subQueries the filters of the other result.
+         * @return true if the other filters are the reused prefix of the filters of this result.
+         */
+        public boolean narrows(List<SongEntry> baseEntries, List<SubQuery> subQueries) {
+            return baseEntries == this.baseEntries && subQueries.equals(this.subQueries.subList(0, reusedCount));
+        }
+    }
+
+    /**
+     * Returns the base song entries that satisfy every current filter, in their base order. Only the
+     * filters after the longest cached prefix of the current filters are applied.
+     *
+     * @return the filtered song entries.
+     * @throws CancellationException if the calling thread is interrupted while filtering.
+     */
+    public List<SongEntry> getResult() throws CancellationException {
+        return computeResult().getSongEntries();
+    }
+
+    /**
+     * Computes the result of the current filters like {@link #getResult()}, also returning the song
+     * entries removed by the filters applied.
+     *
+     * @return the result.
+     * @throws CancellationException if the calling thread is interrupted while filtering.
+     */
+    public Result computeResult() throws CancellationException {
+        List<SongEntry> base;
+        List<SubQuery> filters;
+        int depth;
+        int[] positions = null;
+        synchronized (this) {
+            base = baseEntries;
+            filters = subQueries;
+            depth = filters.size();
+            while (depth > 0 && (positions = prefixResults.get(filters.subList(0, depth))) == null) {
+                depth--;
+            }
+            reusedCount = depth;
+            appliedCount = filters.size() - depth;
+        }
+        int reused = depth;
+        if (filters.isEmpty()) {
+            return new Result(base, List.of(), 0, base, List.of());
+        }
+
+        List<int[]> removedPositions = new ArrayList<>();
+        for (; depth < filters.size(); depth++) {
+            Partition partition = filter(base, filters.get(depth), positions);
+            positions = partition.kept;
+            removedPositions.add(partition.rejected);
+            synchronized (this) {
+                // The base entries may have changed while filtering; the result is then only returned.
+                if (base == baseEntries) {
+                    cache(List.copyOf(filters.subList(0, depth + 1)), positions);
+                }
+            }
+        }
+        return new Result(base, List.copyOf(filters), reused, toSongEntries(base, positions),
+                toSongEntries(base, mergePositions(removedPositions)));
+    }
+
+    private static List<SongEntry> toSongEntries(List<SongEntry> base, int[] positions) {
+        if (base instanceof SongRows songRows) {
+            return songRows.select(positions);
+        }
+        List<SongEntry> songEntries = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            songEntries.add(base.get(position));
+        }
+        return songEntries;
+    }
+
+    /**
+     * Merges sorted arrays of distinct positions into one sorted array.
+     */
+    private static int[] mergePositions(List<int[]> sortedPositions) {
+        if (sortedPositions.size() == 1) {
+            return sortedPositions.get(0);
+        }
+        int[] merged = sortedPositions.stream().flatMapToInt(Arrays::stream).toArray();
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * The positions kept and rejected by a filter, both in increasing order.
+     */
+    private static class Partition {
+
+        private final int[] kept;
+        private final int[] rejected;
+
+        private Partition(int[] kept, int[] rejected) {
+            this.kept = kept;
+            this.rejected = rejected;
+        }
+    }
+
+    /**
+     * Splits the positions of the entries satisfying a filter from the others, from the given positions
+     * or, if null, from every base entry. The values of a {@link SongRows} base are read from its storage.
+     */
+    private static Partition filter(List<SongEntry> base, SubQuery subQuery, int[] positions)
+            throws CancellationException {
+        int candidateCount = positions == null ? base.size() : positions.length;
+        // Kept positions fill the array from the start, rejected ones from the end
+        int[] split = new int[candidateCount];
+        int keptCount = 0;
+        int rejectedCount = 0;
+        SongRows songRows = base instanceof SongRows rows ? rows : null;
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            if (candidate % INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Filtering was interrupted.");
+            }
+            int position = positions == null ? candidate : positions[candidate];
+            double songPropertyValue = songRows != null
+                    ? songRows.getProperty(position, subQuery.getSongProperty())
+                    : base.get(position).getSongProperty(subQuery.getSongProperty());
+            if (!shouldRemoveValue(songPropertyValue, subQuery)) {
+                split[keptCount++] = position;
+            } else {
+                split[candidateCount - 1 - rejectedCount++] = position;
+            }
+        }
+        int[] kept = new int[keptCount];
+        System.arraycopy(split, 0, kept, 0, keptCount);
+        int[] rejected = new int[rejectedCount];
+        for (int index = 0; index < rejectedCount; index++) {
+            rejected[index] = split[candidateCount - 1 - index];
+        }
+        return new Partition(kept, rejected);
+    }
+
+    /**
+     * Checks whether a song entry meets every filter of a list, e.g. to filter a sample of song entries
+     * the way the stack filters them.
+     *
+     * @param songEntry the song entry to check.
+     * @param subQueries the filters the song entry must meet.
+     * @return true if the song entry meets every filter.
+     */
+    public static boolean matches(SongEntry songEntry, List<SubQuery> subQueries) {
+        return !shouldRemoveSong(songEntry, subQueries);
+    }
+
+    /**
+     * Determines whether a SongEntry should be removed based on a list of SubQuery conditions.
+     * Each SubQuery specifies a song property, a comparison operator, and a value. If any SubQuery condition
+     * dictates that the SongEntry does not meet the criteria, the song should be removed.
+     *
+     * @param songEntry The SongEntry to evaluate against the provided subqueries.
+     * @param subQueryList A list of SubQuery objects that define the removal criteria.
+     * @return true if the SongEntry does not meet the criteria of all SubQueries; false otherwise.
+     */
+    private static boolean shouldRemoveSong(SongEntry songEntry, List<SubQuery> subQueryList) {
+        for (SubQuery subQuery : subQueryList) {
+            if (shouldRemoveValue(songEntry.getSongProperty(subQuery.getSongProperty()), subQuery)) return true;
+        }
+        return false; // No condition met to remove the song
+    }
+
+    /**
+     * Determines whether a value of the property of a SubQuery fails its condition.
+     *
+     * @param songPropertyValue the value of the song property.
+     * @param subQuery the SubQuery to evaluate.
+     * @return true if the value does not meet the criteria of the SubQuery.
+     */
+    private static boolean shouldRemoveValue(double songPropertyValue, SubQuery subQuery) {
+        double subQueryValue = subQuery.getValue();
+        switch (subQuery.getOperator()) {
+            case ">":
+                return songPropertyValue <= subQueryValue;
+            case ">=":
+                return songPropertyValue < subQueryValue;
+            case "==":
+                return songPropertyValue != subQueryValue;
+            case "!=":
+                return songPropertyValue == subQueryValue;
+            case "<":
+                return songPropertyValue >= subQueryValue;
+            case "<=":
+                return songPropertyValue > subQueryValue;
+        }
+        return false;
+    }
+
+    /**
+     * Caches the result of a prefix, then drops the least recently used other prefixes while the cache
+     * exceeds the memory bound.
+     */
+    private void cache(List<SubQuery> prefix, int[] positions) {
+        int[] replaced = prefixResults.put(prefix, positions);
+        cachedBytes += (long) Integer.BYTES * positions.length;
+        if (replaced != null) {
+            cachedBytes -= (long) Integer.BYTES * replaced.length;
+        }
+        Iterator<Map.Entry<List<SubQuery>, int[]>> leastRecentlyUsed = prefixResults.entrySet().iterator();
+        while (cachedBytes > memoryBound && leastRecentlyUsed.hasNext()) {
+            Map.Entry<List<SubQuery>, int[]> entry = leastRecentlyUsed.next();
+            if (entry.getKey().equals(prefix)) {
+                continue;
+            }
+            cachedBytes -= (long) Integer.BYTES * entry.getValue().length;
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    /**
+     * @return the number of filters whose result the last call to {@link #getResult()} took from the cache.
+     */
+    public synchronized int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * @return the number of filters the last call to {@link #getResult()} applied to song entries.
+     */
+    public synchronized int getAppliedCount() {
+        return appliedCount;
+    }
+
+    /**
+     * @return the number of prefixes of filters whose result is cached.
+     */
+    public synchronized int getCachedPrefixCount() {
+        return prefixResults.size();
+    }
+
+    /**
+     * @return the number of bytes taken by the cached results.
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * A set of 128-bit fingerprints stored in parallel primitive arrays with open addressing.
+ * <p>
+ * Compared to a {@code HashSet<String>} of row identifiers this keeps 20 bytes per distinct row and
+ * performs no allocation while adding, which is what makes exact distinct counting cheap on large
+ * catalogs. Every fingerprint can also carry an int value (e.g. the position of the first row that
+ * produced it), so the set doubles as a fingerprint-to-row map when collapsing duplicate rows.
+ * The all-zero fingerprint is used internally to mark empty slots and is remapped on insert.
+ */
+public class FingerprintSet {
+
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private long[] highs;
+    private long[] lows;
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty set sized for the expected number of distinct fingerprints.
+     *
+     * @param expectedSize the expected number of distinct fingerprints, used to avoid rehashing.
+     */
+    public FingerprintSet(int expectedSize) {
+        int capacity = Integer.highestOneBit((int) Math.max(16, expectedSize / MAX_LOAD_FACTOR) * 2 - 1);
+        highs = new long[capacity];
+        lows = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Adds a fingerprint to the set.
+     *
+     * @param high the upper 64 bits of the fingerprint.
+     * @param low the lower 64 bits of the fingerprint.
+     * @return true if the fingerprint was not already present; false otherwise.
+     */
+    public boolean add(long high, long low) {
+        return putIfAbsent(high, low, size) < 0;
+    }
+
+    /**
+     * Adds a fingerprint with an associated value, unless the fingerprint is already present.
+     *
+     * @param high the upper 64 bits of the fingerprint.
+     * @param low the lower 64 bits of the fingerprint.
+     * @param value the non-negative value to associate with a newly added fingerprint.
+     * @return the value already associated with the fingerprint, or -1 if it was newly added.
+     */
+    public int putIfAbsent(long high, long low, int value) {
+        // The all-zero pair marks empty slots, so it is stored under a fixed substitute value.
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        if (size + 1 > highs.length * MAX_LOAD_FACTOR) {
+            resize();
+        }
+        int existingValue = insert(highs, lows, values, high, low, value);
+        if (existingValue < 0) {
+            size++;
+        }
+        return existingValue;
+    }
+
+    /**
+     * @return the number of distinct fingerprints in the set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inserts a fingerprint using linear probing.
+     *
+     * @return the value of the fingerprint if it was already present; -1 if it was inserted.
+     */
+    private static int insert(long[] highs, long[] lows, int[] values, long high, long low, int value) {
+        int mask = highs.length - 1;
+        int slot = (int) (high ^ (high >>> 32)) & mask;
+        while (highs[slot] != 0 || lows[slot] != 0) {
+            if (highs[slot] == high && lows[slot] == low) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        highs[slot] = high;
+        lows[slot] = low;
+        values[slot] = value;
+        return -1;
+    }
+
+    /**
+     * Doubles the capacity of the table and re-inserts every stored fingerprint.
+     */
+    private void resize() {
+        long[] newHighs = new long[highs.length * 2];
+        long[] newLows = new long[lows.length * 2];
+        int[] newValues = new int[values.length * 2];
+        for (int slot = 0; slot < highs.length; slot++) {
+            if (highs[slot] != 0 || lows[slot] != 0) {
+                insert(newHighs, newLows, newValues, highs[slot], lows[slot], values[slot]);
+            }
+        }
+        highs = newHighs;
+        lows = newLows;
+        values = newValues;
+    }
+}
@@ -0,0 +1,43 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * A name returned by a fuzzy lookup, together with how far it is from the text that was looked up.
+ */
+public class FuzzyMatch {
+
+    private final String value;
+    private final int distance;
+    private final double similarity;
+
+    /**
+     * @param value the matching name, spelled as in the song file.
+     * @param distance the edit distance between the text and the closest run of words of the name.
+     * @param similarity the trigram (Dice) similarity between the text and the whole name, from 0 to 1.
+     */
+    public FuzzyMatch(String value, int distance, double similarity) {
+        this.value = value;
+        this.distance = distance;
+        this.similarity = similarity;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    @Override
+    public String toString() {
+        return "FuzzyMatch{" +
+                "value=" + value +
+                ", distance=" + distance +
+                ", similarity=" + similarity +
+                '}';
+    }
+}
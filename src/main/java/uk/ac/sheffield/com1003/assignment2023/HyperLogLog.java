@@ -0,0 +1,119 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct 64-bit hashes offered to it.
+ * <p>
+ * The sketch uses 2^precision one-byte registers, so its memory use is fixed regardless of how many
+ * rows are counted. The relative standard error of the estimate is roughly 1.04 / sqrt(2^precision),
+ * e.g. about 0.8% for the default precision of 14 (16 KiB of registers).
+ * Sketches with the same precision can be merged, which allows counting in parallel.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param precision the number of index bits, between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}.
+     * @throws IllegalArgumentException if the precision is out of range.
+     */
+    public HyperLogLog(int precision) throws IllegalArgumentException {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between " + MIN_PRECISION +
+                    " and " + MAX_PRECISION + " (was " + precision + ").");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Offers a well-mixed 64-bit hash to the sketch.
+     *
+     * @param hash the hash of the element being counted.
+     */
+    public void offer(long hash) {
+        // The top bits select the register, the remaining bits provide the run of leading zeros.
+        int index = (int) (hash >>> (64 - precision));
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Merges another sketch into this one, as if every hash offered to it had been offered here.
+     *
+     * @param other the sketch to merge, which must have the same precision.
+     * @throws IllegalArgumentException if the precisions differ.
+     */
+    public void merge(HyperLogLog other) throws IllegalArgumentException {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of different precision.");
+        }
+        for (int index = 0; index < registers.length; index++) {
+            if (other.registers[index] > registers[index]) {
+                registers[index] = other.registers[index];
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct hashes offered so far.
+     *
+     * @return the estimated cardinality.
+     */
+    public long estimate() {
+        int registerCount = registers.length;
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+        double estimate = alpha(registerCount) * registerCount * registerCount / sum;
+
+        // Small cardinalities are estimated far more accurately by linear counting.
+        if (estimate <= 2.5 * registerCount && zeroRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return the precision (number of index bits) of this sketch.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the relative standard error of sketches with the given precision.
+     *
+     * @param precision the number of index bits.
+     * @return the relative standard error, e.g. 0.008 for 0.8%.
+     */
+    public static double relativeStandardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    /**
+     * The bias correction constant of the raw HyperLogLog estimate.
+     */
+    private static double alpha(int registerCount) {
+        return switch (registerCount) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / registerCount);
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.AbstractSongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.QueryPlanner;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.List;
+
+/**
+ * A song catalog with indexes over its song entries list: a zone map, a text index, a clustering and sort
+ * indexes. Queries handed to it by {@link Query#executeQuery(AbstractSongCatalog)} are answered with these
+ * indexes, and the charts of the dashboard use them to sort and bin song entries.
+ */
+public interface IndexedCatalog extends QueryPlanner {
+
+    /**
+     * Returns the list of song entries, whose positions are the rows of the indexes.
+     *
+     * @return the song entries of this catalog.
+     */
+    List<SongEntry> getSongEntriesList();
+
+    /**
+     * Returns the per-block minimum and maximum of every property over the song entries list, used to skip
+     * or accept whole blocks of rows.
+     *
+     * @return the zone map of this catalog.
+     */
+    ZoneMap getZoneMap();
+
+    /**
+     * Returns the full-text index over the name, artist and album of the song entries list, used by the
+     * MATCH condition of {@link Query}. Its rows are positions in {@link #getSongEntriesList()}.
+     *
+     * @return the text index of this catalog.
+     */
+    InvertedIndex getTextIndex();
+
+    /**
+     * Returns the k-means clustering of the song entries, clustering them on first use. Every song entry's
+     * {@link SongEntry#getClusterId()} is set accordingly.
+     *
+     * @return the clustering of this catalog.
+     */
+    SongClustering getClustering();
+
+    /**
+     * Returns the index ranking the song entries by a property, used to sort song entries by that property.
+     *
+     * @param songProperty the property.
+     * @return the sort index of the property.
+     */
+    PropertySortIndex getPropertySortIndex(SongProperty songProperty);
+
+    /**
+     * Apply a Query to the songs of this catalog with its indexes, retrieve the songs which match.
+     *
+     * @param query the Query to apply.
+     * @param scanStatistics records how many blocks were skipped, accepted and scanned.
+     * @return List of filtered Song entries, in catalog order or by relevance to the match text.
+     */
+    List<SongEntry> executeQuery(Query query, ScanStatistics scanStatistics);
+
+    @Override
+    default List<SongEntry> executeQuery(Query query) {
+        return executeQuery(query, new ScanStatistics());
+    }
+}
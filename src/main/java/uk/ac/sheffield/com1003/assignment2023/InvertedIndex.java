@@ -0,0 +1,289 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A full-text index over the name, artist and album of a list of song entries, ranking matches with BM25.
+ * <p>
+ * Every row is a document made of the {@link TextTokenizer} terms of its three {@link SongDetail}s. For
+ * every term the index keeps a compressed {@link PostingList} of the rows containing it. The index is built
+ * in parallel: every chunk of rows is tokenized into its own postings, then the chunks are merged term by
+ * term (chunks cover consecutive rows, so concatenating them keeps every list in row order).
+ * <p>
+ * {@link #matchAll(String)} finds the rows containing every term of a text by intersecting posting lists,
+ * rarest term first; {@link #search(String, int)} ranks the rows containing any term. Scores follow BM25
+ * with k1 = {@value #K1} and b = {@value #B}: rare terms weigh more than common ones, and a term repeated in
+ * a short document counts more than in a long one.
+ */
+public class InvertedIndex {
+
+    // BM25 term frequency saturation
+    static final double K1 = 1.2;
+    // BM25 document length normalization
+    static final double B = 0.75;
+
+    // Rows tokenized per parallel task
+    private static final int CHUNK_ROWS = 4096;
+
+    private static final SongDetail[] INDEXED_DETAILS = {SongDetail.NAME, SongDetail.ARTIST, SongDetail.ALBUM_NAME};
+
+    private final List<SongEntry> songEntries;
+    private final int[] documentLengths;
+    private final double averageDocumentLength;
+    private final Map<String, PostingList> postingLists;
+
+    /**
+     * Builds the index of the given song entries, their positions in the list being the indexed rows.
+     *
+     * @param songEntriesList the song entries to index.
+     */
+    public InvertedIndex(List<SongEntry> songEntriesList) {
+        this.songEntries = SongRows.snapshot(songEntriesList);
+        int size = songEntries.size();
+        this.documentLengths = new int[size];
+
+        // Tokenize every chunk of rows into its own term -> (row, frequency) pairs.
+        int chunkCount = (size + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        List<Map<String, ChunkPostings>> chunks = IntStream.range(0, chunkCount).parallel()
+                .mapToObj(chunk -> tokenizeChunk(chunk * CHUNK_ROWS, Math.min(size, (chunk + 1) * CHUNK_ROWS)))
+                .toList();
+
+        // Merge the chunks term by term.
+        LinkedHashSet<String> terms = new LinkedHashSet<>();
+        for (Map<String, ChunkPostings> chunk : chunks) {
+            terms.addAll(chunk.keySet());
+        }
+        String[] termArray = terms.toArray(new String[0]);
+        PostingList[] mergedLists = new PostingList[termArray.length];
+        IntStream.range(0, termArray.length).parallel().forEach(term -> {
+            PostingList.Builder builder = new PostingList.Builder();
+            for (Map<String, ChunkPostings> chunk : chunks) {
+                ChunkPostings chunkPostings = chunk.get(termArray[term]);
+                if (chunkPostings != null) {
+                    for (int pair = 0; pair < chunkPostings.size; pair += 2) {
+                        builder.add(chunkPostings.pairs[pair], chunkPostings.pairs[pair + 1]);
+                    }
+                }
+            }
+            mergedLists[term] = builder.build();
+        });
+        this.postingLists = new HashMap<>(termArray.length * 2);
+        for (int term = 0; term < termArray.length; term++) {
+            postingLists.put(termArray[term], mergedLists[term]);
+        }
+
+        this.averageDocumentLength = size == 0 ? 0 : Arrays.stream(documentLengths).average().orElse(0);
+    }
+
+    /**
+     * Tokenizes the rows [from, to) and records the length of every document.
+     */
+    private Map<String, ChunkPostings> tokenizeChunk(int from, int to) {
+        Map<String, ChunkPostings> chunkPostings = new HashMap<>();
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (int row = from; row < to; row++) {
+            frequencies.clear();
+            int length = 0;
+            for (SongDetail songDetail : INDEXED_DETAILS) {
+                for (String term : TextTokenizer.tokenize(songEntries.get(row).getSongDetail(songDetail))) {
+                    frequencies.merge(term, 1, Integer::sum);
+                    length++;
+                }
+            }
+            documentLengths[row] = length;
+            for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+                chunkPostings.computeIfAbsent(frequency.getKey(), term -> new ChunkPostings())
+                        .add(row, frequency.getValue());
+            }
+        }
+        return chunkPostings;
+    }
+
+    /**
+     * Finds the rows containing every term of a text.
+     *
+     * @param text the text to match, split into terms like the indexed details.
+     * @return the matching rows; empty if the text has no terms or one of them is not indexed.
+     */
+    public BitSet matchAll(String text) {
+        List<PostingList> lists = new ArrayList<>();
+        for (String term : distinctTerms(text)) {
+            PostingList postingList = postingLists.get(term);
+            if (postingList == null) {
+                return new BitSet();
+            }
+            lists.add(postingList);
+        }
+        if (lists.isEmpty()) {
+            return new BitSet();
+        }
+        // Start from the rarest term so that the intersection is small from the start.
+        lists.sort(Comparator.comparingInt(PostingList::getDocumentFrequency));
+        BitSet rows = toBitSet(lists.get(0));
+        for (int list = 1; list < lists.size() && !rows.isEmpty(); list++) {
+            rows.and(toBitSet(lists.get(list)));
+        }
+        return rows;
+    }
+
+    /**
+     * Orders rows by decreasing BM25 score for a text, e.g. the rows of a query that matched it.
+     *
+     * @param rows the rows to rank.
+     * @param text the text the rows are scored against.
+     * @return the rows, best first; rows with equal scores stay in increasing order.
+     */
+    public int[] rankRows(BitSet rows, String text) {
+        double[] scores = score(text, rows);
+        return sortByDecreasingScore(rows.stream().toArray(), scores);
+    }
+
+    /**
+     * Finds the rows containing any term of a text, ranked by BM25 score.
+     *
+     * @param text the text to search for.
+     * @param limit the maximum number of matches to return.
+     * @return up to limit matches, best first.
+     */
+    public List<SongMatch> search(String text, int limit) {
+        double[] scores = score(text, null);
+        // Every term found in a row adds a positive score, so the rows containing any term are those scored
+        int[] rows = IntStream.range(0, scores.length).filter(row -> scores[row] > 0).toArray();
+        rows = sortByDecreasingScore(rows, scores);
+        List<SongMatch> matches = new ArrayList<>();
+        for (int match = 0; match < Math.min(limit, rows.length); match++) {
+            matches.add(new SongMatch(songEntries.get(rows[match]), scores[rows[match]]));
+        }
+        return matches;
+    }
+
+    /**
+     * Sums the BM25 score of every term of the text for the rows containing it, restricted to the given
+     * rows if any.
+     *
+     * @return the score of every row, 0 for the rows containing no term.
+     */
+    private double[] score(String text, BitSet restrictedRows) {
+        double[] scores = new double[songEntries.size()];
+        int size = songEntries.size();
+        for (String term : distinctTerms(text)) {
+            PostingList postingList = postingLists.get(term);
+            if (postingList == null) {
+                continue;
+            }
+            int documentFrequency = postingList.getDocumentFrequency();
+            double idf = Math.log(1 + (size - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            postingList.forEach((row, frequency) -> {
+                if (restrictedRows != null && !restrictedRows.get(row)) {
+                    return;
+                }
+                double lengthRatio = averageDocumentLength == 0 ? 1 : documentLengths[row] / averageDocumentLength;
+                scores[row] += idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengthRatio));
+            });
+        }
+        return scores;
+    }
+
+    /**
+     * Sorts rows, given in increasing order, by decreasing score with a merge sort; it is stable, so rows with
+     * equal scores stay in increasing order.
+     */
+    private static int[] sortByDecreasingScore(int[] rows, double[] scores) {
+        int[] buffer = new int[rows.length];
+        for (int width = 1; width < rows.length; width *= 2) {
+            for (int from = 0; from < rows.length - width; from += 2 * width) {
+                int middle = from + width;
+                int to = Math.min(from + 2 * width, rows.length);
+                int left = from;
+                int right = middle;
+                for (int position = from; position < to; position++) {
+                    if (right >= to || (left < middle && scores[rows[left]] >= scores[rows[right]])) {
+                        buffer[position] = rows[left++];
+                    } else {
+                        buffer[position] = rows[right++];
+                    }
+                }
+                System.arraycopy(buffer, from, rows, from, to - from);
+            }
+        }
+        return rows;
+    }
+
+    private static List<String> distinctTerms(String text) {
+        return new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(text)));
+    }
+
+    private static BitSet toBitSet(PostingList postingList) {
+        BitSet rows = new BitSet();
+        postingList.forEach((row, frequency) -> rows.set(row));
+        return rows;
+    }
+
+    /**
+     * @return the number of indexed rows.
+     */
+    public int size() {
+        return songEntries.size();
+    }
+
+    /**
+     * Returns the song entry indexed at a row.
+     *
+     * @param row the row index.
+     * @return the song entry of that row.
+     */
+    public SongEntry getSongEntry(int row) {
+        return songEntries.get(row);
+    }
+
+    /**
+     * @return the number of distinct terms.
+     */
+    public int getTermCount() {
+        return postingLists.size();
+    }
+
+    /**
+     * Returns the posting list of a term.
+     *
+     * @param term a folded term, as produced by {@link TextTokenizer#tokenize(String)}.
+     * @return the rows containing the term, or null if no row does.
+     */
+    public PostingList getPostingList(String term) {
+        return postingLists.get(term);
+    }
+
+    /**
+     * @return the number of bytes taken by the compressed posting lists.
+     */
+    public long getPostingMemoryBytes() {
+        return postingLists.values().stream().mapToLong(PostingList::getMemoryBytes).sum();
+    }
+
+    /**
+     * The (row, frequency) pairs of one term within one chunk, in row order.
+     */
+    private static class ChunkPostings {
+        private int[] pairs = new int[4];
+        private int size;
+
+        private void add(int row, int frequency) {
+            if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, size * 2);
+            }
+            pairs[size++] = row;
+            pairs[size++] = frequency;
+        }
+    }
+}
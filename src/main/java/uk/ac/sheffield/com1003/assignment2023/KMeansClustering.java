@@ -0,0 +1,248 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Groups songs into k clusters of similar audio features with k-means.
+ * <p>
+ * Clustering runs over the normalized rows of a {@link SongFeatureMatrix}. Initial centroids are chosen
+ * with k-means++ (each new centroid is drawn with probability proportional to its squared distance to the
+ * closest centroid so far) on a uniform sample of at most {@value #SEEDING_SAMPLE_SIZE} rows, which gives
+ * the same quality of seeding as the full data at a fraction of the cost. Lloyd iterations then alternate
+ * between assigning every row to its closest centroid and moving every centroid to the mean of its rows.
+ * The assignment step runs in parallel chunks, each accumulating its own per-cluster sums in primitive
+ * arrays, so no locking is needed.
+ * <p>
+ * Rows collapsed from several identical song file rows are weighted by their multiplicity. Runs are
+ * deterministic for a given seed.
+ */
+public class KMeansClustering {
+
+    public static final int DEFAULT_CLUSTER_COUNT = 8;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+    public static final long DEFAULT_SEED = 2023;
+
+    // k-means++ seeding is run on a sample of at most this many rows.
+    static final int SEEDING_SAMPLE_SIZE = 1 << 16;
+
+    // Iterations stop once fewer than one row in this many changes cluster.
+    private static final int CONVERGENCE_RATIO = 1000;
+
+    // Below this size the assignment step is not worth splitting across threads.
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final int DIMENSIONS = SongFeatureMatrix.DIMENSIONS;
+
+    private final int clusterCount;
+    private final int maxIterations;
+    private final long seed;
+
+    /**
+     * Constructs a k-means clustering engine with the default iteration limit and seed.
+     *
+     * @param clusterCount the number of clusters (k).
+     * @throws IllegalArgumentException if the cluster count is not positive.
+     */
+    public KMeansClustering(int clusterCount) throws IllegalArgumentException {
+        this(clusterCount, DEFAULT_MAX_ITERATIONS, DEFAULT_SEED);
+    }
+
+    /**
+     * Constructs a k-means clustering engine.
+     *
+     * @param clusterCount the number of clusters (k).
+     * @param maxIterations the maximum number of Lloyd iterations.
+     * @param seed the seed of the k-means++ initialisation.
+     * @throws IllegalArgumentException if the cluster count or the iteration limit is not positive.
+     */
+    public KMeansClustering(int clusterCount, int maxIterations, long seed) throws IllegalArgumentException {
+        if (clusterCount < 1) {
+            throw new IllegalArgumentException("The number of clusters must be positive (was " + clusterCount + ").");
+        }
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("The number of iterations must be positive (was " +
+                    maxIterations + ").");
+        }
+        this.clusterCount = clusterCount;
+        this.maxIterations = maxIterations;
+        this.seed = seed;
+    }
+
+    /**
+     * Clusters the rows of a feature matrix. If the matrix has fewer rows than the requested number of
+     * clusters, every row gets its own cluster.
+     *
+     * @param featureMatrix the songs to cluster.
+     * @return the clustering of the rows.
+     */
+    public SongClustering cluster(SongFeatureMatrix featureMatrix) {
+        int size = featureMatrix.size();
+        int k = Math.min(clusterCount, size);
+        double[] points = featureMatrix.getFeatures();
+        int[] weights = new int[size];
+        for (int row = 0; row < size; row++) {
+            weights[row] = featureMatrix.getSongEntry(row).getMultiplicity();
+        }
+
+        double[] centroids = seedCentroids(points, weights, size, k);
+        int[] assignments = new int[size];
+        Arrays.fill(assignments, -1);
+
+        int chunkCount = size < PARALLEL_THRESHOLD ? 1 : Runtime.getRuntime().availableProcessors() * 4;
+        int chunkSize = Math.max(1, (size + chunkCount - 1) / chunkCount);
+        int iterations = 0;
+        Accumulator totals;
+        do {
+            // Assignment step: every chunk assigns its rows and sums them per cluster.
+            double[] currentCentroids = centroids;
+            totals = IntStream.range(0, chunkCount)
+                    .parallel()
+                    .mapToObj(chunk -> assignChunk(points, weights, currentCentroids, assignments, k,
+                            chunk * chunkSize, Math.min(size, (chunk + 1) * chunkSize)))
+                    .reduce((left, right) -> {
+                        left.add(right);
+                        return left;
+                    })
+                    .orElseGet(() -> new Accumulator(k));
+            iterations++;
+
+            // Update step: move every centroid to the mean of its rows (empty clusters stay where they are).
+            centroids = Arrays.copyOf(centroids, centroids.length);
+            for (int cluster = 0; cluster < k; cluster++) {
+                if (totals.weights[cluster] > 0) {
+                    for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                        centroids[cluster * DIMENSIONS + dimension] =
+                                totals.sums[cluster * DIMENSIONS + dimension] / totals.weights[cluster];
+                    }
+                }
+            }
+        } while (iterations < maxIterations && totals.changed > size / CONVERGENCE_RATIO);
+
+        long[] clusterSizes = new long[k];
+        for (int cluster = 0; cluster < k; cluster++) {
+            clusterSizes[cluster] = totals.weights[cluster];
+        }
+        return new SongClustering(k, assignments, centroids, clusterSizes, iterations, totals.inertia);
+    }
+
+    /**
+     * Chooses k initial centroids with k-means++ over a uniform sample of the rows.
+     */
+    private double[] seedCentroids(double[] points, int[] weights, int size, int k) {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Take one random row from each of sampleSize equal strides of the rows.
+        int sampleSize = Math.min(size, SEEDING_SAMPLE_SIZE);
+        int[] sample = new int[sampleSize];
+        for (int index = 0; index < sampleSize; index++) {
+            long from = (long) index * size / sampleSize;
+            long to = (long) (index + 1) * size / sampleSize;
+            sample[index] = (int) (from + random.nextLong(to - from));
+        }
+
+        double[] centroids = new double[k * DIMENSIONS];
+        double[] minimumDistances = new double[sampleSize];
+        Arrays.fill(minimumDistances, Double.POSITIVE_INFINITY);
+        double[] probabilities = new double[sampleSize];
+        // The first centroid is drawn by weight alone, the others by weight times squared distance.
+        Arrays.fill(probabilities, 1);
+
+        for (int cluster = 0; cluster < k; cluster++) {
+            double total = 0;
+            for (int index = 0; index < sampleSize; index++) {
+                total += weights[sample[index]] * probabilities[index];
+            }
+            int chosen = sampleSize - 1;
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                for (int index = 0; index < sampleSize; index++) {
+                    target -= weights[sample[index]] * probabilities[index];
+                    if (target < 0) {
+                        chosen = index;
+                        break;
+                    }
+                }
+            } else {
+                // Every sampled row coincides with a centroid already: any row will do.
+                chosen = random.nextInt(sampleSize);
+            }
+            System.arraycopy(points, sample[chosen] * DIMENSIONS, centroids, cluster * DIMENSIONS, DIMENSIONS);
+
+            // Update the distance of every sampled row to its closest centroid.
+            double[] centroid = Arrays.copyOfRange(centroids, cluster * DIMENSIONS, (cluster + 1) * DIMENSIONS);
+            IntStream.range(0, sampleSize).parallel().forEach(index -> {
+                double distance = VantagePointTree.squaredDistance(centroid, points,
+                        sample[index] * DIMENSIONS, DIMENSIONS);
+                minimumDistances[index] = Math.min(minimumDistances[index], distance);
+                probabilities[index] = minimumDistances[index];
+            });
+        }
+        return centroids;
+    }
+
+    /**
+     * Assigns the rows [from, to) to their closest centroid and accumulates their per-cluster sums.
+     */
+    private static Accumulator assignChunk(double[] points, int[] weights, double[] centroids, int[] assignments,
+                                           int k, int from, int to) {
+        Accumulator accumulator = new Accumulator(k);
+        for (int row = from; row < to; row++) {
+            int offset = row * DIMENSIONS;
+            int closest = 0;
+            double closestDistance = Double.POSITIVE_INFINITY;
+            for (int cluster = 0; cluster < k; cluster++) {
+                double distance = 0;
+                int centroidOffset = cluster * DIMENSIONS;
+                for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                    double difference = points[offset + dimension] - centroids[centroidOffset + dimension];
+                    distance += difference * difference;
+                }
+                if (distance < closestDistance) {
+                    closestDistance = distance;
+                    closest = cluster;
+                }
+            }
+
+            if (assignments[row] != closest) {
+                assignments[row] = closest;
+                accumulator.changed++;
+            }
+            int weight = weights[row];
+            accumulator.weights[closest] += weight;
+            accumulator.inertia += weight * closestDistance;
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                accumulator.sums[closest * DIMENSIONS + dimension] += weight * points[offset + dimension];
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * Per-chunk totals of one assignment step.
+     */
+    private static class Accumulator {
+
+        private final double[] sums;
+        private final long[] weights;
+        private long changed;
+        private double inertia;
+
+        Accumulator(int k) {
+            this.sums = new double[k * DIMENSIONS];
+            this.weights = new long[k];
+        }
+
+        void add(Accumulator other) {
+            for (int index = 0; index < sums.length; index++) {
+                sums[index] += other.sums[index];
+            }
+            for (int cluster = 0; cluster < weights.length; cluster++) {
+                weights[cluster] += other.weights[cluster];
+            }
+            changed += other.changed;
+            inertia += other.inertia;
+        }
+    }
+}
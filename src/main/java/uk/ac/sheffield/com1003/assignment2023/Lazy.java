@@ -0,0 +1,51 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds a value computed on first use, e.g. an index of a song catalog, with a lock of its own: threads
+ * building different values of a catalog do not wait for each other, and once the value is built it is
+ * read without locking.
+ *
+ * @param <T> the type of the value.
+ */
+final class Lazy<T> {
+
+    private final Supplier<T> supplier;
+    private volatile T value;
+
+    /**
+     * @param supplier computes the value, on the first thread that asks for it.
+     */
+    Lazy(Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * Returns the value, computing it first if needed; other threads asking for it meanwhile wait for it.
+     *
+     * @return the value.
+     */
+    T get() {
+        T current = value;
+        if (current == null) {
+            synchronized (this) {
+                current = value;
+                if (current == null) {
+                    current = supplier.get();
+                    value = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the value, e.g. with one computed with other parameters.
+     *
+     * @param value the new value, or null to compute it again on next use.
+     */
+    synchronized void set(T value) {
+        this.value = value;
+    }
+}
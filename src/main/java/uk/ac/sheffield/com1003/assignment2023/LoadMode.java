@@ -0,0 +1,25 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * This is a helper enum with constants representing how rows of the song file are stored when loaded.
+ */
+public enum LoadMode {
+    ALL_ROWS("Keep every row of the file"),
+    COLLAPSE_DUPLICATES("Keep one canonical entry per distinct row, with a multiplicity count");
+
+    private final String description;
+
+    LoadMode(String description) { this.description = description; }
+
+    public String getDescription() { return this.description; }
+
+    /**
+     * Convert a name String (e.g. "collapse-duplicates") to the matching LoadMode.
+     * @param name the String to convert, dashes and underscores are interchangeable
+     * @return the matching LoadMode
+     * @throws IllegalArgumentException if the String does not match any LoadMode
+     */
+    public static LoadMode fromName(String name) throws IllegalArgumentException {
+        return LoadMode.valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
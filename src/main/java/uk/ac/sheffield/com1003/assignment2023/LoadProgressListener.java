@@ -0,0 +1,21 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * Told how far the loading of a song file has got, e.g. to show a progress bar while a large catalog is
+ * read on a background thread.
+ */
+@FunctionalInterface
+public interface LoadProgressListener {
+
+    // Listener ignoring the progress
+    LoadProgressListener NONE = (bytesRead, totalBytes, rowsRead) -> { };
+
+    /**
+     * Called on the loading thread every few thousand rows, and once when the file has been read.
+     *
+     * @param bytesRead the number of bytes of the file read so far.
+     * @param totalBytes the size of the file, in bytes.
+     * @param rowsRead the number of rows of the file read so far.
+     */
+    void progressed(long bytesRead, long totalBytes, long rowsRead);
+}
@@ -0,0 +1,125 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * A bounded max-heap keeping the k closest points seen so far, stored in primitive arrays.
+ * The farthest retained point sits at the root, so the current search radius is available in O(1).
+ */
+class NeighbourHeap {
+
+    private final int[] rows;
+    private final double[] distances;
+    private int size;
+
+    /**
+     * @param capacity the number of neighbours to keep (k).
+     */
+    NeighbourHeap(int capacity) {
+        this.rows = new int[capacity];
+        this.distances = new double[capacity];
+    }
+
+    /**
+     * Offers a candidate, keeping it only if it is closer than the farthest retained neighbour.
+     *
+     * @param row the row of the candidate.
+     * @param distance the distance of the candidate to the query.
+     */
+    void offer(int row, double distance) {
+        if (size < rows.length) {
+            // Append at the bottom and sift up.
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (distances[parent] >= distance) {
+                    break;
+                }
+                rows[index] = rows[parent];
+                distances[index] = distances[parent];
+                index = parent;
+            }
+            rows[index] = row;
+            distances[index] = distance;
+        } else if (rows.length > 0 && distance < distances[0]) {
+            // Replace the farthest neighbour at the root and sift down.
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if (distances[child] <= distance) {
+                    break;
+                }
+                rows[index] = rows[child];
+                distances[index] = distances[child];
+                index = child;
+            }
+            rows[index] = row;
+            distances[index] = distance;
+        }
+    }
+
+    /**
+     * @return the distance a candidate must beat to be retained, infinite until the heap is full.
+     */
+    double getRadius() {
+        return size < rows.length ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Merges every neighbour retained by another heap into this one.
+     *
+     * @param other the heap to merge.
+     */
+    void merge(NeighbourHeap other) {
+        for (int index = 0; index < other.size; index++) {
+            offer(other.rows[index], other.distances[index]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Empties the heap, returning the retained rows ordered from closest to farthest.
+     * The matching distances are written into {@code sortedDistances}.
+     *
+     * @param sortedDistances an array of at least {@link #size()} elements receiving the distances.
+     * @return the rows ordered by increasing distance.
+     */
+    int[] drainSorted(double[] sortedDistances) {
+        int count = size;
+        int[] sortedRows = new int[count];
+        for (int index = count - 1; index >= 0; index--) {
+            sortedRows[index] = rows[0];
+            sortedDistances[index] = distances[0];
+            // Move the last element to the root and restore the heap property.
+            size--;
+            int lastRow = rows[size];
+            double lastDistance = distances[size];
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if (distances[child] <= lastDistance) {
+                    break;
+                }
+                rows[position] = rows[child];
+                distances[position] = distances[child];
+                position = child;
+            }
+            rows[position] = lastRow;
+            distances[position] = lastDistance;
+        }
+        return sortedRows;
+    }
+}
@@ -0,0 +1,101 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongPropertyMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores every row as a plain {@link SongEntry} holding its own {@link SongPropertyMap}, the layout the
+ * catalog originally used. It takes far more memory than {@link SongColumns} but is kept as a baseline.
+ */
+public class ObjectSongStorage implements SongStorage {
+
+    private final List<SongEntry> songEntries;
+
+    private ObjectSongStorage(List<SongEntry> songEntries) {
+        this.songEntries = songEntries;
+    }
+
+    @Override
+    public int size() {
+        return songEntries.size();
+    }
+
+    @Override
+    public int getId(int row) {
+        return songEntries.get(row).getId();
+    }
+
+    @Override
+    public int getMultiplicity(int row) {
+        return songEntries.get(row).getMultiplicity();
+    }
+
+    @Override
+    public double getProperty(int row, SongProperty songProperty) {
+        return songEntries.get(row).getSongProperty(songProperty);
+    }
+
+    @Override
+    public String getDetail(int row, SongDetail songDetail) {
+        return songEntries.get(row).getSongDetail(songDetail);
+    }
+
+    @Override
+    public SongEntry getSongEntry(int row) {
+        return songEntries.get(row);
+    }
+
+    @Override
+    public String describe() {
+        return String.format("  %d SongEntry objects, each with a SongPropertyMap of %d boxed properties " +
+                "and %d Strings, on the Java heap", size(), SongProperty.values().length, SongDetail.values().length);
+    }
+
+    /**
+     * Collects the parsed property maps and creates the song entries once their multiplicities are known.
+     */
+    public static class Builder implements SongStorage.Builder {
+
+        private final List<SongPropertyMap> songPropertyMaps = new ArrayList<>();
+        private int[] ids = new int[1024];
+        private int[] multiplicities = new int[1024];
+
+        @Override
+        public int add(int id, SongPropertyMap songPropertyMap) {
+            int row = songPropertyMaps.size();
+            if (row == ids.length) {
+                ids = Arrays.copyOf(ids, row * 2);
+                multiplicities = Arrays.copyOf(multiplicities, row * 2);
+            }
+            ids[row] = id;
+            multiplicities[row] = 1;
+            songPropertyMaps.add(songPropertyMap);
+            return row;
+        }
+
+        @Override
+        public void incrementMultiplicity(int row) {
+            multiplicities[row]++;
+        }
+
+        @Override
+        public int size() {
+            return songPropertyMaps.size();
+        }
+
+        @Override
+        public ObjectSongStorage build() {
+            List<SongEntry> songEntries = new ArrayList<>(songPropertyMaps.size());
+            for (int row = 0; row < songPropertyMaps.size(); row++) {
+                songEntries.add(new SongEntry(ids[row], songPropertyMaps.get(row), multiplicities[row]));
+            }
+            return new ObjectSongStorage(songEntries);
+        }
+    }
+}
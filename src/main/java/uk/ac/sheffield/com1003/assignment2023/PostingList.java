@@ -0,0 +1,103 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The rows containing a term, with the number of times the term appears in each, as stored by an
+ * {@link InvertedIndex}.
+ * <p>
+ * Rows are stored in increasing order as the gap to the previous row, each gap followed by the term
+ * frequency, both as variable-length integers (7 bits per byte). Most gaps and frequencies fit in a single
+ * byte, so a posting takes about two bytes instead of eight.
+ */
+public class PostingList {
+
+    /**
+     * Receives the postings of a list, in increasing row order.
+     */
+    @FunctionalInterface
+    public interface PostingConsumer {
+        void accept(int row, int frequency);
+    }
+
+    private final byte[] postings;
+    private final int documentFrequency;
+
+    private PostingList(byte[] postings, int documentFrequency) {
+        this.postings = postings;
+        this.documentFrequency = documentFrequency;
+    }
+
+    /**
+     * Passes every posting to the consumer, in increasing row order.
+     *
+     * @param consumer the consumer of the postings.
+     */
+    public void forEach(PostingConsumer consumer) {
+        int position = 0;
+        int row = 0;
+        while (position < postings.length) {
+            int gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings[position++];
+                gap |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            int frequency = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings[position++];
+                frequency |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            row += gap;
+            consumer.accept(row, frequency);
+        }
+    }
+
+    /**
+     * @return the number of rows containing the term.
+     */
+    public int getDocumentFrequency() {
+        return documentFrequency;
+    }
+
+    /**
+     * @return the number of bytes taken by the compressed postings.
+     */
+    public int getMemoryBytes() {
+        return postings.length;
+    }
+
+    /**
+     * Appends postings in increasing row order and compresses them.
+     */
+    static class Builder {
+
+        private final ByteArrayOutputStream postings = new ByteArrayOutputStream();
+        private int documentFrequency;
+        private int lastRow;
+
+        /**
+         * @param row the row, greater than every row added before.
+         * @param frequency the number of times the term appears in the row.
+         */
+        void add(int row, int frequency) {
+            putVarInt(row - lastRow);
+            putVarInt(frequency);
+            lastRow = row;
+            documentFrequency++;
+        }
+
+        private void putVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                postings.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            postings.write(value);
+        }
+
+        PostingList build() {
+            return new PostingList(postings.toByteArray(), documentFrequency);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Estimates the statistics of the song entries meeting some filters from a sample of the entries, which
+ * can grow until it holds every entry, at which point the statistics are exact.
+ * <p>
+ * The entries are visited in a scrambled order that covers every entry exactly once without storing it:
+ * the k-th entry visited is at position {@code (offset + k * step) mod size}, where the step is about
+ * 0.618 times the size (the golden ratio, which spreads the first positions visited evenly) and has no
+ * common factor with it. Any prefix of the order is therefore a sample spread over the whole list, and
+ * growing the sample only visits the new entries.
+ * <p>
+ * The number of matching rows and the average of every property over them are estimated as for a simple
+ * random sample, with the half-width of their 95% confidence interval. The intervals include the finite
+ * population correction, so they shrink to zero once every entry has been visited. The minimum and maximum
+ * are those of the matching entries sampled so far, i.e. bounds of the exact ones.
+ */
+public class ProgressiveStatistics {
+
+    // Quantile of the normal distribution for 95% confidence intervals
+    private static final double Z_95 = 1.959964;
+    private static final double GOLDEN_RATIO_CONJUGATE = (Math.sqrt(5) - 1) / 2;
+
+    private final List<SongEntry> songEntries;
+    private final List<SubQuery> subQueries;
+    private final long offset;
+    private final long step;
+    private int sampledCount;
+
+    // Sums over the sampled entries of y = the rows an entry stands for if it matches (0 otherwise)
+    // and of y^2, then per property of y x, y^2 x and y^2 x^2, with the bounds of x
+    private long rowSum;
+    private double squaredRowSum;
+    private final double[] sums = new double[SongProperty.values().length];
+    private final double[] rowWeightedSums = new double[SongProperty.values().length];
+    private final double[] rowWeightedSquaredSums = new double[SongProperty.values().length];
+    private final double[] minimums = new double[SongProperty.values().length];
+    private final double[] maximums = new double[SongProperty.values().length];
+    private final List<SongEntry> matchingEntries = new ArrayList<>();
+
+    /**
+     * Starts an empty sample.
+     *
+     * @param songEntries the song entries to sample.
+     * @param subQueries the filters the song entries must meet.
+     * @param seed chooses where the scrambled order starts.
+     */
+    public ProgressiveStatistics(List<SongEntry> songEntries, List<SubQuery> subQueries, long seed) {
+        this.songEntries = songEntries;
+        this.subQueries = List.copyOf(subQueries);
+        long size = songEntries.size();
+        long golden = Math.max(1, Math.round(size * GOLDEN_RATIO_CONJUGATE));
+        while (size > 1 && gcd(golden, size) != 1) {
+            golden++;
+        }
+        step = golden;
+        offset = size == 0 ? 0 : Math.floorMod(seed, size);
+        Arrays.fill(minimums, Double.POSITIVE_INFINITY);
+        Arrays.fill(maximums, Double.NEGATIVE_INFINITY);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * Adds the next song entries of the scrambled order to the sample.
+     *
+     * @param count the number of song entries to add; fewer are added if not enough remain.
+     */
+    public void sampleMore(int count) {
+        int end = (int) Math.min(songEntries.size(), (long) sampledCount + count);
+        for (; sampledCount < end; sampledCount++) {
+            SongEntry songEntry = songEntries.get((int) ((offset + sampledCount * step) % songEntries.size()));
+            if (FilterStack.matches(songEntry, subQueries)) {
+                add(songEntry);
+            }
+        }
+    }
+
+    private void add(SongEntry songEntry) {
+        matchingEntries.add(songEntry);
+        double rows = songEntry.getMultiplicity();
+        rowSum += songEntry.getMultiplicity();
+        squaredRowSum += rows * rows;
+        for (SongProperty songProperty : SongProperty.values()) {
+            int index = songProperty.ordinal();
+            double value = songEntry.getSongProperty(songProperty);
+            sums[index] += rows * value;
+            rowWeightedSums[index] += rows * rows * value;
+            rowWeightedSquaredSums[index] += rows * rows * value * value;
+            minimums[index] = Math.min(minimums[index], value);
+            maximums[index] = Math.max(maximums[index], value);
+        }
+    }
+
+    /**
+     * @return whether every song entry was sampled, so that the statistics are exact.
+     */
+    public boolean isExact() {
+        return sampledCount == songEntries.size();
+    }
+
+    /**
+     * @return the number of song entries sampled.
+     */
+    public int getSampledCount() {
+        return sampledCount;
+    }
+
+    /**
+     * @return the number of song entries that can be sampled.
+     */
+    public int getPopulationSize() {
+        return songEntries.size();
+    }
+
+    /**
+     * @return the sampled song entries meeting the filters, in the order they were sampled.
+     */
+    public List<SongEntry> getMatchingEntries() {
+        return matchingEntries;
+    }
+
+    /**
+     * @return the estimated number of rows of the song file meeting the filters.
+     */
+    public double getEstimatedRowCount() {
+        return sampledCount == 0 ? 0 : (double) rowSum * songEntries.size() / sampledCount;
+    }
+
+    /**
+     * @return the half-width of the 95% confidence interval of {@link #getEstimatedRowCount()}.
+     */
+    public double getRowCountMargin() {
+        if (sampledCount < 2) {
+            return sampledCount == songEntries.size() ? 0 : Double.POSITIVE_INFINITY;
+        }
+        double mean = (double) rowSum / sampledCount;
+        double variance = Math.max(0, (squaredRowSum - sampledCount * mean * mean) / (sampledCount - 1));
+        return Z_95 * songEntries.size() * Math.sqrt(variance / sampledCount * getUnsampledFraction());
+    }
+
+    /**
+     * Returns the estimated average of a property over the rows meeting the filters.
+     *
+     * @param songProperty the property.
+     * @return its estimated average.
+     * @throws NoSuchElementException if no sampled song entry meets the filters.
+     */
+    public double getEstimatedAverage(SongProperty songProperty) throws NoSuchElementException {
+        checkMatches();
+        return sums[songProperty.ordinal()] / rowSum;
+    }
+
+    /**
+     * Returns the half-width of the 95% confidence interval of {@link #getEstimatedAverage}, from the
+     * variance of the ratio of the sums over the sampled rows.
+     *
+     * @param songProperty the property.
+     * @return the half-width of the interval.
+     * @throws NoSuchElementException if no sampled song entry meets the filters.
+     */
+    public double getAverageMargin(SongProperty songProperty) throws NoSuchElementException {
+        checkMatches();
+        if (sampledCount < 2) {
+            return isExact() ? 0 : Double.POSITIVE_INFINITY;
+        }
+        int index = songProperty.ordinal();
+        double average = sums[index] / rowSum;
+        // Sum over the sampled entries of (y (x - average))^2
+        double squaredDeviations = Math.max(0, rowWeightedSquaredSums[index]
+                - 2 * average * rowWeightedSums[index] + average * average * squaredRowSum);
+        double meanRows = (double) rowSum / sampledCount;
+        double variance = squaredDeviations / (sampledCount - 1) / (sampledCount * meanRows * meanRows);
+        return Z_95 * Math.sqrt(variance * getUnsampledFraction());
+    }
+
+    /**
+     * @param songProperty the property.
+     * @return the smallest value of the property among the sampled song entries meeting the filters.
+     * @throws NoSuchElementException if no sampled song entry meets the filters.
+     */
+    public double getSampledMinimum(SongProperty songProperty) throws NoSuchElementException {
+        checkMatches();
+        return minimums[songProperty.ordinal()];
+    }
+
+    /**
+     * @param songProperty the property.
+     * @return the largest value of the property among the sampled song entries meeting the filters.
+     * @throws NoSuchElementException if no sampled song entry meets the filters.
+     */
+    public double getSampledMaximum(SongProperty songProperty) throws NoSuchElementException {
+        checkMatches();
+        return maximums[songProperty.ordinal()];
+    }
+
+    private void checkMatches() throws NoSuchElementException {
+        if (rowSum == 0) {
+            throw new NoSuchElementException("No sampled song entry meets the filters!");
+        }
+    }
+
+    /**
+     * Returns the finite population correction of the variances: the fraction of entries not sampled.
+     */
+    private double getUnsampledFraction() {
+        return songEntries.size() <= 1 ? 0 :
+                (double) (songEntries.size() - sampledCount) / (songEntries.size() - 1);
+    }
+}
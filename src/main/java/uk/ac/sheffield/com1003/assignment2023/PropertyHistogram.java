@@ -0,0 +1,199 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Counts the song entries of a set in equal-width bins of the values of one property.
+ * <p>
+ * The counts are computed in one parallel pass over the set, one partition per thread as for a
+ * {@link DensityGrid}. When the set shrinks, e.g. because a filter was added, the counts are updated by
+ * removing the entries that left the set rather than by counting the smaller set again, in time
+ * proportional to the number of entries removed. Every entry counts as many times as the rows it stands
+ * for (its multiplicity). Entries whose value is outside the range of the bins are counted apart.
+ */
+public class PropertyHistogram {
+
+    // Smallest number of song entries worth counting on a thread of their own
+    private static final int MIN_PARTITION_SIZE = 1 << 15;
+
+    private final SongProperty songProperty;
+    private final double minValue;
+    private final double maxValue;
+    // Count of every bin; the last cell counts the entries outside the range of the bins
+    private final long[] counts;
+    private long totalCount;
+    private long maxCount;
+
+    /**
+     * Constructs a histogram with empty bins.
+     *
+     * @param songProperty the property of the values.
+     * @param minValue the smallest value of the first bin.
+     * @param maxValue the largest value of the last bin.
+     * @param binCount the number of bins.
+     * @throws IllegalArgumentException if there are no bins or the range is empty.
+     */
+    public PropertyHistogram(SongProperty songProperty, double minValue, double maxValue, int binCount)
+            throws IllegalArgumentException {
+        if (binCount < 1) {
+            throw new IllegalArgumentException("A histogram needs at least one bin (was " + binCount + ").");
+        }
+        if (!(minValue <= maxValue)) {
+            throw new IllegalArgumentException("The range of a histogram must not be empty (was [" + minValue +
+                    ", " + maxValue + "]).");
+        }
+        this.songProperty = songProperty;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        counts = new long[binCount + 1];
+    }
+
+    /**
+     * Copies the counts of another histogram, e.g. to update them while the original is still drawn.
+     *
+     * @param histogram the histogram to copy.
+     */
+    public PropertyHistogram(PropertyHistogram histogram) {
+        songProperty = histogram.songProperty;
+        minValue = histogram.minValue;
+        maxValue = histogram.maxValue;
+        counts = histogram.counts.clone();
+        totalCount = histogram.totalCount;
+        maxCount = histogram.maxCount;
+    }
+
+    /**
+     * Adds song entries to the counts of their bins, in parallel.
+     *
+     * @param songEntries the song entries to add.
+     */
+    public void addAll(List<SongEntry> songEntries) {
+        update(songEntries, 1);
+    }
+
+    /**
+     * Removes song entries, which must have been added, from the counts of their bins.
+     *
+     * @param songEntries the song entries to remove.
+     */
+    public void removeAll(List<SongEntry> songEntries) {
+        update(songEntries, -1);
+    }
+
+    private void update(List<SongEntry> songEntries, int sign) {
+        int size = songEntries.size();
+        if (size == 0) {
+            return;
+        }
+        int partitions = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_PARTITION_SIZE));
+        long[] changes = IntStream.range(0, partitions).parallel()
+                .mapToObj(partition -> countPartition(songEntries, (int) ((long) size * partition / partitions),
+                        (int) ((long) size * (partition + 1) / partitions)))
+                .reduce(PropertyHistogram::addCounts)
+                .orElseThrow();
+        totalCount = 0;
+        maxCount = 0;
+        for (int bin = 0; bin < counts.length; bin++) {
+            counts[bin] += sign * changes[bin];
+            if (bin < counts.length - 1) {
+                totalCount += counts[bin];
+                maxCount = Math.max(maxCount, counts[bin]);
+            }
+        }
+    }
+
+    private long[] countPartition(List<SongEntry> songEntries, int from, int to) {
+        long[] partitionCounts = new long[counts.length];
+        for (int index = from; index < to; index++) {
+            SongEntry songEntry = songEntries.get(index);
+            int bin = getBin(songEntry.getSongProperty(songProperty));
+            partitionCounts[bin < 0 ? counts.length - 1 : bin] += songEntry.getMultiplicity();
+        }
+        return partitionCounts;
+    }
+
+    private static long[] addCounts(long[] sums, long[] added) {
+        for (int bin = 0; bin < sums.length; bin++) {
+            sums[bin] += added[bin];
+        }
+        return sums;
+    }
+
+    /**
+     * Returns the bin of a value; the largest value is in the last bin.
+     *
+     * @param value the value.
+     * @return its bin, or -1 if it is outside the range of the bins.
+     */
+    public int getBin(double value) {
+        if (!(value >= minValue && value <= maxValue)) {
+            return -1;
+        }
+        if (maxValue == minValue) {
+            return 0;
+        }
+        return Math.min(getBinCount() - 1, (int) ((value - minValue) / (maxValue - minValue) * getBinCount()));
+    }
+
+    /**
+     * @param bin the bin, counted from the smallest values.
+     * @return the number of rows whose value is in the bin.
+     * @throws IndexOutOfBoundsException if there is no such bin.
+     */
+    public long getCount(int bin) throws IndexOutOfBoundsException {
+        if (bin < 0 || bin >= getBinCount()) {
+            throw new IndexOutOfBoundsException("No bin " + bin + " in a histogram of " + getBinCount() + " bins.");
+        }
+        return counts[bin];
+    }
+
+    /**
+     * @param bin the bin.
+     * @return the smallest value of the bin.
+     */
+    public double getBinStart(int bin) {
+        return minValue + (maxValue - minValue) * bin / getBinCount();
+    }
+
+    public SongProperty getSongProperty() {
+        return songProperty;
+    }
+
+    public int getBinCount() {
+        return counts.length - 1;
+    }
+
+    public double getMinValue() {
+        return minValue;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @return the largest count of a bin.
+     */
+    public long getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return the number of rows in the bins.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the number of rows whose value is outside the range of the bins.
+     */
+    public long getOutsideCount() {
+        return counts[counts.length - 1];
+    }
+}
@@ -0,0 +1,117 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * Ranks the song entries of a catalog by the value of one property, so that any list of them (e.g. the
+ * result of a query) can be sorted by that property without comparing a single value.
+ * <p>
+ * The index is built once with the stable LSD radix sort of {@link RowOrder} and stores the rank of every
+ * song entry, by ID: entries with equal values share a rank, and a smaller value has a smaller rank.
+ * Sorting a list of m entries then only reads their IDs and radix sorts their ranks, in O(m) time and with
+ * a single int per entry. As ranks are stored by ID, the index is not affected by reordering the rows of
+ * the catalog.
+ */
+public class PropertySortIndex {
+
+    private final SongProperty songProperty;
+    // Rank of the value of every song entry, by ID; -1 for IDs with no song entry
+    private final int[] ranksById;
+    private final int distinctValueCount;
+
+    /**
+     * Ranks song entries by a property.
+     *
+     * @param songEntries the song entries of the catalog.
+     * @param songProperty the property to rank them by.
+     */
+    public PropertySortIndex(List<SongEntry> songEntries, SongProperty songProperty) {
+        this.songProperty = songProperty;
+        int size = songEntries.size();
+        long[] keys = new long[size];
+        IntStream.range(0, size).parallel().forEach(position ->
+                keys[position] = RowOrder.sortableBits(songEntries.get(position).getSongProperty(songProperty)));
+        int[] sortedPositions = RowOrder.sortedPositions(keys);
+
+        int maximumId = -1;
+        for (SongEntry songEntry : songEntries) {
+            maximumId = Math.max(maximumId, songEntry.getId());
+        }
+        ranksById = new int[maximumId + 1];
+        Arrays.fill(ranksById, -1);
+        int rank = -1;
+        for (int sorted = 0; sorted < size; sorted++) {
+            int position = sortedPositions[sorted];
+            if (sorted == 0 || keys[position] != keys[sortedPositions[sorted - 1]]) {
+                rank++;
+            }
+            ranksById[songEntries.get(position).getId()] = rank;
+        }
+        distinctValueCount = rank + 1;
+    }
+
+    public SongProperty getSongProperty() {
+        return songProperty;
+    }
+
+    /**
+     * @return the number of distinct values of the property.
+     */
+    public int getDistinctValueCount() {
+        return distinctValueCount;
+    }
+
+    /**
+     * Returns the rank of the value of a song entry: the number of distinct smaller values.
+     *
+     * @param id the ID of the song entry.
+     * @return its rank.
+     * @throws NoSuchElementException if the index has no song entry with that ID.
+     */
+    public int getRank(int id) throws NoSuchElementException {
+        return getRank(ranksById, id);
+    }
+
+    /**
+     * Sorts a list of song entries of the catalog by the property. Entries with equal values keep their
+     * order in the list.
+     *
+     * @param songEntries the song entries to sort.
+     * @param ascending whether smaller values come first.
+     * @return the indexes in the list of the song entries, in sorted order.
+     * @throws NoSuchElementException if a song entry is not in the catalog the index was built from.
+     */
+    public int[] sort(List<SongEntry> songEntries, boolean ascending) throws NoSuchElementException {
+        return sortByRank(ranksById, distinctValueCount, songEntries, ascending);
+    }
+
+    /**
+     * Looks up the rank of a song entry by ID; shared with {@link DetailSortIndex}.
+     */
+    static int getRank(int[] ranksById, int id) throws NoSuchElementException {
+        if (id < 0 || id >= ranksById.length || ranksById[id] < 0) {
+            throw new NoSuchElementException("No song entry with ID " + id + "!");
+        }
+        return ranksById[id];
+    }
+
+    /**
+     * Radix sorts song entries by their ranks, stably; shared with {@link DetailSortIndex}.
+     */
+    static int[] sortByRank(int[] ranksById, int distinctValueCount, List<SongEntry> songEntries,
+                            boolean ascending) throws NoSuchElementException {
+        int size = songEntries.size();
+        long[] keys = new long[size];
+        IntStream.range(0, size).parallel().forEach(index -> {
+            int rank = getRank(ranksById, songEntries.get(index).getId());
+            keys[index] = ascending ? rank : distinctValueCount - 1 - rank;
+        });
+        return RowOrder.sortedPositions(keys);
+    }
+}
@@ -2,6 +2,7 @@ package uk.ac.sheffield.com1003.assignment2023;
 
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.AbstractQueryParser;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
 
@@ -17,9 +18,29 @@ import java.util.*;
  * they conform to expected formats and logical constructs expected by the application. This involves
  * checking the validity of song properties, comparison operators, and value constraints. Malformed queries
  * are then identified and skipped to ensure that only valid queries are processed and returned.
+ * <p>
+ * Besides song properties, a query may restrict songs to one k-means cluster with a {@code cluster == N}
+ * condition (e.g. {@code select songs where cluster == 3 and energy > 0.8}), and to songs whose name, artist
+ * or album contain words with a {@code match} condition taking the rest of the condition as its words
+ * (e.g. {@code select songs where match remix acoustic and energy > 0.8}). Within those words, {@code and}
+ * only ends the condition if a song property, {@code cluster}, {@code match} or {@code rank} follows it, so
+ * {@code match rock and roll} looks for the three words. Matching songs are returned in catalog order; a
+ * {@code rank} condition matches words like {@code match} and returns the songs by relevance instead.
  */
 public class QueryParser extends AbstractQueryParser {
-    
+
+    // Name used in place of a song property to filter on the k-means cluster
+    private static final String CLUSTER_KEYWORD = "cluster";
+
+    // Keyword of a full-text condition, followed by the words to match
+    private static final String MATCH_KEYWORD = "match";
+
+    // Keyword of a full-text condition whose matching songs are ranked by relevance
+    private static final String RANK_KEYWORD = "rank";
+
+    // Keyword separating the conditions of a query
+    private static final String AND_KEYWORD = "and";
+
     /**
      * Parses a list of string tokens into a structured list of Query objects.
      * Malformed queries are skipped with an error message printed to the standard error output.
@@ -43,17 +64,44 @@ public class QueryParser extends AbstractQueryParser {
         // Loop through each individual query string to process further.
         label: for (String toBeValidatedQuery : queryList) {
             List<SubQuery> subQueries = new ArrayList<>();
+            int clusterId = SongEntry.NO_CLUSTER;
+            String matchText = null;
+            boolean rankedByRelevance = false;
+
+            // Split the query into subqueries on the 'and' keyword, each split into its components:
+            // property, operator, and value.
+            for (List<String> parts : splitConditions(toBeValidatedQuery)) {
+                // A match condition takes every following token as a word; it needs at least one word.
+                if (isTextKeyword(parts.get(0))) {
+                    String words = String.join(" ", parts.subList(1, parts.size())).trim();
+                    if (words.isEmpty() || TextTokenizer.tokenize(words).isEmpty()) {
+                        System.err.println("Alert: Malformed query found!");
+                        continue label;
+                    }
+                    matchText = matchText == null ? words : matchText + " " + words;
+                    rankedByRelevance |= parts.get(0).equals(RANK_KEYWORD);
+                    continue;
+                }
 
-            // Split the query into subqueries on the 'and' keyword.
-            List<String> subQueryList = Arrays.stream(toBeValidatedQuery.split(" and ")).toList();
-            for (String toBeValidatedSubQuery : subQueryList) {
-                // Split each subquery into its components: property, operator, and value.
-                List<String> parts = Arrays.stream(toBeValidatedSubQuery.split(" ")).toList();
                 if (parts.size() != 3) {
                     System.err.println("Alert: Malformed query found!");
                     continue label;  // Skip to the next query if current is malformed.
                 }
 
+                // A cluster condition only supports equality with a non-negative cluster id.
+                if (parts.get(0).equals(CLUSTER_KEYWORD)) {
+                    try {
+                        clusterId = Integer.parseInt(parts.get(2));
+                    } catch (NumberFormatException e) {
+                        clusterId = SongEntry.NO_CLUSTER;
+                    }
+                    if (!parts.get(1).equals("==") || clusterId < 0) {
+                        System.err.println("Alert: Malformed query found!");
+                        continue label;
+                    }
+                    continue;
+                }
+
                 try {
                     // Validate and parse the subquery parts.
                     SongProperty songProperty = SongProperty.fromName(parts.get(0));
@@ -70,12 +118,58 @@ public class QueryParser extends AbstractQueryParser {
                 }
             }
 
-            // Add the new Query object if it has valid subqueries.
-            if (!subQueries.isEmpty()) {
-                queries.add(new Query(subQueries));
+            // Add the new Query object if it has valid subqueries, a cluster or a match condition.
+            if (!subQueries.isEmpty() || clusterId != SongEntry.NO_CLUSTER || matchText != null) {
+                queries.add(new Query(subQueries, clusterId, matchText, rankedByRelevance));
             }
         }
 
         return queries;
     }
+
+    /**
+     * Splits a query into the tokens of its conditions. An 'and' within the words of a text condition is
+     * one of its words, unless another condition starts right after it.
+     *
+     * @param query the conditions of a query, separated by single spaces.
+     * @return the tokens of every condition, in order.
+     */
+    private static List<List<String>> splitConditions(String query) {
+        List<String> tokens = Arrays.asList(query.split(" "));
+        List<List<String>> conditions = new ArrayList<>();
+        List<String> condition = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            boolean endsCondition = token.equals(AND_KEYWORD) && !condition.isEmpty()
+                    && (!isTextKeyword(condition.get(0))
+                    || (i + 1 < tokens.size() && startsCondition(tokens.get(i + 1))));
+            if (endsCondition) {
+                conditions.add(condition);
+                condition = new ArrayList<>();
+            } else {
+                condition.add(token);
+            }
+        }
+        conditions.add(condition);
+        return conditions;
+    }
+
+    private static boolean isTextKeyword(String token) {
+        return token.equals(MATCH_KEYWORD) || token.equals(RANK_KEYWORD);
+    }
+
+    /**
+     * Checks whether a token is the first one of a condition: a song property, or a keyword.
+     */
+    private static boolean startsCondition(String token) {
+        if (token.equals(CLUSTER_KEYWORD) || isTextKeyword(token)) {
+            return true;
+        }
+        try {
+            SongProperty.fromName(token);
+            return true;
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+    }
 }
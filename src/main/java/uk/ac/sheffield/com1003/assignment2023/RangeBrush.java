@@ -0,0 +1,401 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Selects the song entries of a set whose values of one or more properties are in ranges that change
+ * continuously, e.g. while the user drags a range over a chart ("brushing"), keeping the number of rows
+ * selected and the average of every property up to date.
+ * <p>
+ * The entries are sorted by every brushed property with the {@link PropertySortIndex} of the catalog, once
+ * per set, by {@link #prepare}: e.g. on a background thread when the set arrives, so that a brush can start
+ * on the event dispatch thread as soon as the mouse is pressed. The entries in a range are then a slice of
+ * the sorted order, found by binary search. When a range changes, only the entries between the old and the
+ * new ends of the slice enter or leave the selection, and the statistics are updated by adding or
+ * subtracting them, in time proportional to their number rather than to the size of the set. The sums
+ * are compensated (Kahan summation), so that they do not drift however long the ranges are dragged. An
+ * entry entering a range is selected if it is also in the ranges of the other properties, which is
+ * checked from its position in their sorted orders.
+ */
+public class RangeBrush {
+
+    /**
+     * Song entries sorted by every brushed property, with their row count and sums, computed by
+     * {@link #prepare}. Once computed, they are only read, so they can be shared by every brush started
+     * over the same entries.
+     */
+    public static class SortedEntries {
+
+        private final List<SongEntry> songEntries;
+        private final SongProperty[] songProperties;
+        // For every brushed property: the indexes in songEntries in increasing order of value, the values
+        // in that order, and the position of every entry in that order
+        private final int[][] sortedIndexes;
+        private final double[][] sortedValues;
+        private final int[][] sortedPositions;
+        // Number of rows of all the entries, and the compensated sum of every property over them
+        private final long rowCount;
+        private final double[] sums = new double[SongProperty.values().length];
+        private final double[] compensations = new double[SongProperty.values().length];
+
+        private SortedEntries(List<SongEntry> songEntries, SongProperty[] songProperties, int[][] sortedIndexes,
+                              double[][] sortedValues, int[][] sortedPositions) {
+            this.songEntries = songEntries;
+            this.songProperties = songProperties;
+            this.sortedIndexes = sortedIndexes;
+            this.sortedValues = sortedValues;
+            this.sortedPositions = sortedPositions;
+            long rows = 0;
+            for (SongEntry songEntry : songEntries) {
+                rows += songEntry.getMultiplicity();
+                addToSums(songEntry, songEntry.getMultiplicity(), sums, compensations);
+            }
+            rowCount = rows;
+        }
+
+        /**
+         * @return the song entries.
+         */
+        public List<SongEntry> getSongEntries() {
+            return songEntries;
+        }
+
+        /**
+         * @return the brushed properties.
+         */
+        public List<SongProperty> getSongProperties() {
+            return List.of(songProperties);
+        }
+    }
+
+    private final SortedEntries entries;
+    private final List<SongEntry> songEntries;
+    private final SongProperty[] songProperties;
+    // For every brushed property, the slice of the sorted order in its range and whether it is narrowed
+    private final int[] sliceStarts;
+    private final int[] sliceEnds;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final boolean[] narrowed;
+
+    private final boolean[] selected;
+    private int selectedEntryCount;
+    private long selectedRowCount;
+    // Compensated sum of every property over the selected rows
+    private final double[] sums;
+    private final double[] compensations;
+    private int lastChangedCount;
+    private long lastUpdateNanos;
+
+    /**
+     * Sorts a set of song entries by the properties to brush, for every brush started over them.
+     *
+     * @param songCatalog the catalog of the song entries, whose sort indexes are used.
+     * @param songEntries the song entries.
+     * @param songProperties the properties whose ranges are brushed.
+     * @return the sorted entries.
+     * @throws IllegalArgumentException if no property is given.
+     */
+    public static SortedEntries prepare(IndexedCatalog songCatalog, List<SongEntry> songEntries,
+                                        SongProperty... songProperties) throws IllegalArgumentException {
+        if (songProperties.length == 0) {
+            throw new IllegalArgumentException("A brush needs at least one property.");
+        }
+        int size = songEntries.size();
+        int dimensions = songProperties.length;
+        int[][] sortedIndexes = new int[dimensions][];
+        double[][] sortedValues = new double[dimensions][size];
+        int[][] sortedPositions = new int[dimensions][size];
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            sortedIndexes[dimension] = songCatalog.getPropertySortIndex(songProperties[dimension])
+                    .sort(songEntries, true);
+            for (int position = 0; position < size; position++) {
+                int index = sortedIndexes[dimension][position];
+                sortedValues[dimension][position] = songEntries.get(index).getSongProperty(songProperties[dimension]);
+                sortedPositions[dimension][index] = position;
+            }
+        }
+        return new SortedEntries(songEntries, songProperties.clone(), sortedIndexes, sortedValues, sortedPositions);
+    }
+
+    /**
+     * Starts brushing a set of song entries, all of them selected, sorting them first.
+     *
+     * @param songCatalog the catalog of the song entries, whose sort indexes are used.
+     * @param songEntries the song entries.
+     * @param songProperties the properties whose ranges are brushed.
+     * @throws IllegalArgumentException if no property is given.
+     */
+    public RangeBrush(IndexedCatalog songCatalog, List<SongEntry> songEntries, SongProperty... songProperties)
+            throws IllegalArgumentException {
+        this(prepare(songCatalog, songEntries, songProperties));
+    }
+
+    /**
+     * Starts brushing song entries sorted by {@link #prepare}, all of them selected.
+     *
+     * @param entries the sorted entries.
+     */
+    public RangeBrush(SortedEntries entries) {
+        this.entries = entries;
+        songEntries = entries.songEntries;
+        songProperties = entries.songProperties;
+        int size = songEntries.size();
+        int dimensions = songProperties.length;
+        sliceStarts = new int[dimensions];
+        sliceEnds = new int[dimensions];
+        Arrays.fill(sliceEnds, size);
+        minimums = new double[dimensions];
+        maximums = new double[dimensions];
+        narrowed = new boolean[dimensions];
+
+        selected = new boolean[size];
+        Arrays.fill(selected, true);
+        selectedEntryCount = size;
+        selectedRowCount = entries.rowCount;
+        sums = entries.sums.clone();
+        compensations = entries.compensations.clone();
+    }
+
+    /**
+     * Restricts a property to a range; the entries whose value is in it stay or become selected if they
+     * are also in the ranges of the other properties.
+     *
+     * @param songProperty a brushed property.
+     * @param minimum the smallest value selected.
+     * @param maximum the largest value selected.
+     * @throws NoSuchElementException if the property is not brushed.
+     * @throws IllegalArgumentException if the minimum is larger than the maximum.
+     */
+    public void setRange(SongProperty songProperty, double minimum, double maximum)
+            throws NoSuchElementException, IllegalArgumentException {
+        if (!(minimum <= maximum)) {
+            throw new IllegalArgumentException("The range [" + minimum + ", " + maximum + "] is empty.");
+        }
+        int dimension = getDimension(songProperty);
+        minimums[dimension] = minimum;
+        maximums[dimension] = maximum;
+        narrowed[dimension] = true;
+        setSlice(dimension, lowerBound(entries.sortedValues[dimension], minimum),
+                upperBound(entries.sortedValues[dimension], maximum));
+    }
+
+    /**
+     * Removes the range of a property, selecting the entries it excluded that are in the other ranges.
+     *
+     * @param songProperty a brushed property.
+     * @throws NoSuchElementException if the property is not brushed.
+     */
+    public void clearRange(SongProperty songProperty) throws NoSuchElementException {
+        int dimension = getDimension(songProperty);
+        narrowed[dimension] = false;
+        setSlice(dimension, 0, songEntries.size());
+    }
+
+    /**
+     * Moves the slice of the sorted order of a property, selecting or deselecting the entries between the
+     * old and the new ends.
+     */
+    private void setSlice(int dimension, int start, int end) {
+        long startNanos = System.nanoTime();
+        int oldStart = sliceStarts[dimension];
+        int oldEnd = sliceEnds[dimension];
+        sliceStarts[dimension] = start;
+        sliceEnds[dimension] = Math.max(start, end);
+        end = sliceEnds[dimension];
+
+        int[] indexes = entries.sortedIndexes[dimension];
+        int changed = 0;
+        // Entries leaving the range were selected if they were in the other ranges.
+        changed += deselect(indexes, oldStart, Math.min(oldEnd, start));
+        changed += deselect(indexes, Math.max(oldStart, end), oldEnd);
+        // Entries entering it are selected if they are in the other ranges.
+        changed += select(indexes, start, Math.min(end, oldStart), dimension);
+        changed += select(indexes, Math.max(start, oldEnd), end, dimension);
+        lastChangedCount = changed;
+        lastUpdateNanos = System.nanoTime() - startNanos;
+    }
+
+    private int deselect(int[] indexes, int from, int to) {
+        for (int position = from; position < to; position++) {
+            int index = indexes[position];
+            if (selected[index]) {
+                selected[index] = false;
+                selectedEntryCount--;
+                add(songEntries.get(index), -1);
+            }
+        }
+        return Math.max(0, to - from);
+    }
+
+    private int select(int[] indexes, int from, int to, int dimension) {
+        for (int position = from; position < to; position++) {
+            int index = indexes[position];
+            if (!selected[index] && isInOtherRanges(index, dimension)) {
+                selected[index] = true;
+                selectedEntryCount++;
+                add(songEntries.get(index), 1);
+            }
+        }
+        return Math.max(0, to - from);
+    }
+
+    private boolean isInOtherRanges(int index, int dimension) {
+        for (int other = 0; other < songProperties.length; other++) {
+            int position = entries.sortedPositions[other][index];
+            if (other != dimension && (position < sliceStarts[other] || position >= sliceEnds[other])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(SongEntry songEntry, int sign) {
+        long rows = (long) sign * songEntry.getMultiplicity();
+        selectedRowCount += rows;
+        addToSums(songEntry, rows, sums, compensations);
+    }
+
+    /**
+     * Adds the values of a song entry, times a number of rows, to compensated sums: every compensation
+     * holds the low-order bits lost by the last addition to its sum, and is subtracted from the next value.
+     */
+    private static void addToSums(SongEntry songEntry, long rows, double[] sums, double[] compensations) {
+        for (SongProperty songProperty : SongProperty.values()) {
+            int ordinal = songProperty.ordinal();
+            double value = rows * songEntry.getSongProperty(songProperty) - compensations[ordinal];
+            double sum = sums[ordinal] + value;
+            compensations[ordinal] = (sum - sums[ordinal]) - value;
+            sums[ordinal] = sum;
+        }
+    }
+
+    /**
+     * Returns the position of the first value not smaller than a minimum in sorted values.
+     */
+    private static int lowerBound(double[] values, double minimum) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < minimum) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position of the first value larger than a maximum (or NaN) in sorted values.
+     */
+    private static int upperBound(double[] values, double maximum) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= maximum) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int getDimension(SongProperty songProperty) throws NoSuchElementException {
+        for (int dimension = 0; dimension < songProperties.length; dimension++) {
+            if (songProperties[dimension] == songProperty) {
+                return dimension;
+            }
+        }
+        throw new NoSuchElementException(songProperty + " is not brushed!");
+    }
+
+    /**
+     * @return the brushed properties.
+     */
+    public List<SongProperty> getSongProperties() {
+        return List.of(songProperties);
+    }
+
+    /**
+     * @return the number of song entries selected.
+     */
+    public int getSelectedEntryCount() {
+        return selectedEntryCount;
+    }
+
+    /**
+     * @return the number of rows of the song file the selected song entries stand for.
+     */
+    public long getSelectedRowCount() {
+        return selectedRowCount;
+    }
+
+    /**
+     * Returns the average of a property over the selected rows, updated with every change of a range.
+     *
+     * @param songProperty the property.
+     * @return its average.
+     * @throws NoSuchElementException if no row is selected.
+     */
+    public double getAverage(SongProperty songProperty) throws NoSuchElementException {
+        if (selectedRowCount == 0) {
+            throw new NoSuchElementException("No song entry is selected!");
+        }
+        return sums[songProperty.ordinal()] / selectedRowCount;
+    }
+
+    /**
+     * @return the selected song entries, in the order of the set.
+     */
+    public List<SongEntry> getSelectedEntries() {
+        List<SongEntry> selectedEntries = new ArrayList<>(selectedEntryCount);
+        for (int index = 0; index < selected.length; index++) {
+            if (selected[index]) {
+                selectedEntries.add(songEntries.get(index));
+            }
+        }
+        return selectedEntries;
+    }
+
+    /**
+     * Returns the filters selecting the same entries as the ranges: a lower and an upper bound for every
+     * property whose range was set.
+     *
+     * @return the filters, property by property.
+     */
+    public List<SubQuery> getSubQueries() {
+        List<SubQuery> subQueries = new ArrayList<>();
+        for (int dimension = 0; dimension < songProperties.length; dimension++) {
+            if (narrowed[dimension]) {
+                subQueries.add(new SubQuery(songProperties[dimension], ">=", minimums[dimension]));
+                subQueries.add(new SubQuery(songProperties[dimension], "<=", maximums[dimension]));
+            }
+        }
+        return subQueries;
+    }
+
+    /**
+     * @return the number of song entries that entered or left a range in the last change.
+     */
+    public int getLastChangedCount() {
+        return lastChangedCount;
+    }
+
+    /**
+     * @return how long the last change of a range took, in nanoseconds.
+     */
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+}
@@ -0,0 +1,240 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * Describes the order in which the song entries of a catalog are stored, and computes it.
+ * <p>
+ * Rows can be kept in file order, sorted by one {@link SongProperty}, or sorted along a Z-order
+ * (Morton) curve over several properties. A Z-order key interleaves the bits of every property,
+ * quantized over its range, so rows that are close on all the properties end up in nearby blocks; this is
+ * what lets the zone map prune multi-property range queries such as {@code ENERGY > 0.8 AND
+ * DANCEABILITY > 0.8}. Keys are computed in parallel and sorted with a stable LSD radix sort over
+ * primitive arrays, so rows with equal keys keep their file order.
+ */
+public class RowOrder {
+
+    /**
+     * The kinds of row order.
+     */
+    public enum Kind {
+        // Rows stay in the order of the song file.
+        FILE,
+        // Rows are sorted by the value of one property.
+        PROPERTY,
+        // Rows are sorted along a Z-order curve over several properties.
+        Z_ORDER
+    }
+
+    /**
+     * The order of the song file.
+     */
+    public static final RowOrder FILE_ORDER = new RowOrder(Kind.FILE, List.of());
+
+    private static final String Z_ORDER_PREFIX = "zorder:";
+
+    // Radix sort digit size
+    private static final int RADIX_BITS = 8;
+
+    private final Kind kind;
+    private final List<SongProperty> songProperties;
+
+    private RowOrder(Kind kind, List<SongProperty> songProperties) {
+        this.kind = kind;
+        this.songProperties = Collections.unmodifiableList(new ArrayList<>(songProperties));
+    }
+
+    /**
+     * Creates the order sorting rows by increasing value of a property.
+     *
+     * @param songProperty the property to sort by.
+     * @return the row order.
+     */
+    public static RowOrder byProperty(SongProperty songProperty) {
+        return new RowOrder(Kind.PROPERTY, List.of(songProperty));
+    }
+
+    /**
+     * Creates the order sorting rows along a Z-order curve over the given properties.
+     *
+     * @param songProperties the properties spanning the curve, at least one.
+     * @return the row order.
+     * @throws IllegalArgumentException if no property is given.
+     */
+    public static RowOrder byZOrder(List<SongProperty> songProperties) throws IllegalArgumentException {
+        if (songProperties.isEmpty()) {
+            throw new IllegalArgumentException("A Z-order needs at least one property.");
+        }
+        return new RowOrder(Kind.Z_ORDER, songProperties);
+    }
+
+    /**
+     * Convert a name String to the matching RowOrder: "file", a property name (e.g. "popularity"), or
+     * "zorder:" followed by comma-separated property names (e.g. "zorder:energy,danceability").
+     *
+     * @param name the String to convert
+     * @return the matching RowOrder
+     * @throws IllegalArgumentException if the String does not describe a row order
+     */
+    public static RowOrder fromName(String name) throws IllegalArgumentException {
+        String trimmedName = name.trim().toLowerCase();
+        try {
+            if (trimmedName.equals("file")) {
+                return FILE_ORDER;
+            }
+            if (trimmedName.startsWith(Z_ORDER_PREFIX)) {
+                List<SongProperty> properties = new ArrayList<>();
+                for (String propertyName : trimmedName.substring(Z_ORDER_PREFIX.length()).split(",")) {
+                    properties.add(SongProperty.fromName(propertyName.trim()));
+                }
+                return byZOrder(properties);
+            }
+            return byProperty(SongProperty.fromName(trimmedName));
+        } catch (NoSuchElementException e) {
+            throw new IllegalArgumentException("No such row order (" + name + "): " + e.getMessage());
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public List<SongProperty> getSongProperties() {
+        return songProperties;
+    }
+
+    /**
+     * Computes the permutation putting the given song entries in this order.
+     *
+     * @param songEntriesList the song entries, in their current order.
+     * @return for every new position, the current position of the entry stored there.
+     */
+    public int[] computePermutation(List<SongEntry> songEntriesList) {
+        int size = songEntriesList.size();
+        if (kind == Kind.FILE) {
+            // File order is the order of the IDs (line numbers).
+            long[] keys = new long[size];
+            IntStream.range(0, size).parallel().forEach(row -> keys[row] = songEntriesList.get(row).getId());
+            return sortedPositions(keys);
+        }
+        if (kind == Kind.PROPERTY) {
+            SongProperty songProperty = songProperties.get(0);
+            long[] keys = new long[size];
+            IntStream.range(0, size).parallel().forEach(row ->
+                    keys[row] = sortableBits(songEntriesList.get(row).getSongProperty(songProperty)));
+            return sortedPositions(keys);
+        }
+        return sortedPositions(zOrderKeys(songEntriesList));
+    }
+
+    /**
+     * Computes the Z-order key of every entry: every property is quantized over its range to
+     * {@code 63 / d} bits, and the bits of the d properties are interleaved from the most significant.
+     */
+    private long[] zOrderKeys(List<SongEntry> songEntriesList) {
+        int size = songEntriesList.size();
+        int dimensions = songProperties.size();
+        int bitsPerDimension = Math.max(1, 63 / dimensions);
+        long maximumCell = (1L << bitsPerDimension) - 1;
+
+        double[] minimums = new double[dimensions];
+        double[] ranges = new double[dimensions];
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            SongProperty songProperty = songProperties.get(dimension);
+            minimums[dimension] = songEntriesList.parallelStream()
+                    .mapToDouble(songEntry -> songEntry.getSongProperty(songProperty)).min().orElse(0);
+            double maximum = songEntriesList.parallelStream()
+                    .mapToDouble(songEntry -> songEntry.getSongProperty(songProperty)).max().orElse(0);
+            ranges[dimension] = maximum > minimums[dimension] ? maximum - minimums[dimension] : 1;
+        }
+
+        long[] keys = new long[size];
+        IntStream.range(0, size).parallel().forEach(row -> {
+            SongEntry songEntry = songEntriesList.get(row);
+            long[] cells = new long[dimensions];
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                double scaled = (songEntry.getSongProperty(songProperties.get(dimension)) - minimums[dimension]) /
+                        ranges[dimension];
+                // NaN and out-of-range values are clamped to the ends of the curve.
+                cells[dimension] = scaled > 0 ? Math.min(maximumCell, (long) (scaled * maximumCell)) : 0;
+            }
+            long key = 0;
+            for (int bit = bitsPerDimension - 1; bit >= 0; bit--) {
+                for (int dimension = 0; dimension < dimensions; dimension++) {
+                    key = (key << 1) | ((cells[dimension] >>> bit) & 1);
+                }
+            }
+            keys[row] = key;
+        });
+        return keys;
+    }
+
+    /**
+     * Maps a double to a long whose unsigned order is the numeric order of the doubles
+     * (negative values before positive ones, NaN last).
+     */
+    static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits < 0 ? ~bits : bits | Long.MIN_VALUE;
+    }
+
+    /**
+     * Sorts positions by their unsigned key with a stable LSD radix sort.
+     *
+     * @param keys the key of every position.
+     * @return the positions ordered by key, equal keys keeping their relative order.
+     */
+    static int[] sortedPositions(long[] keys) {
+        int size = keys.length;
+        int[] positions = new int[size];
+        int[] buffer = new int[size];
+        for (int position = 0; position < size; position++) {
+            positions[position] = position;
+        }
+
+        // Only sort on the digits where the keys differ.
+        long differingBits = 0;
+        for (long key : keys) {
+            differingBits |= key ^ (size == 0 ? 0 : keys[0]);
+        }
+        int buckets = 1 << RADIX_BITS;
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            if (((differingBits >>> shift) & (buckets - 1)) == 0) {
+                continue;
+            }
+            int[] counts = new int[buckets + 1];
+            for (int position : positions) {
+                counts[(int) ((keys[position] >>> shift) & (buckets - 1)) + 1]++;
+            }
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                counts[bucket + 1] += counts[bucket];
+            }
+            for (int position : positions) {
+                buffer[counts[(int) ((keys[position] >>> shift) & (buckets - 1))]++] = position;
+            }
+            int[] swap = positions;
+            positions = buffer;
+            buffer = swap;
+        }
+        return positions;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case PROPERTY:
+                return "sorted by " + songProperties.get(0);
+            case Z_ORDER:
+                return "Z-order over " + songProperties;
+            default:
+                return "file order";
+        }
+    }
+}
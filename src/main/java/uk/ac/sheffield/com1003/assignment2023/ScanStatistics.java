@@ -0,0 +1,63 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * Counts how the blocks of a {@link ZoneMap} were handled by a scan: skipped because no row could match,
+ * accepted whole because every row matched, or scanned row by row.
+ */
+public class ScanStatistics {
+
+    private int skippedBlocks;
+    private int acceptedBlocks;
+    private int scannedBlocks;
+    private long checkedRows;
+
+    /**
+     * Records a block that was skipped without reading its rows.
+     */
+    public void recordSkippedBlock() {
+        skippedBlocks++;
+    }
+
+    /**
+     * Records a block whose rows were all accepted without being checked.
+     */
+    public void recordAcceptedBlock() {
+        acceptedBlocks++;
+    }
+
+    /**
+     * Records a block whose rows were checked one by one.
+     *
+     * @param rows the number of rows checked.
+     */
+    public void recordScannedBlock(int rows) {
+        scannedBlocks++;
+        checkedRows += rows;
+    }
+
+    public int getSkippedBlocks() {
+        return skippedBlocks;
+    }
+
+    public int getAcceptedBlocks() {
+        return acceptedBlocks;
+    }
+
+    public int getScannedBlocks() {
+        return scannedBlocks;
+    }
+
+    public int getTotalBlocks() {
+        return skippedBlocks + acceptedBlocks + scannedBlocks;
+    }
+
+    public long getCheckedRows() {
+        return checkedRows;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d blocks skipped, %d accepted whole, %d scanned (%d rows checked)",
+                skippedBlocks, getTotalBlocks(), acceptedBlocks, scannedBlocks, checkedRows);
+    }
+}
@@ -2,29 +2,1012 @@ package uk.ac.sheffield.com1003.assignment2023;
 
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.*;
 
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * This class provided basic reading functionalities of the dataset with song entries.
+ * <p>
+ * The rows are held by a {@link SongStorage} whose layout is chosen with a {@link StorageBackend}. The
+ * catalog holds native memory when its columns are direct or mapped (see {@link ColumnMemory});
+ * {@link #close()} releases it.
+ * <p>
+ * The indexes over the song entries (zone map, text, trigram, autocomplete, facet, sort, similarity
+ * indexes and the clustering) are built on first use and then shared. Each has a lock of its own, so
+ * building one in the background (e.g. the similarity index) does not hold up lookups in the others.
  * */
-public class SongCatalog extends AbstractSongCatalog {
-    
+public class SongCatalog extends AbstractSongCatalog implements IndexedCatalog, AutoCloseable {
+
+    // Number of rows read between two reports to the load progress listener
+    private static final int PROGRESS_INTERVAL = 1 << 14;
+
+    // Number of selections of names whose autocomplete indexes are kept, see getAutocompleteIndex
+    private static final int SELECTION_INDEX_COUNT = 64;
+
+    private final LoadMode loadMode;
+
+    private final StorageBackend storageBackend;
+
+    private final ColumnMemory columnMemory;
+
+    // Directory of the snapshot file of mapped columns, or null for the directory of the song file
+    private final Path snapshotDirectory;
+
+    // Storage of the song entries, filled by loadSongCatalogData
+    private SongStorage songStorage;
+
+    // Built lazily on first use, see getSongEntryById, getZoneMap, getTextIndex, getTrigramIndex,
+    // getAutocompleteIndex, getFacetIndex, getFeatureMatrix, getSimilarityIndex and getClustering
+    // Row of the storage of every ID, or -1
+    private final Lazy<int[]> rowsById = new Lazy<>(this::buildRowsById);
+    private final Lazy<ZoneMap> zoneMap = new Lazy<>(() -> new ZoneMap(songEntriesList));
+    private final Lazy<InvertedIndex> textIndex = new Lazy<>(() -> new InvertedIndex(songEntriesList));
+    private final Map<SongDetail, Lazy<TrigramIndex>> trigramIndexes =
+            lazyPerKey(SongDetail.class, this::buildTrigramIndex);
+    private final Map<SongDetail, Lazy<AutocompleteIndex>> autocompleteIndexes =
+            lazyPerKey(SongDetail.class, detail -> AutocompleteIndex.of(songEntriesList, detail));
+    // Autocomplete indexes of the values left by recent selections of names, least recently used first
+    private final Map<String, AutocompleteIndex> selectionAutocompleteIndexes =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AutocompleteIndex> eldest) {
+                    return size() > SELECTION_INDEX_COUNT;
+                }
+            };
+    private final Lazy<FacetIndex> facetIndex = new Lazy<>(() -> new FacetIndex(songEntriesList));
+    private final Map<SongProperty, Lazy<PropertySortIndex>> propertySortIndexes =
+            lazyPerKey(SongProperty.class, property -> new PropertySortIndex(songEntriesList, property));
+    private final Map<SongDetail, Lazy<DetailSortIndex>> detailSortIndexes =
+            lazyPerKey(SongDetail.class, detail -> new DetailSortIndex(songEntriesList, detail));
+    private final Lazy<SongFeatureMatrix> featureMatrix = new Lazy<>(() -> new SongFeatureMatrix(songEntriesList));
+    private final Lazy<SongSimilarityIndex> similarityIndex =
+            new Lazy<>(() -> new SongSimilarityIndex(getFeatureMatrix()));
+
+    // The clustering, discarded when the number of clusters changes, and the lock guarding both
+    private final Object clusteringLock = new Object();
+    private volatile SongClustering clustering;
+
+    // Order of songEntriesList, see reorderRows
+    private RowOrder rowOrder = RowOrder.FILE_ORDER;
+    // Position of every ID in songEntriesList, built lazily and reset when the rows are reordered
+    private int[] positionsById;
+
+    // Number of clusters used when the catalog is clustered on demand
+    private int clusterCount = KMeansClustering.DEFAULT_CLUSTER_COUNT;
+
     /**
      * Constructs a new SongCatalog instance by loading song data from the spotify_songs.tsv file.
-     * This constructor invokes the superclass's constructor to handle the loading of song entries
-     * from the file.
      *
      * @param songFile the file path from which to load the songs.
      * @throws IllegalArgumentException if the file path or format is incorrect.
      * @throws IOException if an I/O error occurs during file reading.
      */
-    
     public SongCatalog(String songFile) throws IllegalArgumentException, IOException {
-        // Call to the superclass constructor to handle the actual file reading and object initialization.
-        super(songFile);
+        this(songFile, LoadMode.ALL_ROWS);
     }
-    
+
+    /**
+     * Constructs a new SongCatalog instance by loading song data from the given file,
+     * either keeping every row or collapsing identical rows into canonical entries with a multiplicity.
+     *
+     * @param songFile the file path from which to load the songs.
+     * @param loadMode how the rows of the file are stored.
+     * @throws IllegalArgumentException if the file path or format is incorrect.
+     * @throws IOException if an I/O error occurs during file reading.
+     */
+    public SongCatalog(String songFile, LoadMode loadMode) throws IllegalArgumentException, IOException {
+        this(songFile, loadMode, ColumnMemory.HEAP);
+    }
+
+    /**
+     * Constructs a new SongCatalog instance by loading song data from the given file and holding its
+     * columns on the heap, in direct memory, or in a memory-mapped snapshot file next to the song file.
+     *
+     * @param songFile the file path from which to load the songs.
+     * @param loadMode how the rows of the file are stored.
+     * @param columnMemory where the columns of the catalog are held; {@link ColumnMemory#MAPPED} reuses the
+     *                     snapshot file next to the song file if it is up to date, and (re)writes it otherwise.
+     * @throws IllegalArgumentException if the file path or format is incorrect.
+     * @throws IOException if an I/O error occurs during file reading or snapshot writing.
+     */
+    public SongCatalog(String songFile, LoadMode loadMode, ColumnMemory columnMemory)
+            throws IllegalArgumentException, IOException {
+        this(songFile, loadMode, StorageBackend.COLUMNS, columnMemory);
+    }
+
+    /**
+     * Constructs a new SongCatalog instance by loading song data from the given file and storing it in
+     * the layout of the given storage backend.
+     *
+     * @param songFile the file path from which to load the songs.
+     * @param loadMode how the rows of the file are stored.
+     * @param storageBackend the layout the song entries are stored in.
+     * @param columnMemory where the columns of the catalog are held; only {@link StorageBackend#COLUMNS}
+     *                     can be held outside the heap.
+     * @throws IllegalArgumentException if the file path or format is incorrect, or the backend cannot be
+     *                                  held in the given memory.
+     * @throws IOException if an I/O error occurs during file reading or snapshot writing.
+     */
+    public SongCatalog(String songFile, LoadMode loadMode, StorageBackend storageBackend, ColumnMemory columnMemory)
+            throws IllegalArgumentException, IOException {
+        this(songFile, loadMode, storageBackend, columnMemory, LoadProgressListener.NONE);
+    }
+
+    /**
+     * Constructs a new SongCatalog instance like {@link #SongCatalog(String, LoadMode, StorageBackend, ColumnMemory)},
+     * reporting how many bytes and rows of the file were read while loading it.
+     *
+     * @param songFile the file path from which to load the songs.
+     * @param loadMode how the rows of the file are stored.
+     * @param storageBackend the layout the song entries are stored in.
+     * @param columnMemory where the columns of the catalog are held; only {@link StorageBackend#COLUMNS}
+     *                     can be held outside the heap.
+     * @param progressListener told how far the loading has got, on the calling thread.
+     * @throws IllegalArgumentException if the file path or format is incorrect, or the backend cannot be
+     *                                  held in the given memory.
+     * @throws IOException if an I/O error occurs during file reading or snapshot writing.
+     */
+    public SongCatalog(String songFile, LoadMode loadMode, StorageBackend storageBackend, ColumnMemory columnMemory,
+                       LoadProgressListener progressListener) throws IllegalArgumentException, IOException {
+        this(songFile, loadMode, storageBackend, columnMemory, null, progressListener);
+    }
+
+    /**
+     * Constructs a new SongCatalog instance like
+     * {@link #SongCatalog(String, LoadMode, StorageBackend, ColumnMemory, LoadProgressListener)}, keeping the
+     * snapshot file of {@link ColumnMemory#MAPPED} columns in the given directory, e.g. when the directory of
+     * the song file is read-only.
+     *
+     * @param songFile the file path from which to load the songs.
+     * @param loadMode how the rows of the file are stored.
+     * @param storageBackend the layout the song entries are stored in.
+     * @param columnMemory where the columns of the catalog are held; only {@link StorageBackend#COLUMNS}
+     *                     can be held outside the heap.
+     * @param snapshotDirectory the directory of the snapshot file, or null for the directory of the song file.
+     * @param progressListener told how far the loading has got, on the calling thread.
+     * @throws IllegalArgumentException if the file path or format is incorrect, or the backend cannot be
+     *                                  held in the given memory.
+     * @throws IOException if an I/O error occurs during file reading or snapshot writing.
+     */
+    public SongCatalog(String songFile, LoadMode loadMode, StorageBackend storageBackend, ColumnMemory columnMemory,
+                       Path snapshotDirectory, LoadProgressListener progressListener)
+            throws IllegalArgumentException, IOException {
+        // The song file is read here, in the layout of the storage backend, rather than by the superclass.
+        super();
+        if (storageBackend != StorageBackend.COLUMNS && columnMemory != ColumnMemory.HEAP) {
+            throw new IllegalArgumentException("Only the " + StorageBackend.COLUMNS + " storage backend can be held in " +
+                    columnMemory + " memory.");
+        }
+        this.loadMode = loadMode;
+        this.storageBackend = storageBackend;
+        this.columnMemory = columnMemory;
+        this.snapshotDirectory = snapshotDirectory;
+        loadSongCatalogData(songFile, progressListener);
+    }
+
+    /**
+     * Reads the TSV file passed by main. It then reads the contents of the files
+     * and stores the song entries in the layout of the storage backend, which it returns.
+     * Catches exception errors should they occur and it delegates handling of other exceptions
+     * <p>
+     * When the catalog is loaded with {@link LoadMode#COLLAPSE_DUPLICATES}, every parsed row is
+     * fingerprinted and rows identical to an earlier one only increase the multiplicity of that
+     * earlier (canonical) entry. IDs keep referring to line numbers of the file either way.
+     * <p>
+     * @param songFile This will be the dataset providing the song dataset.
+     * @param progressListener told every {@link #PROGRESS_INTERVAL} rows how many bytes and rows were read.
+     * @return the storage holding the song entries, on the heap.
+     */
+    private SongStorage readDataFromFile(String songFile, LoadProgressListener progressListener)
+            throws IllegalArgumentException, IOException {
+        SongStorage.Builder storageBuilder = storageBackend.newBuilder();
+        int count = 1;
+
+        // Maps the fingerprint of every canonical row to its row in storageBuilder
+        FingerprintSet canonicalRows = (loadMode == LoadMode.COLLAPSE_DUPLICATES) ? new FingerprintSet(1024) : null;
+        SongFingerprint fingerprint = new SongFingerprint();
+
+        long totalBytes = Files.size(Path.of(songFile));
+        try (CountingInputStream input = new CountingInputStream(new FileInputStream(songFile));
+             BufferedReader br = new BufferedReader(new InputStreamReader(input, Charset.defaultCharset()))) {
+            String line = br.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("File is empty. Please run the programme again and provide a valid dataset.");
+            }
+            while ((line = br.readLine()) != null) {
+                if (count > 1 && (count - 1) % PROGRESS_INTERVAL == 0) {
+                    // The bytes counted include those buffered by the reader but not yet parsed
+                    progressListener.progressed(input.getCount(), totalBytes, count - 1);
+                }
+                try {
+                    // The song entry ID is created by this reader; it is not provided in the original files
+                    // The ID should _not_ be modified later
+                    int id = count;
+                    SongPropertyMap songPropertyMap = parseSongEntryLine(line);
+                    if (canonicalRows != null) {
+                        fingerprint.fingerprintSong(songPropertyMap);
+                        int canonicalIndex = canonicalRows.putIfAbsent(
+                                fingerprint.getHigh(), fingerprint.getLow(), storageBuilder.size());
+                        if (canonicalIndex >= 0) {
+                            storageBuilder.incrementMultiplicity(canonicalIndex);
+                            count++;
+                            continue;
+                        }
+                    }
+                    storageBuilder.add(id, songPropertyMap);
+                    count++;
+
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("File format is incorrect; only double values are allowed. " +
+                            "See line: " + (count + 1));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Malformed song entry line: " + line +
+                            "\nSee line: " + (count + 1));
+                }
+            }
+        }
+        progressListener.progressed(totalBytes, totalBytes, count - 1);
+
+        // Create the song entries or encode the columns
+        return storageBuilder.build();
+    }
+
+    /**
+     * Counts the bytes read from a stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Returns the storage holding the song entries of this catalog, in file order.
+     *
+     * @return the storage of this catalog.
+     */
+    public SongStorage getSongStorage() {
+        return songStorage;
+    }
+
+    /**
+     * Returns the columns holding the values of the song entries, each numeric property stored in the
+     * narrowest encoding that gives back the exact parsed values.
+     *
+     * @return the columns of this catalog.
+     * @throws IllegalStateException if the catalog does not use the {@link StorageBackend#COLUMNS} backend.
+     */
+    public SongColumns getSongColumns() throws IllegalStateException {
+        if (!(songStorage instanceof SongColumns songColumns)) {
+            throw new IllegalStateException("The catalog is stored as " + storageBackend + ", not as columns.");
+        }
+        return songColumns;
+    }
+
+    /**
+     * Read the contents of filename and stores it.
+     * <p>
+     * Rows are stored by the {@link #storageBackend}; columns are held where {@link #columnMemory} says.
+     *
+     * @param songFile file with the songs.
+     * @param progressListener told how many bytes and rows of the file were read; a snapshot that is
+     *                         up to date is reported read at once.
+     */
+    private void loadSongCatalogData(String songFile, LoadProgressListener progressListener)
+            throws IllegalArgumentException, IOException {
+        songFile = songFile.replaceAll(" ", "");
+
+        // Whether the rows come from the song file rather than from an up-to-date snapshot
+        boolean songFileRead = true;
+        switch (columnMemory) {
+            case MAPPED -> {
+                Path snapshotFile = snapshotDirectory == null ? SongColumnsSnapshot.defaultPath(songFile) :
+                        SongColumnsSnapshot.pathIn(snapshotDirectory, songFile);
+                if (!SongColumnsSnapshot.isUpToDate(snapshotFile, Path.of(songFile), loadMode)) {
+                    try (SongColumns heapColumns = (SongColumns) readDataFromFile(songFile, progressListener)) {
+                        SongColumnsSnapshot.write(heapColumns, loadMode, Path.of(songFile), snapshotFile);
+                    }
+                } else {
+                    songFileRead = false;
+                }
+                songStorage = SongColumnsSnapshot.map(snapshotFile);
+            }
+            case DIRECT -> {
+                try (SongColumns heapColumns = (SongColumns) readDataFromFile(songFile, progressListener)) {
+                    songStorage = heapColumns.toDirect();
+                }
+            }
+            default -> songStorage = readDataFromFile(songFile, progressListener);
+        }
+
+        songEntriesList = SongRows.all(songStorage);
+        if (!songFileRead) {
+            long totalBytes = Files.size(Path.of(songFile));
+            progressListener.progressed(totalBytes, totalBytes, getRowCount(songEntriesList));
+        }
+    }
+
+    /**
+     * Returns where the columns of the song entries are held.
+     *
+     * @return the column memory of this catalog.
+     */
+    public ColumnMemory getColumnMemory() {
+        return columnMemory;
+    }
+
+    /**
+     * Returns the layout the song entries are stored in.
+     *
+     * @return the storage backend of this catalog.
+     */
+    public StorageBackend getStorageBackend() {
+        return storageBackend;
+    }
+
+    /**
+     * Releases the storage of the song entries, returning direct or mapped memory to the operating system.
+     * Song entries stored as columns can no longer be read afterwards.
+     */
+    @Override
+    public void close() {
+        songStorage.close();
+    }
+
+    /**
+     * Returns the mode the catalog was loaded with.
+     *
+     * @return the load mode.
+     */
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * Reorders the song entries list, e.g. by a property or along a Z-order curve over several properties,
+     * so that rows with similar values share zone map blocks and scans can prune more of them. The song
+     * entries keep their IDs, so {@link #getSongEntryById(int)} and {@link #getSongEntriesInFileOrder()}
+     * still give access by file position. The zone map, the text index and the facet index are rebuilt on
+     * next use.
+     * <p>
+     * A new list of the rows in the new order then replaces the current one, so that threads reading the
+     * current list (queries, the GUI, indexes being built) keep a consistent list of rows. The indexes are
+     * only reset after the swap: an index being built from the current list is discarded once it is done.
+     *
+     * @param rowOrder the new order of the rows.
+     */
+    public synchronized void reorderRows(RowOrder rowOrder) {
+        SongRows currentRows = getSongRows();
+        this.songEntriesList = currentRows.select(rowOrder.computePermutation(currentRows));
+        this.rowOrder = rowOrder;
+        this.positionsById = null;
+        this.zoneMap.set(null);
+        this.textIndex.set(null);
+        this.facetIndex.set(null);
+    }
+
+    /**
+     * Returns the song entries list as the rows of the storage it is made of.
+     */
+    private SongRows getSongRows() {
+        return (SongRows) songEntriesList;
+    }
+
+    /**
+     * Returns the current order of the song entries list.
+     *
+     * @return the row order, {@link RowOrder#FILE_ORDER} unless the rows were reordered.
+     */
+    public RowOrder getRowOrder() {
+        return rowOrder;
+    }
+
+    /**
+     * Returns the song entries in the order of the song file, whatever the current row order.
+     *
+     * @return the song entries sorted by ID, i.e. the rows of the storage in row order.
+     */
+    public List<SongEntry> getSongEntriesInFileOrder() {
+        return SongRows.all(songStorage);
+    }
+
+    /**
+     * Returns the current position in the song entries list of the song entry with the given ID.
+     *
+     * @param id the ID of the song entry.
+     * @return the index of the song entry in {@link #getSongEntriesList()}.
+     * @throws NoSuchElementException if no song entry has that ID.
+     */
+    public synchronized int getPositionOfId(int id) throws NoSuchElementException {
+        getSongEntryById(id);
+        if (positionsById == null) {
+            SongRows currentRows = getSongRows();
+            int[] positions = new int[rowsById.get().length];
+            for (int position = 0; position < currentRows.size(); position++) {
+                positions[songStorage.getId(currentRows.getRow(position))] = position;
+            }
+            positionsById = positions;
+        }
+        return positionsById[id];
+    }
+
+    /**
+     * Returns the song entry with the given ID (the line of the song file it was read from).
+     *
+     * @param id the ID of the song entry.
+     * @return the song entry with that ID.
+     * @throws NoSuchElementException if no song entry has that ID (e.g. it was collapsed into an earlier one).
+     */
+    public SongEntry getSongEntryById(int id) throws NoSuchElementException {
+        int[] currentRowsById = rowsById.get();
+        if (id < 0 || id >= currentRowsById.length || currentRowsById[id] < 0) {
+            throw new NoSuchElementException("No song entry with ID " + id + "!");
+        }
+        return songStorage.getSongEntry(currentRowsById[id]);
+    }
+
+    /**
+     * Returns the index answering "songs like this" queries over the song properties of this catalog.
+     * The index is built (in parallel) on first use and then shared.
+     *
+     * @return the similarity index of this catalog.
+     */
+    public SongSimilarityIndex getSimilarityIndex() {
+        return similarityIndex.get();
+    }
+
+    /**
+     * Returns the per-block minimum and maximum of every property over the song entries list, used by
+     * {@link #executeQuery(Query, ScanStatistics)} to skip or accept whole blocks of rows. The map is
+     * built (in parallel) on first use.
+     *
+     * @return the zone map of this catalog.
+     */
+    @Override
+    public ZoneMap getZoneMap() {
+        return zoneMap.get();
+    }
+
+    /**
+     * Returns the full-text index over the name, artist and album of the song entries list, used by
+     * {@link #searchSongs(String, int)} and by the MATCH condition of {@link Query}. Its rows are positions
+     * in {@link #getSongEntriesList()}. The index is built (in parallel) on first use.
+     *
+     * @return the text index of this catalog.
+     */
+    @Override
+    public InvertedIndex getTextIndex() {
+        return textIndex.get();
+    }
+
+    /**
+     * Apply a Query to the songs of this catalog, retrieve the songs which match.
+     * <p>
+     * The zone map is used to decide for every block of rows whether the SubQueries can match none of them
+     * (the block is skipped), all of them (the block is accepted without checking its rows) or some of them
+     * (only the SubQueries that are undecided for the block are checked row by row).
+     * <p>
+     * With a text restriction, the rows containing every word are looked up in the text index first; blocks
+     * without such rows are skipped and the others only keep such rows. The result is in catalog order
+     * unless the query is ranked by relevance, in which case it is ordered by BM25 score.
+     *
+     * @param query the Query to apply.
+     * @param scanStatistics records how many blocks were skipped, accepted and scanned.
+     * @return List of filtered Song entries, in catalog order or by relevance to the match text.
+     */
+    @Override
+    public List<SongEntry> executeQuery(Query query, ScanStatistics scanStatistics) {
+        SongRows currentRows = getSongRows();
+        List<SubQuery> subQueryList = query.getSubQueryList();
+        int clusterId = query.getClusterId();
+        String matchText = query.getMatchText();
+
+        // Make sure cluster ids are assigned before filtering on them
+        if (clusterId != SongEntry.NO_CLUSTER) {
+            getClustering();
+        }
+
+        // Rows containing every word of the match text
+        InvertedIndex currentTextIndex = matchText == null ? null : getTextIndex();
+        BitSet textRows = currentTextIndex == null ? null : currentTextIndex.matchAll(matchText);
+        // Positions of the matching rows in the song entries list
+        BitSet resultRows = new BitSet(currentRows.size());
+
+        ZoneMap currentZoneMap = getZoneMap();
+        List<SubQuery> undecidedSubQueries = new ArrayList<>(subQueryList.size());
+        for (int block = 0; block < currentZoneMap.getBlockCount(); block++) {
+            // Keep only the SubQueries the bounds of the block cannot decide
+            undecidedSubQueries.clear();
+            boolean skipBlock = false;
+            for (SubQuery subQuery : subQueryList) {
+                ZoneMap.BlockMatch blockMatch = currentZoneMap.classify(block, subQuery);
+                if (blockMatch == ZoneMap.BlockMatch.NONE) {
+                    skipBlock = true;
+                    break;
+                }
+                if (blockMatch == ZoneMap.BlockMatch.SOME)
+                    undecidedSubQueries.add(subQuery);
+            }
+            int from = currentZoneMap.getBlockStart(block);
+            int to = currentZoneMap.getBlockEnd(block);
+            if (textRows != null) {
+                int firstTextRow = textRows.nextSetBit(from);
+                skipBlock |= firstTextRow < 0 || firstTextRow >= to;
+            }
+            if (skipBlock) {
+                scanStatistics.recordSkippedBlock();
+                continue;
+            }
+
+            if (undecidedSubQueries.isEmpty() && clusterId == SongEntry.NO_CLUSTER) {
+                scanStatistics.recordAcceptedBlock();
+                if (textRows == null) {
+                    resultRows.set(from, to);
+                } else {
+                    int row = textRows.nextSetBit(from);
+                    for (; row >= 0 && row < to; row = textRows.nextSetBit(row + 1))
+                        resultRows.set(row);
+                }
+                continue;
+            }
+
+            scanStatistics.recordScannedBlock(textRows == null ? to - from : textRows.get(from, to).cardinality());
+            for (int position : findPositions(currentRows, from, to, undecidedSubQueries)) {
+                if (textRows != null && !textRows.get(position))
+                    continue;
+                if (clusterId != SongEntry.NO_CLUSTER
+                        && currentRows.getSongStorage().getClusterId(currentRows.getRow(position)) != clusterId)
+                    continue;
+                resultRows.set(position);
+            }
+        }
+
+        // Rank the rows matching the text by relevance, or keep them in catalog order
+        if (query.isRankedByRelevance()) {
+            return currentRows.select(currentTextIndex.rankRows(resultRows, matchText));
+        }
+        return currentRows.select(resultRows.stream().toArray());
+    }
+
+    /**
+     * Finds the positions of a block of the song entries list whose rows meet every given SubQuery. When
+     * the positions of the block are a range of rows of the storage, every SubQuery is looked up with
+     * {@link SongStorage#findRows(SongProperty, double, double, int, int)}; otherwise the values of every
+     * row are read from the storage.
+     */
+    private static int[] findPositions(SongRows songRows, int from, int to, List<SubQuery> subQueries) {
+        SongStorage storage = songRows.getSongStorage();
+        if (from == to) {
+            return new int[0];
+        }
+        if (!songRows.isRowRange()) {
+            int[] positions = new int[to - from];
+            int count = 0;
+            for (int position = from; position < to; position++) {
+                int row = songRows.getRow(position);
+                boolean matches = true;
+                for (SubQuery subQuery : subQueries) {
+                    if (!subQuery.valueMatchesSubQuery(storage.getProperty(row, subQuery.getSongProperty()))) {
+                        matches = false;
+                        break;
+                    }
+                }
+                if (matches) {
+                    positions[count++] = position;
+                }
+            }
+            return Arrays.copyOf(positions, count);
+        }
+
+        // The row of every position is the position plus the offset
+        int offset = songRows.getRow(from) - from;
+        int[] rows = null;
+        for (SubQuery subQuery : subQueries) {
+            int[] matchingRows = findRows(storage, subQuery, from + offset, to + offset);
+            rows = rows == null ? matchingRows : intersect(rows, matchingRows);
+            if (rows.length == 0) {
+                break;
+            }
+        }
+        if (rows == null) {
+            return IntStream.range(from, to).toArray();
+        }
+        for (int index = 0; index < rows.length; index++) {
+            rows[index] -= offset;
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the rows of a range of rows meeting a SubQuery, as a range of values of its property.
+     */
+    private static int[] findRows(SongStorage storage, SubQuery subQuery, int fromRow, int toRow) {
+        SongProperty songProperty = subQuery.getSongProperty();
+        double value = subQuery.getValue();
+        switch (subQuery.getOperator()) {
+            case ">":
+                return storage.findRows(songProperty, Math.nextUp(value), Double.POSITIVE_INFINITY, fromRow, toRow);
+            case ">=":
+                return storage.findRows(songProperty, value, Double.POSITIVE_INFINITY, fromRow, toRow);
+            case "<":
+                return storage.findRows(songProperty, Double.NEGATIVE_INFINITY, value, fromRow, toRow);
+            case "<=":
+                return storage.findRows(songProperty, Double.NEGATIVE_INFINITY, Math.nextUp(value), fromRow, toRow);
+            case "=":
+                return storage.findRows(songProperty, value, Math.nextUp(value), fromRow, toRow);
+            case "!=":
+                // Every row of the range but those equal to the value
+                int[] equalRows = storage.findRows(songProperty, value, Math.nextUp(value), fromRow, toRow);
+                int[] rows = new int[toRow - fromRow - equalRows.length];
+                int count = 0;
+                int equalIndex = 0;
+                for (int row = fromRow; row < toRow; row++) {
+                    if (equalIndex < equalRows.length && equalRows[equalIndex] == row) {
+                        equalIndex++;
+                    } else {
+                        rows[count++] = row;
+                    }
+                }
+                return rows;
+            default:
+                return new int[0];
+        }
+    }
+
+    /**
+     * Returns the values found in both of two sorted arrays of distinct values.
+     */
+    private static int[] intersect(int[] first, int[] second) {
+        int[] common = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    /**
+     * Finds the songs whose name, artist or album contain any word of a text, e.g. "remix acoustic".
+     *
+     * @param text the words to search for; case and accents are ignored.
+     * @param limit the maximum number of songs to return.
+     * @return up to limit songs, most relevant first.
+     */
+    public List<SongMatch> searchSongs(String text, int limit) {
+        return getTextIndex().search(text, limit);
+    }
+
+    /**
+     * Returns the trigram index over the distinct values of a detail, used by
+     * {@link #findSimilarDetailValues(SongDetail, String, int)}. It only depends on the set of values, so it
+     * is kept when the rows are reordered. With the columnar backend the values are read straight from the
+     * detail's dictionary. The index is built on first use.
+     *
+     * @param songDetail the detail.
+     * @return the trigram index of the detail.
+     */
+    public TrigramIndex getTrigramIndex(SongDetail songDetail) {
+        return trigramIndexes.get(songDetail).get();
+    }
+
+    /**
+     * Builds the trigram index of a detail, from its dictionary with the columnar backend.
+     */
+    private TrigramIndex buildTrigramIndex(SongDetail songDetail) {
+        return new TrigramIndex(songStorage.getDistinctDetails(songDetail));
+    }
+
+    /**
+     * Finds the values of a detail close to a possibly misspelled text, e.g. the artist "Justin Bieber" for
+     * "beiber". A value matches if a run of its words is within {@link TrigramIndex#defaultMaxDistance}
+     * edits of the text.
+     *
+     * @param songDetail the detail to search.
+     * @param text the text to look up; case and accents are ignored.
+     * @param limit the maximum number of values to return.
+     * @return up to limit values, closest first.
+     */
+    public List<FuzzyMatch> findSimilarDetailValues(SongDetail songDetail, String text, int limit) {
+        return getTrigramIndex(songDetail).findSimilar(text, limit);
+    }
+
+    /**
+     * Returns the prefix index over the distinct values of a detail, weighted by popularity, used by
+     * {@link #suggestDetailValues(SongDetail, String, int)} and by the type-ahead selectors of the dashboard.
+     * It is kept when the rows are reordered. The index is built on first use.
+     *
+     * @param songDetail the detail.
+     * @return the autocomplete index of the detail.
+     */
+    public AutocompleteIndex getAutocompleteIndex(SongDetail songDetail) {
+        return autocompleteIndexes.get(songDetail).get();
+    }
+
+    /**
+     * Returns the prefix index over the values of a detail left by a selection of an artist, an album and
+     * a song, e.g. the albums of the selected artist, read from the {@link #getFacetIndex() facet index}.
+     * Without any selection this is the index of all the values. The indexes of the
+     * {@link #SELECTION_INDEX_COUNT} most recent selections are kept, so going back to a selection does not
+     * build its index again.
+     *
+     * @param songDetail the detail.
+     * @param artistName the selected artist, or "".
+     * @param albumName the selected album, or "".
+     * @param songName the selected song, or "".
+     * @return the autocomplete index of the values left by the selection.
+     */
+    public AutocompleteIndex getAutocompleteIndex(SongDetail songDetail, String artistName, String albumName,
+                                                  String songName) {
+        if (artistName.isEmpty() && albumName.isEmpty() && songName.isEmpty()) {
+            return getAutocompleteIndex(songDetail);
+        }
+        String key = songDetail + "\n" + artistName + "\n" + albumName + "\n" + songName;
+        synchronized (selectionAutocompleteIndexes) {
+            AutocompleteIndex autocompleteIndex = selectionAutocompleteIndexes.get(key);
+            if (autocompleteIndex != null) {
+                return autocompleteIndex;
+            }
+        }
+        Map<String, Double> popularities = new HashMap<>();
+        for (FacetIndex.FacetValue facetValue : getFacetIndex()
+                .getFacetValues(songDetail, artistName, albumName, songName)) {
+            popularities.put(facetValue.getValue(), facetValue.getPopularity());
+        }
+        AutocompleteIndex autocompleteIndex = new AutocompleteIndex(popularities);
+        synchronized (selectionAutocompleteIndexes) {
+            selectionAutocompleteIndexes.put(key, autocompleteIndex);
+        }
+        return autocompleteIndex;
+    }
+
+    /**
+     * Suggests the values of a detail starting with a prefix, e.g. the artists starting with "tay".
+     *
+     * @param songDetail the detail to search.
+     * @param prefix the typed prefix; case and accents are ignored.
+     * @param limit the maximum number of values to return.
+     * @return up to limit values, those with the most popular songs first.
+     */
+    public List<String> suggestDetailValues(SongDetail songDetail, String prefix, int limit) {
+        return getAutocompleteIndex(songDetail).suggest(prefix, limit);
+    }
+
+    /**
+     * Returns the artist, album and song facets of the song entries list, used by the cascading selectors
+     * of the dashboard. Its positions are those of {@link #getSongEntriesList()}. The index is built on
+     * first use.
+     *
+     * @return the facet index of this catalog.
+     */
+    public FacetIndex getFacetIndex() {
+        return facetIndex.get();
+    }
+
+    /**
+     * Returns the index ranking the song entries by a property, used to sort query results by that property.
+     * Its ranks are stored by ID, so it is kept when the rows are reordered. The index is built on first use.
+     *
+     * @param songProperty the property.
+     * @return the sort index of the property.
+     */
+    @Override
+    public PropertySortIndex getPropertySortIndex(SongProperty songProperty) {
+        return propertySortIndexes.get(songProperty).get();
+    }
+
+    /**
+     * Returns the index ranking the song entries by a name ignoring case, used to sort query results by that
+     * name. Its ranks are stored by ID, so it is kept when the rows are reordered. The index is built on
+     * first use.
+     *
+     * @param songDetail the name.
+     * @return the sort index of the name.
+     */
+    public DetailSortIndex getDetailSortIndex(SongDetail songDetail) {
+        return detailSortIndexes.get(songDetail).get();
+    }
+
+    /**
+     * Returns the normalized numeric properties of every song entry, shared by the similarity index and
+     * the clustering. The matrix is built (in parallel) on first use.
+     *
+     * @return the feature matrix of this catalog.
+     */
+    public SongFeatureMatrix getFeatureMatrix() {
+        return featureMatrix.get();
+    }
+
+    /**
+     * Returns the k-means clustering of the song entries, clustering them on first use with the
+     * configured number of clusters. Every song entry's {@link SongEntry#getClusterId()} is set accordingly.
+     *
+     * @return the clustering of this catalog.
+     */
+    @Override
+    public SongClustering getClustering() {
+        SongClustering current = clustering;
+        if (current == null) {
+            synchronized (clusteringLock) {
+                if (clustering == null) {
+                    clusterSongs(clusterCount);
+                }
+                current = clustering;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Sets the number of clusters used by {@link #getClustering()}, discarding the current clustering if
+     * it used a different number.
+     *
+     * @param clusterCount the number of clusters (k).
+     * @throws IllegalArgumentException if the number of clusters is not positive.
+     */
+    public void setClusterCount(int clusterCount) throws IllegalArgumentException {
+        if (clusterCount < 1) {
+            throw new IllegalArgumentException("The number of clusters must be positive (was " + clusterCount + ").");
+        }
+        synchronized (clusteringLock) {
+            if (clusterCount != this.clusterCount) {
+                this.clusterCount = clusterCount;
+                clustering = null;
+            }
+        }
+    }
+
+    /**
+     * Clusters the song entries by their numeric properties with k-means and records the cluster of every
+     * entry.
+     *
+     * @param clusterCount the number of clusters (k).
+     * @return the new clustering.
+     * @throws IllegalArgumentException if the number of clusters is not positive.
+     */
+    public SongClustering clusterSongs(int clusterCount) throws IllegalArgumentException {
+        SongFeatureMatrix matrix = getFeatureMatrix();
+        synchronized (clusteringLock) {
+            SongClustering newClustering = new KMeansClustering(clusterCount).cluster(matrix);
+            if (songStorage instanceof SongColumns songColumns) {
+                // The columns hold the cluster of every row, as their song entries are created on demand
+                int[] clusterIds = new int[songColumns.size()];
+                for (int row = 0; row < matrix.size(); row++) {
+                    clusterIds[rowsById.get()[matrix.getSongEntry(row).getId()]] = newClustering.getClusterId(row);
+                }
+                songColumns.setClusterIds(clusterIds);
+            } else {
+                for (int row = 0; row < matrix.size(); row++) {
+                    setClusterId(matrix.getSongEntry(row), newClustering.getClusterId(row));
+                }
+            }
+            this.clusterCount = clusterCount;
+            this.clustering = newClustering;
+            return newClustering;
+        }
+    }
+
+    /**
+     * Finds the k songs most similar to the song with the given ID.
+     *
+     * @param songId the ID of the song to find neighbours of.
+     * @param k the maximum number of similar songs to return.
+     * @param metric the distance used to compare songs.
+     * @return up to k similar songs, closest first.
+     * @throws NoSuchElementException if no song entry has that ID.
+     */
+    public List<SongNeighbour> findSimilarSongs(int songId, int k, DistanceMetric metric)
+            throws NoSuchElementException {
+        return getSimilarityIndex().findNearest(getSongEntryById(songId), k, metric);
+    }
+
+    /**
+     * Builds the array mapping IDs to rows of the storage.
+     */
+    private int[] buildRowsById() {
+        int maximumId = 0;
+        for (int row = 0; row < songStorage.size(); row++) {
+            maximumId = Math.max(maximumId, songStorage.getId(row));
+        }
+        int[] rows = new int[maximumId + 1];
+        Arrays.fill(rows, -1);
+        for (int row = 0; row < songStorage.size(); row++) {
+            rows[songStorage.getId(row)] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Creates a lazily built value for every constant of an enum, e.g. an index for every detail.
+     */
+    private static <K extends Enum<K>, T> Map<K, Lazy<T>> lazyPerKey(Class<K> keyType, Function<K, T> builder) {
+        Map<K, Lazy<T>> values = new EnumMap<>(keyType);
+        for (K key : keyType.getEnumConstants()) {
+            values.put(key, new Lazy<>(() -> builder.apply(key)));
+        }
+        return values;
+    }
+
+    /**
+     * Finds the song entries whose detail is the given value ignoring case, like
+     * {@link #getSongEntriesList(List, SongDetail, String)}, with
+     * {@link SongStorage#findRows(SongDetail, String)}: the columnar backend looks the value up in the
+     * detail's dictionary, sorted ignoring case, without decoding rows.
+     *
+     * @param songDetail the detail to search.
+     * @param value the value to look for.
+     * @return the matching song entries, in file order.
+     */
+    public List<SongEntry> findSongEntriesByDetail(SongDetail songDetail, String value) {
+        return getSongEntriesOfRows(songStorage.findRows(songDetail, value));
+    }
+
+    /**
+     * Finds the song entries whose detail starts with the given prefix ignoring case, with
+     * {@link SongStorage#findRowsWithPrefix(SongDetail, String)}: the columnar backend looks the prefix up as
+     * a range of the detail's dictionary, sorted ignoring case.
+     *
+     * @param songDetail the detail to search.
+     * @param prefix the prefix to look for.
+     * @return the matching song entries, in file order.
+     */
+    public List<SongEntry> findSongEntriesByDetailPrefix(SongDetail songDetail, String prefix) {
+        return getSongEntriesOfRows(songStorage.findRowsWithPrefix(songDetail, prefix));
+    }
+
+    private List<SongEntry> getSongEntriesOfRows(int[] rows) {
+        return SongRows.of(songStorage, rows);
+    }
+
     /**
      * Parse the properties from a given line from a song catalog file.
      * Assumes that each value appears in the same order as the columns in the file,
@@ -82,6 +1065,26 @@ public class SongCatalog extends AbstractSongCatalog {
         return filteredSongEntriesList;
     }
 
+    /**
+     * Counts the rows of the song file that song entries stand for, reading the multiplicities of the rows
+     * of a {@link SongRows} list from the storage.
+     *
+     * @param songEntriesList the song entries.
+     * @return the sum of their multiplicities.
+     */
+    @Override
+    public long getRowCount(List<SongEntry> songEntriesList) {
+        if (!(songEntriesList instanceof SongRows songRows)) {
+            return super.getRowCount(songEntriesList);
+        }
+        SongStorage storage = songRows.getSongStorage();
+        long rowCount = 0;
+        for (int position = 0; position < songRows.size(); position++) {
+            rowCount += storage.getMultiplicity(songRows.getRow(position));
+        }
+        return rowCount;
+    }
+
     /**
      * Get the minimum value of the given property for song entries in this song catalog
      * @param songProperty the property to evaluate
@@ -95,6 +1098,14 @@ public class SongCatalog extends AbstractSongCatalog {
         if (songEntriesList.isEmpty()) throw new NoSuchElementException();
 
         double minimumVal = songEntriesList.get(0).getSongProperty(songProperty);
+        if (songEntriesList instanceof SongRows songRows) {
+            // reading the rows from the storage
+            SongStorage storage = songRows.getSongStorage();
+            for (int position = 0; position < songRows.size(); position++) {
+                minimumVal = Math.min(minimumVal, storage.getProperty(songRows.getRow(position), songProperty));
+            }
+            return Math.round(minimumVal*100)/100d;
+        }
         for (SongEntry songEntry:songEntriesList) {
             minimumVal = Math.min(minimumVal, songEntry.getSongProperty(songProperty));
         }
@@ -114,6 +1125,14 @@ public class SongCatalog extends AbstractSongCatalog {
         if (songEntriesList.isEmpty()) throw new NoSuchElementException();
 
         double maximumVal = songEntriesList.get(0).getSongProperty(songProperty);
+        if (songEntriesList instanceof SongRows songRows) {
+            // reading the rows from the storage
+            SongStorage storage = songRows.getSongStorage();
+            for (int position = 0; position < songRows.size(); position++) {
+                maximumVal = Math.max(maximumVal, storage.getProperty(songRows.getRow(position), songProperty));
+            }
+            return Math.round(maximumVal*100)/100d;
+        }
         for (SongEntry songEntry:songEntriesList) {
             maximumVal = Math.max(maximumVal, songEntry.getSongProperty(songProperty));
         }
@@ -121,7 +1140,9 @@ public class SongCatalog extends AbstractSongCatalog {
     }
 
     /**
-     * Get the average value of the given property for song entries in this song catalog
+     * Get the average value of the given property for song entries in this song catalog.
+     * Every entry is weighted by its multiplicity, so collapsed catalogs give the same averages
+     * as catalogs holding every row.
      * @param songProperty the property to evaluate
      * @param songEntriesList list of song entries used to obtain the requested average value
      * @return the average value of the property
@@ -133,10 +1154,22 @@ public class SongCatalog extends AbstractSongCatalog {
         if (songEntriesList.isEmpty()) throw new NoSuchElementException();
 
         double average = 0;
+        long rowCount = 0;
+        if (songEntriesList instanceof SongRows songRows) {
+            // reading the rows from the storage
+            SongStorage storage = songRows.getSongStorage();
+            for (int position = 0; position < songRows.size(); position++) {
+                int row = songRows.getRow(position);
+                average+=storage.getProperty(row, songProperty) * storage.getMultiplicity(row);
+                rowCount+=storage.getMultiplicity(row);
+            }
+            return Math.round((average/rowCount)*100.00d)/100.00d;
+        }
         for (SongEntry songEntry:songEntriesList) {
-            average+=songEntry.getSongProperty(songProperty);
+            average+=songEntry.getSongProperty(songProperty) * songEntry.getMultiplicity();
+            rowCount+=songEntry.getMultiplicity();
         }
-        return Math.round((average/songEntriesList.size())*100.00d)/100.00d;
+        return Math.round((average/rowCount)*100.00d)/100.00d;
     }
 
     /**
@@ -149,8 +1182,9 @@ public class SongCatalog extends AbstractSongCatalog {
     @Override
     public List<SongEntry> getFirstFiveSongEntries() {
         // Check if the list contains fewer than five entries to prevent IndexOutOfBoundsException
-        int endIndex = Math.min(songEntriesList.size(), 5);
+        List<SongEntry> currentList = songEntriesList;
+        int endIndex = Math.min(currentList.size(), 5);
         // Return a sublist of the first up to five entries from the song entries list
-        return songEntriesList.subList(0, endIndex);
+        return currentList.subList(0, endIndex);
     }
 }
@@ -0,0 +1,79 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+/**
+ * The result of clustering the rows of a {@link SongFeatureMatrix}: the cluster of every row, the cluster
+ * centroids in normalized feature space and a few figures describing the run.
+ */
+public class SongClustering {
+
+    private final int clusterCount;
+    private final int[] assignments;
+    private final double[] centroids;
+    private final long[] clusterSizes;
+    private final int iterations;
+    private final double inertia;
+
+    /**
+     * @param clusterCount the number of clusters (k).
+     * @param assignments the cluster of every row of the feature matrix.
+     * @param centroids the row-major centroids, {@link SongFeatureMatrix#DIMENSIONS} values per cluster.
+     * @param clusterSizes the number of song file rows in every cluster.
+     * @param iterations the number of Lloyd iterations that were run.
+     * @param inertia the sum of squared distances of the rows to their centroids.
+     */
+    SongClustering(int clusterCount, int[] assignments, double[] centroids, long[] clusterSizes,
+                   int iterations, double inertia) {
+        this.clusterCount = clusterCount;
+        this.assignments = assignments;
+        this.centroids = centroids;
+        this.clusterSizes = clusterSizes;
+        this.iterations = iterations;
+        this.inertia = inertia;
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    /**
+     * Returns the cluster of a row of the clustered feature matrix.
+     *
+     * @param row the row index.
+     * @return the cluster id, between 0 and {@link #getClusterCount()} - 1.
+     */
+    public int getClusterId(int row) {
+        return assignments[row];
+    }
+
+    /**
+     * Returns the centroid of a cluster in normalized feature space, in {@link
+     * uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty} order.
+     *
+     * @param clusterId the cluster id.
+     * @return a copy of the centroid.
+     */
+    public double[] getCentroid(int clusterId) {
+        double[] centroid = new double[SongFeatureMatrix.DIMENSIONS];
+        System.arraycopy(centroids, clusterId * SongFeatureMatrix.DIMENSIONS, centroid, 0,
+                SongFeatureMatrix.DIMENSIONS);
+        return centroid;
+    }
+
+    /**
+     * Returns the number of song file rows assigned to a cluster (collapsed entries count once per row).
+     *
+     * @param clusterId the cluster id.
+     * @return the size of the cluster.
+     */
+    public long getClusterSize(int clusterId) {
+        return clusterSizes[clusterId];
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public double getInertia() {
+        return inertia;
+    }
+}
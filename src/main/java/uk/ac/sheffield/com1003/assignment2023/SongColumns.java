@@ -0,0 +1,358 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongPropertyMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Stores the song entries of a catalog column by column: one {@link EncodedColumn} per
+ * {@link SongProperty}, one {@link StringColumn} per {@link SongDetail}, and the ID and multiplicity of
+ * every row.
+ * <p>
+ * Rows are appended through a {@link Builder} while the song file is read; once every row is known, the
+ * narrowest exact encoding of every property is chosen and the columns are encoded in parallel.
+ * {@link ColumnarSongEntry} views, created whenever a row is read, give row-by-row access with the usual
+ * SongEntry methods; the columns hold no object per row.
+ * This is the {@link StorageBackend#COLUMNS} storage backend.
+ * <p>
+ * The columns can be moved outside the Java heap with {@link #toDirect()} or mapped from a snapshot file
+ * with {@link SongColumnsSnapshot}, so that neither the heap size nor the garbage collector's work grows
+ * with the values of the dataset. Such memory is released by {@link #close()}, after which the columns
+ * must not be read any more.
+ */
+public class SongColumns implements SongStorage {
+
+    private final int size;
+    private final ColumnMemory columnMemory;
+    private EncodedColumn ids;
+    private EncodedColumn multiplicities;
+    private EncodedColumn[] propertyColumns;
+    private StringColumn[] detailColumns;
+    // Cluster of every row, or null until the catalog is clustered
+    private volatile int[] clusterIds;
+    // Set by close, possibly on another thread than the readers
+    private volatile boolean closed;
+
+    /**
+     * @param size the number of rows.
+     * @param columnMemory where the values of the columns are held.
+     * @param ids the ID of every row.
+     * @param multiplicities the multiplicity of every row.
+     * @param propertyColumns one column per SongProperty, in ordinal order.
+     * @param detailColumns one column per SongDetail, in ordinal order.
+     */
+    SongColumns(int size, ColumnMemory columnMemory, EncodedColumn ids, EncodedColumn multiplicities,
+                EncodedColumn[] propertyColumns, StringColumn[] detailColumns) {
+        this.size = size;
+        this.columnMemory = columnMemory;
+        this.ids = ids;
+        this.multiplicities = multiplicities;
+        this.propertyColumns = propertyColumns;
+        this.detailColumns = detailColumns;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return where the values of the columns are held.
+     */
+    public ColumnMemory getColumnMemory() {
+        return columnMemory;
+    }
+
+    @Override
+    public int getId(int row) {
+        checkOpen();
+        return (int) ids.get(row);
+    }
+
+    @Override
+    public int getMultiplicity(int row) {
+        checkOpen();
+        return (int) multiplicities.get(row);
+    }
+
+    @Override
+    public double getProperty(int row, SongProperty songProperty) {
+        checkOpen();
+        return propertyColumns[songProperty.ordinal()].get(row);
+    }
+
+    @Override
+    public String getDetail(int row, SongDetail songDetail) {
+        checkOpen();
+        return detailColumns[songDetail.ordinal()].get(row);
+    }
+
+    /**
+     * Creates a {@link ColumnarSongEntry} view of a row.
+     *
+     * @param row the row index.
+     * @return the song entry of the row.
+     * @throws IndexOutOfBoundsException if there is no such row.
+     */
+    @Override
+    public SongEntry getSongEntry(int row) throws IndexOutOfBoundsException {
+        Objects.checkIndex(row, size);
+        return new ColumnarSongEntry(getId(row), getMultiplicity(row), this, row);
+    }
+
+    @Override
+    public int getClusterId(int row) {
+        int[] currentClusterIds = clusterIds;
+        return currentClusterIds == null ? SongEntry.NO_CLUSTER : currentClusterIds[row];
+    }
+
+    /**
+     * Records the cluster of every row, as the clustering of the catalog assigned them.
+     *
+     * @param clusterIds the cluster of every row; the array is kept.
+     */
+    void setClusterIds(int[] clusterIds) {
+        this.clusterIds = clusterIds;
+    }
+
+    private void checkOpen() throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The song columns have been closed.");
+        }
+    }
+
+    /**
+     * Returns the encoded column of a property.
+     *
+     * @param songProperty the property.
+     * @return the column holding the values of the property.
+     */
+    public EncodedColumn getColumn(SongProperty songProperty) {
+        checkOpen();
+        return propertyColumns[songProperty.ordinal()];
+    }
+
+    /**
+     * Returns the String column of a detail.
+     *
+     * @param songDetail the detail.
+     * @return the column holding the values of the detail.
+     */
+    public StringColumn getColumn(SongDetail songDetail) {
+        checkOpen();
+        return detailColumns[songDetail.ordinal()];
+    }
+
+    /**
+     * Returns the values of a detail's dictionary, without reading the rows.
+     */
+    @Override
+    public List<String> getDistinctDetails(SongDetail songDetail) {
+        StringColumn column = getColumn(songDetail);
+        List<String> values = new ArrayList<>(column.getDictionarySize());
+        for (int code = 0; code < column.getDictionarySize(); code++) {
+            values.add(column.getValue(code));
+        }
+        return values;
+    }
+
+    /**
+     * Looks the value up as a range of the detail's dictionary (its spellings in any case), then finds the
+     * rows with its codes.
+     */
+    @Override
+    public int[] findRows(SongDetail songDetail, String value) {
+        StringColumn column = getColumn(songDetail);
+        int[] codeRange = column.findCodeRange(value);
+        return column.findRows(codeRange[0], codeRange[1]);
+    }
+
+    /**
+     * Looks the prefix up as a range of the detail's sorted dictionary, then finds the rows with its codes.
+     */
+    @Override
+    public int[] findRowsWithPrefix(SongDetail songDetail, String prefix) {
+        StringColumn column = getColumn(songDetail);
+        int[] codeRange = column.findPrefixRange(prefix);
+        return column.findRows(codeRange[0], codeRange[1]);
+    }
+
+    /**
+     * Compares the stored integers of the property's column with the bounds, without decoding the rows.
+     */
+    @Override
+    public int[] findRows(SongProperty songProperty, double from, double to, int fromRow, int toRow) {
+        return getColumn(songProperty).findRows(from, to, fromRow, toRow);
+    }
+
+    EncodedColumn getIdColumn() {
+        checkOpen();
+        return ids;
+    }
+
+    EncodedColumn getMultiplicityColumn() {
+        checkOpen();
+        return multiplicities;
+    }
+
+    /**
+     * Copies every column into memory outside the Java heap. This catalog's columns are left untouched.
+     *
+     * @return new columns with the same rows held in direct buffers.
+     */
+    public SongColumns toDirect() {
+        checkOpen();
+        EncodedColumn[] directPropertyColumns = new EncodedColumn[propertyColumns.length];
+        for (int property = 0; property < propertyColumns.length; property++) {
+            directPropertyColumns[property] = propertyColumns[property].toDirect();
+        }
+        StringColumn[] directDetailColumns = new StringColumn[detailColumns.length];
+        for (int detail = 0; detail < detailColumns.length; detail++) {
+            directDetailColumns[detail] = detailColumns[detail].toDirect();
+        }
+        return new SongColumns(size, ColumnMemory.DIRECT, ids.toDirect(), multiplicities.toDirect(),
+                directPropertyColumns, directDetailColumns);
+    }
+
+    /**
+     * Releases the columns. Direct and mapped memory is returned to the operating system once the buffers
+     * are collected; the columns can no longer be read. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ids = null;
+        multiplicities = null;
+        propertyColumns = null;
+        detailColumns = null;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the number of bytes taken by the numeric columns.
+     */
+    public long getPropertyMemoryBytes() {
+        checkOpen();
+        return Arrays.stream(propertyColumns).mapToLong(EncodedColumn::getMemoryBytes).sum();
+    }
+
+    /**
+     * Builds the property map of a row, e.g. for code that needs a standalone copy of its values.
+     *
+     * @param row the row index.
+     * @return a new map with every property and detail of the row.
+     */
+    public SongPropertyMap toSongPropertyMap(int row) {
+        SongPropertyMap songPropertyMap = new SongPropertyMap();
+        for (SongProperty songProperty : SongProperty.values()) {
+            songPropertyMap.putProperty(songProperty, getProperty(row, songProperty));
+        }
+        for (SongDetail songDetail : SongDetail.values()) {
+            songPropertyMap.putDetail(songDetail, getDetail(row, songDetail));
+        }
+        return songPropertyMap;
+    }
+
+    /**
+     * Describes the encoding chosen for every property and detail, the resulting size and where it is held.
+     *
+     * @return a multi-line description of the numeric columns.
+     */
+    @Override
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (SongProperty songProperty : SongProperty.values()) {
+            sb.append(String.format("  %-16s %s%n", songProperty, getColumn(songProperty)));
+        }
+        sb.append(String.format("  %d bytes for %d rows (%d bytes as doubles)%n", getPropertyMemoryBytes(), size,
+                (long) size * SongProperty.values().length * Double.BYTES));
+        for (SongDetail songDetail : SongDetail.values()) {
+            StringColumn column = getColumn(songDetail);
+            sb.append(String.format("  %-16s %s, %d bytes front-coded UTF-8 with codes%n", songDetail, column,
+                    column.getMemoryBytes()));
+        }
+        sb.append("  Held in: ").append(columnMemory.getDescription());
+        return sb.toString();
+    }
+
+    /**
+     * Collects rows in raw (double and String) form and encodes them once all are known.
+     */
+    public static class Builder implements SongStorage.Builder {
+
+        private double[][] propertyValues = new double[SongProperty.values().length][1024];
+        private final List<List<String>> detailValues = new ArrayList<>();
+        private int[] ids = new int[1024];
+        private int[] multiplicities = new int[1024];
+        private int size;
+
+        public Builder() {
+            for (int detail = 0; detail < SongDetail.values().length; detail++) {
+                detailValues.add(new ArrayList<>());
+            }
+        }
+
+        @Override
+        public int add(int id, SongPropertyMap songPropertyMap) {
+            if (size == ids.length) {
+                for (int property = 0; property < propertyValues.length; property++) {
+                    propertyValues[property] = Arrays.copyOf(propertyValues[property], size * 2);
+                }
+                ids = Arrays.copyOf(ids, size * 2);
+                multiplicities = Arrays.copyOf(multiplicities, size * 2);
+            }
+            ids[size] = id;
+            multiplicities[size] = 1;
+            for (SongProperty songProperty : SongProperty.values()) {
+                propertyValues[songProperty.ordinal()][size] = songPropertyMap.getProperty(songProperty);
+            }
+            for (SongDetail songDetail : SongDetail.values()) {
+                detailValues.get(songDetail.ordinal()).add(songPropertyMap.getDetail(songDetail));
+            }
+            return size++;
+        }
+
+        @Override
+        public void incrementMultiplicity(int row) {
+            multiplicities[row]++;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Encodes the collected rows, one property per parallel task.
+         *
+         * @return the columns, on the heap.
+         */
+        @Override
+        public SongColumns build() {
+            EncodedColumn[] propertyColumns = new EncodedColumn[propertyValues.length];
+            IntStream.range(0, propertyValues.length).parallel().forEach(property ->
+                    propertyColumns[property] = EncodedColumn.encode(Arrays.copyOf(propertyValues[property], size)));
+            StringColumn[] detailColumns = new StringColumn[detailValues.size()];
+            for (int detail = 0; detail < detailColumns.length; detail++) {
+                detailColumns[detail] = StringColumn.of(detailValues.get(detail).toArray(new String[0]));
+            }
+            EncodedColumn idColumn = EncodedColumn.encode(Arrays.stream(ids, 0, size).asDoubleStream().toArray());
+            EncodedColumn multiplicityColumn = EncodedColumn.encode(
+                    Arrays.stream(multiplicities, 0, size).asDoubleStream().toArray());
+            // Release the raw values; the builder cannot be reused.
+            propertyValues = null;
+            return new SongColumns(size, ColumnMemory.HEAP, idColumn, multiplicityColumn, propertyColumns,
+                    detailColumns);
+        }
+    }
+}
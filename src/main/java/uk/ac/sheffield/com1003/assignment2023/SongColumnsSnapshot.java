@@ -0,0 +1,245 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the columns of a song catalog to a binary snapshot file and maps them back into memory.
+ * <p>
+ * A snapshot holds the encoded bytes of every column exactly as {@link SongColumns} stores them, so
+ * mapping it needs no parsing at all: every column becomes a read-only slice of the file, paged in by the
+ * operating system on first access and held outside the Java heap. The header records the load mode and
+ * the length and modification time of the song file it was built from, so {@link #isUpToDate} can tell
+ * when it must be rebuilt.
+ * <p>
+ * Layout (little-endian): a header, then the ID column, the multiplicity column, one column per
+ * {@link SongProperty} and one per {@link SongDetail}. A numeric column is its encoding, decimals, base and
+ * byte length followed by its bytes; a String column is the numeric column of its dictionary codes, the
+ * dictionary size and longest value length, then the length and bytes of its block offsets and of its
+ * front-coded dictionary.
+ */
+public class SongColumnsSnapshot {
+
+    // "SONG" in ASCII, followed by the layout version
+    private static final int MAGIC = 0x474E4F53;
+    private static final int VERSION = 3;
+
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+    private static final int NUMERIC_SECTION_HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    private SongColumnsSnapshot() {
+    }
+
+    /**
+     * Returns the snapshot file used for a song file unless another one is given: the song file path with
+     * ".snapshot" appended.
+     *
+     * @param songFile the song file.
+     * @return the path of its snapshot file.
+     */
+    public static Path defaultPath(String songFile) {
+        return Path.of(songFile + ".snapshot");
+    }
+
+    /**
+     * Returns the snapshot file used for a song file in another directory, e.g. when the directory of the
+     * song file is read-only: the name of the song file with ".snapshot" appended, in that directory.
+     *
+     * @param directory the directory holding the snapshot files.
+     * @param songFile the song file.
+     * @return the path of its snapshot file.
+     */
+    public static Path pathIn(Path directory, String songFile) {
+        return directory.resolve(Path.of(songFile).getFileName() + ".snapshot");
+    }
+
+    /**
+     * Writes the columns to a snapshot file. The file is written next to its final location and then
+     * moved into place, so a crash never leaves a truncated snapshot behind.
+     *
+     * @param songColumns the columns to write.
+     * @param loadMode the mode the columns were loaded with.
+     * @param songFile the song file the columns were read from.
+     * @param snapshotFile the snapshot file to (re)write.
+     * @throws IOException if the song file cannot be inspected or the snapshot cannot be written.
+     */
+    public static void write(SongColumns songColumns, LoadMode loadMode, Path songFile, Path snapshotFile)
+            throws IOException {
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = newBuffer(HEADER_BYTES)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(loadMode.ordinal())
+                    .putInt(songColumns.size())
+                    .putLong(Files.size(songFile))
+                    .putLong(Files.getLastModifiedTime(songFile).toMillis())
+                    .putInt(SongProperty.values().length)
+                    .putInt(SongDetail.values().length);
+            writeFully(channel, header.flip());
+
+            writeNumericColumn(channel, songColumns.getIdColumn());
+            writeNumericColumn(channel, songColumns.getMultiplicityColumn());
+            for (SongProperty songProperty : SongProperty.values()) {
+                writeNumericColumn(channel, songColumns.getColumn(songProperty));
+            }
+            for (SongDetail songDetail : SongDetail.values()) {
+                StringColumn column = songColumns.getColumn(songDetail);
+                writeNumericColumn(channel, column.getCodes());
+                writeFully(channel, newBuffer(2 * Integer.BYTES)
+                        .putInt(column.getDictionarySize())
+                        .putInt(column.getMaximumValueBytes())
+                        .flip());
+                writeBytes(channel, column.getBlockOffsets());
+                writeBytes(channel, column.getFrontCoded());
+            }
+            channel.force(false);
+        }
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks whether a snapshot file exists and was written from the current version of the song file with
+     * the given load mode.
+     *
+     * @param snapshotFile the snapshot file.
+     * @param songFile the song file.
+     * @param loadMode the mode the catalog is loaded with.
+     * @return true if {@link #map(Path)} would give the columns the song file would be parsed into.
+     */
+    public static boolean isUpToDate(Path snapshotFile, Path songFile, LoadMode loadMode) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            return header.getInt() == MAGIC
+                    && header.getInt() == VERSION
+                    && header.getInt() == loadMode.ordinal()
+                    && header.getInt() >= 0
+                    && header.getLong() == Files.size(songFile)
+                    && header.getLong() == Files.getLastModifiedTime(songFile).toMillis()
+                    && header.getInt() == SongProperty.values().length
+                    && header.getInt() == SongDetail.values().length;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps a snapshot file into memory. The returned columns read straight from the mapped file; they stay
+     * valid after the file is closed and should be released with {@link SongColumns#close()}.
+     *
+     * @param snapshotFile the snapshot file.
+     * @return the columns of the snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot of this layout.
+     */
+    public static SongColumns map(Path snapshotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(snapshotFile + " is not a song snapshot file of version " + VERSION + ".");
+            }
+            header.getInt();  // load mode, checked by isUpToDate
+            int size = header.getInt();
+
+            long[] position = {HEADER_BYTES};
+            EncodedColumn ids = mapNumericColumn(channel, size, position);
+            EncodedColumn multiplicities = mapNumericColumn(channel, size, position);
+            EncodedColumn[] propertyColumns = new EncodedColumn[SongProperty.values().length];
+            for (int property = 0; property < propertyColumns.length; property++) {
+                propertyColumns[property] = mapNumericColumn(channel, size, position);
+            }
+            StringColumn[] detailColumns = new StringColumn[SongDetail.values().length];
+            for (int detail = 0; detail < detailColumns.length; detail++) {
+                EncodedColumn codes = mapNumericColumn(channel, size, position);
+                ByteBuffer dictionaryHeader = readFully(channel, position[0], 2 * Integer.BYTES);
+                position[0] += 2 * Integer.BYTES;
+                ByteBuffer blockOffsets = mapBytes(channel, position);
+                ByteBuffer frontCoded = mapBytes(channel, position);
+                detailColumns[detail] = StringColumn.wrap(codes, dictionaryHeader.getInt(), dictionaryHeader.getInt(),
+                        blockOffsets, frontCoded);
+            }
+            return new SongColumns(size, ColumnMemory.MAPPED, ids, multiplicities, propertyColumns, detailColumns);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(snapshotFile + " is corrupt: " + e.getMessage());
+        }
+    }
+
+    private static void writeNumericColumn(FileChannel channel, EncodedColumn column) throws IOException {
+        ByteBuffer bytes = column.getBytes();
+        ByteBuffer sectionHeader = newBuffer(NUMERIC_SECTION_HEADER_BYTES)
+                .putInt(column.getEncoding().ordinal())
+                .putInt(column.getDecimals())
+                .putLong(column.getBase())
+                .putLong(bytes.remaining());
+        writeFully(channel, sectionHeader.flip());
+        writeFully(channel, bytes);
+    }
+
+    private static void writeBytes(FileChannel channel, ByteBuffer bytes) throws IOException {
+        writeFully(channel, newBuffer(Long.BYTES).putLong(bytes.remaining()).flip());
+        writeFully(channel, bytes);
+    }
+
+    /**
+     * Maps the numeric column starting at position[0] and advances position[0] past it.
+     */
+    private static EncodedColumn mapNumericColumn(FileChannel channel, int size, long[] position)
+            throws IOException {
+        ByteBuffer sectionHeader = readFully(channel, position[0], NUMERIC_SECTION_HEADER_BYTES);
+        int encodingOrdinal = sectionHeader.getInt();
+        if (encodingOrdinal < 0 || encodingOrdinal >= ColumnEncoding.values().length) {
+            throw new IOException("Unknown column encoding " + encodingOrdinal + " at byte " + position[0] + ".");
+        }
+        int decimals = sectionHeader.getInt();
+        long base = sectionHeader.getLong();
+        long length = sectionHeader.getLong();
+        position[0] += NUMERIC_SECTION_HEADER_BYTES;
+        ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, position[0], length);
+        position[0] += length;
+        return EncodedColumn.wrap(ColumnEncoding.values()[encodingOrdinal], size, decimals, base, values);
+    }
+
+    /**
+     * Maps the length-prefixed bytes starting at position[0] and advances position[0] past them.
+     */
+    private static ByteBuffer mapBytes(FileChannel channel, long[] position) throws IOException {
+        long length = readFully(channel, position[0], Long.BYTES).getLong();
+        position[0] += Long.BYTES;
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position[0], length);
+        position[0] += length;
+        return bytes;
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = newBuffer(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot file at byte " + (position + buffer.position()) + ".");
+            }
+        }
+        return buffer.flip();
+    }
+}
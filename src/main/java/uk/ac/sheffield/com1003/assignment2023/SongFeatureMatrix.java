@@ -0,0 +1,160 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Stores the numeric {@link SongProperty} values of a list of song entries as points in feature space.
+ * <p>
+ * Every property is min-max normalized to [0, 1] over the given entries, so that properties with large
+ * ranges (e.g. duration in milliseconds) do not dominate distances. The points are kept in a single
+ * row-major double array, which is what both the similarity search and the clustering engine scan.
+ * Extraction and normalization run in parallel over the rows.
+ */
+public class SongFeatureMatrix {
+
+    public static final int DIMENSIONS = SongProperty.values().length;
+
+    private final List<SongEntry> songEntries;
+    private final double[] features;
+    private final double[] minimums = new double[DIMENSIONS];
+    private final double[] ranges = new double[DIMENSIONS];
+
+    /**
+     * Constructs the normalized feature matrix of the given song entries.
+     *
+     * @param songEntriesList the song entries to place in feature space.
+     */
+    public SongFeatureMatrix(List<SongEntry> songEntriesList) {
+        int size = songEntriesList.size();
+        this.songEntries = SongRows.snapshot(songEntriesList);
+        this.features = new double[size * DIMENSIONS];
+
+        // Copy the raw property values of every row into the flat array.
+        SongProperty[] songProperties = SongProperty.values();
+        IntStream.range(0, size).parallel().forEach(row -> {
+            SongEntry songEntry = songEntries.get(row);
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                features[row * DIMENSIONS + dimension] = songEntry.getSongProperty(songProperties[dimension]);
+            }
+        });
+
+        // Find the range of every property, then rescale every row to [0, 1].
+        IntStream.range(0, DIMENSIONS).parallel().forEach(dimension -> {
+            double minimum = Double.POSITIVE_INFINITY;
+            double maximum = Double.NEGATIVE_INFINITY;
+            for (int row = 0; row < size; row++) {
+                double value = features[row * DIMENSIONS + dimension];
+                minimum = Math.min(minimum, value);
+                maximum = Math.max(maximum, value);
+            }
+            minimums[dimension] = size == 0 ? 0 : minimum;
+            ranges[dimension] = (size == 0 || maximum == minimum) ? 1 : maximum - minimum;
+        });
+        IntStream.range(0, size).parallel().forEach(row -> {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                int index = row * DIMENSIONS + dimension;
+                features[index] = (features[index] - minimums[dimension]) / ranges[dimension];
+            }
+        });
+    }
+
+    /**
+     * @return the number of points (song entries) in the matrix.
+     */
+    public int size() {
+        return songEntries.size();
+    }
+
+    /**
+     * Returns the song entry stored at a row of the matrix.
+     *
+     * @param row the row index.
+     * @return the song entry of that row.
+     */
+    public SongEntry getSongEntry(int row) {
+        return songEntries.get(row);
+    }
+
+    /**
+     * Returns the flat, row-major array of normalized features. Row {@code r} occupies the indices
+     * {@code r * DIMENSIONS} to {@code r * DIMENSIONS + DIMENSIONS - 1}, in {@link SongProperty} order.
+     * The array is shared, not copied, and must not be modified.
+     *
+     * @return the normalized features.
+     */
+    public double[] getFeatures() {
+        return features;
+    }
+
+    /**
+     * Returns a copy of the normalized features where every row is scaled to unit length.
+     * Euclidean distances between unit rows are monotonic in cosine distance, which lets the same
+     * metric tree answer cosine queries.
+     *
+     * @return the unit-length rows.
+     */
+    public double[] getUnitFeatures() {
+        double[] unitFeatures = Arrays.copyOf(features, features.length);
+        IntStream.range(0, size()).parallel().forEach(row -> scaleToUnitLength(unitFeatures, row * DIMENSIONS));
+        return unitFeatures;
+    }
+
+    /**
+     * Normalizes a raw feature vector (in {@link SongProperty} order) with the ranges of this matrix.
+     *
+     * @param rawFeatures the raw property values.
+     * @return a new, normalized feature vector.
+     * @throws IllegalArgumentException if the vector does not have one value per property.
+     */
+    public double[] normalize(double[] rawFeatures) throws IllegalArgumentException {
+        if (rawFeatures.length != DIMENSIONS) {
+            throw new IllegalArgumentException("Expected " + DIMENSIONS + " feature values but got " +
+                    rawFeatures.length + ".");
+        }
+        double[] normalized = new double[DIMENSIONS];
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            normalized[dimension] = (rawFeatures[dimension] - minimums[dimension]) / ranges[dimension];
+        }
+        return normalized;
+    }
+
+    /**
+     * Returns the raw property values of a song entry in {@link SongProperty} order.
+     *
+     * @param songEntry the song entry.
+     * @return a new array with one value per property.
+     */
+    public static double[] getRawFeatures(SongEntry songEntry) {
+        SongProperty[] songProperties = SongProperty.values();
+        double[] rawFeatures = new double[DIMENSIONS];
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            rawFeatures[dimension] = songEntry.getSongProperty(songProperties[dimension]);
+        }
+        return rawFeatures;
+    }
+
+    /**
+     * Scales the vector starting at the given offset to unit length, leaving all-zero vectors untouched.
+     *
+     * @param vectors the array holding the vector.
+     * @param offset the index of the first component of the vector.
+     */
+    static void scaleToUnitLength(double[] vectors, int offset) {
+        double squaredLength = 0;
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            squaredLength += vectors[offset + dimension] * vectors[offset + dimension];
+        }
+        if (squaredLength == 0) {
+            return;
+        }
+        double length = Math.sqrt(squaredLength);
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            vectors[offset + dimension] /= length;
+        }
+    }
+}
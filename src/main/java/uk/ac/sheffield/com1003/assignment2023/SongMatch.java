@@ -0,0 +1,35 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+/**
+ * A song returned by a full-text search, together with its BM25 relevance score.
+ */
+public class SongMatch {
+
+    private final SongEntry songEntry;
+    private final double score;
+
+    public SongMatch(SongEntry songEntry, double score) {
+        this.songEntry = songEntry;
+        this.score = score;
+    }
+
+    public SongEntry getSongEntry() {
+        return songEntry;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "SongMatch{" +
+                "ID=" + songEntry.getId() +
+                ", name=" + songEntry.getSongName() +
+                ", artist=" + songEntry.getSongArtist() +
+                ", score=" + score +
+                '}';
+    }
+}
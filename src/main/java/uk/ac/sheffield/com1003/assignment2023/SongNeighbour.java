@@ -0,0 +1,35 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+/**
+ * A song returned by a similarity search, together with its distance to the query.
+ */
+public class SongNeighbour {
+
+    private final SongEntry songEntry;
+    private final double distance;
+
+    public SongNeighbour(SongEntry songEntry, double distance) {
+        this.songEntry = songEntry;
+        this.distance = distance;
+    }
+
+    public SongEntry getSongEntry() {
+        return songEntry;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "SongNeighbour{" +
+                "ID=" + songEntry.getId() +
+                ", name=" + songEntry.getSongName() +
+                ", artist=" + songEntry.getSongArtist() +
+                ", distance=" + distance +
+                '}';
+    }
+}
@@ -0,0 +1,139 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A read-only list of song entries that are rows of a {@link SongStorage}, e.g. the song entries list of a
+ * {@link SongCatalog}, the result of a query or the result of the filters of the dashboard.
+ * <p>
+ * The list only holds the indexes of its rows (none if they are a range of the rows of the storage), and
+ * {@link #get(int)} asks the storage for the song entry of a row. Code that knows the storage, e.g. the
+ * aggregations of the catalog, reads the values of the rows from it by row index with {@link #getRow(int)},
+ * without going through a SongEntry per row.
+ */
+public final class SongRows extends AbstractList<SongEntry> implements RandomAccess {
+
+    private final SongStorage songStorage;
+    // Row of every position, or null if the positions are the rows from firstRow on
+    private final int[] rows;
+    private final int firstRow;
+    private final int size;
+
+    private SongRows(SongStorage songStorage, int[] rows, int firstRow, int size) {
+        this.songStorage = songStorage;
+        this.rows = rows;
+        this.firstRow = firstRow;
+        this.size = size;
+    }
+
+    /**
+     * @param songStorage the storage of the rows.
+     * @return the list of every row of the storage, in row order.
+     */
+    public static SongRows all(SongStorage songStorage) {
+        return new SongRows(songStorage, null, 0, songStorage.size());
+    }
+
+    /**
+     * @param songStorage the storage of the rows.
+     * @param rows the indexes of the rows, in the order of the list; the array is kept.
+     * @return the list of the given rows.
+     */
+    public static SongRows of(SongStorage songStorage, int[] rows) {
+        return new SongRows(songStorage, rows, 0, rows.length);
+    }
+
+    /**
+     * Returns a list of song entries that does not change, e.g. for an index to keep: a SongRows list only
+     * holds row indexes and is never modified, so it is returned as it is; other lists are copied.
+     *
+     * @param songEntries the song entries.
+     * @return an unmodifiable list of the same song entries.
+     */
+    public static List<SongEntry> snapshot(List<SongEntry> songEntries) {
+        return songEntries instanceof SongRows ? songEntries : List.copyOf(songEntries);
+    }
+
+    /**
+     * @return the storage holding the rows of the list.
+     */
+    public SongStorage getSongStorage() {
+        return songStorage;
+    }
+
+    /**
+     * Returns the index in the storage of the row at a position of the list.
+     *
+     * @param position the position in the list.
+     * @return the row index.
+     * @throws IndexOutOfBoundsException if the position is out of range.
+     */
+    public int getRow(int position) throws IndexOutOfBoundsException {
+        Objects.checkIndex(position, size);
+        return rows == null ? firstRow + position : rows[position];
+    }
+
+    /**
+     * Tells whether the list holds consecutive rows of the storage in row order, so that the rows of a
+     * range of positions are a range of rows.
+     *
+     * @return true if the row at every position is the row at position 0 plus the position.
+     */
+    public boolean isRowRange() {
+        return rows == null;
+    }
+
+    /**
+     * Reads a property of the row at a position of the list from the storage.
+     *
+     * @param position the position in the list.
+     * @param songProperty the property.
+     * @return the value of the property.
+     */
+    public double getProperty(int position, SongProperty songProperty) {
+        return songStorage.getProperty(getRow(position), songProperty);
+    }
+
+    /**
+     * Returns the list of the rows at some positions of this list.
+     *
+     * @param positions positions in this list, in the order of the new list.
+     * @return the new list.
+     */
+    public SongRows select(int[] positions) {
+        int[] selected = new int[positions.length];
+        for (int index = 0; index < positions.length; index++) {
+            selected[index] = getRow(positions[index]);
+        }
+        return of(songStorage, selected);
+    }
+
+    @Override
+    public SongEntry get(int position) {
+        return songStorage.getSongEntry(getRow(position));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the rows of a range of positions, as another list of rows of the storage.
+     */
+    @Override
+    public SongRows subList(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        if (rows == null) {
+            return new SongRows(songStorage, null, firstRow + fromIndex, toIndex - fromIndex);
+        }
+        return of(songStorage, Arrays.copyOfRange(rows, fromIndex, toIndex));
+    }
+}
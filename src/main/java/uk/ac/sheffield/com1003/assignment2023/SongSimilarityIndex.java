@@ -0,0 +1,192 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Answers "songs like this" queries: the k songs closest to a song or to a feature vector in the
+ * space spanned by the 11 numeric song properties.
+ * <p>
+ * Features are min-max normalized (see {@link SongFeatureMatrix}). Euclidean queries are answered by
+ * a {@link VantagePointTree} over the normalized rows; cosine queries by a second tree over the rows
+ * scaled to unit length, where Euclidean order equals cosine order. Both trees are built in parallel
+ * when the index is created. A parallel brute-force scan over the same flat arrays is available as a
+ * reference and fallback.
+ */
+public class SongSimilarityIndex {
+
+    // Below this size a brute-force scan is not worth splitting across threads.
+    private static final int PARALLEL_SCAN_THRESHOLD = 1 << 15;
+
+    private final SongFeatureMatrix featureMatrix;
+    private final double[] unitFeatures;
+    private final VantagePointTree euclideanTree;
+    private final VantagePointTree cosineTree;
+    // Row of the song entry with every ID, or -1
+    private final int[] rowsById;
+
+    /**
+     * Builds the similarity index of the given song entries.
+     *
+     * @param songEntriesList the song entries that can be returned by queries.
+     */
+    public SongSimilarityIndex(List<SongEntry> songEntriesList) {
+        this(new SongFeatureMatrix(songEntriesList));
+    }
+
+    /**
+     * Builds the similarity index of the songs of a feature matrix.
+     *
+     * @param featureMatrix the songs that can be returned by queries, in feature space.
+     */
+    public SongSimilarityIndex(SongFeatureMatrix featureMatrix) {
+        this.featureMatrix = featureMatrix;
+        this.unitFeatures = featureMatrix.getUnitFeatures();
+
+        // Build both metric trees at the same time; each build is itself parallel.
+        CompletableFuture<VantagePointTree> cosineTreeFuture = CompletableFuture.supplyAsync(
+                () -> new VantagePointTree(unitFeatures, SongFeatureMatrix.DIMENSIONS));
+        this.euclideanTree = new VantagePointTree(featureMatrix.getFeatures(), SongFeatureMatrix.DIMENSIONS);
+        this.cosineTree = cosineTreeFuture.join();
+
+        int[] ids = IntStream.range(0, featureMatrix.size()).map(row -> featureMatrix.getSongEntry(row).getId())
+                .toArray();
+        this.rowsById = new int[Arrays.stream(ids).max().orElse(-1) + 1];
+        Arrays.fill(rowsById, -1);
+        for (int row = 0; row < ids.length; row++) {
+            rowsById[ids[row]] = row;
+        }
+    }
+
+    /**
+     * Finds the songs most similar to the given song, excluding the song itself.
+     *
+     * @param songEntry the song to find neighbours of.
+     * @param k the maximum number of neighbours to return.
+     * @param metric the distance used to compare songs.
+     * @return up to k neighbours, closest first.
+     */
+    public List<SongNeighbour> findNearest(SongEntry songEntry, int k, DistanceMetric metric) {
+        int id = songEntry.getId();
+        int row = id >= 0 && id < rowsById.length ? rowsById[id] : -1;
+        // Only exclude the row if it is the song itself, not a song of another catalog with the same ID
+        if (row >= 0 && !featureMatrix.getSongEntry(row).equals(songEntry)) {
+            row = -1;
+        }
+        return search(SongFeatureMatrix.getRawFeatures(songEntry), k, metric, row, false);
+    }
+
+    /**
+     * Finds the songs closest to a raw feature vector (one value per SongProperty, in enum order).
+     *
+     * @param rawFeatures the raw property values to search around.
+     * @param k the maximum number of neighbours to return.
+     * @param metric the distance used to compare songs.
+     * @return up to k neighbours, closest first.
+     * @throws IllegalArgumentException if the vector does not have one value per property.
+     */
+    public List<SongNeighbour> findNearest(double[] rawFeatures, int k, DistanceMetric metric)
+            throws IllegalArgumentException {
+        return search(rawFeatures, k, metric, -1, false);
+    }
+
+    /**
+     * Finds the songs closest to a raw feature vector by scanning every song, without the trees.
+     * Results are identical to {@link #findNearest(double[], int, DistanceMetric)} up to ties.
+     *
+     * @param rawFeatures the raw property values to search around.
+     * @param k the maximum number of neighbours to return.
+     * @param metric the distance used to compare songs.
+     * @return up to k neighbours, closest first.
+     * @throws IllegalArgumentException if the vector does not have one value per property.
+     */
+    public List<SongNeighbour> findNearestBruteForce(double[] rawFeatures, int k, DistanceMetric metric)
+            throws IllegalArgumentException {
+        return search(rawFeatures, k, metric, -1, true);
+    }
+
+    /**
+     * @return the number of songs in the index.
+     */
+    public int size() {
+        return featureMatrix.size();
+    }
+
+    /**
+     * Normalizes the query, runs the tree or brute-force search and converts the results.
+     */
+    private List<SongNeighbour> search(double[] rawFeatures, int k, DistanceMetric metric, int excludedRow,
+                                       boolean bruteForce) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        double[] query = featureMatrix.normalize(rawFeatures);
+        double[] points = featureMatrix.getFeatures();
+        VantagePointTree tree = euclideanTree;
+        if (metric == DistanceMetric.COSINE) {
+            SongFeatureMatrix.scaleToUnitLength(query, 0);
+            points = unitFeatures;
+            tree = cosineTree;
+        }
+
+        NeighbourHeap heap;
+        if (bruteForce) {
+            heap = scan(query, points, k, excludedRow);
+        } else {
+            heap = new NeighbourHeap(k);
+            tree.search(query, heap, excludedRow);
+        }
+
+        double[] distances = new double[heap.size()];
+        int[] rows = heap.drainSorted(distances);
+        List<SongNeighbour> neighbours = new ArrayList<>(rows.length);
+        for (int index = 0; index < rows.length; index++) {
+            neighbours.add(new SongNeighbour(featureMatrix.getSongEntry(rows[index]),
+                    toMetricDistance(distances[index], metric)));
+        }
+        return neighbours;
+    }
+
+    /**
+     * Scans every row in parallel chunks, each with its own heap, and merges the chunk results.
+     */
+    private NeighbourHeap scan(double[] query, double[] points, int k, int excludedRow) {
+        int size = featureMatrix.size();
+        int chunkCount = size < PARALLEL_SCAN_THRESHOLD ? 1 : Runtime.getRuntime().availableProcessors() * 4;
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+        return IntStream.range(0, chunkCount)
+                .parallel()
+                .mapToObj(chunk -> {
+                    NeighbourHeap heap = new NeighbourHeap(k);
+                    int to = Math.min(size, (chunk + 1) * chunkSize);
+                    for (int row = chunk * chunkSize; row < to; row++) {
+                        if (row != excludedRow) {
+                            heap.offer(row, Math.sqrt(VantagePointTree.squaredDistance(
+                                    query, points, row * SongFeatureMatrix.DIMENSIONS, SongFeatureMatrix.DIMENSIONS)));
+                        }
+                    }
+                    return heap;
+                })
+                .reduce((left, right) -> {
+                    left.merge(right);
+                    return left;
+                })
+                .orElseGet(() -> new NeighbourHeap(k));
+    }
+
+    /**
+     * Converts a Euclidean distance between search points into the distance reported for the metric.
+     * For unit vectors, cosine distance (1 - cosine similarity) equals half the squared Euclidean distance.
+     */
+    private static double toMetricDistance(double euclideanDistance, DistanceMetric metric) {
+        if (metric == DistanceMetric.COSINE) {
+            return euclideanDistance * euclideanDistance / 2;
+        }
+        return euclideanDistance;
+    }
+}
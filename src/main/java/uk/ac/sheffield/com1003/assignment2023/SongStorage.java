@@ -0,0 +1,210 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongPropertyMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The rows of a song catalog, stored in some layout (see {@link StorageBackend}).
+ * <p>
+ * A storage decides how the values of the rows are held, and gives access to them by row index and through
+ * a {@link SongEntry} per row. The catalog's queries and aggregations read the values by row index, and the
+ * lists of song entries it returns are {@link SongRows} over the storage, which the GUI reads entry by entry.
+ * The searches of rows by detail or by range of a property can be answered by a storage from its layout;
+ * the default implementations scan the rows, as the {@link StorageBackend#OBJECTS} backend does. Rows are in
+ * the order of the song file; reordering happens in the catalog's list of song entries.
+ */
+public interface SongStorage extends Iterable<SongEntry>, AutoCloseable {
+
+    /**
+     * @return the number of rows.
+     */
+    int size();
+
+    /**
+     * @param row the row index.
+     * @return the ID of the row's song entry (its line in the song file).
+     */
+    int getId(int row);
+
+    /**
+     * @param row the row index.
+     * @return the number of identical rows of the song file the row stands for.
+     */
+    int getMultiplicity(int row);
+
+    double getProperty(int row, SongProperty songProperty);
+
+    String getDetail(int row, SongDetail songDetail);
+
+    /**
+     * Returns the song entry of a row. Repeated calls return equal song entries, though not necessarily
+     * the same object: {@link SongColumns} creates a view of the row on every call.
+     *
+     * @param row the row index.
+     * @return the song entry of the row.
+     */
+    SongEntry getSongEntry(int row);
+
+    /**
+     * @param row the row index.
+     * @return the cluster the row was assigned to by the clustering of the catalog, or
+     * {@link SongEntry#NO_CLUSTER}.
+     */
+    default int getClusterId(int row) {
+        return getSongEntry(row).getClusterId();
+    }
+
+    /**
+     * Returns the distinct values of a detail, e.g. to index them.
+     *
+     * @param songDetail the detail.
+     * @return the distinct values of the detail, in an order that depends on the storage.
+     */
+    default List<String> getDistinctDetails(SongDetail songDetail) {
+        Set<String> values = new LinkedHashSet<>();
+        for (int row = 0; row < size(); row++) {
+            values.add(getDetail(row, songDetail));
+        }
+        return new ArrayList<>(values);
+    }
+
+    /**
+     * Finds the rows whose detail is the given value, ignoring case as the dashboard does.
+     *
+     * @param songDetail the detail to search.
+     * @param value the value to look for.
+     * @return the indexes of the matching rows, in increasing order.
+     */
+    default int[] findRows(SongDetail songDetail, String value) {
+        return findRowsWithPrefix(songDetail, value, false);
+    }
+
+    /**
+     * Finds the rows whose detail starts with the given prefix, ignoring case.
+     *
+     * @param songDetail the detail to search.
+     * @param prefix the prefix to look for.
+     * @return the indexes of the matching rows, in increasing order.
+     */
+    default int[] findRowsWithPrefix(SongDetail songDetail, String prefix) {
+        return findRowsWithPrefix(songDetail, prefix, true);
+    }
+
+    /**
+     * Finds the rows of a range of rows whose property is within a range of values.
+     *
+     * @param songProperty the property to search.
+     * @param from the lower bound, inclusive.
+     * @param to the upper bound, exclusive.
+     * @param fromRow the first row to check.
+     * @param toRow the row after the last row to check.
+     * @return the indexes of the matching rows, in increasing order.
+     */
+    default int[] findRows(SongProperty songProperty, double from, double to, int fromRow, int toRow) {
+        int[] rows = new int[Math.max(0, toRow - fromRow)];
+        int count = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            double value = getProperty(row, songProperty);
+            if (value >= from && value < to) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Scans the rows for those whose detail is, or starts with, a text.
+     */
+    private int[] findRowsWithPrefix(SongDetail songDetail, String text, boolean prefix) {
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = 0; row < size(); row++) {
+            String value = getDetail(row, songDetail);
+            if (prefix ? value.regionMatches(true, 0, text, 0, text.length()) : value.equalsIgnoreCase(text)) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, 2 * count);
+                }
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Describes the layout of the storage and the memory it takes, e.g. for the CLI.
+     *
+     * @return a multi-line description.
+     */
+    String describe();
+
+    /**
+     * Iterates over the song entries of the rows, in row order.
+     *
+     * @return an iterator over the song entries.
+     */
+    @Override
+    default Iterator<SongEntry> iterator() {
+        return new Iterator<>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < size();
+            }
+
+            @Override
+            public SongEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getSongEntry(row++);
+            }
+        };
+    }
+
+    /**
+     * Releases the memory held outside the Java heap, if any. The rows can no longer be read afterwards.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Collects the rows of a storage while the song file is read.
+     */
+    interface Builder {
+
+        /**
+         * Appends a parsed row.
+         *
+         * @param id the ID of the row's song entry.
+         * @param songPropertyMap the values of the row.
+         * @return the index of the new row.
+         */
+        int add(int id, SongPropertyMap songPropertyMap);
+
+        /**
+         * Records that one more identical row of the song file was collapsed into a row.
+         *
+         * @param row the index of the canonical row.
+         */
+        void incrementMultiplicity(int row);
+
+        int size();
+
+        /**
+         * @return the storage holding the collected rows; the builder cannot be reused.
+         */
+        SongStorage build();
+    }
+}
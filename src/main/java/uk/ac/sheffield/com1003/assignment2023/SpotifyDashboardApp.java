@@ -3,11 +3,15 @@ package uk.ac.sheffield.com1003.assignment2023;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.*;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.gui.AbstractSpotifyDashboardPanel;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.gui.SpotifyDashboard;
+import uk.ac.sheffield.com1003.assignment2023.gui.CatalogLoadingPanel;
 import uk.ac.sheffield.com1003.assignment2023.gui.SpotifyDashboardPanel;
 
+import javax.swing.*;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This is the main class used to run the assignment's GUI.
@@ -19,25 +23,63 @@ import java.util.stream.Collectors;
  */
 public class SpotifyDashboardApp {
     
-    private final AbstractSongCatalog songCatalog;
+    private final SongCatalog songCatalog;
     private final List<Query> listOfQueries;
+    private final DistinctCounter distinctCounter;
 
     /**
      * Constructs a new SpotifyDashboardApp with data loaded from queries.txt and song_spotify.tsv
+     * using the default options.
+     *
+     * @param songFile the path to the song data file (.tsv format).
+     * @param queryFile the path to the query file (text format).
+     */
+    public SpotifyDashboardApp(String songFile, String queryFile) {
+        this(DashboardOptions.fromArgs(new String[]{songFile, queryFile}));
+    }
+
+    /**
+     * Constructs a new SpotifyDashboardApp configured by the given command-line options.
      * This constructor initializes the song catalog with data from the song file and builds
      * a list of queries from the query file. If any errors occur during file reading or data parsing,
      * the application prints the error to the standard error stream and may exit.
+     *
+     * @param options the parsed command-line options.
      */
-    public SpotifyDashboardApp(String songFile, String queryFile) {
-        AbstractSongCatalog songCatalog = null;
+    public SpotifyDashboardApp(DashboardOptions options) {
+        this(options, LoadProgressListener.NONE);
+    }
+
+    /**
+     * Constructs a new SpotifyDashboardApp configured by the given command-line options, like
+     * {@link #SpotifyDashboardApp(DashboardOptions)}, reporting the bytes and rows of the song file read
+     * so far while it is loaded.
+     *
+     * @param options the parsed command-line options.
+     * @param progressListener told how far the loading of the song file has got, on the calling thread.
+     */
+    public SpotifyDashboardApp(DashboardOptions options, LoadProgressListener progressListener) {
+        SongCatalog songCatalog = null;
         List<Query> listOfQueries = null;
+        DistinctCounter distinctCounter = null;
 
         try {
+            // Build the unique song/artist counter shared by the CLI and the GUI.
+            distinctCounter = options.createDistinctCounter();
+
             // Attempt to load the song catalog from the provided file.
-            songCatalog = new SongCatalog(songFile);
+            songCatalog = new SongCatalog(options.getSongFile(), options.getLoadMode(), options.getStorageBackend(),
+                    options.getColumnMemory(), options.getSnapshotDirectory() == null ? null :
+                    Path.of(options.getSnapshotDirectory()), progressListener);
+            songCatalog.setClusterCount(options.getClusterCount());
+            // Reorganize the rows so that zone maps can prune scans, if requested.
+            if (options.getRowOrder().getKind() != RowOrder.Kind.FILE) {
+                songCatalog.reorderRows(options.getRowOrder());
+            }
 
             // Read and parse query tokens from the file.
-            List<String> queryTokens = new ArrayList<>(AbstractQueryParser.readQueryTokensFromFile(queryFile));
+            List<String> queryTokens = new ArrayList<>(
+                    AbstractQueryParser.readQueryTokensFromFile(options.getQueryFile()));
 
             try {
                 // Build queries from the parsed tokens.
@@ -55,6 +97,7 @@ public class SpotifyDashboardApp {
         // Assign loaded data to the instance variables.
         this.songCatalog = songCatalog;
         this.listOfQueries = listOfQueries;
+        this.distinctCounter = distinctCounter;
     }
 
     /**
@@ -62,29 +105,89 @@ public class SpotifyDashboardApp {
      * This method initializes the application using song data and query specifications provided via command-line arguments.
      * If no arguments are provided, it defaults to pre-defined file paths for the song and query data.
      * The application starts both a command-line interface (CLI) and a graphical user interface (GUI) to interact with the song data.
+     * <p>
+     * The window is shown at once with the progress of the loading of the song file, which runs on the
+     * main thread. Once the catalog and the queries are ready, the dashboard panel is built on the event
+     * dispatch thread while the CLI prints its report on the main thread.
+     * <p>
+     * With {@code --report-dir=DIR}, neither is started: the catalog is loaded, the report of
+     * {@link BatchReport} is written to DIR, and the application exits.
      *
      * @param args Command-line arguments expected to contain:
      *             - args[0]: Path to the song data file (.tsv format).
      *             - args[1]: Path to the query file (text format).
      *             If no arguments are provided, default paths are used.
+     *             Optional {@code --name=value} flags are described in {@link DashboardOptions}.
      */
     public static void main(String[] args) {
-        // Check if any command-line arguments are provided; if not, use default file paths.
-        if (args.length == 0) {
-            args = new String[]{
-                    "./src/main/resources/spotify_songs.tsv", // Default song data file path.
-                    "./src/main/resources/queries.txt"       // Default query file path.
-            };
+        // Parse the file paths and optional flags, falling back to the default file paths.
+        DashboardOptions options = null;
+        try {
+            options = DashboardOptions.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid command-line arguments: " + e.getMessage());
+            System.exit(-1);
+        }
+
+        // Write the batch report without any window, if requested.
+        if (options.getReportDirectory() != null) {
+            System.setProperty("java.awt.headless", "true");
+            SpotifyDashboardApp reportApp = new SpotifyDashboardApp(options);
+            reportApp.writeReport(Path.of(options.getReportDirectory()));
+            // Every query of the report has been run, so nothing reads the catalog any more
+            reportApp.songCatalog.close();
+            return;
         }
 
-        // Initialize the SpotifyDashboardApp with the specified or default file paths.
-        SpotifyDashboardApp spotifyDashboardApp = new SpotifyDashboardApp(args[0], args[1]);
+        // Show the window at once, with the progress of the loading of the song file.
+        CatalogLoadingPanel loadingPanel = new CatalogLoadingPanel(options.getSongFile());
+        CompletableFuture<SpotifyDashboard> songDashboard = CompletableFuture.supplyAsync(
+                () -> new SpotifyDashboard(loadingPanel), SwingUtilities::invokeLater);
+
+        // Initialize the SpotifyDashboardApp with the specified or default options.
+        // The catalog is not closed: the background tasks and the GUI read it until the JVM exits, and the
+        // operating system then releases its direct or mapped memory.
+        SpotifyDashboardApp spotifyDashboardApp = new SpotifyDashboardApp(options, loadingPanel);
+
+        // Build the text, similarity and facet indexes and the clusters in the background while the CLI runs,
+        // so MATCH queries, "Find Similar Songs", the name selections and the cluster colours are instant.
+        // Every index has its own lock, so the GUI only waits for those it uses.
+        CompletableFuture.runAsync(spotifyDashboardApp.songCatalog::getTextIndex);
+        CompletableFuture.runAsync(spotifyDashboardApp.songCatalog::getFacetIndex);
+        CompletableFuture.runAsync(spotifyDashboardApp.songCatalog::getSimilarityIndex);
+        CompletableFuture.runAsync(spotifyDashboardApp.songCatalog::getClustering);
 
-        // Start the command-line interface.
+        // Start the graphical user interface in the window, on the event dispatch thread, exiting if the
+        // window or the GUI cannot be created...
+        songDashboard.thenAcceptAsync(spotifyDashboardApp::startGUI, SwingUtilities::invokeLater)
+                .exceptionally(e -> {
+                    // The failure of an earlier stage is wrapped in a CompletionException.
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    System.err.println("The graphical user interface could not be started: " + cause);
+                    System.exit(-1);
+                    return null;
+                });
+
+        // ...while the command-line interface runs on this thread.
         spotifyDashboardApp.startCLI();
+    }
 
-        // Start the graphical user interface.
-        spotifyDashboardApp.startGUI();
+    /**
+     * Runs the queries and writes their results, their charts and the statistics of the song catalog to a
+     * directory, without a window. Errors writing the report are printed to the standard error stream.
+     *
+     * @param reportDirectory the directory to write the report to.
+     */
+    public void writeReport(Path reportDirectory) {
+        long start = System.nanoTime();
+        try {
+            new BatchReport(songCatalog, listOfQueries, distinctCounter).write(reportDirectory);
+            System.out.printf("Wrote the report of %d queries to %s in %.0f ms.\n", listOfQueries.size(),
+                    reportDirectory, (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("Failed to write the report: " + e.getMessage());
+            System.exit(-1);
+        }
     }
 
     /**
@@ -122,15 +225,22 @@ public class SpotifyDashboardApp {
     private void executeQueries() {
         // Announce the start of query execution
         System.out.println("Executing queries...");
+        // Mention the row order, which decides how many blocks the zone map can prune
+        if (songCatalog.getRowOrder().getKind() != RowOrder.Kind.FILE) {
+            System.out.println("Row order: " + songCatalog.getRowOrder() + ".");
+        }
 
         // Iterate over each query in the list of queries
         for (Query query : listOfQueries) {
             // Print the query description
             System.out.println(query.toString() + ":");
-            // Execute the query and retrieve the results
-            List<SongEntry> queryResults = query.executeQuery(songCatalog);
+            // Execute the query and retrieve the results, recording how the zone map pruned the scan
+            ScanStatistics scanStatistics = new ScanStatistics();
+            List<SongEntry> queryResults = songCatalog.executeQuery(query, scanStatistics);
             // Print the song entries returned by the query
             printSongEntries(queryResults);
+            // Print the block pruning counts of the scan
+            System.out.println("Scan: " + scanStatistics);
             // Print a newline for separation between query results
             System.out.println();
         }
@@ -153,65 +263,60 @@ public class SpotifyDashboardApp {
         // Print the number of unique songs and artists
         printNumberUniqueSongs();
         printNumberUniqueArtists();
+        printSongStorage();
 
         try {
             // Display various computed statistics from the song catalog
-            System.out.printf("The average duration of a song in the dataset is: [%s].\n",
-                    songCatalog.getAverageValue(SongProperty.DURATION, songCatalog.getSongEntriesList()));
-            System.out.printf("The average tempo of a song in the dataset is: [%s].\n",
-                    songCatalog.getAverageValue(SongProperty.TEMPO, songCatalog.getSongEntriesList()));
-            System.out.printf("The maximum loudness in the dataset is [%s].\n",
-                    songCatalog.getMaximumValue(SongProperty.LOUDNESS, songCatalog.getSongEntriesList()));
-            System.out.printf("The minimum tempo in the dataset [%s].\n",
-                    songCatalog.getMinimumValue(SongProperty.TEMPO, songCatalog.getSongEntriesList()));
+            CatalogSummary.formatPropertyStatistics(songCatalog, songCatalog.getSongEntriesList())
+                    .forEach(System.out::println);
         } catch (NoSuchElementException e) {
             // Handle cases where the song catalog is empty and statistics cannot be computed
-            System.err.println("Song entries list is empty!");
+            System.err.println(CatalogSummary.EMPTY_CATALOG);
         }
     }
 
     /**
      * Prints the number of unique artists found in the song catalog. This method considers an artist
      * unique if their name (and other artists' names) has not appeared previously in the dataset in
-     * the same order.
+     * the same order. Depending on the configured {@link DistinctCounter} the count is exact or a
+     * HyperLogLog estimate.
      */
     private void printNumberUniqueArtists() {
-        // Retrieve all song entries from the catalog.
-        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
-        // Use a HashSet to store unique artist names, ensuring each artist is counted only once.
-        Set<String> listOfUniqueArtists = new HashSet<>();
-        for (SongEntry songEntry : songEntries) {
-            // Add the artist name to the set of unique artists.
-            listOfUniqueArtists.add(songEntry.getSongArtist());
-        }
+        // Count the distinct artist names without keeping the names themselves.
+        long numberOfUniqueArtists = distinctCounter.countUniqueArtists(songCatalog.getSongEntriesList());
         // Output the total count of unique artists to the console.
-        System.out.printf("The total number of different artists in the dataset is: %s.\n", listOfUniqueArtists.size());
+        System.out.println(CatalogSummary.formatUniqueArtists(numberOfUniqueArtists, distinctCounter));
     }
 
     /**
      * Prints the total number of unique songs in the song catalog. A song is considered unique based on a combination
      * of its title, artist, album name, and various song properties (duration, popularity, danceability, energy, loudness,
      * speechiness, acousticness, instrumentalness, liveness, valence, tempo).
+     * Rows are identified by 128-bit fingerprints computed from these fields rather than by building a String per row.
      */
     private void printNumberUniqueSongs() {
         // Retrieve all song entries from the catalog.
         List<SongEntry> songEntries = songCatalog.getSongEntriesList();
-        // Use a HashSet to store unique song descriptions.
-        Set<String> uniqueSongEntries = new HashSet<>();
-        for (SongEntry songEntry : songEntries) {
-            // Construct a unique identifier for each song based on its properties.
-            String uniqueIdentifier = songEntry.getSongName() + " " +
-                    songEntry.getSongArtist() + " " +
-                    songEntry.getSongAlbumName() + " " +
-                    Arrays.stream(SongProperty.values())
-                            .map(property -> songEntry.getSongProperty(property)+"")
-                            .collect(Collectors.joining(" "));
-            // Add the unique identifier to the set.
-            uniqueSongEntries.add(uniqueIdentifier);
+        // Count the distinct row fingerprints (exactly or approximately).
+        long numberOfUniqueSongs = distinctCounter.countUniqueSongs(songEntries);
+        // Output the total count of unique songs to the console, relative to the number of rows in the file.
+        System.out.println(CatalogSummary.formatUniqueSongs(numberOfUniqueSongs, songCatalog.getRowCount(songEntries),
+                distinctCounter));
+        // Report how many entries are actually held when identical rows were collapsed on load.
+        if (songCatalog.getLoadMode() == LoadMode.COLLAPSE_DUPLICATES) {
+            System.out.printf("Identical rows were collapsed on load: %s entries are held in memory.\n",
+                    songEntries.size());
         }
-        // Output the total count of unique songs to the console.
-        System.out.printf("The total number of unique songs in the dataset is: %s out of %s.\n",
-                uniqueSongEntries.size(), songEntries.size());
+    }
+
+    /**
+     * Prints how the song catalog stores its song entries and the memory they take.
+     */
+    private void printSongStorage() {
+        StorageBackend storageBackend = songCatalog.getStorageBackend();
+        System.out.println("The songs are stored by the " + storageBackend + " backend (" +
+                storageBackend.getDescription() + "):");
+        System.out.println(songCatalog.getSongStorage().describe());
     }
 
     /**
@@ -253,10 +358,21 @@ public class SpotifyDashboardApp {
      */
     public void startGUI() {
         // Initialize the main dashboard panel with the song catalog.
-        AbstractSpotifyDashboardPanel spotifyDashboardPanel = new SpotifyDashboardPanel(songCatalog);
+        AbstractSpotifyDashboardPanel spotifyDashboardPanel = new SpotifyDashboardPanel(songCatalog, distinctCounter);
         // Create the main application window and pass the dashboard panel to it.
         SpotifyDashboard songDashboard = new SpotifyDashboard(spotifyDashboardPanel);
         // Make the application window visible to the user.
         songDashboard.setVisible(true);
     }
+
+    /**
+     * Initializes the Graphical User Interface (GUI) of the SpotifyDashboardApp in a window already shown,
+     * e.g. with the progress of the loading, replacing its content. It must run on the event dispatch thread.
+     *
+     * @param songDashboard the application window.
+     */
+    public void startGUI(SpotifyDashboard songDashboard) {
+        // Initialize the main dashboard panel with the song catalog and show it in the window.
+        songDashboard.showPanel(new SpotifyDashboardPanel(songCatalog, distinctCounter));
+    }
 }
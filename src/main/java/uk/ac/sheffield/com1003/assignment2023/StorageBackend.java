@@ -0,0 +1,36 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.util.function.Supplier;
+
+/**
+ * This is a helper enum with constants representing the layouts a song catalog can store its rows in.
+ */
+public enum StorageBackend {
+    OBJECTS("One SongEntry object with its own property map per row", ObjectSongStorage.Builder::new),
+    COLUMNS("One encoded primitive column per property and detail", SongColumns.Builder::new);
+
+    private final String description;
+    private final Supplier<SongStorage.Builder> builderFactory;
+
+    StorageBackend(String description, Supplier<SongStorage.Builder> builderFactory) {
+        this.description = description;
+        this.builderFactory = builderFactory;
+    }
+
+    public String getDescription() { return this.description; }
+
+    /**
+     * @return a new builder collecting rows in this layout.
+     */
+    public SongStorage.Builder newBuilder() { return builderFactory.get(); }
+
+    /**
+     * Convert a name String (e.g. "columns") to the matching StorageBackend.
+     * @param name the String to convert, dashes and underscores are interchangeable
+     * @return the matching StorageBackend
+     * @throws IllegalArgumentException if the String does not match any StorageBackend
+     */
+    public static StorageBackend fromName(String name) throws IllegalArgumentException {
+        return StorageBackend.valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,409 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A dictionary-encoded column of Strings, e.g. the song names of a catalog.
+ * <p>
+ * Every distinct value is stored once, as UTF-8 bytes, in a dictionary sorted ignoring case; every row
+ * only stores the code (the position in the dictionary) of its value in an {@link EncodedColumn}. The
+ * dictionary is front-coded in blocks of {@value #BLOCK_SIZE}: the first value of a block is stored in full
+ * and every following value as the length of the prefix it shares with the previous one plus the remaining
+ * bytes. Since sorted names share long prefixes ("Love ...", "Remix ..."), this takes far less memory than
+ * one UTF-16 String per row.
+ * <p>
+ * Values are decoded to Strings only when {@link #get(int)} is called. Equality and prefix searches
+ * ({@link #findCodeRange(String)}, {@link #findPrefixRange(String)}) ignore case like
+ * {@link String#equalsIgnoreCase(String)}, as the dashboard does: the dictionary is sorted by case-folded
+ * code points (ties broken by the raw bytes), so the values equal to, or starting with, a text ignoring
+ * case have consecutive codes. The searches binary-search the dictionary, folding the UTF-8 bytes of every
+ * value they compare on the fly into a buffer kept per thread, without decoding it to a String.
+ * <p>
+ * The codes and the dictionary are kept in little-endian {@link ByteBuffer}s, on the heap, in direct
+ * buffers after {@link #toDirect()}, or in a memory-mapped snapshot file (see {@link SongColumnsSnapshot}).
+ */
+public class StringColumn {
+
+    // Number of dictionary values per front-coded block
+    static final int BLOCK_SIZE = 16;
+
+    private final int size;
+    private final EncodedColumn codes;
+    private final int dictionarySize;
+    // Length in bytes of the longest value, so that decoding needs a single buffer
+    private final int maximumValueBytes;
+    // One little-endian int per block: where the block starts in frontCoded, plus the total length
+    private final ByteBuffer blockOffsets;
+    private final ByteBuffer frontCoded;
+    // Decoding buffer of maximumValueBytes, reused by the reads and searches of each thread
+    private final ThreadLocal<byte[]> buffers;
+
+    private StringColumn(int size, EncodedColumn codes, int dictionarySize, int maximumValueBytes,
+                         ByteBuffer blockOffsets, ByteBuffer frontCoded) {
+        this.size = size;
+        this.codes = codes;
+        this.dictionarySize = dictionarySize;
+        this.maximumValueBytes = maximumValueBytes;
+        this.blockOffsets = blockOffsets.order(ByteOrder.LITTLE_ENDIAN);
+        this.frontCoded = frontCoded;
+        this.buffers = ThreadLocal.withInitial(() -> new byte[maximumValueBytes]);
+    }
+
+    /**
+     * Dictionary-encodes the given Strings on the heap.
+     *
+     * @param strings the values of the column; the array is not kept.
+     * @return the column.
+     */
+    public static StringColumn of(String[] strings) {
+        // Sort the distinct values ignoring case, then by their UTF-8 bytes.
+        Map<String, Integer> codesByValue = new HashMap<>();
+        for (String string : strings) {
+            codesByValue.putIfAbsent(string, codesByValue.size());
+        }
+        String[] values = codesByValue.keySet().toArray(new String[0]);
+        byte[][] valueBytes = new byte[values.length][];
+        Integer[] order = new Integer[values.length];
+        for (int value = 0; value < values.length; value++) {
+            valueBytes[value] = values[value].getBytes(StandardCharsets.UTF_8);
+            order[value] = value;
+        }
+        Arrays.parallelSort(order, (first, second) -> {
+            int folded = compareFolded(valueBytes[first], valueBytes[first].length, valueBytes[second],
+                    false);
+            return folded != 0 ? folded : Arrays.compareUnsigned(valueBytes[first], valueBytes[second]);
+        });
+        byte[][] dictionary = new byte[values.length][];
+        for (int code = 0; code < dictionary.length; code++) {
+            dictionary[code] = valueBytes[order[code]];
+            codesByValue.put(values[order[code]], code);
+        }
+
+        double[] rowCodes = new double[strings.length];
+        IntStream.range(0, strings.length).parallel().forEach(row -> rowCodes[row] = codesByValue.get(strings[row]));
+        EncodedColumn codes = EncodedColumn.encode(rowCodes);
+
+        // Front-code the dictionary block by block.
+        int blockCount = (dictionary.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteBuffer blockOffsets = ByteBuffer.allocate((blockCount + 1) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer frontCoded = ByteBuffer.allocate(64);
+        int maximumValueBytes = 0;
+        for (int code = 0; code < dictionary.length; code++) {
+            byte[] value = dictionary[code];
+            maximumValueBytes = Math.max(maximumValueBytes, value.length);
+            frontCoded = ensureRemaining(frontCoded, 2 * 5 + value.length);
+            if (code % BLOCK_SIZE == 0) {
+                blockOffsets.putInt(frontCoded.position());
+                putVarInt(frontCoded, value.length);
+                frontCoded.put(value);
+            } else {
+                byte[] previous = dictionary[code - 1];
+                int shared = Arrays.mismatch(previous, value);
+                if (shared < 0) {
+                    shared = value.length;  // identical bytes, only possible from malformed UTF-16
+                }
+                putVarInt(frontCoded, shared);
+                putVarInt(frontCoded, value.length - shared);
+                frontCoded.put(value, shared, value.length - shared);
+            }
+        }
+        blockOffsets.putInt(frontCoded.position());
+        ByteBuffer trimmed = ByteBuffer.allocate(frontCoded.position()).put(frontCoded.flip()).clear();
+        return new StringColumn(strings.length, codes, dictionary.length, maximumValueBytes, blockOffsets.clear(),
+                trimmed);
+    }
+
+    /**
+     * Wraps a column that was already encoded, e.g. read back from a snapshot file.
+     *
+     * @param codes the dictionary code of every row.
+     * @param dictionarySize the number of distinct values.
+     * @param maximumValueBytes the length in bytes of the longest value.
+     * @param blockOffsets the little-endian int offsets at which every block starts, plus the total length.
+     * @param frontCoded the front-coded dictionary.
+     * @return the column.
+     * @throws IllegalArgumentException if the number of block offsets does not match the dictionary size.
+     */
+    public static StringColumn wrap(EncodedColumn codes, int dictionarySize, int maximumValueBytes,
+                                    ByteBuffer blockOffsets, ByteBuffer frontCoded) throws IllegalArgumentException {
+        int blockCount = (dictionarySize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (dictionarySize < 0 || blockOffsets.remaining() != (blockCount + 1L) * Integer.BYTES) {
+            throw new IllegalArgumentException("A dictionary of " + dictionarySize + " values needs " +
+                    (blockCount + 1) + " block offsets (was " + blockOffsets.remaining() / Integer.BYTES + ").");
+        }
+        return new StringColumn(codes.size(), codes, dictionarySize, maximumValueBytes, blockOffsets.slice(),
+                frontCoded.slice());
+    }
+
+    /**
+     * Decodes the value of a row.
+     *
+     * @param row the row index.
+     * @return the value of the row.
+     */
+    public String get(int row) {
+        return getValue(getCode(row));
+    }
+
+    /**
+     * @param row the row index.
+     * @return the dictionary code of the row's value.
+     */
+    public int getCode(int row) {
+        return (int) codes.get(row);
+    }
+
+    /**
+     * Decodes a value of the dictionary.
+     *
+     * @param code the position of the value in the dictionary.
+     * @return the value.
+     */
+    public String getValue(int code) {
+        byte[] value = buffers.get();
+        int length = decode(code, value);
+        return new String(value, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the dictionary codes of the values equal to a value ignoring case. Because the dictionary is
+     * sorted ignoring case, they are consecutive.
+     *
+     * @param value the value to look for, case-insensitive.
+     * @return {first code, last code + 1}; both are equal if no row has that value.
+     */
+    public int[] findCodeRange(String value) {
+        return findRange(value.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Finds the dictionary codes of the values starting with a prefix ignoring case. Because the dictionary
+     * is sorted ignoring case, they are consecutive.
+     *
+     * @param prefix the prefix to look for, case-insensitive.
+     * @return {first code, last code + 1}; both are equal if no value starts with the prefix.
+     */
+    public int[] findPrefixRange(String prefix) {
+        return findRange(prefix.getBytes(StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Finds the rows whose dictionary code is within a range, e.g. one given by {@link #findPrefixRange}.
+     * The range is looked up once; the rows are then found by comparing their stored codes.
+     *
+     * @param fromCode the first code, inclusive.
+     * @param toCode the last code, exclusive.
+     * @return the matching rows, in increasing order.
+     */
+    public int[] findRows(int fromCode, int toCode) {
+        return codes.findRows(fromCode, toCode);
+    }
+
+    /**
+     * Finds the range of codes whose value (truncated to the key's length if truncate is set) equals the
+     * key ignoring case, with two binary searches sharing one decoding buffer.
+     */
+    private int[] findRange(byte[] key, boolean truncate) {
+        byte[] value = buffers.get();
+        int low = 0;
+        int high = dictionarySize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareFolded(value, decode(middle, value), key, truncate) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int from = low;
+        // The first code past the range is the first one whose value sorts after the key.
+        high = dictionarySize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareFolded(value, decode(middle, value), key, truncate) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return new int[]{from, low};
+    }
+
+    /**
+     * Compares the first length bytes of a value with a key by case-folded code points, the value first
+     * truncated to the key's length (in code points) if truncate is set.
+     */
+    private static int compareFolded(byte[] value, int length, byte[] key, boolean truncate) {
+        int valuePosition = 0;
+        int keyPosition = 0;
+        while (valuePosition < length && keyPosition < key.length) {
+            int difference = fold(codePointAt(value, valuePosition)) - fold(codePointAt(key, keyPosition));
+            if (difference != 0) {
+                return difference;
+            }
+            valuePosition += codePointLength(value[valuePosition]);
+            keyPosition += codePointLength(key[keyPosition]);
+        }
+        if (keyPosition < key.length) {
+            return -1;
+        }
+        return valuePosition < length && !truncate ? 1 : 0;
+    }
+
+    /**
+     * Folds the case of a code point as {@link String#equalsIgnoreCase(String)} does.
+     */
+    private static int fold(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    // Number of bytes of the UTF-8 sequence starting with the given byte
+    private static int codePointLength(byte lead) {
+        if (lead >= 0) {
+            return 1;
+        }
+        if ((lead & 0xE0) == 0xC0) {
+            return 2;
+        }
+        return (lead & 0xF0) == 0xE0 ? 3 : 4;
+    }
+
+    // Decodes the UTF-8 sequence at a position; the bytes come from String.getBytes, so they are well-formed
+    private static int codePointAt(byte[] bytes, int position) {
+        int lead = bytes[position];
+        switch (codePointLength(bytes[position])) {
+            case 1:
+                return lead;
+            case 2:
+                return (lead & 0x1F) << 6 | (bytes[position + 1] & 0x3F);
+            case 3:
+                return (lead & 0x0F) << 12 | (bytes[position + 1] & 0x3F) << 6 | (bytes[position + 2] & 0x3F);
+            default:
+                return (lead & 0x07) << 18 | (bytes[position + 1] & 0x3F) << 12
+                        | (bytes[position + 2] & 0x3F) << 6 | (bytes[position + 3] & 0x3F);
+        }
+    }
+
+    /**
+     * Decodes a dictionary value into the given buffer by walking its front-coded block.
+     *
+     * @return the length of the value in bytes.
+     */
+    private int decode(int code, byte[] value) {
+        int block = code / BLOCK_SIZE;
+        int position = blockOffsets.getInt(block * Integer.BYTES);
+        int[] cursor = {position};
+        int length = getVarInt(frontCoded, cursor);
+        frontCoded.get(cursor[0], value, 0, length);
+        cursor[0] += length;
+        for (int entry = block * BLOCK_SIZE + 1; entry <= code; entry++) {
+            int shared = getVarInt(frontCoded, cursor);
+            int suffix = getVarInt(frontCoded, cursor);
+            frontCoded.get(cursor[0], value, shared, suffix);
+            cursor[0] += suffix;
+            length = shared + suffix;
+        }
+        return length;
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        return larger.put(buffer.flip());
+    }
+
+    // Unsigned LEB128: 7 bits per byte, least significant first, high bit set on all but the last byte
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer buffer, int[] cursor) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(cursor[0]++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct values.
+     */
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    public int getMaximumValueBytes() {
+        return maximumValueBytes;
+    }
+
+    /**
+     * Copies the column into memory outside the Java heap.
+     *
+     * @return a column with the same values held in direct buffers.
+     */
+    public StringColumn toDirect() {
+        ByteBuffer directOffsets = ByteBuffer.allocateDirect(blockOffsets.capacity()).put(getBlockOffsets()).clear();
+        ByteBuffer directFrontCoded = ByteBuffer.allocateDirect(frontCoded.capacity()).put(getFrontCoded()).clear();
+        return new StringColumn(size, codes.toDirect(), dictionarySize, maximumValueBytes, directOffsets,
+                directFrontCoded);
+    }
+
+    /**
+     * @return whether the values are held outside the Java heap (in direct or mapped buffers).
+     */
+    public boolean isDirect() {
+        return frontCoded.isDirect();
+    }
+
+    /**
+     * @return the dictionary codes of the rows, e.g. to write them to a snapshot file.
+     */
+    public EncodedColumn getCodes() {
+        return codes;
+    }
+
+    /**
+     * @return a read-only view of the block offsets, e.g. to write them to a snapshot file.
+     */
+    public ByteBuffer getBlockOffsets() {
+        return blockOffsets.asReadOnlyBuffer().clear().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return a read-only view of the front-coded dictionary, e.g. to write it to a snapshot file.
+     */
+    public ByteBuffer getFrontCoded() {
+        return frontCoded.asReadOnlyBuffer().clear();
+    }
+
+    /**
+     * @return the number of bytes taken by the codes and the dictionary.
+     */
+    public long getMemoryBytes() {
+        return codes.getMemoryBytes() + blockOffsets.capacity() + frontCoded.capacity();
+    }
+
+    @Override
+    public String toString() {
+        return dictionarySize + " distinct, codes " + codes.getEncoding().name();
+    }
+}
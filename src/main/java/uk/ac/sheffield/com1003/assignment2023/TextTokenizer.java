@@ -0,0 +1,56 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits song names, artists and albums into search terms.
+ * <p>
+ * Text is case-folded and stripped of accents ("Ti&euml;sto" and "TIESTO" both become "tiesto"), then cut into
+ * terms at every character that is neither a letter nor a digit, so "Remix / Radio Edit" gives "remix",
+ * "radio" and "edit".
+ */
+public class TextTokenizer {
+
+    // Combining marks split off by canonical decomposition, e.g. the diaeresis of an accented e
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * Folds text for comparison: accents are removed and letters lowercased.
+     *
+     * @param text the text to fold.
+     * @return the folded text.
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits text into folded terms, in order of appearance (repeated terms are kept).
+     *
+     * @param text the text to split.
+     * @return the terms of the text.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean termCharacter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (termCharacter && start < 0) {
+                start = i;
+            } else if (!termCharacter && start >= 0) {
+                terms.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,272 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Finds names (e.g. the artists of a catalog) close to a possibly misspelled text, so "Beiber" finds
+ * "Justin Bieber".
+ * <p>
+ * Every name is folded and split into words as by {@link TextTokenizer}, and every word, padded with a
+ * space on both sides, is cut into trigrams: " bieber " gives " bi", "bie", "ieb", "ebe", "ber" and "er ".
+ * The index maps every trigram to the sorted list of names containing it. A lookup counts the trigrams
+ * each name shares with the text; as one edit changes at most four trigrams (a swap of adjacent letters),
+ * a name within d edits shares at least (trigrams of the text - 4d) of them, so only names reaching that
+ * count are candidates. Each candidate is then verified with a Levenshtein distance bounded by d (see
+ * {@link #boundedEditDistance}), computed against the closest run of as many words of the name as the text
+ * has, so a single misspelled word is enough to find a name.
+ * <p>
+ * The trigrams are computed in parallel when the index is built, and large candidate sets are verified in
+ * parallel.
+ */
+public class TrigramIndex {
+
+    // Names are verified in parallel above this number of candidates
+    private static final int PARALLEL_CANDIDATES = 1024;
+
+    // Longest default edit distance, see defaultMaxDistance
+    private static final int MAX_DEFAULT_DISTANCE = 3;
+
+    // Most trigrams of a text changed by one edit
+    private static final int TRIGRAMS_PER_EDIT = 4;
+
+    private final String[] values;
+    private final int[] trigramCounts;
+    private final Map<Long, int[]> postings = new HashMap<>();
+
+    /**
+     * Builds the index over a collection of names. Repeated names are indexed once.
+     *
+     * @param values the names to index.
+     */
+    public TrigramIndex(Collection<String> values) {
+        this.values = new LinkedHashSet<>(values).toArray(new String[0]);
+        long[][] valueTrigrams = new long[this.values.length][];
+        IntStream.range(0, this.values.length).parallel().forEach(value ->
+                valueTrigrams[value] = trigrams(TextTokenizer.tokenize(this.values[value])));
+
+        this.trigramCounts = new int[this.values.length];
+        Map<Long, Integer> frequencies = new HashMap<>();
+        for (int value = 0; value < valueTrigrams.length; value++) {
+            trigramCounts[value] = valueTrigrams[value].length;
+            for (long trigram : valueTrigrams[value]) {
+                frequencies.merge(trigram, 1, Integer::sum);
+            }
+        }
+        // Filling the postings in value order keeps every list sorted.
+        Map<Long, Integer> filled = new HashMap<>();
+        for (Map.Entry<Long, Integer> frequency : frequencies.entrySet()) {
+            postings.put(frequency.getKey(), new int[frequency.getValue()]);
+        }
+        for (int value = 0; value < valueTrigrams.length; value++) {
+            for (long trigram : valueTrigrams[value]) {
+                int position = filled.merge(trigram, 1, Integer::sum) - 1;
+                postings.get(trigram)[position] = value;
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct names in the index.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the number of distinct trigrams in the index.
+     */
+    public int getTrigramCount() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the names within the default edit distance of a text, see {@link #defaultMaxDistance(String)}.
+     *
+     * @param text the text to look up; case and accents are ignored.
+     * @param limit the maximum number of names to return.
+     * @return up to limit names, closest first.
+     */
+    public List<FuzzyMatch> findSimilar(String text, int limit) {
+        return findSimilar(text, defaultMaxDistance(text), limit);
+    }
+
+    /**
+     * Finds the names with a run of words within maxDistance edits (insertions, deletions or
+     * substitutions of a character) of a text. The names are ranked by edit distance, then by trigram
+     * similarity to the whole text, so for "beiber" the name "Justin Bieber" comes before longer names that
+     * also contain "Bieber".
+     *
+     * @param text the text to look up; case and accents are ignored.
+     * @param maxDistance the largest edit distance accepted.
+     * @param limit the maximum number of names to return.
+     * @return up to limit names, closest first.
+     * @throws IllegalArgumentException if maxDistance or limit is negative.
+     */
+    public List<FuzzyMatch> findSimilar(String text, int maxDistance, int limit) throws IllegalArgumentException {
+        if (maxDistance < 0 || limit < 0) {
+            throw new IllegalArgumentException("The maximum distance and the limit must not be negative (were "
+                    + maxDistance + " and " + limit + ").");
+        }
+        List<String> queryTerms = TextTokenizer.tokenize(text);
+        if (queryTerms.isEmpty() || limit == 0) {
+            return new ArrayList<>();
+        }
+        long[] queryTrigrams = trigrams(queryTerms);
+        int minimumShared = Math.max(1, queryTrigrams.length - TRIGRAMS_PER_EDIT * maxDistance);
+
+        // Count the trigrams every name shares with the text; a name becomes a candidate on reaching the bound.
+        int[] shared = new int[values.length];
+        List<Integer> candidates = new ArrayList<>();
+        for (long trigram : queryTrigrams) {
+            int[] postingList = postings.get(trigram);
+            if (postingList == null) {
+                continue;
+            }
+            for (int value : postingList) {
+                if (++shared[value] == minimumShared) {
+                    candidates.add(value);
+                }
+            }
+        }
+
+        String query = String.join(" ", queryTerms);
+        IntStream candidateStream = candidates.stream().mapToInt(Integer::intValue);
+        if (candidates.size() > PARALLEL_CANDIDATES) {
+            candidateStream = candidateStream.parallel();
+        }
+        return candidateStream
+                .mapToObj(value -> {
+                    int distance = closestRunDistance(query, queryTerms.size(), values[value], maxDistance);
+                    if (distance > maxDistance) {
+                        return null;
+                    }
+                    double similarity = 2.0 * shared[value] / (queryTrigrams.length + trigramCounts[value]);
+                    return new FuzzyMatch(values[value], distance, similarity);
+                })
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(FuzzyMatch::getDistance)
+                        .thenComparing(Comparator.comparingDouble(FuzzyMatch::getSimilarity).reversed())
+                        .thenComparing(FuzzyMatch::getValue))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Returns the edit distance accepted by default for a text: a third of its folded length, at least 1
+     * and at most 3, so "beiber" tolerates two typos.
+     *
+     * @param text the text to look up.
+     * @return the default maximum edit distance.
+     */
+    public static int defaultMaxDistance(String text) {
+        int length = String.join(" ", TextTokenizer.tokenize(text)).length();
+        return Math.max(1, Math.min(MAX_DEFAULT_DISTANCE, length / 3));
+    }
+
+    /**
+     * Computes the edit distance between two strings, giving up as soon as it must exceed maxDistance.
+     * The distance is Levenshtein's, except that swapping two adjacent letters counts as one edit (the
+     * optimal string alignment distance), as swapped letters are the most common typo: "beiber" is one edit
+     * away from "bieber". Only the cells of the dynamic programming table within maxDistance of its diagonal
+     * are computed, so the cost is O(length * maxDistance) rather than O(length^2).
+     *
+     * @param a the first string.
+     * @param b the second string.
+     * @param maxDistance the largest distance of interest.
+     * @return the distance if it is at most maxDistance, otherwise maxDistance + 1.
+     * @throws IllegalArgumentException if maxDistance is negative.
+     */
+    public static int boundedEditDistance(CharSequence a, CharSequence b, int maxDistance)
+            throws IllegalArgumentException {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("The maximum distance must not be negative (was " + maxDistance + ").");
+        }
+        int beyond = maxDistance + 1;
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return beyond;
+        }
+        // Rows i - 2, i - 1 and i of the table; cells just outside the band hold "beyond".
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = Math.min(j, beyond);
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(m, i + maxDistance);
+            current[0] = Math.min(i, beyond);
+            if (from > 1) {
+                current[from - 1] = beyond;
+            }
+            int rowMinimum = from == 1 ? current[0] : beyond;
+            char ai = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                char bj = b.charAt(j - 1);
+                int cost = ai == bj ? 0 : 1;
+                int distance = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && ai == b.charAt(j - 2) && a.charAt(i - 2) == bj) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = Math.min(distance, beyond);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = beyond;
+            }
+            // A swap costs at least as much as the cell diagonally before it, so no later row can do better.
+            if (rowMinimum > maxDistance) {
+                return beyond;
+            }
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
+    /**
+     * Returns the smallest edit distance between the query and a run of as many consecutive words of the
+     * value as the query has (or the whole value if it has fewer words).
+     */
+    private static int closestRunDistance(String query, int queryTermCount, String value, int maxDistance) {
+        List<String> valueTerms = TextTokenizer.tokenize(value);
+        if (valueTerms.size() <= queryTermCount) {
+            return boundedEditDistance(query, String.join(" ", valueTerms), maxDistance);
+        }
+        int best = maxDistance + 1;
+        for (int start = 0; start + queryTermCount <= valueTerms.size() && best > 0; start++) {
+            String run = String.join(" ", valueTerms.subList(start, start + queryTermCount));
+            best = Math.min(best, boundedEditDistance(query, run, best - 1));
+        }
+        return best;
+    }
+
+    /**
+     * Returns the distinct trigrams of the padded terms, each packed into a long, in ascending order.
+     */
+    private static long[] trigrams(List<String> terms) {
+        long[] trigrams = new long[terms.stream().mapToInt(term -> term.length()).sum()];
+        int count = 0;
+        for (String term : terms) {
+            String padded = " " + term + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams[count++] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16)
+                        | padded.charAt(i + 2);
+            }
+        }
+        return Arrays.stream(trigrams, 0, count).sorted().distinct().toArray();
+    }
+}
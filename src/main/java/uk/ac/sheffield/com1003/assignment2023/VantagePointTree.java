@@ -0,0 +1,210 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A vantage-point tree over points stored in a flat row-major array, answering k-nearest-neighbour
+ * queries under Euclidean distance.
+ * <p>
+ * The tree is implicit: it is a permutation of the rows plus one threshold per node, with no node
+ * objects. A node covering positions [lo, hi) keeps its vantage point at {@code lo}, the points within
+ * the threshold distance in [lo + 1, mid) and the remaining points in [mid, hi). Subtrees are
+ * disjoint ranges of the permutation, so they are built in parallel with fork/join.
+ */
+class VantagePointTree {
+
+    // Ranges this small are scanned linearly rather than split further.
+    private static final int LEAF_SIZE = 16;
+
+    // Ranges this large are split into parallel fork/join tasks while building.
+    private static final int PARALLEL_BUILD_THRESHOLD = 1 << 13;
+
+    private final double[] points;
+    private final int dimensions;
+    private final int[] items;
+    private final double[] thresholds;
+
+    /**
+     * Builds a tree over every row of the given points.
+     *
+     * @param points the row-major points; the array is shared, not copied.
+     * @param dimensions the number of components of every point.
+     */
+    VantagePointTree(double[] points, int dimensions) {
+        this.points = points;
+        this.dimensions = dimensions;
+        int size = points.length / dimensions;
+        this.items = new int[size];
+        this.thresholds = new double[size];
+        for (int position = 0; position < size; position++) {
+            items[position] = position;
+        }
+        // Scratch space for the distances to each vantage point; subtrees use disjoint ranges of it.
+        double[] scratch = new double[size];
+        ForkJoinPool.commonPool().invoke(new BuildTask(0, size, scratch));
+    }
+
+    /**
+     * Finds the nearest rows to a query point.
+     *
+     * @param query the query point.
+     * @param heap the heap collecting the neighbours; its capacity is k.
+     * @param excludedRow a row to skip (e.g. the query song itself), or -1.
+     */
+    void search(double[] query, NeighbourHeap heap, int excludedRow) {
+        search(query, 0, items.length, heap, excludedRow);
+    }
+
+    private void search(double[] query, int lo, int hi, NeighbourHeap heap, int excludedRow) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int position = lo; position < hi; position++) {
+                offer(query, items[position], heap, excludedRow);
+            }
+            return;
+        }
+
+        double distance = offer(query, items[lo], heap, excludedRow);
+        double threshold = thresholds[lo];
+        int mid = (lo + 1 + hi) >>> 1;
+
+        // Visit the side containing the query first; it is the one most likely to shrink the radius.
+        if (distance < threshold) {
+            if (distance - heap.getRadius() <= threshold) {
+                search(query, lo + 1, mid, heap, excludedRow);
+            }
+            if (distance + heap.getRadius() >= threshold) {
+                search(query, mid, hi, heap, excludedRow);
+            }
+        } else {
+            if (distance + heap.getRadius() >= threshold) {
+                search(query, mid, hi, heap, excludedRow);
+            }
+            if (distance - heap.getRadius() <= threshold) {
+                search(query, lo + 1, mid, heap, excludedRow);
+            }
+        }
+    }
+
+    /**
+     * Computes the distance from the query to a row and offers the row to the heap.
+     *
+     * @return the distance from the query to the row.
+     */
+    private double offer(double[] query, int row, NeighbourHeap heap, int excludedRow) {
+        double distance = Math.sqrt(squaredDistance(query, points, row * dimensions, dimensions));
+        if (row != excludedRow) {
+            heap.offer(row, distance);
+        }
+        return distance;
+    }
+
+    /**
+     * Computes the squared Euclidean distance between a query and a point of a flat array.
+     *
+     * @param query the query point.
+     * @param points the row-major points.
+     * @param offset the index of the first component of the point.
+     * @param dimensions the number of components.
+     * @return the squared distance.
+     */
+    static double squaredDistance(double[] query, double[] points, int offset, int dimensions) {
+        double sum = 0;
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            double difference = query[dimension] - points[offset + dimension];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /**
+     * Builds the subtree covering positions [lo, hi) of the permutation.
+     */
+    private class BuildTask extends RecursiveAction {
+
+        private final int lo;
+        private final int hi;
+        private final double[] scratch;
+
+        BuildTask(int lo, int hi, double[] scratch) {
+            this.lo = lo;
+            this.hi = hi;
+            this.scratch = scratch;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= LEAF_SIZE) {
+                return;
+            }
+
+            // Pick a pseudo-random vantage point (deterministic, so trees are reproducible).
+            int pick = lo + (int) ((SongFingerprint.mix(lo) >>> 1) % (hi - lo));
+            swap(lo, pick);
+            int vantagePoint = items[lo];
+            double[] vantageCoordinates = new double[dimensions];
+            System.arraycopy(points, vantagePoint * dimensions, vantageCoordinates, 0, dimensions);
+            for (int position = lo + 1; position < hi; position++) {
+                scratch[position] = Math.sqrt(squaredDistance(vantageCoordinates, points,
+                        items[position] * dimensions, dimensions));
+            }
+
+            // Partition the remaining points around the median distance.
+            int mid = (lo + 1 + hi) >>> 1;
+            select(lo + 1, hi - 1, mid);
+            thresholds[lo] = scratch[mid];
+
+            BuildTask inside = new BuildTask(lo + 1, mid, scratch);
+            BuildTask outside = new BuildTask(mid, hi, scratch);
+            if (hi - lo >= PARALLEL_BUILD_THRESHOLD) {
+                invokeAll(inside, outside);
+            } else {
+                inside.compute();
+                outside.compute();
+            }
+        }
+
+        /**
+         * Quickselect: reorders positions [left, right] so that the element at {@code target} has
+         * its sorted distance, with smaller distances before it and larger ones after it.
+         */
+        private void select(int left, int right, int target) {
+            while (right > left) {
+                // Median-of-three pivot keeps already ordered data from degrading the selection.
+                int middle = (left + right) >>> 1;
+                if (scratch[middle] < scratch[left]) swap(middle, left);
+                if (scratch[right] < scratch[left]) swap(right, left);
+                if (scratch[right] < scratch[middle]) swap(right, middle);
+                double pivot = scratch[middle];
+
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (scratch[i] < pivot) i++;
+                    while (scratch[j] > pivot) j--;
+                    if (i <= j) {
+                        swap(i, j);
+                        i++;
+                        j--;
+                    }
+                }
+                if (target <= j) {
+                    right = j;
+                } else if (target >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(int first, int second) {
+            int item = items[first];
+            items[first] = items[second];
+            items[second] = item;
+            double distance = scratch[first];
+            scratch[first] = scratch[second];
+            scratch[second] = distance;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package uk.ac.sheffield.com1003.assignment2023;
+
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the minimum and maximum of every {@link SongProperty} over fixed-size blocks of consecutive
+ * song entries (a "zone map"), so that scans can decide for a whole block at once whether a
+ * {@link SubQuery} can match none, some or all of its rows.
+ * <p>
+ * Blocks are ranges of the catalog's song entries list: block {@code b} covers the entries
+ * {@code b * blockSize} to {@code min(size, (b + 1) * blockSize) - 1}. The map is built in parallel, one
+ * block per task, and holds two doubles per block and property. A block containing a NaN value gets NaN
+ * bounds, which compare false with everything and so always classify as {@link BlockMatch#SOME}.
+ */
+public class ZoneMap {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /**
+     * How the rows of a block relate to a condition.
+     */
+    public enum BlockMatch {
+        // No row of the block can satisfy the condition: the block can be skipped.
+        NONE,
+        // Some rows may satisfy the condition: they have to be checked one by one.
+        SOME,
+        // Every row of the block satisfies the condition: the block can be accepted whole.
+        ALL
+    }
+
+    private final int blockSize;
+    private final int size;
+    private final int blockCount;
+
+    // Bounds of property p in block b are at index p.ordinal() * blockCount + b
+    private final double[] minimums;
+    private final double[] maximums;
+
+    /**
+     * Builds the zone map of the given song entries with the default block size.
+     *
+     * @param songEntriesList the song entries, in scan order.
+     */
+    public ZoneMap(List<SongEntry> songEntriesList) {
+        this(songEntriesList, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Builds the zone map of the given song entries.
+     *
+     * @param songEntriesList the song entries, in scan order.
+     * @param blockSize the number of consecutive entries per block.
+     * @throws IllegalArgumentException if the block size is not positive.
+     */
+    public ZoneMap(List<SongEntry> songEntriesList, int blockSize) throws IllegalArgumentException {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("The block size must be positive (was " + blockSize + ").");
+        }
+        this.blockSize = blockSize;
+        this.size = songEntriesList.size();
+        this.blockCount = (size + blockSize - 1) / blockSize;
+        SongProperty[] songProperties = SongProperty.values();
+        this.minimums = new double[songProperties.length * blockCount];
+        this.maximums = new double[songProperties.length * blockCount];
+
+        IntStream.range(0, blockCount).parallel().forEach(block -> {
+            int from = block * blockSize;
+            int to = Math.min(size, from + blockSize);
+            for (SongProperty songProperty : songProperties) {
+                double minimum = Double.POSITIVE_INFINITY;
+                double maximum = Double.NEGATIVE_INFINITY;
+                for (int row = from; row < to; row++) {
+                    double value = songEntriesList.get(row).getSongProperty(songProperty);
+                    minimum = Math.min(minimum, value);
+                    maximum = Math.max(maximum, value);
+                }
+                minimums[songProperty.ordinal() * blockCount + block] = minimum;
+                maximums[songProperty.ordinal() * blockCount + block] = maximum;
+            }
+        });
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return the number of song entries covered by the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the first entry of a block.
+     *
+     * @param block the block index.
+     * @return the first row of the block.
+     */
+    public int getBlockStart(int block) {
+        return block * blockSize;
+    }
+
+    /**
+     * Returns the index after the last entry of a block.
+     *
+     * @param block the block index.
+     * @return the end (exclusive) of the block.
+     */
+    public int getBlockEnd(int block) {
+        return Math.min(size, (block + 1) * blockSize);
+    }
+
+    public double getMinimum(SongProperty songProperty, int block) {
+        return minimums[songProperty.ordinal() * blockCount + block];
+    }
+
+    public double getMaximum(SongProperty songProperty, int block) {
+        return maximums[songProperty.ordinal() * blockCount + block];
+    }
+
+    /**
+     * Returns the smallest value of a property over all the song entries, from the bounds of the blocks.
+     * Blocks with NaN bounds are ignored.
+     *
+     * @param songProperty the property.
+     * @return its minimum, or NaN if no block has one.
+     */
+    public double getMinimum(SongProperty songProperty) {
+        double minimum = Double.NaN;
+        for (int block = 0; block < blockCount; block++) {
+            double value = getMinimum(songProperty, block);
+            if (value < minimum || Double.isNaN(minimum)) {
+                minimum = value;
+            }
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the largest value of a property over all the song entries, from the bounds of the blocks.
+     * Blocks with NaN bounds are ignored.
+     *
+     * @param songProperty the property.
+     * @return its maximum, or NaN if no block has one.
+     */
+    public double getMaximum(SongProperty songProperty) {
+        double maximum = Double.NaN;
+        for (int block = 0; block < blockCount; block++) {
+            double value = getMaximum(songProperty, block);
+            if (value > maximum || Double.isNaN(maximum)) {
+                maximum = value;
+            }
+        }
+        return maximum;
+    }
+
+    /**
+     * Decides from the bounds of a block whether a condition matches none, some or all of its rows.
+     *
+     * @param block the block index.
+     * @param subQuery the condition.
+     * @return how the rows of the block relate to the condition.
+     */
+    public BlockMatch classify(int block, SubQuery subQuery) {
+        double minimum = getMinimum(subQuery.getSongProperty(), block);
+        double maximum = getMaximum(subQuery.getSongProperty(), block);
+        double value = subQuery.getValue();
+
+        switch (subQuery.getOperator()) {
+            case ">":
+                if (minimum > value) return BlockMatch.ALL;
+                if (maximum <= value) return BlockMatch.NONE;
+                break;
+            case ">=":
+                if (minimum >= value) return BlockMatch.ALL;
+                if (maximum < value) return BlockMatch.NONE;
+                break;
+            case "<":
+                if (maximum < value) return BlockMatch.ALL;
+                if (minimum >= value) return BlockMatch.NONE;
+                break;
+            case "<=":
+                if (maximum <= value) return BlockMatch.ALL;
+                if (minimum > value) return BlockMatch.NONE;
+                break;
+            case "=":
+                if (minimum == value && maximum == value) return BlockMatch.ALL;
+                if (value < minimum || value > maximum) return BlockMatch.NONE;
+                break;
+            case "!=":
+                if (value < minimum || value > maximum) return BlockMatch.ALL;
+                if (minimum == value && maximum == value) return BlockMatch.NONE;
+                break;
+        }
+        return BlockMatch.SOME;
+    }
+}
@@ -10,6 +10,9 @@ import java.util.List;
  * This class provided basic reading functionalities of the dataset with song entries.
  * <p>
  * This class is designed to be extended.
+ * <p>
+ * Subclasses may read the song file themselves, e.g. into another storage layout, and answer queries with
+ * indexes of their own by implementing {@link QueryPlanner}.
  *
  * @author Maria-Cruz Villa-Uriol (m.villa-uriol@sheffield.ac.uk)
  * @author Ayeshmantha Wijayagunethilake (a.wijayagunethilake@sheffield.ac.uk)
@@ -18,7 +21,8 @@ import java.util.List;
  */
 public abstract class AbstractSongCatalog {
 
-    protected final List<SongEntry> songEntriesList;
+    // Subclasses may replace the list, e.g. by one in another order; readers should read the field once
+    protected volatile List<SongEntry> songEntriesList;
 
     /**
      * Constructor - reads datasets with song catalogue (song entries
@@ -30,6 +34,14 @@ public abstract class AbstractSongCatalog {
         loadSongCatalogData(songFile);
     }
 
+    /**
+     * Constructor for subclasses that read the song file themselves and add the song entries to
+     * songEntriesList.
+     */
+    protected AbstractSongCatalog() {
+        this.songEntriesList = new ArrayList<>();
+    }
+
     /**
      * Reads the TSV file passed by main. It then reads the contents of the files
      * and creates the relevant SongEntry objects and returns them into a list.
@@ -45,26 +57,27 @@ public abstract class AbstractSongCatalog {
 
         songFile = songFile.replaceAll(" ", "");
 
-        BufferedReader br = new BufferedReader(new FileReader(songFile));
-        String line = br.readLine();
-        if (line == null) {
-            throw new IllegalArgumentException("File is empty. Please run the programme again and provide a valid dataset.");
-        }
-        while ((line = br.readLine()) != null) {
-            try {
-                // The song entry ID is created by this reader; it is not provided in the original files
-                // The ID should _not_ be modified later
-                int id = count;
-                SongEntry songEntry = new SongEntry(id, parseSongEntryLine(line));
-                songEntriesList.add(songEntry);
-                count++;
-
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("File format is incorrect; only double values are allowed. " +
-                        "See line: " + (count + 1));
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Malformed song entry line: " + line +
-                        "\nSee line: " + (count + 1));
+        try (BufferedReader br = new BufferedReader(new FileReader(songFile))) {
+            String line = br.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("File is empty. Please run the programme again and provide a valid dataset.");
+            }
+            while ((line = br.readLine()) != null) {
+                try {
+                    // The song entry ID is created by this reader; it is not provided in the original files
+                    // The ID should _not_ be modified later
+                    int id = count;
+                    SongEntry songEntry = new SongEntry(id, parseSongEntryLine(line));
+                    songEntriesList.add(songEntry);
+                    count++;
+
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("File format is incorrect; only double values are allowed. " +
+                            "See line: " + (count + 1));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Malformed song entry line: " + line +
+                            "\nSee line: " + (count + 1));
+                }
             }
         }
         return songEntriesList;
@@ -91,6 +104,31 @@ public abstract class AbstractSongCatalog {
     }
 
 
+    /**
+     * Returns the number of rows of the song file represented by the given song entries,
+     * i.e. the sum of their multiplicities. Without collapsed duplicates this is the list size.
+     *
+     * @param songEntriesList the song entries to count.
+     * @return the number of represented rows.
+     */
+    public long getRowCount(List<SongEntry> songEntriesList) {
+        long rowCount = 0;
+        for (SongEntry songEntry : songEntriesList) {
+            rowCount += songEntry.getMultiplicity();
+        }
+        return rowCount;
+    }
+
+    /**
+     * Records the cluster a song entry was assigned to, for subclasses clustering their song entries.
+     *
+     * @param songEntry the song entry.
+     * @param clusterId its cluster.
+     */
+    protected static void setClusterId(SongEntry songEntry, int clusterId) {
+        songEntry.setClusterId(clusterId);
+    }
+
     /**
      * Returns the list of song entries after filtering by SongDetail.
      *
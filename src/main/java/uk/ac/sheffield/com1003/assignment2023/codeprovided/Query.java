@@ -14,13 +14,60 @@ public class Query {
 
     final List<SubQuery> subQueryList;
 
+    // Cluster the matching songs must belong to, or SongEntry.NO_CLUSTER to match any cluster
+    final int clusterId;
+
+    // Words the name, artist or album of the matching songs must all contain, or null to match any text
+    final String matchText;
+
+    // Whether the matching songs are returned by decreasing relevance to matchText instead of catalog order
+    final boolean rankedByRelevance;
+
     /**
      * Constructor.
      *
      * @param subQueryList - List of queries.
      */
     public Query(List<SubQuery> subQueryList) {
+        this(subQueryList, SongEntry.NO_CLUSTER);
+    }
+
+    /**
+     * Constructor for a query that also restricts songs to one k-means cluster.
+     *
+     * @param subQueryList - List of queries.
+     * @param clusterId - the cluster the songs must belong to, or SongEntry.NO_CLUSTER for any cluster.
+     */
+    public Query(List<SubQuery> subQueryList, int clusterId) {
+        this(subQueryList, clusterId, null);
+    }
+
+    /**
+     * Constructor for a query that also restricts songs to those whose name, artist or album contain
+     * every word of a text. Matching songs are returned in catalog order.
+     *
+     * @param subQueryList - List of queries.
+     * @param clusterId - the cluster the songs must belong to, or SongEntry.NO_CLUSTER for any cluster.
+     * @param matchText - the words the songs must contain, or null for any text.
+     */
+    public Query(List<SubQuery> subQueryList, int clusterId, String matchText) {
+        this(subQueryList, clusterId, matchText, false);
+    }
+
+    /**
+     * Constructor for a query with a text restriction whose matching songs may be ranked by relevance.
+     *
+     * @param subQueryList - List of queries.
+     * @param clusterId - the cluster the songs must belong to, or SongEntry.NO_CLUSTER for any cluster.
+     * @param matchText - the words the songs must contain, or null for any text.
+     * @param rankedByRelevance - whether to return the songs by decreasing BM25 relevance to matchText
+     *                          instead of catalog order; ignored without a match text.
+     */
+    public Query(List<SubQuery> subQueryList, int clusterId, String matchText, boolean rankedByRelevance) {
         this.subQueryList = subQueryList;
+        this.clusterId = clusterId;
+        this.matchText = matchText;
+        this.rankedByRelevance = rankedByRelevance && matchText != null;
     }
 
     /**
@@ -32,43 +79,88 @@ public class Query {
         return subQueryList;
     }
 
+    /**
+     * Getter for the cluster restriction.
+     *
+     * @return the cluster the songs must belong to, or SongEntry.NO_CLUSTER
+     */
+    public int getClusterId() {
+        return clusterId;
+    }
+
+    /**
+     * Getter for the text restriction.
+     *
+     * @return the words the songs must contain, or null
+     */
+    public String getMatchText() {
+        return matchText;
+    }
+
+    /**
+     * Getter for the ordering of the results.
+     *
+     * @return true if the songs are returned by decreasing relevance to the match text
+     */
+    public boolean isRankedByRelevance() {
+        return rankedByRelevance;
+    }
 
     /**
      * Apply the Query to the songs of a SongCatalog, retrieve the songs which match.
+     * <p>
+     * A catalog implementing {@link QueryPlanner} answers the query itself, e.g. with its indexes. The song
+     * entries of any other catalog are checked one by one: a song matches the text restriction if its name,
+     * artist or album contain every word of the text ignoring case, and the result is in catalog order even
+     * if the query is ranked by relevance. Such a catalog has no clusters, so a cluster restriction only
+     * matches songs whose cluster ids were assigned otherwise.
      *
      * @param songCatalog the SongCatalog to query
      * @return List of filtered Song entries
      */
     public List<SongEntry> executeQuery(AbstractSongCatalog songCatalog) {
-        // Start by adding all the song entries with the matching type
-        List<SongEntry> filteredSongEntriesList =
-                new ArrayList<>(songCatalog.getSongEntriesList());
-
-        // Continuously filter the song entries according to each SubQuery
-        for (SubQuery subQuery : subQueryList) {
-            filteredSongEntriesList =
-                    executeSubQuery(filteredSongEntriesList, subQuery);
-
+        if (songCatalog instanceof QueryPlanner queryPlanner) {
+            return queryPlanner.executeQuery(this);
+        }
+        String[] matchWords = matchText == null ? new String[0] : matchText.toLowerCase().trim().split("\\s+");
+        List<SongEntry> filteredSongEntriesList = new ArrayList<>();
+        for (SongEntry songEntry : songCatalog.getSongEntriesList()) {
+            if (songEntryMatchesSubQueries(songEntry, subQueryList) && songEntryContainsWords(songEntry, matchWords))
+                filteredSongEntriesList.add(songEntry);
         }
-        // Return the filtered song entries
         return filteredSongEntriesList;
     }
 
     /**
-     * Filter provided song entries according to a SubQuery.
+     * Check whether a song entry belongs to the requested cluster and meets every given SubQuery.
      *
-     * @param songEntries the Collection of relevant song entries
-     * @param subQuery the SubQuery to use to filter song entries
-     * @return List of all song entries which meet criteria
+     * @param songEntry the song entry to check
+     * @param subQueries the SubQueries the song entry must meet, e.g. those of this Query
+     * @return true if the song entry matches
      */
-    private List<SongEntry> executeSubQuery(Collection<SongEntry> songEntries, SubQuery subQuery) {
-        List<SongEntry> filteredSongEntriesList = new ArrayList<>();
+    public boolean songEntryMatchesSubQueries(SongEntry songEntry, List<SubQuery> subQueries) {
+        if (clusterId != SongEntry.NO_CLUSTER && songEntry.getClusterId() != clusterId)
+            return false;
+        for (SubQuery subQuery : subQueries) {
+            if (!subQuery.songEntriesMatchesSubQuery(songEntry))
+                return false;
+        }
+        return true;
+    }
 
-        for (SongEntry w : songEntries) {
-            if(subQuery.songEntriesMatchesSubQuery(w))
-                filteredSongEntriesList.add(w);
+    /**
+     * Check whether the name, artist or album of a song entry contain every given (lower case) word.
+     */
+    private boolean songEntryContainsWords(SongEntry songEntry, String[] words) {
+        if (words.length == 0)
+            return true;
+        String text = (songEntry.getSongName() + "\n" + songEntry.getSongArtist() + "\n"
+                + songEntry.getSongAlbumName()).toLowerCase();
+        for (String word : words) {
+            if (!text.contains(word))
+                return false;
         }
-        return filteredSongEntriesList;
+        return true;
     }
 
 	@Override
@@ -76,6 +168,9 @@ public class Query {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((subQueryList == null) ? 0 : subQueryList.hashCode());
+		result = prime * result + clusterId;
+		result = prime * result + Objects.hashCode(matchText);
+		result = prime * result + Boolean.hashCode(rankedByRelevance);
 		return result;
 	}
 
@@ -84,13 +179,24 @@ public class Query {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Query query = (Query) o;
-        return Objects.equals(subQueryList, query.subQueryList);
+        return clusterId == query.clusterId && Objects.equals(subQueryList, query.subQueryList)
+                && Objects.equals(matchText, query.matchText) && rankedByRelevance == query.rankedByRelevance;
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Query: ").append("{");
+        if (matchText != null) {
+            sb.append(rankedByRelevance ? "rank " : "match ").append(matchText);
+            if (clusterId != SongEntry.NO_CLUSTER || !subQueryList.isEmpty())
+                sb.append(", ");
+        }
+        if (clusterId != SongEntry.NO_CLUSTER) {
+            sb.append("cluster == ").append(clusterId);
+            if (!subQueryList.isEmpty())
+                sb.append(", ");
+        }
         Iterator<SubQuery> subQueryIterator = subQueryList.iterator();
         while (subQueryIterator.hasNext()) {
             sb.append(subQueryIterator.next());
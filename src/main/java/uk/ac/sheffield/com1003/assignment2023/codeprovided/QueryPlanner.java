@@ -0,0 +1,19 @@
+package uk.ac.sheffield.com1003.assignment2023.codeprovided;
+
+import java.util.List;
+
+/**
+ * Implemented by song catalogs that answer a {@link Query} with a plan of their own, e.g. with indexes that
+ * skip most song entries, rather than by checking every song entry.
+ * {@link Query#executeQuery(AbstractSongCatalog)} hands its queries to such catalogs.
+ */
+public interface QueryPlanner {
+
+    /**
+     * Retrieve the songs of this catalog which match a Query.
+     *
+     * @param query the Query to apply
+     * @return List of filtered Song entries, in catalog order or by relevance to the match text of the query
+     */
+    List<SongEntry> executeQuery(Query query);
+}
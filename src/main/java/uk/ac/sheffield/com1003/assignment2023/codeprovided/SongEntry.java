@@ -15,15 +15,73 @@ public class SongEntry {
 
     private final SongPropertyMap songPropertyMap;
 
+    // Number of identical rows of the song file this entry stands for (see LoadMode.COLLAPSE_DUPLICATES)
+    private final int multiplicity;
+
+    // Cluster this entry was assigned to by the clustering of its catalog, or NO_CLUSTER
+    private int clusterId = NO_CLUSTER;
+
+    /**
+     * The cluster id of song entries that have not been clustered.
+     */
+    public static final int NO_CLUSTER = -1;
+
     public SongEntry(int id, SongPropertyMap songPropertyMap) {
+        this(id, songPropertyMap, 1);
+    }
+
+    /**
+     * @param id the ID of the song entry.
+     * @param songPropertyMap the values of the song entry.
+     * @param multiplicity the number of identical rows of the song file the entry stands for.
+     */
+    public SongEntry(int id, SongPropertyMap songPropertyMap, int multiplicity) {
         this.id = id;
         this.songPropertyMap = songPropertyMap;
+        this.multiplicity = multiplicity;
+    }
+
+    /**
+     * Constructor for row views, i.e. subclasses whose values are stored elsewhere (e.g. in columns).
+     * Such subclasses must override {@link #getSongProperty(SongProperty)}, {@link #getSongDetail(SongDetail)}
+     * and {@link #getSongPropertyMap()}.
+     *
+     * @param id the ID of the song entry.
+     * @param multiplicity the number of identical rows of the song file the entry stands for.
+     */
+    protected SongEntry(int id, int multiplicity) {
+        this.id = id;
+        this.songPropertyMap = null;
+        this.multiplicity = multiplicity;
     }
 
     public int getId() {
         return id;
     }
 
+    /**
+     * Returns how many identical rows of the song file this entry represents.
+     * This is always 1 unless the catalog was loaded with duplicate rows collapsed.
+     *
+     * @return the number of rows represented by this entry.
+     */
+    public int getMultiplicity() {
+        return multiplicity;
+    }
+
+    /**
+     * Returns the k-means cluster this entry belongs to (see the clustering of its catalog).
+     *
+     * @return the cluster id, or {@link #NO_CLUSTER} if the catalog has not been clustered yet.
+     */
+    public int getClusterId() {
+        return clusterId;
+    }
+
+    void setClusterId(int clusterId) {
+        this.clusterId = clusterId;
+    }
+
     public SongPropertyMap getSongPropertyMap() {
         return songPropertyMap;
     }
@@ -32,11 +90,11 @@ public class SongEntry {
 
     public double getSongProperty(SongProperty songProperty){return songPropertyMap.getProperty(songProperty);}
 
-    public String getSongName(){return songPropertyMap.getDetail(SongDetail.NAME);}
+    public String getSongName(){return getSongDetail(SongDetail.NAME);}
 
-    public String getSongArtist(){return songPropertyMap.getDetail(SongDetail.ARTIST);}
+    public String getSongArtist(){return getSongDetail(SongDetail.ARTIST);}
 
-    public String getSongAlbumName(){return songPropertyMap.getDetail(SongDetail.ALBUM_NAME);}
+    public String getSongAlbumName(){return getSongDetail(SongDetail.ALBUM_NAME);}
 
     @Override
     public String toString() {
@@ -47,7 +105,7 @@ public class SongEntry {
         sb.append(getId());
         sb.append(", ");
 
-        Iterator<SongProperty> propertyIterator = songPropertyMap.propertySet().iterator();
+        Iterator<SongProperty> propertyIterator = getSongPropertyMap().propertySet().iterator();
         while (propertyIterator.hasNext()) {
             SongProperty p = propertyIterator.next();
             sb.append(p.getName());
@@ -57,33 +57,43 @@ public class SubQuery
 	 * @return true if the song entry matches the SubQuery; false otherwise
 	 */
 	protected boolean songEntriesMatchesSubQuery(SongEntry songEntry) {
-		SongProperty songProperty = getSongProperty();
+		return valueMatchesSubQuery(songEntry.getSongProperty(getSongProperty()));
+	}
+
+	/**
+	 * Check if a value of the property of the SubQuery satisfies it, e.g. a value read from the storage of
+	 * a catalog without a SongEntry.
+	 *
+	 * @param songPropertyValue the value to check
+	 * @return true if the value matches the SubQuery; false otherwise
+	 */
+	public boolean valueMatchesSubQuery(double songPropertyValue) {
 		double propertyValue = getValue();
 
 		switch (getOperator()) {
 
 			case ">":
-				if (songEntry.getSongProperty(songProperty) > propertyValue)
+				if (songPropertyValue > propertyValue)
 					return true;
 				break;
 			case ">=":
-				if (songEntry.getSongProperty(songProperty) >= propertyValue)
+				if (songPropertyValue >= propertyValue)
 					return true;
 				break;
 			case "<":
-				if (songEntry.getSongProperty(songProperty) < propertyValue)
+				if (songPropertyValue < propertyValue)
 					return true;
 				break;
 			case "<=":
-				if (songEntry.getSongProperty(songProperty) <= propertyValue)
+				if (songPropertyValue <= propertyValue)
 					return true;
 				break;
 			case "=":
-				if (songEntry.getSongProperty(songProperty) == propertyValue)
+				if (songPropertyValue == propertyValue)
 					return true;
 				break;
 			case "!=":
-				if (songEntry.getSongProperty(songProperty) != propertyValue)
+				if (songPropertyValue != propertyValue)
 					return true;
 				break;
 		}
@@ -56,4 +56,11 @@ public abstract class AbstractCustomChart {
      */
     public abstract Map<SongProperty, CustomChartAxisValues> getCustomChartAxesValues();
 
+    /**
+     * This is a get method used to access the average of every k-means cluster of the song entries.
+     *
+     * @return the average value of each Song Property, by cluster id.
+     */
+    public abstract Map<Integer, Map<SongProperty, Double>> getClusterAverages();
+
 }
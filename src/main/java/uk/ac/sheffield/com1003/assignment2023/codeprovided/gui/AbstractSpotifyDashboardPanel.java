@@ -1,11 +1,15 @@
 package uk.ac.sheffield.com1003.assignment2023.codeprovided.gui;
 
+import uk.ac.sheffield.com1003.assignment2023.IndexedCatalog;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.AbstractSongCatalog;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
 import uk.ac.sheffield.com1003.assignment2023.gui.CustomChart;
 import uk.ac.sheffield.com1003.assignment2023.gui.CustomChartPanel;
+import uk.ac.sheffield.com1003.assignment2023.gui.HistogramChartPanel;
+import uk.ac.sheffield.com1003.assignment2023.gui.ScatterChartPanel;
+import uk.ac.sheffield.com1003.assignment2023.gui.SongEntryTableModel;
 
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -80,26 +84,39 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
     protected JLabel operatorLabel = new JLabel("Operator:", SwingConstants.LEFT);
     protected JLabel operatorValueLabel = new JLabel("Value:", SwingConstants.LEFT);
     protected JLabel subQueryListLabel = new JLabel("List of filters by property (or subqueries):", SwingConstants.LEFT);
+    // statusLabel reports how long the last update of the results took
+    protected JLabel statusLabel = new JLabel(" ", SwingConstants.LEFT);
 
     // defining all the checkboxes to control what is shown in custom chart
     protected JCheckBox minCheckBox = new JCheckBox("Minimum");
     protected JCheckBox maxCheckBox = new JCheckBox("Maximum");
     protected JCheckBox averageCheckBox = new JCheckBox("Average");
+    protected JCheckBox clustersCheckBox = new JCheckBox("Clusters");
 
-    // defining the three JTextAreas that will need to be updated every time the buttons
+    // defining the two JTextAreas (and the table below) that will need to be updated every time the buttons
     // buttonAddFilter and buttonClearFilters are clicked
     // subQueriesTextArea will show the contents of subQueryList
     protected JTextArea subQueriesTextArea = new JTextArea(1, 50);
     // statisticsTextArea will show basic summary statistics for the filteredSongEntriesList
     // (which contains the results after executing the filters or SubQuery in subQueryList)
     protected JTextArea statisticsTextArea = new JTextArea(10, 70);
-    // filteredSongEntriesTextArea will show the results contained in the filteredSongEntries object
-    protected JTextArea filteredSongEntriesTextArea = new JTextArea(28, 70);
+    // filteredSongEntriesTable will show the results contained in the filteredSongEntries object, reading the
+    // cells of the visible rows from filteredSongEntriesTableModel; songEntriesCountLabel tells how many there are
+    protected final SongEntryTableModel filteredSongEntriesTableModel = new SongEntryTableModel();
+    protected JTable filteredSongEntriesTable = new JTable(filteredSongEntriesTableModel);
+    protected JLabel songEntriesCountLabel = new JLabel(" ", SwingConstants.LEFT);
 
     // titles for TitleBorders used to name the three main GUI areas
     protected String statisticsTitle = "SONG CATALOG STATISTICS";
     protected String songEntriesTitle = "SONG ENTRIES";
     protected String customChartTitle = "CUSTOM CHART";
+    protected String scatterChartTitle = "SCATTER PLOT";
+    protected String histogramChartTitle = "HISTOGRAM";
+
+    // scatterChartPanel plots the density of the filteredSongEntriesList over two properties, and
+    // histogramChartPanel the distribution of one property, in tabs next to the custom chart
+    protected ScatterChartPanel scatterChartPanel;
+    protected HistogramChartPanel histogramChartPanel;
 
     public AbstractSpotifyDashboardPanel(AbstractSongCatalog songCatalog){
         Border blackline = BorderFactory.createLineBorder(Color.black);
@@ -111,7 +128,7 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
         subQueriesTextArea.setName("subQueries");
         comboQueryProperties.setName("songProperties");
         value.setName("filterValue");
-        filteredSongEntriesTextArea.setName("filteredSongEntriesTextArea");
+        filteredSongEntriesTable.setName("filteredSongEntriesTable");
         statisticsTextArea.setName("songCatalogStats");
         comboOperators.setName("operators");
         comboBoxArtistNames.setName("artistNames");
@@ -170,6 +187,7 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
         controlCustomChartContainer.add(minCheckBox);
         controlCustomChartContainer.add(maxCheckBox);
         controlCustomChartContainer.add(averageCheckBox);
+        controlCustomChartContainer.add(clustersCheckBox);
 
         customChart = new CustomChart(songCatalog, filteredSongEntriesList);
         AbstractCustomChartPanel customChartPanel = new CustomChartPanel(this, customChart);
@@ -181,6 +199,22 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
         tbCustomChart.setTitleJustification(TitledBorder.CENTER);
         customChartContainer.setBorder(tbCustomChart);
 
+        // Scatter plot and histogram panels, in tabs next to the custom chart
+        scatterChartPanel = new ScatterChartPanel((IndexedCatalog) songCatalog);
+        TitledBorder tbScatterChart = BorderFactory.createTitledBorder(
+                blackline, scatterChartTitle);
+        tbScatterChart.setTitleJustification(TitledBorder.CENTER);
+        scatterChartPanel.setBorder(tbScatterChart);
+        histogramChartPanel = new HistogramChartPanel((IndexedCatalog) songCatalog);
+        TitledBorder tbHistogramChart = BorderFactory.createTitledBorder(
+                blackline, histogramChartTitle);
+        tbHistogramChart.setTitleJustification(TitledBorder.CENTER);
+        histogramChartPanel.setBorder(tbHistogramChart);
+        JTabbedPane chartTabs = new JTabbedPane();
+        chartTabs.addTab("Custom Chart", customChartContainer);
+        chartTabs.addTab("Scatter Plot", scatterChartPanel);
+        chartTabs.addTab("Histogram", histogramChartPanel);
+
         // Statistics panel
         JPanel statisticsPanel = new JPanel();
         statisticsPanel.setLayout(new BorderLayout());
@@ -196,9 +230,17 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
         // Filtered song entries panel
         JPanel songEntriesPanel = new JPanel();
         songEntriesPanel.setLayout(new BorderLayout());
-        JScrollPane songEntriesScrollPane = new JScrollPane(filteredSongEntriesTextArea,
+        filteredSongEntriesTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        filteredSongEntriesTable.setFillsViewportHeight(true);
+        filteredSongEntriesTable.setPreferredScrollableViewportSize(new Dimension(770, 450));
+        for (int column = 0; column < filteredSongEntriesTable.getColumnCount(); column++) {
+            filteredSongEntriesTable.getColumnModel().getColumn(column)
+                    .setPreferredWidth(SongEntryTableModel.getColumnProperty(column) == null ? 200 : 110);
+        }
+        JScrollPane songEntriesScrollPane = new JScrollPane(filteredSongEntriesTable,
                 JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
         songEntriesPanel.add(songEntriesScrollPane, BorderLayout.CENTER);
+        songEntriesPanel.add(songEntriesCountLabel, BorderLayout.SOUTH);
         songEntriesPanel.setBorder(BorderFactory.createLineBorder(Color.black));
         TitledBorder tbSongEntries = BorderFactory.createTitledBorder(
                 blackline, songEntriesTitle);
@@ -211,8 +253,10 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
         songCatalogPanel.add(songEntriesPanel, BorderLayout.CENTER);
 
         this.add(queryPanel, BorderLayout.NORTH);
-        this.add(customChartContainer, BorderLayout.CENTER);
+        this.add(chartTabs, BorderLayout.CENTER);
         this.add(songCatalogPanel, BorderLayout.EAST);
+        statusLabel.setBorder(blackline);
+        this.add(statusLabel, BorderLayout.SOUTH);
 
         // dynamically populate the comboboxes with song details
         this.populateComboBoxes();
@@ -226,10 +270,10 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
      * addFilter method -
      * 1- this method is called when the JButton buttonAddFilter is clicked
      * 2- adds a new filter (a SubQuery object) to subQueryList ArrayList
-     * 3- updates the GUI results accordingly, i.e. updates the three JTextAreas as follows:
+     * 3- updates the GUI results accordingly, i.e. updates the two JTextAreas and the table as follows:
      *    3a- subQueriesTextArea will show the new SubQuery
      *    3b- statisticsTextArea will show the updated statistics for the results after applying this filter
-     *    3c- filteredSongEntriesTextArea will show the contents of filteredSongEntriesList
+     *    3c- filteredSongEntriesTable will show the contents of filteredSongEntriesList
      *    (the results after applying this filter)
      *    3d- the custom chart is updated to display the newly filtered song entries
      *    (Note: this can alternatively be done in another method)
@@ -259,7 +303,7 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
      * - buttonAddFilter
      * - buttonClearFilters
      * - comboArtistNames, comboAlbumNames and comboSongNames,
-     *              if you want the filteredSongEntriesTextArea to be updated
+     *              if you want the filteredSongEntriesTable to be updated
      *              to show only the song entries specified by these comboboxes
      */
     public abstract void addListeners();
@@ -285,4 +329,9 @@ public abstract class AbstractSpotifyDashboardPanel extends JPanel {
      * isAverageCheckBoxSelected method - checks if average
      */
     public abstract boolean isAverageCheckBoxSelected();
+
+    /**
+     * isClustersCheckBoxSelected method - checks if the average of every k-means cluster should be plotted
+     */
+    public abstract boolean isClustersCheckBoxSelected();
 }
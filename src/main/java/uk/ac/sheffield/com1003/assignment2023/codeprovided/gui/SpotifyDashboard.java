@@ -13,11 +13,33 @@ import javax.swing.*;
 
 public class SpotifyDashboard extends JFrame {
     public SpotifyDashboard(AbstractSpotifyDashboardPanel panel){
+        this((JComponent) panel);
+    }
+
+    /**
+     * Shows the window with a placeholder, e.g. the progress of the loading of the catalog, until the
+     * dashboard panel is ready to replace it (see {@link #showPanel}).
+     *
+     * @param content the placeholder.
+     */
+    public SpotifyDashboard(JComponent content){
         setTitle("Spotify Dashboard");
-        add(panel);
+        add(content);
         //maximize the JFrame to fit the entire screen.
         setExtendedState(MAXIMIZED_BOTH);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setVisible(true);
     }
+
+    /**
+     * Replaces the content of the window with the dashboard panel.
+     *
+     * @param panel the dashboard panel.
+     */
+    public void showPanel(AbstractSpotifyDashboardPanel panel){
+        getContentPane().removeAll();
+        add(panel);
+        revalidate();
+        repaint();
+    }
 }
@@ -0,0 +1,29 @@
+package uk.ac.sheffield.com1003.assignment2023.gui;
+
+import uk.ac.sheffield.com1003.assignment2023.RangeBrush;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.util.List;
+
+/**
+ * Listens to the ranges the user drags over a chart (see {@link HistogramChartPanel} and
+ * {@link ScatterChartPanel}) to select song entries.
+ */
+public interface BrushListener {
+
+    /**
+     * Called on every move of the mouse while a range is dragged, on the event dispatch thread.
+     *
+     * @param rangeBrush the brush, holding the selected song entries and their statistics.
+     */
+    void brushMoved(RangeBrush rangeBrush);
+
+    /**
+     * Called when the mouse is released, if {@link #brushMoved} was called while it was dragged; a plain
+     * click is not reported.
+     *
+     * @param subQueries the filters selecting the dragged ranges, or an empty list if the drag was too
+     *                   short to select a range.
+     */
+    void brushReleased(List<SubQuery> subQueries);
+}
@@ -0,0 +1,66 @@
+package uk.ac.sheffield.com1003.assignment2023.gui;
+
+import uk.ac.sheffield.com1003.assignment2023.LoadProgressListener;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shown in the window of the dashboard while the song file is loaded on another thread: a progress bar of
+ * the bytes read and a line with the bytes and rows read so far.
+ * <p>
+ * It is the {@link LoadProgressListener} of the loading, so {@link #progressed} is called on the loading
+ * thread. The latest progress is kept and shown by the event dispatch thread, at most once per event
+ * handled there, however often it is reported.
+ */
+public class CatalogLoadingPanel extends JPanel implements LoadProgressListener {
+
+    private final JProgressBar progressBar = new JProgressBar(0, 1000);
+    private final JLabel progressLabel = new JLabel(" ", SwingConstants.CENTER);
+
+    // The latest progress reported, and whether showing it is already queued on the event dispatch thread
+    private volatile long bytesRead;
+    private volatile long totalBytes;
+    private volatile long rowsRead;
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+
+    /**
+     * @param songFile the song file being loaded, named above the progress bar.
+     */
+    public CatalogLoadingPanel(String songFile) {
+        super(new GridBagLayout());
+        JPanel content = new JPanel(new GridLayout(3, 1, 0, 8));
+        content.add(new JLabel("Loading " + songFile + "...", SwingConstants.CENTER));
+        progressBar.setPreferredSize(new Dimension(400, progressBar.getPreferredSize().height));
+        content.add(progressBar);
+        content.add(progressLabel);
+        add(content);
+    }
+
+    @Override
+    public void progressed(long bytesRead, long totalBytes, long rowsRead) {
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.rowsRead = rowsRead;
+        if (updateQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::showProgress);
+        }
+    }
+
+    private void showProgress() {
+        updateQueued.set(false);
+        long read = bytesRead;
+        long total = totalBytes;
+        progressBar.setValue(total == 0 ? 1000 : (int) (1000 * read / total));
+        String progress = String.format("%.1f of %.1f MB, %d rows", read / 1e6, total / 1e6, rowsRead);
+        progressLabel.setText(read < total ? progress : progress + " - preparing the dashboard...");
+    }
+
+    /**
+     * @return the text below the progress bar, e.g. to check the progress shown.
+     */
+    public String getProgressText() {
+        return progressLabel.getText();
+    }
+}
@@ -1,14 +1,18 @@
 package uk.ac.sheffield.com1003.assignment2023.gui;
 
+import uk.ac.sheffield.com1003.assignment2023.IndexedCatalog;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.AbstractSongCatalog;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.gui.AbstractCustomChart;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.gui.CustomChartAxisValues;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
 
 /**
  * CustomChart extends AbstractCustomChart and manages the visualization of song data
@@ -17,6 +21,9 @@ import java.util.NoSuchElementException;
  */
 public class CustomChart extends AbstractCustomChart {
 
+    // Averages by cluster of the current song entries, if they were computed with them (empty otherwise)
+    private Map<Integer, Map<SongProperty, Double>> clusterAverages = Map.of();
+
     /**
      * Constructs a CustomChart object with the specified song catalog and filtered song entries.
      * Initializes and updates chart contents upon creation.
@@ -38,22 +45,70 @@ public class CustomChart extends AbstractCustomChart {
     @Override
     public void updateCustomChartContents(List<SongEntry> filteredSongEntriesList) {
         try {
-            // Iterate over each song property to update its corresponding axis values in the chart.
-            for (SongProperty songProperty : SongProperty.values()) {
-                customChartAxesValues.put(songProperty,
-                        new CustomChartAxisValues(
-                                songCatalog.getMinimumValue(songProperty, filteredSongEntriesList),
-                                songCatalog.getMaximumValue(songProperty, filteredSongEntriesList),
-                                songCatalog.getAverageValue(songProperty, filteredSongEntriesList)
-                        )
-                );
-            }
+            updateCustomChartContents(filteredSongEntriesList, computeAxesValues(songCatalog, filteredSongEntriesList));
         } catch (NoSuchElementException e) {
             // Handle the case where the filtered song entries list is empty and log an error.
+            filteredSongEntries = filteredSongEntriesList;
+            clusterAverages = Map.of();
             System.err.println("Song entries list passed as a parameter is empty!");
         }
     }
 
+    /**
+     * Updates the chart contents with axis values computed beforehand by
+     * {@link #computeAxesValues(AbstractSongCatalog, List)}, e.g. on a background thread.
+     *
+     * @param filteredSongEntriesList A list of song entries which is used to generate the custom chart.
+     * @param axesValues The minimum, maximum and average value of each song property in the list.
+     */
+    public void updateCustomChartContents(List<SongEntry> filteredSongEntriesList,
+                                          Map<SongProperty, CustomChartAxisValues> axesValues) {
+        updateCustomChartContents(filteredSongEntriesList, axesValues, Map.of());
+    }
+
+    /**
+     * Updates the chart contents with axis values and cluster averages computed beforehand by
+     * {@link #computeAxesValues(AbstractSongCatalog, List)} and
+     * {@link #computeClusterAverages(IndexedCatalog, List)}, e.g. on a background thread.
+     *
+     * @param filteredSongEntriesList A list of song entries which is used to generate the custom chart.
+     * @param axesValues The minimum, maximum and average value of each song property in the list.
+     * @param clusterAverages The average value of each song property in every cluster of the list.
+     */
+    public void updateCustomChartContents(List<SongEntry> filteredSongEntriesList,
+                                          Map<SongProperty, CustomChartAxisValues> axesValues,
+                                          Map<Integer, Map<SongProperty, Double>> clusterAverages) {
+        filteredSongEntries = filteredSongEntriesList;
+        this.clusterAverages = clusterAverages;
+        customChartAxesValues.putAll(axesValues);
+    }
+
+    /**
+     * Calculates the minimum, maximum, and average value of each song property in a list of song entries.
+     * It only reads the catalog, so it may run outside the event dispatch thread.
+     *
+     * @param songCatalog The song catalog used to calculate the values.
+     * @param songEntriesList The song entries to summarise.
+     * @return The axis values of each song property.
+     * @throws NoSuchElementException if the list is empty.
+     */
+    public static Map<SongProperty, CustomChartAxisValues> computeAxesValues(AbstractSongCatalog songCatalog,
+                                                                             List<SongEntry> songEntriesList)
+            throws NoSuchElementException {
+        Map<SongProperty, CustomChartAxisValues> axesValues = new EnumMap<>(SongProperty.class);
+        // Iterate over each song property to compute its corresponding axis values in the chart.
+        for (SongProperty songProperty : SongProperty.values()) {
+            axesValues.put(songProperty,
+                    new CustomChartAxisValues(
+                            songCatalog.getMinimumValue(songProperty, songEntriesList),
+                            songCatalog.getMaximumValue(songProperty, songEntriesList),
+                            songCatalog.getAverageValue(songProperty, songEntriesList)
+                    )
+            );
+        }
+        return axesValues;
+    }
+
     /**
      * Provides read-only access to the custom chart axes values which include minimum,
      * maximum, and average values for each song property.
@@ -64,4 +119,54 @@ public class CustomChart extends AbstractCustomChart {
     public Map<SongProperty, CustomChartAxisValues> getCustomChartAxesValues() {
         return Map.copyOf(customChartAxesValues);
     }
+
+    /**
+     * Provides the average value of each song property within every k-means cluster of the current
+     * song entries, as given with them to
+     * {@link #updateCustomChartContents(List, Map, Map)}. It is empty if they were updated without them.
+     *
+     * @return An immutable map of cluster ids (in increasing order) to the averages of the cluster.
+     */
+    @Override
+    public Map<Integer, Map<SongProperty, Double>> getClusterAverages() {
+        return clusterAverages;
+    }
+
+    /**
+     * Calculates the average value of each song property within every k-means cluster of a list of song
+     * entries, weighted by how many rows every entry represents. The catalog is clustered first if it has
+     * not been yet, so this may take a while and should run outside the event dispatch thread.
+     *
+     * @param songCatalog The song catalog the song entries belong to.
+     * @param songEntriesList The song entries to summarise.
+     * @return An immutable map of cluster ids (in increasing order) to the averages of the cluster.
+     */
+    public static Map<Integer, Map<SongProperty, Double>> computeClusterAverages(IndexedCatalog songCatalog,
+                                                                                  List<SongEntry> songEntriesList) {
+        songCatalog.getClustering();
+
+        // Sum the properties of the entries of every cluster in a single pass.
+        Map<Integer, double[]> sumsByCluster = new TreeMap<>();
+        Map<Integer, Long> rowsByCluster = new TreeMap<>();
+        SongProperty[] songProperties = SongProperty.values();
+        for (SongEntry songEntry : songEntriesList) {
+            double[] sums = sumsByCluster.computeIfAbsent(songEntry.getClusterId(),
+                    clusterId -> new double[songProperties.length]);
+            for (SongProperty songProperty : songProperties) {
+                sums[songProperty.ordinal()] += songEntry.getMultiplicity() * songEntry.getSongProperty(songProperty);
+            }
+            rowsByCluster.merge(songEntry.getClusterId(), (long) songEntry.getMultiplicity(), Long::sum);
+        }
+
+        Map<Integer, Map<SongProperty, Double>> averages = new TreeMap<>();
+        for (Map.Entry<Integer, double[]> entry : sumsByCluster.entrySet()) {
+            Map<SongProperty, Double> clusterAverage = new EnumMap<>(SongProperty.class);
+            long rows = rowsByCluster.get(entry.getKey());
+            for (SongProperty songProperty : songProperties) {
+                clusterAverage.put(songProperty, entry.getValue()[songProperty.ordinal()] / rows);
+            }
+            averages.put(entry.getKey(), clusterAverage);
+        }
+        return Collections.unmodifiableMap(averages);
+    }
 }
@@ -0,0 +1,383 @@
+package uk.ac.sheffield.com1003.assignment2023.gui;
+
+import uk.ac.sheffield.com1003.assignment2023.FilterStack;
+import uk.ac.sheffield.com1003.assignment2023.IndexedCatalog;
+import uk.ac.sheffield.com1003.assignment2023.PropertyHistogram;
+import uk.ac.sheffield.com1003.assignment2023.RangeBrush;
+import uk.ac.sheffield.com1003.assignment2023.ZoneMap;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the distribution of one property, chosen by the user, over the filtered song entries as a
+ * histogram of {@link #BIN_COUNT} bins spanning the values of the whole catalog.
+ * <p>
+ * The counts are computed off the event dispatch thread by {@link #computeHistogram}, by the worker of
+ * each query, and the panel only draws them. The bins are counted in one parallel pass over the song
+ * entries. When a new result only narrows the counted one, i.e. filters were added to the same song
+ * entries (see {@link FilterStack.Result#narrows}), the entries the new filters removed are subtracted from
+ * a copy of the counts instead, in time proportional to their number. Selecting another property counts
+ * the shown song entries again, in a worker of the panel.
+ * <p>
+ * Dragging the mouse over the histogram selects a range of values with a {@link RangeBrush}, reported live
+ * to the {@link BrushListener} of the panel and turned into filters when the mouse is released.
+ */
+public class HistogramChartPanel extends JPanel {
+
+    public static final int BIN_COUNT = 50;
+
+    // Space around the plot for the axis labels and the timings, in pixels
+    private static final int LEFT_MARGIN = 60;
+    private static final int RIGHT_MARGIN = 15;
+    private static final int TOP_MARGIN = 25;
+    private static final int BOTTOM_MARGIN = 40;
+
+    private static final Color BACKGROUND_COLOUR = new Color(238, 241, 238);
+    private static final Color BAR_COLOUR = new Color(33, 113, 181);
+    private static final Color BRUSH_COLOUR = new Color(245, 130, 48, 80);
+    // Smallest drag, in pixels, that selects a range rather than being a click
+    static final int MIN_BRUSH_PIXELS = 3;
+
+    private final IndexedCatalog songCatalog;
+    private final JComboBox<String> comboProperty = new JComboBox<>(new Vector<>(Arrays.stream(SongProperty.values())
+            .map(SongProperty::getName).collect(Collectors.toList())));
+    private final HistogramPlot histogramPlot = new HistogramPlot();
+
+    // The shown counts, or null before the first result; counts the shown counts again for another property
+    private HistogramUpdate shownUpdate;
+    private SwingWorker<HistogramUpdate, Void> recountWorker;
+
+    // Told about the ranges dragged over the histogram; the brush of the range being dragged, whether the
+    // listener was told about it, and its ends
+    private BrushListener brushListener;
+    private RangeBrush rangeBrush;
+    private boolean brushMoved;
+    private int brushStartX;
+    private int brushEndX;
+
+    /**
+     * The histogram of a result, how it was computed from the histogram shown before, and the song entries
+     * of the result sorted for brushing. Once computed, it is only read.
+     */
+    public static class HistogramUpdate {
+
+        private final FilterStack.Result result;
+        private final PropertyHistogram histogram;
+        private final boolean incremental;
+        private final long updateRows;
+        private final long updateNanos;
+        private final RangeBrush.SortedEntries brushEntries;
+
+        private HistogramUpdate(FilterStack.Result result, PropertyHistogram histogram, boolean incremental,
+                                long updateRows, long updateNanos, RangeBrush.SortedEntries brushEntries) {
+            this.result = result;
+            this.histogram = histogram;
+            this.incremental = incremental;
+            this.updateRows = updateRows;
+            this.updateNanos = updateNanos;
+            this.brushEntries = brushEntries;
+        }
+
+        /**
+         * @return the histogram of the result.
+         */
+        public PropertyHistogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * @return whether the removed song entries of the result were subtracted from the previous counts
+         * rather than the song entries being counted again.
+         */
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        /**
+         * @return the number of song entries counted or subtracted.
+         */
+        public long getUpdateRows() {
+            return updateRows;
+        }
+
+        /**
+         * @return how long the update of the counts took, in nanoseconds.
+         */
+        public long getUpdateNanos() {
+            return updateNanos;
+        }
+    }
+
+    /**
+     * @param songCatalog the catalog of the song entries to plot.
+     */
+    public HistogramChartPanel(IndexedCatalog songCatalog) {
+        super(new BorderLayout());
+        this.songCatalog = songCatalog;
+
+        JPanel propertyPanel = new JPanel();
+        propertyPanel.add(new JLabel("Property:", SwingConstants.LEFT));
+        propertyPanel.add(comboProperty);
+        comboProperty.setSelectedItem(SongProperty.DANCEABILITY.getName());
+        comboProperty.addActionListener(e -> recount());
+
+        add(propertyPanel, BorderLayout.NORTH);
+        add(histogramPlot, BorderLayout.CENTER);
+    }
+
+    /**
+     * @param brushListener told about the ranges dragged over the histogram, or null.
+     */
+    public void setBrushListener(BrushListener brushListener) {
+        this.brushListener = brushListener;
+    }
+
+    /**
+     * @return the property whose values are counted, to pass to {@link #computeHistogram}.
+     */
+    public SongProperty getSelectedProperty() {
+        return SongProperty.fromPropertyName((String) comboProperty.getSelectedItem());
+    }
+
+    /**
+     * @return the shown histogram, to pass to {@link #computeHistogram}, or null before the first result.
+     */
+    public HistogramUpdate getShownUpdate() {
+        return shownUpdate;
+    }
+
+    /**
+     * Counts the values of a property over the song entries of a result, e.g. on the thread of the query
+     * that computed it. If the result narrows the one of the previous histogram, only the song entries it
+     * removed are subtracted from a copy of the previous counts, which are left as they are. The song
+     * entries are also sorted by the property, so that a range can be brushed as soon as the mouse is pressed.
+     *
+     * @param songCatalog the catalog of the song entries, whose zone map gives the range of the bins.
+     * @param songProperty the property to count.
+     * @param previous the histogram shown so far, or null.
+     * @param result the result to count.
+     * @return the histogram of the result.
+     */
+    public static HistogramUpdate computeHistogram(IndexedCatalog songCatalog, SongProperty songProperty,
+                                                   HistogramUpdate previous, FilterStack.Result result) {
+        RangeBrush.SortedEntries brushEntries = RangeBrush.prepare(songCatalog, result.getSongEntries(),
+                songProperty);
+        long start = System.nanoTime();
+        if (previous != null && previous.histogram.getSongProperty() == songProperty
+                && result.narrows(previous.result.getBaseEntries(), previous.result.getSubQueries())) {
+            PropertyHistogram histogram = new PropertyHistogram(previous.histogram);
+            histogram.removeAll(result.getRemovedEntries());
+            return new HistogramUpdate(result, histogram, true, result.getRemovedEntries().size(),
+                    System.nanoTime() - start, brushEntries);
+        }
+        ZoneMap zoneMap = songCatalog.getZoneMap();
+        double min = zoneMap.getMinimum(songProperty);
+        double max = zoneMap.getMaximum(songProperty);
+        // An empty catalog gets a unit range, so that an (empty) histogram can still be drawn
+        PropertyHistogram histogram = min <= max ? new PropertyHistogram(songProperty, min, max, BIN_COUNT) :
+                new PropertyHistogram(songProperty, 0, 1, BIN_COUNT);
+        histogram.addAll(result.getSongEntries());
+        return new HistogramUpdate(result, histogram, false, result.getSongEntries().size(),
+                System.nanoTime() - start, brushEntries);
+    }
+
+    /**
+     * Shows the histogram of a new result. If it counts another property than the selected one, e.g. because
+     * the selection changed while the query was running, the result is counted again for the selected one.
+     *
+     * @param update the histogram computed by {@link #computeHistogram}.
+     */
+    public void setUpdate(HistogramUpdate update) {
+        shownUpdate = update;
+        if (update.histogram.getSongProperty() != getSelectedProperty()) {
+            recount();
+        } else if (recountWorker != null) {
+            recountWorker.cancel(true);
+            recountWorker = null;
+        }
+        histogramPlot.repaint();
+    }
+
+    /**
+     * Counts the shown song entries for the selected property, in the background.
+     */
+    private void recount() {
+        if (recountWorker != null) {
+            recountWorker.cancel(true);
+            recountWorker = null;
+        }
+        if (shownUpdate == null) {
+            return;
+        }
+        FilterStack.Result result = shownUpdate.result;
+        SongProperty songProperty = getSelectedProperty();
+        SwingWorker<HistogramUpdate, Void> worker = new SwingWorker<>() {
+            @Override
+            protected HistogramUpdate doInBackground() {
+                return computeHistogram(songCatalog, songProperty, null, result);
+            }
+
+            @Override
+            protected void done() {
+                // Ignore the counts replaced by those of a newer result or property.
+                if (recountWorker != this) {
+                    return;
+                }
+                recountWorker = null;
+                try {
+                    shownUpdate = get();
+                } catch (CancellationException | InterruptedException e) {
+                    // The count was cancelled; a newer one shows its histogram.
+                } catch (ExecutionException e) {
+                    System.err.println("Something went wrong while counting the histogram: " + e.getCause());
+                }
+                histogramPlot.repaint();
+            }
+        };
+        recountWorker = worker;
+        worker.execute();
+    }
+
+    /**
+     * The plot itself: the bars, the axes and the timings.
+     */
+    private class HistogramPlot extends JComponent {
+
+        private HistogramPlot() {
+            MouseAdapter brushing = new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    if (shownUpdate == null || shownUpdate.result.getSongEntries().isEmpty()) {
+                        return;
+                    }
+                    brushStartX = clampX(e.getX());
+                    brushEndX = brushStartX;
+                    rangeBrush = new RangeBrush(shownUpdate.brushEntries);
+                    brushMoved = false;
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    if (rangeBrush == null) {
+                        return;
+                    }
+                    brushEndX = clampX(e.getX());
+                    if (Math.abs(brushEndX - brushStartX) >= MIN_BRUSH_PIXELS) {
+                        rangeBrush.setRange(shownUpdate.histogram.getSongProperty(),
+                                getValueAt(Math.min(brushStartX, brushEndX)),
+                                getValueAt(Math.max(brushStartX, brushEndX)));
+                        brushMoved = true;
+                        if (brushListener != null) {
+                            brushListener.brushMoved(rangeBrush);
+                        }
+                    }
+                    repaint();
+                }
+
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    if (rangeBrush == null) {
+                        return;
+                    }
+                    List<SubQuery> brushedSubQueries = Math.abs(brushEndX - brushStartX) >= MIN_BRUSH_PIXELS ?
+                            rangeBrush.getSubQueries() : List.of();
+                    rangeBrush = null;
+                    repaint();
+                    // A click, or a drag too short to select a range, changed nothing the listener was told about
+                    if (brushMoved && brushListener != null) {
+                        brushListener.brushReleased(brushedSubQueries);
+                    }
+                }
+            };
+            addMouseListener(brushing);
+            addMouseMotionListener(brushing);
+        }
+
+        private int clampX(int x) {
+            return Math.max(LEFT_MARGIN, Math.min(getWidth() - RIGHT_MARGIN, x));
+        }
+
+        /**
+         * Returns the value of the histogram's property at a horizontal position of the plot.
+         */
+        private double getValueAt(int x) {
+            PropertyHistogram histogram = shownUpdate.histogram;
+            double fraction = (double) (x - LEFT_MARGIN) / (getWidth() - LEFT_MARGIN - RIGHT_MARGIN);
+            return histogram.getMinValue() + fraction * (histogram.getMaxValue() - histogram.getMinValue());
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setColor(BACKGROUND_COLOUR);
+            g2d.fillRect(0, 0, getWidth(), getHeight());
+            int plotWidth = getWidth() - LEFT_MARGIN - RIGHT_MARGIN;
+            int plotHeight = getHeight() - TOP_MARGIN - BOTTOM_MARGIN;
+            if (plotWidth <= 0 || plotHeight <= 0 || shownUpdate == null) {
+                return;
+            }
+            PropertyHistogram propertyHistogram = shownUpdate.histogram;
+
+            int bottom = TOP_MARGIN + plotHeight;
+            long maxCount = Math.max(1, propertyHistogram.getMaxCount());
+            for (int bin = 0; bin < propertyHistogram.getBinCount(); bin++) {
+                int left = LEFT_MARGIN + plotWidth * bin / propertyHistogram.getBinCount();
+                int right = LEFT_MARGIN + plotWidth * (bin + 1) / propertyHistogram.getBinCount();
+                int height = (int) Math.round((double) plotHeight * propertyHistogram.getCount(bin) / maxCount);
+                g2d.setColor(BAR_COLOUR);
+                g2d.fillRect(left, bottom - height, right - left, height);
+                g2d.setColor(BACKGROUND_COLOUR);
+                g2d.drawLine(right, bottom - height, right, bottom);
+            }
+
+            FontMetrics fontMetrics = g2d.getFontMetrics();
+            g2d.setColor(Color.BLACK);
+            g2d.drawRect(LEFT_MARGIN, TOP_MARGIN, plotWidth, plotHeight);
+            String minValue = formatValue(propertyHistogram.getMinValue());
+            String maxValue = formatValue(propertyHistogram.getMaxValue());
+            g2d.drawString(minValue, LEFT_MARGIN, bottom + fontMetrics.getAscent() + 2);
+            g2d.drawString(maxValue, LEFT_MARGIN + plotWidth - fontMetrics.stringWidth(maxValue),
+                    bottom + fontMetrics.getAscent() + 2);
+            String name = propertyHistogram.getSongProperty().toString();
+            g2d.drawString(name, LEFT_MARGIN + (plotWidth - fontMetrics.stringWidth(name)) / 2,
+                    bottom + 2 * fontMetrics.getHeight());
+            String maxCountLabel = String.valueOf(propertyHistogram.getMaxCount());
+            g2d.drawString(maxCountLabel, LEFT_MARGIN - fontMetrics.stringWidth(maxCountLabel) - 4,
+                    TOP_MARGIN + fontMetrics.getAscent());
+            g2d.drawString("0", LEFT_MARGIN - fontMetrics.stringWidth("0") - 4, bottom);
+
+            if (rangeBrush != null) {
+                g2d.setColor(BRUSH_COLOUR);
+                g2d.fillRect(Math.min(brushStartX, brushEndX), TOP_MARGIN, Math.abs(brushEndX - brushStartX),
+                        plotHeight);
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(String.format("Brushed %d of %d rows | updated in %.2f ms",
+                                rangeBrush.getSelectedRowCount(),
+                                propertyHistogram.getTotalCount() + propertyHistogram.getOutsideCount(),
+                                rangeBrush.getLastUpdateNanos() / 1e6),
+                        LEFT_MARGIN, TOP_MARGIN - 8);
+            } else {
+                g2d.drawString(String.format("%d rows in %d bins (%d outside) | %s %d rows in %.2f ms",
+                                propertyHistogram.getTotalCount(), propertyHistogram.getBinCount(),
+                                propertyHistogram.getOutsideCount(), shownUpdate.incremental ? "subtracted" : "counted",
+                                shownUpdate.updateRows, shownUpdate.updateNanos / 1e6),
+                        LEFT_MARGIN, TOP_MARGIN - 8);
+            }
+        }
+    }
+
+    private static String formatValue(double value) {
+        return Math.abs(value) >= 1000 ? String.format("%.0f", value) : String.format("%.2f", value);
+    }
+}
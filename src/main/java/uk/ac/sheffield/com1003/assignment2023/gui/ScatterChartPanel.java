@@ -0,0 +1,423 @@
+package uk.ac.sheffield.com1003.assignment2023.gui;
+
+import uk.ac.sheffield.com1003.assignment2023.DensityGrid;
+import uk.ac.sheffield.com1003.assignment2023.IndexedCatalog;
+import uk.ac.sheffield.com1003.assignment2023.RangeBrush;
+import uk.ac.sheffield.com1003.assignment2023.ZoneMap;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the distribution of the filtered song entries over two properties chosen by the user (e.g.
+ * energy against loudness) as a density heatmap: the entries are counted into a {@link DensityGrid} of
+ * {@link #GRID_SIZE} by {@link #GRID_SIZE} bins, in parallel, and every bin is coloured by its count on a
+ * logarithmic scale into an image of one pixel per bin. The binning runs in the background whenever the
+ * entries or the properties change, and the plot shows the previous image until it is done; painting only
+ * scales the image to the size of the plot, so it costs the same for ten entries as for ten million and
+ * resizing the window does not bin the entries again.
+ * <p>
+ * Both axes span the values of the whole catalog, so that plots of different filters can be compared.
+ * Dragging a rectangle over the plot selects a range of both properties with a {@link RangeBrush}, as
+ * for the {@link HistogramChartPanel}.
+ */
+public class ScatterChartPanel extends JPanel {
+
+    // Number of bins along each axis of the grid
+    public static final int GRID_SIZE = 400;
+
+    // Space around the plot for the axis labels and the timings, in pixels
+    private static final int LEFT_MARGIN = 60;
+    private static final int RIGHT_MARGIN = 15;
+    private static final int TOP_MARGIN = 25;
+    private static final int BOTTOM_MARGIN = 40;
+
+    private static final Color BACKGROUND_COLOUR = new Color(238, 241, 238);
+    // Colour of every bin count, from the emptiest bin (index 1) to the fullest (index 255)
+    private static final int[] PALETTE = createPalette(new Color(198, 219, 239), new Color(33, 113, 181),
+            new Color(8, 29, 88));
+    private static final Color BRUSH_COLOUR = new Color(245, 130, 48, 80);
+
+    private final IndexedCatalog songCatalog;
+    private final Vector<String> propertyNames = new Vector<>(Arrays.stream(SongProperty.values())
+            .map(SongProperty::getName).collect(Collectors.toList()));
+    private final JComboBox<String> comboXProperty = new JComboBox<>(propertyNames);
+    private final JComboBox<String> comboYProperty = new JComboBox<>(propertyNames);
+    private final DensityPlot densityPlot = new DensityPlot();
+
+    private List<SongEntry> songEntries = List.of();
+
+    // Bins the latest song entries, or null when the grid is up to date
+    private SwingWorker<Density, Void> binningWorker;
+
+    // The current grid and its image, the song entries binned sorted for brushing, and how long the grid
+    // and the image took to compute
+    private DensityGrid densityGrid;
+    private BufferedImage densityImage;
+    private RangeBrush.SortedEntries brushEntries;
+    private long lastBinningNanos;
+    private long lastRenderNanos;
+
+    // Told about the rectangles dragged over the plot; the brush of the rectangle being dragged, whether the
+    // listener was told about it, and its corners
+    private BrushListener brushListener;
+    private RangeBrush rangeBrush;
+    private boolean brushMoved;
+    private Point brushStart;
+    private Point brushEnd;
+
+    /**
+     * A grid and its image, and the binned song entries sorted for brushing, computed by the binning worker.
+     */
+    private static class Density {
+        private final DensityGrid grid;
+        private final BufferedImage image;
+        private final long binningNanos;
+        private final long renderNanos;
+        private final RangeBrush.SortedEntries brushEntries;
+
+        private Density(DensityGrid grid, BufferedImage image, long binningNanos, long renderNanos,
+                        RangeBrush.SortedEntries brushEntries) {
+            this.grid = grid;
+            this.image = image;
+            this.binningNanos = binningNanos;
+            this.renderNanos = renderNanos;
+            this.brushEntries = brushEntries;
+        }
+    }
+
+    /**
+     * @param songCatalog the catalog of the song entries to plot.
+     */
+    public ScatterChartPanel(IndexedCatalog songCatalog) {
+        super(new BorderLayout());
+        this.songCatalog = songCatalog;
+
+        JPanel propertiesPanel = new JPanel();
+        propertiesPanel.add(new JLabel("X:", SwingConstants.LEFT));
+        propertiesPanel.add(comboXProperty);
+        propertiesPanel.add(new JLabel("Y:", SwingConstants.LEFT));
+        propertiesPanel.add(comboYProperty);
+        comboXProperty.setSelectedItem(SongProperty.LOUDNESS.getName());
+        comboYProperty.setSelectedItem(SongProperty.ENERGY.getName());
+        comboXProperty.addActionListener(e -> updateDensity());
+        comboYProperty.addActionListener(e -> updateDensity());
+
+        add(propertiesPanel, BorderLayout.NORTH);
+        add(densityPlot, BorderLayout.CENTER);
+        updateDensity();
+    }
+
+    /**
+     * @param brushListener told about the rectangles dragged over the plot, or null.
+     */
+    public void setBrushListener(BrushListener brushListener) {
+        this.brushListener = brushListener;
+    }
+
+    /**
+     * Plots other song entries, e.g. the results of a new query. They are binned in the background, and
+     * the plot is repainted once they are.
+     *
+     * @param songEntries the song entries to plot.
+     */
+    public void setSongEntries(List<SongEntry> songEntries) {
+        this.songEntries = songEntries;
+        updateDensity();
+    }
+
+    /**
+     * Bins the latest song entries over the selected properties in the background, replacing the binning
+     * of earlier entries or properties if it is still running.
+     */
+    private void updateDensity() {
+        if (binningWorker != null) {
+            binningWorker.cancel(true);
+        }
+        List<SongEntry> entries = songEntries;
+        SongProperty xProperty = SongProperty.fromPropertyName((String) comboXProperty.getSelectedItem());
+        SongProperty yProperty = SongProperty.fromPropertyName((String) comboYProperty.getSelectedItem());
+        SwingWorker<Density, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Density doInBackground() {
+                return computeDensity(entries, xProperty, yProperty);
+            }
+
+            @Override
+            protected void done() {
+                // Ignore the grid of entries or properties replaced by newer ones.
+                if (binningWorker != this) {
+                    return;
+                }
+                binningWorker = null;
+                try {
+                    Density density = get();
+                    densityGrid = density.grid;
+                    densityImage = density.image;
+                    lastBinningNanos = density.binningNanos;
+                    lastRenderNanos = density.renderNanos;
+                    brushEntries = density.brushEntries;
+                } catch (CancellationException | InterruptedException e) {
+                    // The binning was cancelled; a newer one shows its grid.
+                } catch (ExecutionException e) {
+                    System.err.println("Something went wrong while binning the song entries: " + e.getCause());
+                }
+                densityPlot.repaint();
+            }
+        };
+        binningWorker = worker;
+        worker.execute();
+    }
+
+    /**
+     * Bins song entries and colours an image with one pixel per bin, on the thread of the binning worker.
+     * The song entries are also sorted by both properties, so that a rectangle can be brushed as soon as the
+     * mouse is pressed.
+     */
+    private Density computeDensity(List<SongEntry> entries, SongProperty xProperty, SongProperty yProperty) {
+        long start = System.nanoTime();
+        double[] xRange = getPropertyRange(xProperty);
+        double[] yRange = getPropertyRange(yProperty);
+        DensityGrid grid = new DensityGrid(xProperty, xRange[0], xRange[1], yProperty, yRange[0], yRange[1],
+                GRID_SIZE, GRID_SIZE);
+        grid.addAll(entries);
+        long binningNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BufferedImage image = new BufferedImage(GRID_SIZE, GRID_SIZE, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        double logMaxCount = Math.log1p(grid.getMaxCount());
+        for (int row = 0; row < GRID_SIZE; row++) {
+            // The first row of the grid holds the smallest y values, shown at the bottom
+            int offset = (GRID_SIZE - 1 - row) * GRID_SIZE;
+            for (int column = 0; column < GRID_SIZE; column++) {
+                long count = grid.getCount(column, row);
+                pixels[offset + column] = count == 0 ? BACKGROUND_COLOUR.getRGB() :
+                        PALETTE[Math.max(1, (int) Math.round(Math.log1p(count) / logMaxCount * 255))];
+            }
+        }
+        long renderNanos = System.nanoTime() - start;
+        return new Density(grid, image, binningNanos, renderNanos,
+                RangeBrush.prepare(songCatalog, entries, xProperty, yProperty));
+    }
+
+    /**
+     * @return the grid the plot is drawn from, or null if the first binning is not done yet.
+     */
+    public DensityGrid getDensityGrid() {
+        return densityGrid;
+    }
+
+    /**
+     * @return how long the last binning of the song entries took, in nanoseconds.
+     */
+    public long getLastBinningNanos() {
+        return lastBinningNanos;
+    }
+
+    /**
+     * @return how long the last rendering of the heatmap from the counts took, in nanoseconds.
+     */
+    public long getLastRenderNanos() {
+        return lastRenderNanos;
+    }
+
+    /**
+     * The plot itself: the heatmap, the axes and the timings.
+     */
+    private class DensityPlot extends JComponent {
+
+        private DensityPlot() {
+            MouseAdapter brushing = new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    if (densityGrid == null || brushEntries.getSongEntries().isEmpty()) {
+                        return;
+                    }
+                    brushStart = clamp(e.getPoint());
+                    brushEnd = brushStart;
+                    rangeBrush = new RangeBrush(brushEntries);
+                    brushMoved = false;
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    if (rangeBrush == null) {
+                        return;
+                    }
+                    brushEnd = clamp(e.getPoint());
+                    if (isBrushLongEnough()) {
+                        int plotWidth = getWidth() - LEFT_MARGIN - RIGHT_MARGIN;
+                        int plotHeight = getHeight() - TOP_MARGIN - BOTTOM_MARGIN;
+                        double[] xRange = getPropertyRange(densityGrid.getXProperty());
+                        double[] yRange = getPropertyRange(densityGrid.getYProperty());
+                        // The y axis grows upwards, so the top of the rectangle is its largest value
+                        rangeBrush.setRange(densityGrid.getXProperty(),
+                                getValueAt(xRange, Math.min(brushStart.x, brushEnd.x) - LEFT_MARGIN, plotWidth),
+                                getValueAt(xRange, Math.max(brushStart.x, brushEnd.x) - LEFT_MARGIN, plotWidth));
+                        rangeBrush.setRange(densityGrid.getYProperty(),
+                                getValueAt(yRange, TOP_MARGIN + plotHeight - Math.max(brushStart.y, brushEnd.y),
+                                        plotHeight),
+                                getValueAt(yRange, TOP_MARGIN + plotHeight - Math.min(brushStart.y, brushEnd.y),
+                                        plotHeight));
+                        brushMoved = true;
+                        if (brushListener != null) {
+                            brushListener.brushMoved(rangeBrush);
+                        }
+                    }
+                    repaint();
+                }
+
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    if (rangeBrush == null) {
+                        return;
+                    }
+                    List<SubQuery> brushedSubQueries = isBrushLongEnough() ? rangeBrush.getSubQueries() : List.of();
+                    rangeBrush = null;
+                    repaint();
+                    // A click, or a drag too short to select a rectangle, changed nothing the listener was told about
+                    if (brushMoved && brushListener != null) {
+                        brushListener.brushReleased(brushedSubQueries);
+                    }
+                }
+            };
+            addMouseListener(brushing);
+            addMouseMotionListener(brushing);
+        }
+
+        private Point clamp(Point point) {
+            return new Point(Math.max(LEFT_MARGIN, Math.min(getWidth() - RIGHT_MARGIN, point.x)),
+                    Math.max(TOP_MARGIN, Math.min(getHeight() - BOTTOM_MARGIN, point.y)));
+        }
+
+        private boolean isBrushLongEnough() {
+            return Math.max(Math.abs(brushEnd.x - brushStart.x), Math.abs(brushEnd.y - brushStart.y))
+                    >= HistogramChartPanel.MIN_BRUSH_PIXELS;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setColor(BACKGROUND_COLOUR);
+            g2d.fillRect(0, 0, getWidth(), getHeight());
+            int plotWidth = getWidth() - LEFT_MARGIN - RIGHT_MARGIN;
+            int plotHeight = getHeight() - TOP_MARGIN - BOTTOM_MARGIN;
+            if (plotWidth <= 0 || plotHeight <= 0 || densityGrid == null) {
+                return;
+            }
+            // The axes are those of the image shown, until the grid of newly selected properties is binned
+            SongProperty xProperty = densityGrid.getXProperty();
+            SongProperty yProperty = densityGrid.getYProperty();
+
+            g2d.drawImage(densityImage, LEFT_MARGIN, TOP_MARGIN, plotWidth, plotHeight, null);
+            drawAxes(g2d, xProperty, yProperty, plotWidth, plotHeight);
+            if (rangeBrush != null) {
+                g2d.setColor(BRUSH_COLOUR);
+                g2d.fillRect(Math.min(brushStart.x, brushEnd.x), Math.min(brushStart.y, brushEnd.y),
+                        Math.abs(brushEnd.x - brushStart.x), Math.abs(brushEnd.y - brushStart.y));
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(String.format("Brushed %d of %d rows | updated in %.2f ms",
+                                rangeBrush.getSelectedRowCount(),
+                                densityGrid.getTotalCount() + densityGrid.getOutsideCount(),
+                                rangeBrush.getLastUpdateNanos() / 1e6),
+                        LEFT_MARGIN, TOP_MARGIN - 8);
+            } else {
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(String.format("%d rows in %d x %d bins (%d outside) | %s in %.1f ms, " +
+                                "rendered in %.1f ms", densityGrid.getTotalCount(), densityGrid.getColumns(),
+                        densityGrid.getRows(), densityGrid.getOutsideCount(),
+                        binningWorker == null ? "binned" : "binning again; last binned", lastBinningNanos / 1e6,
+                        lastRenderNanos / 1e6), LEFT_MARGIN, TOP_MARGIN - 8);
+            }
+        }
+
+        /**
+         * Draws a frame around the plot, the smallest and largest value of each axis and their names.
+         */
+        private void drawAxes(Graphics2D g2d, SongProperty xProperty, SongProperty yProperty, int plotWidth,
+                              int plotHeight) {
+            double[] xRange = getPropertyRange(xProperty);
+            double[] yRange = getPropertyRange(yProperty);
+            FontMetrics fontMetrics = g2d.getFontMetrics();
+            int bottom = TOP_MARGIN + plotHeight;
+            int right = LEFT_MARGIN + plotWidth;
+            g2d.setColor(Color.BLACK);
+            g2d.drawRect(LEFT_MARGIN, TOP_MARGIN, plotWidth, plotHeight);
+
+            String minX = formatValue(xRange[0]);
+            String maxX = formatValue(xRange[1]);
+            g2d.drawString(minX, LEFT_MARGIN, bottom + fontMetrics.getAscent() + 2);
+            g2d.drawString(maxX, right - fontMetrics.stringWidth(maxX), bottom + fontMetrics.getAscent() + 2);
+            String xName = xProperty.toString();
+            g2d.drawString(xName, LEFT_MARGIN + (plotWidth - fontMetrics.stringWidth(xName)) / 2,
+                    bottom + 2 * fontMetrics.getHeight());
+
+            String minY = formatValue(yRange[0]);
+            String maxY = formatValue(yRange[1]);
+            g2d.drawString(minY, LEFT_MARGIN - fontMetrics.stringWidth(minY) - 4, bottom);
+            g2d.drawString(maxY, LEFT_MARGIN - fontMetrics.stringWidth(maxY) - 4,
+                    TOP_MARGIN + fontMetrics.getAscent());
+            // The name of the y axis is written upwards along it
+            String yName = yProperty.toString();
+            Graphics2D rotated = (Graphics2D) g2d.create();
+            rotated.translate(LEFT_MARGIN - 8, TOP_MARGIN + (plotHeight + fontMetrics.stringWidth(yName)) / 2);
+            rotated.rotate(-Math.PI / 2);
+            rotated.drawString(yName, 0, 0);
+            rotated.dispose();
+        }
+    }
+
+    /**
+     * Returns the smallest and largest value of a property in the catalog, from its zone map.
+     */
+    private double[] getPropertyRange(SongProperty songProperty) {
+        ZoneMap zoneMap = songCatalog.getZoneMap();
+        double min = zoneMap.getMinimum(songProperty);
+        double max = zoneMap.getMaximum(songProperty);
+        // An empty catalog gets a unit range, so that an (empty) grid can still be drawn
+        return min <= max ? new double[]{min, max} : new double[]{0, 1};
+    }
+
+    /**
+     * Returns the value of a range at a distance, in pixels, from the start of an axis of a length.
+     */
+    private static double getValueAt(double[] range, int offset, int length) {
+        return range[0] + (double) offset / length * (range[1] - range[0]);
+    }
+
+    private static String formatValue(double value) {
+        return Math.abs(value) >= 1000 ? String.format("%.0f", value) : String.format("%.2f", value);
+    }
+
+    /**
+     * Creates 256 colours going from the first to the second colour, then from the second to the third.
+     */
+    private static int[] createPalette(Color low, Color middle, Color high) {
+        int[] palette = new int[256];
+        for (int index = 0; index < palette.length; index++) {
+            double t = index / 255d;
+            Color from = t < 0.5 ? low : middle;
+            Color to = t < 0.5 ? middle : high;
+            double u = t < 0.5 ? t * 2 : (t - 0.5) * 2;
+            palette[index] = new Color(
+                    (int) Math.round(from.getRed() + u * (to.getRed() - from.getRed())),
+                    (int) Math.round(from.getGreen() + u * (to.getGreen() - from.getGreen())),
+                    (int) Math.round(from.getBlue() + u * (to.getBlue() - from.getBlue()))).getRGB();
+        }
+        return palette;
+    }
+}
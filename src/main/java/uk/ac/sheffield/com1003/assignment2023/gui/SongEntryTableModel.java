@@ -0,0 +1,123 @@
+package uk.ac.sheffield.com1003.assignment2023.gui;
+
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * A table model reading its cells straight from a list of song entries, e.g. the filtered song entries of
+ * the dashboard. Nothing is copied or formatted in advance: a {@link javax.swing.JTable} only asks for the
+ * cells of the rows it shows, so a list of millions of entries costs no more than a short one, apart from
+ * the one int per row of a sorted order.
+ * <p>
+ * The columns are the artist, album and song name, then every {@link SongProperty}. The rows are shown in
+ * the order of the list, or in a view order computed by {@link #computeViewOrder}, which sorts properties
+ * with the {@link uk.ac.sheffield.com1003.assignment2023.PropertySortIndex} of the catalog.
+ */
+public class SongEntryTableModel extends AbstractTableModel {
+
+    private static final SongDetail[] DETAIL_COLUMNS = {SongDetail.ARTIST, SongDetail.ALBUM_NAME, SongDetail.NAME};
+    private static final String[] DETAIL_COLUMN_NAMES = {"Artist", "Album", "Song"};
+
+    private List<SongEntry> songEntries = List.of();
+    // Index in songEntries of the entry shown in every row, or null to show them in list order
+    private int[] viewOrder;
+
+    /**
+     * Shows song entries.
+     *
+     * @param songEntries the song entries.
+     * @param viewOrder the index in the list of the entry to show in every row, or null for list order.
+     * @throws IllegalArgumentException if the view order does not have one index per song entry.
+     */
+    public void setSongEntries(List<SongEntry> songEntries, int[] viewOrder) throws IllegalArgumentException {
+        if (viewOrder != null && viewOrder.length != songEntries.size()) {
+            throw new IllegalArgumentException("The view order has " + viewOrder.length + " rows instead of " +
+                    songEntries.size() + ".");
+        }
+        this.songEntries = songEntries;
+        this.viewOrder = viewOrder;
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return the song entries shown, in list order.
+     */
+    public List<SongEntry> getSongEntries() {
+        return songEntries;
+    }
+
+    /**
+     * Returns the song entry shown in a row.
+     *
+     * @param row the row.
+     * @return its song entry.
+     * @throws IndexOutOfBoundsException if there is no such row.
+     */
+    public SongEntry getSongEntry(int row) throws IndexOutOfBoundsException {
+        return songEntries.get(viewOrder == null ? row : viewOrder[row]);
+    }
+
+    @Override
+    public int getRowCount() {
+        return songEntries.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return DETAIL_COLUMNS.length + SongProperty.values().length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        SongProperty songProperty = getColumnProperty(column);
+        return songProperty == null ? DETAIL_COLUMN_NAMES[column] : songProperty.getName();
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return getColumnProperty(column) == null ? String.class : Double.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        SongEntry songEntry = getSongEntry(row);
+        SongProperty songProperty = getColumnProperty(column);
+        return songProperty == null ? songEntry.getSongDetail(DETAIL_COLUMNS[column]) :
+                songEntry.getSongProperty(songProperty);
+    }
+
+    /**
+     * Returns the property shown in a column.
+     *
+     * @param column the column.
+     * @return its property, or null for the artist, album and song columns.
+     */
+    public static SongProperty getColumnProperty(int column) {
+        return column < DETAIL_COLUMNS.length ? null : SongProperty.values()[column - DETAIL_COLUMNS.length];
+    }
+
+    /**
+     * Computes the order of the rows sorting song entries by a column. Property columns are sorted with the
+     * property's sort index and name columns with the name's sort index (ignoring case), both in time linear
+     * in the number of entries. Entries with equal values keep their order in the list.
+     *
+     * @param songCatalog the catalog of the song entries.
+     * @param songEntries the song entries to sort.
+     * @param column the column to sort by.
+     * @param ascending whether smaller values come first.
+     * @return the index in the list of the entry to show in every row.
+     */
+    public static int[] computeViewOrder(SongCatalog songCatalog, List<SongEntry> songEntries, int column,
+                                         boolean ascending) {
+        SongProperty songProperty = getColumnProperty(column);
+        if (songProperty != null) {
+            return songCatalog.getPropertySortIndex(songProperty).sort(songEntries, ascending);
+        }
+        return songCatalog.getDetailSortIndex(DETAIL_COLUMNS[column]).sort(songEntries, ascending);
+    }
+}
@@ -1,15 +1,34 @@
 package uk.ac.sheffield.com1003.assignment2023.gui;
 
+import uk.ac.sheffield.com1003.assignment2023.AutocompleteIndex;
+import uk.ac.sheffield.com1003.assignment2023.DistanceMetric;
+import uk.ac.sheffield.com1003.assignment2023.DistinctCounter;
+import uk.ac.sheffield.com1003.assignment2023.FacetIndex;
+import uk.ac.sheffield.com1003.assignment2023.FilterStack;
+import uk.ac.sheffield.com1003.assignment2023.FuzzyMatch;
+import uk.ac.sheffield.com1003.assignment2023.LoadMode;
+import uk.ac.sheffield.com1003.assignment2023.ProgressiveStatistics;
+import uk.ac.sheffield.com1003.assignment2023.RangeBrush;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.SongNeighbour;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.*;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.gui.AbstractSpotifyDashboardPanel;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.gui.CustomChartAxisValues;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
 
 /**
  * This class defines the main panel of a Spotify-like dashboard, managing song entries
@@ -18,89 +37,647 @@ import java.util.List;
  */
 public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
 
+    // Number of neighbours listed by the "Find Similar Songs" button
+    private static final int SIMILAR_SONGS_COUNT = 10;
+
+    // Number of names offered when a typed artist, album or song name matches none
+    private static final int SUGGESTED_NAMES_COUNT = 10;
+
+    // Number of names listed by the artist, album and song selectors while typing
+    private static final int TYPE_AHEAD_NAMES_COUNT = 20;
+
+    // Number of song entries to filter from which a query first shows statistics estimated from a sample,
+    // the size of the first sample, and the fraction of the entries sampled before the exact results are
+    // computed; see executeQuery
+    private static final int PROGRESSIVE_THRESHOLD = 1 << 18;
+    private static final int FIRST_SAMPLE_SIZE = 1 << 12;
+    private static final int MAX_SAMPLED_FRACTION = 8;
+
+    // Stages of an update of the GUI, in order; see getUpdateScheduler
+    private static final String COMBO_BOXES_STAGE = "combo boxes";
+    private static final String QUERY_STAGE = "query";
+    private static final String CHART_STAGE = "chart";
+
     private boolean updatingComboBoxes = false;
 
+    // Controls added to the query panel of the parent by addQueryControls: buttonFindSimilar shows the songs
+    // closest to the selected song, using the distance selected in comboDistanceMetrics; comboAppliedFilters
+    // lists the filters, buttonRemoveFilter and buttonMoveFilterUp remove or move the selected one, and
+    // buttonUndoFilters undoes the last change to the filters
+    private final JButton buttonFindSimilar = new JButton("Find Similar Songs");
+    private final JComboBox<DistanceMetric> comboDistanceMetrics = new JComboBox<>(DistanceMetric.values());
+    private final JComboBox<SubQuery> comboAppliedFilters = new JComboBox<>();
+    private final JButton buttonRemoveFilter = new JButton("Remove Filter");
+    private final JButton buttonMoveFilterUp = new JButton("Move Filter Up");
+    private final JButton buttonUndoFilters = new JButton("Undo Filter Change");
+
+    // Song entries matching the selected names, before the filters by property, and those names; the list is
+    // kept while the names do not change, so that the filter stack keeps its cached results; see populateComboBoxes
+    private List<SongEntry> selectedSongEntriesList;
+    private List<String> selectedNames;
+
+    // Filters by property with their cached intermediate results, created on first use by getFilterStack
+    private FilterStack filterStack;
+
+    private DistinctCounter distinctCounter;
+
+    // Background lookup of the names offered by the combo boxes, while it is running; see populateNameComboBoxes
+    private SwingWorker<Map<SongDetail, AutocompleteIndex>, Void> comboBoxWorker;
+
+    // Background computation of the results of the latest query, while it is running; see executeQuery
+    private SwingWorker<QueryResults, QueryEstimate> queryWorker;
+
+    // Coalesces the updates requested by GUI events, created on first use by getUpdateScheduler
+    private UpdateScheduler updateScheduler;
+
+    // Column the song entries table is sorted by (-1 for the order of the results) and its direction, and
+    // the background sort of the current results after a click on a column header, while it is running
+    private int sortColumn = -1;
+    private boolean sortAscending;
+    private SwingWorker<int[], Void> sortWorker;
+
+    /**
+     * The results of a query, computed off the event dispatch thread and then shown in the GUI at once.
+     */
+    private static class QueryResults {
+
+        // The song entries matching the filters
+        private final List<SongEntry> songEntries;
+        // Order of the rows of the song entries table (null for list order), and the column it sorts by
+        private final int[] viewOrder;
+        private final int sortColumn;
+        private final boolean sortAscending;
+        // Number of rows of the song file the song entries stand for
+        private final long rowCount;
+        private final String statisticsText;
+        // Minimum, maximum and average of every property, or null if there are no song entries
+        private final Map<SongProperty, CustomChartAxisValues> axesValues;
+        // Average of every property by cluster, empty unless the clusters are plotted
+        private final Map<Integer, Map<SongProperty, Double>> clusterAverages;
+        // Counts of the histogram tab
+        private final HistogramChartPanel.HistogramUpdate histogramUpdate;
+        // Time taken by every step of the computation, by name
+        private final Map<String, Long> timings;
+
+        private QueryResults(FilterStack.Result filterResult, int[] viewOrder, int sortColumn, boolean sortAscending,
+                             long rowCount, String statisticsText, Map<SongProperty, CustomChartAxisValues> axesValues,
+                             Map<Integer, Map<SongProperty, Double>> clusterAverages,
+                             HistogramChartPanel.HistogramUpdate histogramUpdate, Map<String, Long> timings) {
+            this.songEntries = filterResult.getSongEntries();
+            this.viewOrder = viewOrder;
+            this.sortColumn = sortColumn;
+            this.sortAscending = sortAscending;
+            this.rowCount = rowCount;
+            this.statisticsText = statisticsText;
+            this.axesValues = axesValues;
+            this.clusterAverages = clusterAverages;
+            this.histogramUpdate = histogramUpdate;
+            this.timings = timings;
+        }
+    }
+
+    /**
+     * Statistics of a query estimated from a sample of the song entries, shown while the exact results are
+     * computed.
+     */
+    private static class QueryEstimate {
+
+        // Matching song entries of the sample, for the custom chart, and their estimated axis values
+        private final List<SongEntry> sampleEntries;
+        private final Map<SongProperty, CustomChartAxisValues> axesValues;
+        private final String statisticsText;
+        private final String statusText;
+
+        private QueryEstimate(List<SongEntry> sampleEntries, Map<SongProperty, CustomChartAxisValues> axesValues,
+                              String statisticsText, String statusText) {
+            this.sampleEntries = sampleEntries;
+            this.axesValues = axesValues;
+            this.statisticsText = statisticsText;
+            this.statusText = statusText;
+        }
+    }
+
     /**
      * Constructor for SpotifyDashboardPanel.
      * @param songCatalog The song catalog that this panel will use to fetch and filter songs.
      */
-    public SpotifyDashboardPanel(AbstractSongCatalog songCatalog) {
+    public SpotifyDashboardPanel(SongCatalog songCatalog) {
+        this(songCatalog, new DistinctCounter());
+    }
+
+    /**
+     * Constructor for SpotifyDashboardPanel.
+     * @param songCatalog The song catalog that this panel will use to fetch and filter songs.
+     * @param distinctCounter The counter used to report unique songs and artists in the statistics area.
+     */
+    public SpotifyDashboardPanel(SongCatalog songCatalog, DistinctCounter distinctCounter) {
         super(songCatalog);
+        this.distinctCounter = distinctCounter;
+        // The parent constructor adds the listeners before the controls of this class exist.
+        addQueryControls();
         clearFilters();
+
+        // Ranges dragged over the histogram or the scatter plot are shown live, then become filters.
+        BrushListener brushListener = new BrushListener() {
+            @Override
+            public void brushMoved(RangeBrush rangeBrush) {
+                showBrushedStatistics(rangeBrush);
+            }
+
+            @Override
+            public void brushReleased(List<SubQuery> subQueries) {
+                applyBrushedFilters(subQueries);
+            }
+        };
+        histogramChartPanel.setBrushListener(brushListener);
+        scatterChartPanel.setBrushListener(brushListener);
     }
 
     /**
-     * Determines whether a SongEntry should be removed based on a list of SubQuery conditions.
-     * Each SubQuery specifies a song property, a comparison operator, and a value. If any SubQuery condition
-     * dictates that the SongEntry does not meet the criteria, the song should be removed.
-     *
-     * @param songEntry The SongEntry to evaluate against the provided subqueries.
-     * @param subQueryList A list of SubQuery objects that define the removal criteria.
-     * @return true if the SongEntry does not meet the criteria of all SubQueries; false otherwise.
-     */
-    private boolean shouldRemoveSong(SongEntry songEntry, List<SubQuery> subQueryList) {
-        for (SubQuery subQuery : subQueryList) {
-            double songPropertyValue = songEntry.getSongProperty(subQuery.getSongProperty());
-            double subQueryValue = subQuery.getValue();
-            switch (subQuery.getOperator()) {
-                case ">":
-                    if (songPropertyValue <= subQueryValue) return true;
-                    break;
-                case ">=":
-                    if (songPropertyValue < subQueryValue) return true;
-                    break;
-                case "==":
-                    if (songPropertyValue != subQueryValue) return true;
-                    break;
-                case "!=":
-                    if (songPropertyValue == subQueryValue) return true;
-                    break;
-                case "<":
-                    if (songPropertyValue >= subQueryValue) return true;
-                    break;
-                case "<=":
-                    if (songPropertyValue > subQueryValue) return true;
-                    break;
-            }
-        }
-        return false; // No condition met to remove the song
+     * Adds the controls of this class to the query panel laid out by the parent: the distance and the
+     * "Find Similar Songs" button after the name selectors, and the applied filters with their buttons in
+     * place of the label of the list of filters, on the third row. Then registers their listeners.
+     */
+    private void addQueryControls() {
+        JPanel queryPanel = (JPanel) ((BorderLayout) getLayout()).getLayoutComponent(BorderLayout.NORTH);
+        JPanel typeSelectorPanel = (JPanel) queryPanel.getComponent(0);
+        typeSelectorPanel.add(comboDistanceMetrics);
+        typeSelectorPanel.add(buttonFindSimilar);
+
+        int row = queryPanel.getComponentZOrder(subQueryListLabel);
+        queryPanel.remove(row);
+        JPanel appliedFiltersPanel = new JPanel();
+        appliedFiltersPanel.setLayout(new FlowLayout());
+        comboAppliedFilters.setPreferredSize(new Dimension(250, 30));
+        appliedFiltersPanel.add(subQueryListLabel);
+        appliedFiltersPanel.add(comboAppliedFilters);
+        appliedFiltersPanel.add(buttonRemoveFilter);
+        appliedFiltersPanel.add(buttonMoveFilterUp);
+        appliedFiltersPanel.add(buttonUndoFilters);
+        queryPanel.add(appliedFiltersPanel, row);
+
+        // Remove or move the filter selected in the list of filters, or undo the last change to the filters.
+        buttonRemoveFilter.addActionListener(e -> removeSelectedFilter());
+        buttonMoveFilterUp.addActionListener(e -> moveSelectedFilterUp());
+        buttonUndoFilters.addActionListener(e -> undoFilterChange());
+
+        // List the songs most similar to the selected song when the "Find Similar Songs" button is clicked.
+        buttonFindSimilar.addActionListener(e -> findSimilarSongs());
+    }
+
+    /**
+     * The song catalog of this panel, with the indexes of {@link SongCatalog} that the dashboard uses.
+     */
+    private SongCatalog getCatalog() {
+        return (SongCatalog) songCatalog;
     }
 
     /**
      * Executes a query on the song catalog using predefined sub-query conditions.
-     * This method filters out songs that do not meet the criteria specified in {@code subQueryList}.
-     * If the list of sub-queries is empty, no action is taken.
+     * This method keeps the songs matching the selected names that meet every condition of the
+     * {@link FilterStack} (mirrored in {@code subQueryList}).
      * <p>
-     * This process involves:
+     * The query runs on a background thread so that the window stays responsive while large catalogs are
+     * scanned:
      * <ul>
-     *     <li>Checking each song against the conditions specified in the sub-query list.</li>
-     *     <li>Updating the GUI components to reflect the results of the query.</li>
-     *     <li>Refreshing the display of filtered songs, statistics, and custom charts based on the updated song list.</li>
+     *     <li>Any query still running is cancelled, as its results are stale.</li>
+     *     <li>The filters are applied, reusing the cached result of the longest unchanged prefix of them.</li>
+     *     <li>The song entries are sorted by the column selected in the table, and the statistics and the
+     *     axis values of the custom chart are computed.</li>
+     *     <li>Back on the event dispatch thread, the GUI components are updated with these results.</li>
      * </ul>
-     * The filtered songs are then displayed in the GUI, and relevant statistics and chart updates are triggered.
+     * Until then, the GUI keeps showing the results of the previous query, under a wait cursor.
+     * <p>
+     * When there are at least {@link #PROGRESSIVE_THRESHOLD} song entries to filter, the statistics and the
+     * custom chart are first estimated from a sample of {@link #FIRST_SAMPLE_SIZE} of them, shown at once
+     * as approximate with their confidence intervals, then refined with samples twice as large, until an
+     * eighth of the entries is sampled (see {@link ProgressiveStatistics}). The samples are drawn on a thread
+     * of the common pool while the worker applies the filters, so they never delay the exact results, and
+     * sampling stops as soon as the filters are applied, e.g. at once when their result is cached.
      */
     @Override
     public void executeQuery() {
-        // If there are no sub-queries defined, exit the method early as there's nothing to filter.
-        if (subQueryList.isEmpty()) {
-            return;
+        if (queryWorker != null) {
+            queryWorker.cancel(true);
+        }
+        if (sortWorker != null) {
+            sortWorker.cancel(true);
+            sortWorker = null;
         }
+        FilterStack filters = getFilterStack();
+        filters.setBaseEntries(selectedSongEntriesList);
+        int column = sortColumn;
+        boolean ascending = sortAscending;
+        boolean clustersSelected = isClustersCheckBoxSelected();
+        SongProperty histogramProperty = histogramChartPanel.getSelectedProperty();
+        HistogramChartPanel.HistogramUpdate shownHistogram = histogramChartPanel.getShownUpdate();
+
+        List<SongEntry> baseEntries = selectedSongEntriesList;
+        List<SubQuery> subQueries = filters.getSubQueries();
+
+        SwingWorker<QueryResults, QueryEstimate> worker = new SwingWorker<>() {
+            @Override
+            protected QueryResults doInBackground() {
+                Map<String, Long> timings = new LinkedHashMap<>();
+                long start = System.nanoTime();
+                AtomicBoolean filtered = new AtomicBoolean();
+                CompletableFuture<Long> sampling = null;
+                if (baseEntries.size() >= PROGRESSIVE_THRESHOLD) {
+                    // Show estimates from growing samples while the song entries are filtered.
+                    long queryStart = start;
+                    sampling = CompletableFuture.supplyAsync(() -> {
+                        ProgressiveStatistics statistics = new ProgressiveStatistics(baseEntries, subQueries,
+                                subQueries.hashCode());
+                        int sampleSize = FIRST_SAMPLE_SIZE;
+                        while (statistics.getSampledCount() < baseEntries.size() / MAX_SAMPLED_FRACTION
+                                && !filtered.get() && !isCancelled()) {
+                            statistics.sampleMore(sampleSize - statistics.getSampledCount());
+                            if (!filtered.get()) {
+                                publish(estimate(statistics, System.nanoTime() - queryStart));
+                            }
+                            sampleSize *= 2;
+                        }
+                        return System.nanoTime() - queryStart;
+                    });
+                }
+                // Filter the songs matching the selected names, reusing the cached results of unchanged filters.
+                FilterStack.Result filterResult;
+                try {
+                    filterResult = filters.computeResult();
+                } finally {
+                    filtered.set(true);
+                }
+                List<SongEntry> songEntries = filterResult.getSongEntries();
+                timings.put("filters", System.nanoTime() - start);
+                // The time of the samples is known if they were all drawn, or stopped, by now.
+                if (sampling != null && sampling.isDone() && !sampling.isCompletedExceptionally()) {
+                    timings.put("samples", sampling.join());
+                }
+                if (isCancelled()) {
+                    return null;
+                }
+
+                start = System.nanoTime();
+                int[] viewOrder = column < 0 ? null :
+                        SongEntryTableModel.computeViewOrder(getCatalog(), songEntries, column, ascending);
+                timings.put("sort", System.nanoTime() - start);
+                if (isCancelled()) {
+                    return null;
+                }
+
+                start = System.nanoTime();
+                Map<SongProperty, CustomChartAxisValues> axesValues = songEntries.isEmpty() ? null :
+                        CustomChart.computeAxesValues(songCatalog, songEntries);
+                String statisticsText = getStatisticsText(songEntries, axesValues);
+                timings.put("statistics", System.nanoTime() - start);
+
+                // The clusters are only averaged while they are plotted, as the catalog may need clustering.
+                Map<Integer, Map<SongProperty, Double>> clusterAverages = Map.of();
+                if (clustersSelected && !isCancelled()) {
+                    start = System.nanoTime();
+                    clusterAverages = CustomChart.computeClusterAverages(getCatalog(), songEntries);
+                    timings.put("clusters", System.nanoTime() - start);
+                }
+                if (isCancelled()) {
+                    return null;
+                }
+
+                // The histogram subtracts the removed entries from the shown counts if the filters were narrowed.
+                start = System.nanoTime();
+                HistogramChartPanel.HistogramUpdate histogramUpdate = HistogramChartPanel.computeHistogram(
+                        getCatalog(), histogramProperty, shownHistogram, filterResult);
+                timings.put("histogram", System.nanoTime() - start);
+                return new QueryResults(filterResult, viewOrder, column, ascending,
+                        songCatalog.getRowCount(songEntries), statisticsText, axesValues, clusterAverages,
+                        histogramUpdate, timings);
+            }
 
-        // Create a new list from the currently filtered songs to work with during filtering.
-        List<SongEntry> newFilteredSongEntriesList = new ArrayList<>(filteredSongEntriesList);
+            @Override
+            protected void process(List<QueryEstimate> estimates) {
+                if (queryWorker == this) {
+                    showEstimate(estimates.get(estimates.size() - 1));
+                }
+            }
 
-        // Use the removeIf method combined with the shouldRemoveSong method to filter the list.
-        // This will remove any song that should be removed based on the sub-query conditions.
-        newFilteredSongEntriesList.removeIf(songEntry -> shouldRemoveSong(songEntry, subQueryList));
+            @Override
+            protected void done() {
+                // Ignore the results of a query replaced by a newer one.
+                if (queryWorker != this) {
+                    return;
+                }
+                queryWorker = null;
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    showResults(get());
+                } catch (CancellationException | InterruptedException e) {
+                    // The query was cancelled; a newer one shows its results.
+                } catch (ExecutionException e) {
+                    System.err.println("Something went wrong while executing the query: " + e.getCause());
+                }
+            }
+        };
+        queryWorker = worker;
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        worker.execute();
+    }
 
-        // Update the main list of filtered songs with the newly filtered list.
-        filteredSongEntriesList = newFilteredSongEntriesList;
+    /**
+     * Summarises the statistics estimated from a sample for the statistics area and the status bar. It only
+     * reads the sample, so it runs on the thread of the query.
+     *
+     * @param statistics the statistics of the sample.
+     * @param elapsedNanos how long the query has been running.
+     * @return the estimate to show.
+     */
+    private QueryEstimate estimate(ProgressiveStatistics statistics, long elapsedNanos) {
+        StringBuilder text = new StringBuilder(String.format("APPROXIMATE: sample of %d of %d entries " +
+                        "(%.1f%%), with 95%% confidence intervals\n", statistics.getSampledCount(),
+                statistics.getPopulationSize(), 100.0 * statistics.getSampledCount() / statistics.getPopulationSize()));
+        text.append(String.format("Songs: ~%.0f +/- %.0f\n", statistics.getEstimatedRowCount(),
+                statistics.getRowCountMargin()));
+        Map<SongProperty, CustomChartAxisValues> axesValues = null;
+        if (!statistics.getMatchingEntries().isEmpty()) {
+            axesValues = new EnumMap<>(SongProperty.class);
+            for (SongProperty songProperty : SongProperty.values()) {
+                axesValues.put(songProperty, new CustomChartAxisValues(statistics.getSampledMinimum(songProperty),
+                        statistics.getSampledMaximum(songProperty), statistics.getEstimatedAverage(songProperty)));
+            }
+            // The bounds of the sample are within the exact ones; the means come with their intervals.
+            appendStatistics("Minimum:", axesValues, CustomChartAxisValues::getMin, text);
+            appendStatistics("Maximum:", axesValues, CustomChartAxisValues::getMax, text);
+            text.append(String.format("%-8s", "Mean:"));
+            for (SongProperty songProperty : SongProperty.values()) {
+                text.append(String.format(" | %-16s: %9.2f +/- %.2f", songProperty.getName(),
+                        statistics.getEstimatedAverage(songProperty), statistics.getAverageMargin(songProperty)));
+            }
+            text.append(" |\n");
+        }
+        String statusText = String.format("Approximate results from %d of %d entries after %.1f ms; " +
+                        "computing the exact results...", statistics.getSampledCount(),
+                statistics.getPopulationSize(), elapsedNanos / 1e6);
+        return new QueryEstimate(new ArrayList<>(statistics.getMatchingEntries()), axesValues, text.toString(),
+                statusText);
+    }
 
-        // Update the GUI components to reflect the new set of filtered songs.
-        populateFilteredSongEntriesTextArea();  // Update the text area that displays the song entries.
-        updateStatistics();                     // Recalculate and display statistics based on the filtered songs.
-        customChart.updateCustomChartContents(filteredSongEntriesList);  // Update the custom chart with new song data.
-        repaint();                             // Request a repaint of the panel to reflect any visual updates.
+    /**
+     * Shows statistics estimated from a sample, and the custom chart of the sample, until the exact
+     * results of the query are shown.
+     *
+     * @param estimate the estimate computed by {@link #estimate}.
+     */
+    private void showEstimate(QueryEstimate estimate) {
+        statisticsTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        statisticsTextArea.setText(estimate.statisticsText);
+        if (estimate.axesValues != null && customChart instanceof CustomChart chart) {
+            chart.updateCustomChartContents(estimate.sampleEntries, estimate.axesValues);
+            repaint();
+        }
+        statusLabel.setText(estimate.statusText);
+    }
+
+    /**
+     * Shows the results of a query: the song entries, the statistics and the charts.
+     *
+     * @param results the results computed by {@link #executeQuery()}.
+     */
+    private void showResults(QueryResults results) {
+        long start = System.nanoTime();
+        filteredSongEntriesList = results.songEntries;
+
+        // Update the GUI components to reflect the new set of filtered songs; the table reads them directly.
+        filteredSongEntriesTableModel.setSongEntries(filteredSongEntriesList, results.viewOrder);
+        showSongEntriesCount(results.rowCount);
+        statisticsTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        statisticsTextArea.setText(results.statisticsText);
+        if (results.axesValues == null) {
+            System.err.println("Song entries list is empty!");
+            customChart.updateCustomChartContents(filteredSongEntriesList);
+        } else if (customChart instanceof CustomChart chart) {
+            chart.updateCustomChartContents(filteredSongEntriesList, results.axesValues, results.clusterAverages);
+        } else {
+            customChart.updateCustomChartContents(filteredSongEntriesList);
+        }
+        scatterChartPanel.setSongEntries(filteredSongEntriesList);
+        histogramChartPanel.setUpdate(results.histogramUpdate);
+        repaint();  // Request a repaint of the panel to reflect any visual updates.
+
+        // Report how long every stage of the update took.
+        UpdateScheduler scheduler = getUpdateScheduler();
+        results.timings.forEach(scheduler::recordTiming);
+        scheduler.recordTiming("display", System.nanoTime() - start);
+        statusLabel.setText(String.format("Last update (%d requests): %s", scheduler.getLastRequestCount(),
+                scheduler.describeTimings()));
+
+        // The sort column may have changed while the query was running.
+        if (results.sortColumn != sortColumn || results.sortAscending != sortAscending) {
+            sortSongEntries();
+        }
+    }
+
+    /**
+     * Shows how many song entries the table lists (and how many rows of the song file they stand for if
+     * duplicates were collapsed).
+     *
+     * @param rowCount the number of rows of the song file the song entries stand for.
+     */
+    private void showSongEntriesCount(long rowCount) {
+        String count = "[Showing " + filteredSongEntriesList.size() + " entries]";
+        if (getCatalog().getLoadMode() == LoadMode.COLLAPSE_DUPLICATES) {
+            count += " [representing " + rowCount + " rows of the song file]";
+        }
+        songEntriesCountLabel.setText(count);
+    }
+
+    /**
+     * Sorts the song entries table by a column, following a click on its header: a first click sorts by
+     * increasing values, a second one by decreasing values, and a third one restores the order of the
+     * results.
+     *
+     * @param column the column of the table model.
+     */
+    private void toggleSortColumn(int column) {
+        if (column != sortColumn) {
+            sortColumn = column;
+            sortAscending = true;
+        } else if (sortAscending) {
+            sortAscending = false;
+        } else {
+            sortColumn = -1;
+        }
+        // Mark the sorted column in its header.
+        for (int modelColumn = 0; modelColumn < filteredSongEntriesTableModel.getColumnCount(); modelColumn++) {
+            String name = filteredSongEntriesTableModel.getColumnName(modelColumn);
+            if (modelColumn == sortColumn) {
+                name += sortAscending ? " \u25b2" : " \u25bc";
+            }
+            int viewColumn = filteredSongEntriesTable.convertColumnIndexToView(modelColumn);
+            filteredSongEntriesTable.getColumnModel().getColumn(viewColumn).setHeaderValue(name);
+        }
+        filteredSongEntriesTable.getTableHeader().repaint();
+
+        // A running query sorts its results when it finishes.
+        if (queryWorker == null) {
+            sortSongEntries();
+        }
+    }
+
+    /**
+     * Sorts the current song entries by the sort column on a background thread, then shows them in that
+     * order. A sort still running is cancelled.
+     */
+    private void sortSongEntries() {
+        if (sortWorker != null) {
+            sortWorker.cancel(true);
+        }
+        List<SongEntry> songEntries = filteredSongEntriesList;
+        int column = sortColumn;
+        boolean ascending = sortAscending;
+        SwingWorker<int[], Void> worker = new SwingWorker<>() {
+            @Override
+            protected int[] doInBackground() {
+                return column < 0 ? null :
+                        SongEntryTableModel.computeViewOrder(getCatalog(), songEntries, column, ascending);
+            }
+
+            @Override
+            protected void done() {
+                if (sortWorker != this) {
+                    return;
+                }
+                sortWorker = null;
+                try {
+                    filteredSongEntriesTableModel.setSongEntries(songEntries, get());
+                } catch (CancellationException | InterruptedException e) {
+                    // The sort was cancelled; a newer query or sort shows the song entries.
+                } catch (ExecutionException e) {
+                    System.err.println("Something went wrong while sorting the song entries: " + e.getCause());
+                }
+            }
+        };
+        sortWorker = worker;
+        worker.execute();
+    }
+
+    /**
+     * Returns the scheduler of the updates of the GUI, creating it on first use (the parent constructor
+     * adds the listeners before the fields of this class are initialised). Its stages populate the combo
+     * boxes, execute the query, and repaint the custom chart; events mark the first stage they affect.
+     *
+     * @return the update scheduler of this panel.
+     */
+    private UpdateScheduler getUpdateScheduler() {
+        if (updateScheduler == null) {
+            updateScheduler = new UpdateScheduler();
+            updateScheduler.addStage(COMBO_BOXES_STAGE, this::populateComboBoxes);
+            updateScheduler.addStage(QUERY_STAGE, this::executeQuery);
+            updateScheduler.addStage(CHART_STAGE, this::repaint);
+        }
+        return updateScheduler;
+    }
+
+    /**
+     * Returns the stack of filters by property, creating it on first use (the parent constructor
+     * populates the combo boxes before the fields of this class are initialised).
+     *
+     * @return the filter stack of this panel.
+     */
+    private FilterStack getFilterStack() {
+        if (filterStack == null) {
+            filterStack = new FilterStack(selectedSongEntriesList == null ? filteredSongEntriesList :
+                    selectedSongEntriesList);
+        }
+        return filterStack;
+    }
+
+    /**
+     * Shows the current filters by property in {@code subQueriesTextArea} and in {@code comboAppliedFilters},
+     * and copies them to {@code subQueryList}.
+     */
+    private void showFilters() {
+        subQueryList.clear();
+        subQueryList.addAll(getFilterStack().getSubQueries());
+
+        // Clear the text area to avoid confusion as it's editable, and then repopulate with the updated filter list.
+        subQueriesTextArea.setText("");
+        subQueryList.forEach(subQuery -> subQueriesTextArea.append(subQuery.toString() + "; "));
+
+        DefaultComboBoxModel<SubQuery> model = new DefaultComboBoxModel<>();
+        model.addAll(subQueryList);
+        comboAppliedFilters.setModel(model);
+        buttonUndoFilters.setEnabled(getFilterStack().canUndo());
+    }
+
+    /**
+     * Removes the filter selected in {@code comboAppliedFilters} and shows the songs meeting the others.
+     */
+    private void removeSelectedFilter() {
+        int index = comboAppliedFilters.getSelectedIndex();
+        if (index >= 0) {
+            getFilterStack().remove(index);
+            showFilters();
+            getUpdateScheduler().markDirty(QUERY_STAGE);
+        }
+    }
+
+    /**
+     * Moves the filter selected in {@code comboAppliedFilters} one place earlier, keeping it selected.
+     */
+    private void moveSelectedFilterUp() {
+        int index = comboAppliedFilters.getSelectedIndex();
+        if (index > 0) {
+            getFilterStack().move(index, index - 1);
+            showFilters();
+            comboAppliedFilters.setSelectedIndex(index - 1);
+            getUpdateScheduler().markDirty(QUERY_STAGE);
+        }
+    }
+
+    /**
+     * Undoes the last change to the filters by property; its result is usually still cached.
+     */
+    private void undoFilterChange() {
+        if (getFilterStack().undo()) {
+            showFilters();
+            getUpdateScheduler().markDirty(QUERY_STAGE);
+        }
+    }
+
+    /**
+     * Shows the number of rows and the mean of every property over the song entries selected by a brush
+     * while its ranges are dragged; the brush updates them with every move, without running a query.
+     *
+     * @param rangeBrush the brush.
+     */
+    private void showBrushedStatistics(RangeBrush rangeBrush) {
+        StringBuilder text = new StringBuilder("Brushed:");
+        rangeBrush.getSubQueries().forEach(subQuery -> text.append(' ').append(subQuery).append(';'));
+        text.append(String.format("\nSongs: %d (%d entries)\n", rangeBrush.getSelectedRowCount(),
+                rangeBrush.getSelectedEntryCount()));
+        if (rangeBrush.getSelectedRowCount() > 0) {
+            text.append(String.format("%-8s", "Mean:"));
+            for (SongProperty songProperty : SongProperty.values()) {
+                text.append(String.format(" | %-16s: %9.2f", songProperty.getName(),
+                        rangeBrush.getAverage(songProperty)));
+            }
+            text.append(" |\n");
+        }
+        statisticsTextArea.setText(text.toString());
+        statusLabel.setText(String.format("Brushing: updated in %.2f ms (%d entries changed)",
+                rangeBrush.getLastUpdateNanos() / 1e6, rangeBrush.getLastChangedCount()));
+    }
+
+    /**
+     * Adds the filters of a released brush, as one change that can be undone, and shows the songs meeting
+     * them; if the brush selected nothing, the statistics of the current songs are shown again.
+     *
+     * @param subQueries the filters of the brush, or an empty list.
+     */
+    private void applyBrushedFilters(List<SubQuery> subQueries) {
+        if (!subQueries.isEmpty()) {
+            getFilterStack().addAll(subQueries);
+            showFilters();
+        }
+        getUpdateScheduler().markDirty(QUERY_STAGE);
     }
 
     /**
@@ -122,26 +699,85 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
      */
     @Override
     public void clearFilters() {
-        // Clear the list that holds sub-queries for filtering songs.
-        subQueryList.clear();
+        // Clear the filters for songs (this can be undone), and their display.
+        getFilterStack().clear();
+        showFilters();
 
-        // Clear the text in the sub-queries display area, indicating that no filters are currently applied.
-        subQueriesTextArea.setText("");
+        // Re-populate combo boxes and other dependent GUI components to reflect the full song catalog, then
+        // show the songs, statistics and custom chart without the filters, once computed in the background.
+        updateGUI();
+    }
 
-        // Re-populate combo boxes and other dependent GUI components to reflect the full song catalog.
-        populateComboBoxes();
+    /**
+     * Shows the songs of the catalog closest to the currently selected song, using the distance
+     * selected in {@code comboDistanceMetrics}. If no song is selected, the user is asked to select one.
+     */
+    private void findSimilarSongs() {
+        // Find the entry of the selected song among the songs of the selected names (the first one, if it appears
+        // on several albums); the filtered songs may still be those of the previous selection.
+        SongEntry selectedSongEntry = null;
+        if (!selectedSongName.isEmpty() && selectedSongEntriesList != null) {
+            for (SongEntry songEntry : selectedSongEntriesList) {
+                if (songEntry.getSongName().equals(selectedSongName)) {
+                    selectedSongEntry = songEntry;
+                    break;
+                }
+            }
+        }
+        if (selectedSongEntry == null) {
+            JOptionPane.showMessageDialog(this, "Select a song first.", "Find Similar Songs",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
 
-        // Update the display area for filtered song entries to show all songs from the catalog.
-        populateFilteredSongEntriesTextArea();
+        DistanceMetric metric = comboDistanceMetrics.getSelectedItem() == null ? DistanceMetric.EUCLIDEAN :
+                (DistanceMetric) comboDistanceMetrics.getSelectedItem();
+        SongEntry songEntry = selectedSongEntry;
 
-        // Recalculate and update the statistics to reflect the full song catalog without any filters.
-        updateStatistics();
+        // The similarity index may still be building, so the neighbours are found in the background.
+        buttonFindSimilar.setEnabled(false);
+        new SwingWorker<List<SongNeighbour>, Void>() {
+            @Override
+            protected List<SongNeighbour> doInBackground() {
+                return getCatalog().findSimilarSongs(songEntry.getId(), SIMILAR_SONGS_COUNT, metric);
+            }
 
-        // Update the contents of the custom chart to display data for all songs.
-        customChart.updateCustomChartContents(filteredSongEntriesList);
+            @Override
+            protected void done() {
+                buttonFindSimilar.setEnabled(true);
+                try {
+                    showSimilarSongs(songEntry, metric, get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    System.err.println("Something went wrong while finding similar songs: " + e.getCause());
+                }
+            }
+        }.execute();
+    }
 
-        // Request a repaint of the panel to ensure all visual elements are updated correctly.
-        repaint();
+    /**
+     * Lists the songs most similar to a song in a dialog.
+     *
+     * @param selectedSongEntry the song the neighbours were found for.
+     * @param metric the distance used to compare songs.
+     * @param neighbours the similar songs, closest first.
+     */
+    private void showSimilarSongs(SongEntry selectedSongEntry, DistanceMetric metric,
+                                  List<SongNeighbour> neighbours) {
+        StringBuilder text = new StringBuilder();
+        text.append("Songs most similar to \"").append(selectedSongEntry.getSongName()).append("\" by ")
+                .append(selectedSongEntry.getSongArtist()).append(" (").append(metric.getName())
+                .append(" distance):\n\n");
+        for (SongNeighbour neighbour : neighbours) {
+            SongEntry songEntry = neighbour.getSongEntry();
+            text.append(String.format("%.4f  %s - %s [%s]%n", neighbour.getDistance(),
+                    songEntry.getSongName(), songEntry.getSongArtist(), songEntry.getSongAlbumName()));
+        }
+        JTextArea resultsTextArea = new JTextArea(text.toString(), SIMILAR_SONGS_COUNT + 3, 70);
+        resultsTextArea.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(resultsTextArea), "Find Similar Songs",
+                JOptionPane.PLAIN_MESSAGE);
     }
 
     /**
@@ -172,9 +808,9 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
                 String operator = comboOperators.getSelectedItem().toString();
                 double value = Double.parseDouble(this.value.getText());  // May throw NumberFormatException
 
-                // Create a new sub-query using the gathered details and add it to the list of filters.
+                // Create a new sub-query using the gathered details and add it to the stack of filters.
                 SubQuery subQuery = new SubQuery(songProperty, operator, value);
-                subQueryList.add(subQuery);
+                getFilterStack().add(subQuery);
             }
         } catch (NumberFormatException e) {
             System.err.println("Invalid number format for filter value.");
@@ -182,270 +818,94 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
             System.err.println("Something went wrong while adding a filter: " + e.getMessage());
         }
 
-        // Clear the text area to avoid confusion as it's editable, and then repopulate with the updated filter list.
-        subQueriesTextArea.setText("");
-        subQueryList.forEach(subQuery -> subQueriesTextArea.append(subQuery.toString() + "; "));
+        showFilters();
     }
 
     /**
-     * Filters the list of song entries based on the currently selected song name.
-     * If a song name is selected (i.e., not empty), this method filters the list of
-     * song entries to include only those that match the selected song name.
+     * Populates the name combo boxes whose selection is empty (or all of them if every name is selected)
+     * with the names left by the other selections, keeping the selection. The combo boxes are type-ahead
+     * fields (see {@link TypeAheadSelector}): they list the most popular names, and those starting with the
+     * typed text on every keystroke.
      * <p>
-     * If no song name is selected, the method returns the original list of song entries
-     * without any modifications.
+     * The autocomplete indexes of the names are looked up in the catalog on a background thread, as the
+     * first lookup of a selection builds its index; population still running is cancelled.
      *
-     * @return a {@code List<SongEntry>} that either contains song entries filtered by the selected
-     *         song name or the original list if no song name is selected.
+     * @param allSelected whether an artist, an album and a song are all selected.
      */
-    private List<SongEntry> filterSongEntriesBySelectedName() {
-        // Check if a song name has been selected to filter by.
-        if (!selectedSongName.isEmpty()) {
-            // Create a copy of the currently filtered song entries list to work on.
-            List<SongEntry> copyOfFilteredSongEntriesList = new ArrayList<>(filteredSongEntriesList);
-
-            // Return a new list filtered by the selected song name using the song catalog's method.
-            return songCatalog.getSongEntriesList(
-                    copyOfFilteredSongEntriesList, SongDetail.NAME, selectedSongName
-            );
+    private void populateNameComboBoxes(boolean allSelected) {
+        if (comboBoxWorker != null) {
+            comboBoxWorker.cancel(true);
         }
-
-        // If no song name is selected, return the original list of filtered song entries.
-        return filteredSongEntriesList;
-    }
-
-    /**
-     * Filters the list of song entries based on the currently selected artist name.
-     * If an artist name is selected (i.e., not empty), this method filters the list
-     * to include only those song entries that match the selected artist name.
-     * <p>
-     * If no artist name is selected, the method returns the original list of song entries
-     * without any modifications. This ensures that the filtering is conditional and only
-     * applied when there is a specific artist to filter by.
-     *
-     * @return a {@code List<SongEntry>} that either contains song entries filtered by the selected
-     *         artist name or the original list if no artist name is selected.
-     */
-    private List<SongEntry> filterSongEntriesBySelectedArtist() {
-        // Check if an artist name has been selected to filter by.
-        if (!selectedArtistName.isEmpty()) {
-            // Create a copy of the currently filtered song entries list to avoid modifying the original.
-            List<SongEntry> copyOfFilteredSongEntriesList = new ArrayList<>(filteredSongEntriesList);
-
-            // Return a new list filtered by the selected artist name using the song catalog's functionality.
-            return songCatalog.getSongEntriesList(
-                    copyOfFilteredSongEntriesList, SongDetail.ARTIST, selectedArtistName
-            );
-        }
-
-        // If no artist name is selected, return the unmodified original list of filtered song entries.
-        return filteredSongEntriesList;
-    }
-
-    /**
-     * Filters the list of song entries based on the currently selected album name.
-     * This method applies a filter to include only those song entries that match
-     * the selected album name, if an album name has been selected. If no album
-     * name is selected, the method returns the original list of song entries
-     * without any modifications.
-     * <p>
-     * This conditional filtering is helpful for dynamically adjusting the song
-     * list based on user selection from the other combo boxes.
-     *
-     * @return a {@code List<SongEntry>} that contains either the filtered song entries
-     *         by the selected album name or the original list if no album name is selected.
-     */
-    private List<SongEntry> filterSongEntriesBySelectedAlbum() {
-        // Check if an album name has been selected for filtering.
-        if (!selectedAlbumName.isEmpty()) {
-            // Create a copy of the currently filtered song entries list to ensure the original is not modified.
-            List<SongEntry> copyOfFilteredSongEntriesList = new ArrayList<>(filteredSongEntriesList);
-
-            // Use the song catalog's method to return a new list filtered by the selected album name.
-            return songCatalog.getSongEntriesList(
-                    copyOfFilteredSongEntriesList, SongDetail.ALBUM_NAME, selectedAlbumName
-            );
+        String artistName = selectedArtistName;
+        String albumName = selectedAlbumName;
+        String songName = selectedSongName;
+        Map<SongDetail, JComboBox<String>> comboBoxes = new EnumMap<>(SongDetail.class);
+        if (artistName.isEmpty() || allSelected) {
+            comboBoxes.put(SongDetail.ARTIST, comboBoxArtistNames);
         }
-
-        // If no album name is selected, return the original list to ensure no unintended filtering.
-        return filteredSongEntriesList;
-    }
-
-    /**
-     * Populates the artist names combo box with unique artist names extracted
-     * from the currently filtered list of song entries. This method ensures that
-     * the combo box reflects the latest available artist names and maintains the
-     * selection.
-     * <p>
-     * The method does the following:
-     * <ul>
-     *     <li>Gathers unique artist names from the filtered song entries.</li>
-     *     <li>Updates the combo box model with these names, preserving the current selection.</li>
-     *     <li>Logs the state of the combo box selection before and after updating to facilitate debugging.</li>
-     * </ul>
-     */
-    private void populateArtistComboBox() {
-        // Gather unique artist names from the filtered song entries list.
-        Set<String> uniqueArtists = new HashSet<>();
-        for (SongEntry songEntry : filteredSongEntriesList) {
-            uniqueArtists.add(songEntry.getSongArtist());
+        if (albumName.isEmpty() || allSelected) {
+            comboBoxes.put(SongDetail.ALBUM_NAME, comboBoxAlbums);
         }
-
-        // Get the current combo box model or create a new one if it does not exist.
-        DefaultComboBoxModel<String> model = (comboBoxArtistNames.getModel() == null) ?
-                new DefaultComboBoxModel<>() : (DefaultComboBoxModel<String>) comboBoxArtistNames.getModel();
-
-        // Update the combo box model with the new set of unique artists.
-        model.removeAllElements();
-        model.addAll(uniqueArtists);
-        model.insertElementAt("", 0); // Add a blank option to allow deselecting.
-        model.setSelectedItem(selectedArtistName); // Sets back the selected item to what it should be
-    }
-
-    /**
-     * Populates the album names combo box with unique album names gathered
-     * from the currently filtered list of song entries. This method updates
-     * the combo box to reflect the latest album names available and tries to maintain
-     * the previously selected album.
-     * <p>
-     * Key operations include:
-     * <ul>
-     *     <li>Collecting unique album names from the filtered song entries.</li>
-     *     <li>Updating the combo box model with these names, ensuring that the
-     *         current selection is preserved</li>
-     * </ul>
-     */
-    private void populateAlbumComboBox() {
-        // Collect unique album names from the filtered list of song entries.
-        Set<String> uniqueAlbums = new HashSet<>();
-        for (SongEntry songEntry : filteredSongEntriesList) {
-            uniqueAlbums.add(songEntry.getSongAlbumName());
+        if (songName.isEmpty() || allSelected) {
+            comboBoxes.put(SongDetail.NAME, comboBoxSongs);
         }
 
-        // Check if the combo box model exists or create a new one if it doesn't.
-        DefaultComboBoxModel<String> model = (comboBoxAlbums.getModel() == null) ?
-                new DefaultComboBoxModel<>() : (DefaultComboBoxModel<String>) comboBoxAlbums.getModel();
-
-        // Update the combo box model with the new set of unique album names.
-        model.removeAllElements();
-        model.addAll(uniqueAlbums);
-        model.insertElementAt("", 0);  // Add an empty option to allow for no selection.
-
-        // Attempt to re-select the previously selected album, if still available.
-        model.setSelectedItem(selectedAlbumName);  // Sets back the selected item to what it should be
-    }
+        SwingWorker<Map<SongDetail, AutocompleteIndex>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Map<SongDetail, AutocompleteIndex> doInBackground() {
+                // A combo box only lists the names left by the other selections (and by its own if all are made).
+                Map<SongDetail, AutocompleteIndex> offeredNames = new EnumMap<>(SongDetail.class);
+                for (SongDetail songDetail : comboBoxes.keySet()) {
+                    offeredNames.put(songDetail, getCatalog().getAutocompleteIndex(songDetail,
+                            songDetail != SongDetail.ARTIST || allSelected ? artistName : "",
+                            songDetail != SongDetail.ALBUM_NAME || allSelected ? albumName : "",
+                            songDetail != SongDetail.NAME || allSelected ? songName : ""));
+                }
+                return offeredNames;
+            }
 
-    /**
-     * Populates the song names combo box with unique song names gathered from the
-     * currently filtered list of song entries. This method ensures the combo box
-     * reflects the latest song names available, and it maintains the previously
-     * selected song name.
-     * <p>
-     * The operations performed by this method include:
-     * <ul>
-     *     <li>Gathering unique song names from the filtered song entries.</li>
-     *     <li>Updating the combo box model with these names, ensuring that the current
-     *         selection is preserved.</li>
-     * </ul>
-     */
-    private void populateSongNameComboBox() {
-        // Gather unique song names from the filtered song entries.
-        Set<String> uniqueSongs = new HashSet<>();
-        for (SongEntry songEntry : filteredSongEntriesList) {
-            uniqueSongs.add(songEntry.getSongName());
-        }
-
-        // Retrieve or create the combo box model.
-        DefaultComboBoxModel<String> model = (comboBoxSongs.getModel() == null) ?
-                new DefaultComboBoxModel<>() : (DefaultComboBoxModel<String>) comboBoxSongs.getModel();
-
-        // Update the combo box with the collected song names.
-        model.removeAllElements();
-        model.addAll(uniqueSongs);
-        model.insertElementAt("", 0); // Add an empty option to allow for no selection.
-
-        // Re-select the previously selected song, if it is still available in the updated list.
-        model.setSelectedItem(selectedSongName);  // Sets back the selected item to what it should be
-    }
-
-    /**
-     * Populates the filteredSongEntriesTextArea with song details in a structured tabular format.
-     * Displays up to 1000 song entries along with their details, depending on the current filters.
-     * Each entry is formatted to align artist, album, and song names in distinct columns for clarity.
-     */
-    private void populateFilteredSongEntriesTextArea() {
-        // Clearing the existing text to refresh the content
-        filteredSongEntriesTextArea.setText("");
-        filteredSongEntriesTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-
-        // Heading for the text area to indicate column headers
-        StringBuilder header = getHeader();
-        filteredSongEntriesTextArea.append(header.toString());
-
-        // Iterating over each song entry to format and append it to the text area
-        for (int index = 0; index < Math.min(1000, filteredSongEntriesList.size()); index++) {
-            SongEntry entry = filteredSongEntriesList.get(index);
-            String artist = entry.getSongArtist();
-            String album = entry.getSongAlbumName();
-            String song = entry.getSongName();
-
-            // Create a formatted string for each entry, aligning all columns
-            Object[] entries = {
-                    artist, album, song,
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.DURATION),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.POPULARITY),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.DANCEABILITY),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.ENERGY),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.LOUDNESS),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.SPEECHINESS),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.ACOUSTICNESS),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.INSTRUMENTALNESS),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.LIVENESS),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.VALENCE),
-                    filteredSongEntriesList.get(index).getSongProperty(SongProperty.TEMPO)
-            };
-            String formattedEntry = String.format("%-30s | %-140s | %-140s" +
-                            (" | %-30.2f").repeat(10) +"\n", entries);
-            filteredSongEntriesTextArea.append(formattedEntry);
-        }
-
-        // Footer to indicate the total number of displayed entries
-        filteredSongEntriesTextArea.append("\n[Showing " + Math.min(1000, filteredSongEntriesList.size()) +
-                " entries out of " + filteredSongEntriesList.size() + "]");
-    }
-
-    private static StringBuilder getHeader() {
-        StringBuilder header = new StringBuilder();
-        String[] properties = {
-                SongProperty.DURATION.getName(),
-                SongProperty.POPULARITY.getName(),
-                SongProperty.DANCEABILITY.getName(),
-                SongProperty.ENERGY.getName(),
-                SongProperty.LOUDNESS.getName(),
-                SongProperty.SPEECHINESS.getName(),
-                SongProperty.INSTRUMENTALNESS.getName(),
-                SongProperty.LIVENESS.getName(),
-                SongProperty.VALENCE.getName(),
-                SongProperty.TEMPO.getName(),
+            @Override
+            protected void done() {
+                if (comboBoxWorker != this) {
+                    return;
+                }
+                comboBoxWorker = null;
+                try {
+                    Map<SongDetail, AutocompleteIndex> offeredNames = get();
+                    updatingComboBoxes = true;
+                    try {
+                        comboBoxes.forEach((songDetail, comboBox) -> TypeAheadSelector.of(comboBox,
+                                TYPE_AHEAD_NAMES_COUNT).setAutocompleteIndex(offeredNames.get(songDetail),
+                                songDetail == SongDetail.ARTIST ? artistName :
+                                        songDetail == SongDetail.ALBUM_NAME ? albumName : songName));
+                    } finally {
+                        updatingComboBoxes = false;
+                    }
+                } catch (CancellationException | InterruptedException e) {
+                    // A newer selection populates the combo boxes.
+                } catch (ExecutionException e) {
+                    System.err.println("Something went wrong while populating the combo boxes: " + e.getCause());
+                }
+            }
         };
-        header.append(String.format("%-30s | %-140s | %-140s" + " | %-30s".repeat(10) + "\n",
-                "Artist", "Album", "Song", properties[0], properties[1], properties[2], properties[3], properties[4],
-                properties[5], properties[6], properties[7], properties[8], properties[9]));
-        return header.append("-".repeat(750)).append("\n");
+        comboBoxWorker = worker;
+        worker.execute();
     }
 
     /**
      * Populates all combo boxes (artist, album, and song names) based on the current
-     * selection state and the available song entries. This method is designed to prevent
-     * <b>recursion</b> and ensure that the combo boxes are updated only when necessary.
+     * selection state, and keeps the song entries matching every selected name for the query, which
+     * replaces the filtered song entries once its results are computed.
+     * This method is designed to prevent <b>recursion</b> and ensure that the combo boxes are updated
+     * only when necessary.
      * <p>
      * This method first checks if updates are already in progress to avoid <b>recursion</b>.
-     * It then retrieves the full list of song entries and selectively updates each
-     * combo box based on whether their respective selections are empty (indicating a need for update).
-     * If all selections are filled, it ensures that all combo boxes reflect the most current data.
+     * It then updates each combo box whose selection is empty (indicating a need for update) with the
+     * names left by the other selections. If all selections are filled, it ensures that all combo boxes
+     * reflect the most current data.
      * <p>
-     * The updates are performed in a manner that avoids unnecessary filtering operations
-     * unless the respective selections are cleared, optimizing performance and responsiveness.
+     * The names and the song entries come from the catalog's {@link FacetIndex}, which groups the song
+     * entries by artist, album and song, so no update scans the whole catalog.
      */
     @Override
     public void populateComboBoxes() {
@@ -458,40 +918,24 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
             // Lock the updating process to prevent recursion from GUI feedback loops.
             updatingComboBoxes = true;
 
-            // Get a fresh list of all song entries from the catalog.
-            filteredSongEntriesList = songCatalog.getSongEntriesList();
-
-            // Update the artist comboBox if the artist name selection is empty.
-            if (selectedArtistName.isEmpty()) {
-                filteredSongEntriesList = filterSongEntriesBySelectedName();
-                filteredSongEntriesList = filterSongEntriesBySelectedAlbum();
-                populateArtistComboBox();
-            }
-
-            // Update the album comboBox if the album name selection is empty.
-            if (selectedAlbumName.isEmpty()) {
-                filteredSongEntriesList = filterSongEntriesBySelectedName();
-                filteredSongEntriesList = filterSongEntriesBySelectedArtist();
-                populateAlbumComboBox();
-            }
-
-            // Update the song comboBox if the song name selection is empty.
-            if (selectedSongName.isEmpty()) {
-                filteredSongEntriesList = filterSongEntriesBySelectedArtist();
-                filteredSongEntriesList = filterSongEntriesBySelectedAlbum();
-                populateSongNameComboBox();
+            boolean allSelected = !(selectedSongName.isEmpty() || selectedAlbumName.isEmpty()
+                    || selectedArtistName.isEmpty());
+
+            // Update each comboBox whose selection is empty, or all of them if every selection is filled.
+            populateNameComboBoxes(allSelected);
+
+            // Keep the song entries matching every selected name (all of them if none is selected).
+            List<String> names = List.of(selectedArtistName, selectedAlbumName, selectedSongName);
+            if (!names.equals(selectedNames)) {
+                if (selectedArtistName.isEmpty() && selectedAlbumName.isEmpty() && selectedSongName.isEmpty()) {
+                    selectedSongEntriesList = songCatalog.getSongEntriesList();
+                } else {
+                    selectedSongEntriesList = getCatalog().getFacetIndex()
+                            .getSongEntries(selectedArtistName, selectedAlbumName, selectedSongName);
+                }
+                selectedNames = names;
             }
-
-            // Ensure all comboBoxes are up-to-date if all selections are filled.
-            if (!(selectedSongName.isEmpty() || selectedAlbumName.isEmpty() || selectedArtistName.isEmpty())) {
-                filteredSongEntriesList = filterSongEntriesBySelectedArtist();
-                filteredSongEntriesList = filterSongEntriesBySelectedAlbum();
-                filteredSongEntriesList = filterSongEntriesBySelectedName();
-                populateArtistComboBox();
-                populateAlbumComboBox();
-                populateSongNameComboBox();
-            }
-
+            // filteredSongEntriesList keeps the shown results until the query publishes the new ones.
         } finally {
             // Unlock the updating process.
             updatingComboBoxes = false;
@@ -499,39 +943,28 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
     }
 
     /**
-     * Updates the GUI components of the dashboard to reflect the current state of the application.
+     * Requests an update of the GUI components of the dashboard to reflect the current state of the
+     * application. The update runs in the next frame, together with those requested by the other events
+     * of the same burst (see {@link UpdateScheduler}), so each of its stages runs once.
      * This method is a central point for invoking updates that include:
      * <ul>
      *     <li>re-populating combo boxes,</li>
-     *     <li>executing any defined queries,</li>
-     *     <li>updating the display of filtered song entries,</li>
+     *     <li>executing any defined queries in the background,</li>
+     *     <li>then updating the display of filtered song entries,</li>
      *     <li> recalculating statistics,</li>
      *     <li>refreshing the custom chart,</li>
      *     <li>and repainting the GUI to ensure visual updates are rendered properly.</li>
      * </ul>
+     * A selection made while the query of the previous one is running cancels it.
      * <p>
      * This method ensures that all parts of the GUI related to displaying song data are synchronized
      * and accurately represent the underlying data and user selections.
      */
     private void updateGUI() {
-        // Populate all combo boxes based on the current filtering criteria or selections.
-        populateComboBoxes();
-
-        // Execute any queries based on the current state of the subQuery list to filter songs.
-        executeQuery();
-
-        // Populate the text area with song entries that match the current filters.
-        populateFilteredSongEntriesTextArea();
-
-        // Update the statistics display. This is necessary to reflect current data states,
-        // especially when no new queries have been added but previous data states might have changed.
-        updateStatistics();  // Ensures the statistics area is always accurate.
-
-        // Update the contents of the custom chart to reflect the currently filtered songs.
-        customChart.updateCustomChartContents(filteredSongEntriesList);
-
-        // Repaint the component to ensure all visual updates are shown to the user.
-        repaint();
+        // Populate all combo boxes based on the current filtering criteria or selections, then apply the filters
+        // by property to the songs matching the selected names and show the song entries, statistics and custom
+        // chart of the result; the query runs in the background.
+        getUpdateScheduler().markDirty(COMBO_BOXES_STAGE);
     }
 
     /**
@@ -544,6 +977,7 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
      * <ul>
      *   <li>Checkbox listeners trigger a repaint of the GUI, though the one was meant to be target is the repaint
      *   of the customChartPanel.</li>
+     *   <li>Every update is requested from the {@link UpdateScheduler}, which runs it once per frame.</li>
      *   <li>The "Add Filter" button applies a new filter and executes the query.</li>
      *   <li>The "Clear Filters" button resets all filters.</li>
      *   <li>Combo box listeners update the application state based on the selected item and refresh the GUI.</li>
@@ -551,49 +985,156 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
      */
     @Override
     public void addListeners() {
-        // Repaint the GUI when any of the statistic checkboxes (average, max, min) are toggled.
-        averageCheckBox.addActionListener(e -> repaint());
-        maxCheckBox.addActionListener(e -> repaint());
-        minCheckBox.addActionListener(e -> repaint());
+        // Repaint the GUI when any of the statistic checkboxes (average, max, min) are toggled; the cluster
+        // averages are computed with the results of the query, so toggling the clusters runs it again.
+        averageCheckBox.addActionListener(e -> getUpdateScheduler().markDirty(CHART_STAGE));
+        clustersCheckBox.addActionListener(e -> getUpdateScheduler().markDirty(QUERY_STAGE));
+        maxCheckBox.addActionListener(e -> getUpdateScheduler().markDirty(CHART_STAGE));
+        minCheckBox.addActionListener(e -> getUpdateScheduler().markDirty(CHART_STAGE));
 
         // Add a filter based on the current GUI inputs when the "Add Filter" button is clicked,
         // then execute the query to reflect the changes in the GUI.
         buttonAddFilter.addActionListener(e -> {
             addFilter();
-            executeQuery();
+            getUpdateScheduler().markDirty(QUERY_STAGE);
         });
 
         // Clear all filters and update the GUI accordingly when the "Clear Filters" button is clicked.
         buttonClearFilters.addActionListener(e -> clearFilters());
 
-        // Update the selected artist name and refresh the GUI whenever a new artist is selected.
+        // Sort the song entries table by a column when its header is clicked.
+        filteredSongEntriesTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int viewColumn = filteredSongEntriesTable.columnAtPoint(e.getPoint());
+                if (viewColumn >= 0) {
+                    toggleSortColumn(filteredSongEntriesTable.convertColumnIndexToModel(viewColumn));
+                }
+            }
+        });
+
+        // Update the selected artist name and refresh the GUI whenever a new artist is selected or typed.
         comboBoxArtistNames.addItemListener(e -> {
-            if (e.getStateChange() == ItemEvent.SELECTED && comboBoxArtistNames.getSelectedItem() != null) {
-                selectedArtistName = comboBoxArtistNames.getSelectedItem().toString().isEmpty() ? "" :
-                        comboBoxArtistNames.getSelectedItem().toString();
-                updateGUI();
+            if (e.getStateChange() == ItemEvent.SELECTED && comboBoxArtistNames.getSelectedItem() != null
+                    && !TypeAheadSelector.of(comboBoxArtistNames, TYPE_AHEAD_NAMES_COUNT).isUpdating()) {
+                String artistName = resolveTypedName(comboBoxArtistNames, SongDetail.ARTIST, selectedArtistName);
+                if (artistName != null) {
+                    selectedArtistName = artistName;
+                    updateGUI();
+                }
             }
         });
 
-        // Update the selected album name and refresh the GUI whenever a new album is selected.
+        // Update the selected album name and refresh the GUI whenever a new album is selected or typed.
         comboBoxAlbums.addItemListener(e -> {
-            if (e.getStateChange() == ItemEvent.SELECTED && comboBoxAlbums.getSelectedItem() != null) {
-                selectedAlbumName = comboBoxAlbums.getSelectedItem().toString().isEmpty() ? "" :
-                        comboBoxAlbums.getSelectedItem().toString();
-                updateGUI();
+            if (e.getStateChange() == ItemEvent.SELECTED && comboBoxAlbums.getSelectedItem() != null
+                    && !TypeAheadSelector.of(comboBoxAlbums, TYPE_AHEAD_NAMES_COUNT).isUpdating()) {
+                String albumName = resolveTypedName(comboBoxAlbums, SongDetail.ALBUM_NAME, selectedAlbumName);
+                if (albumName != null) {
+                    selectedAlbumName = albumName;
+                    updateGUI();
+                }
             }
         });
 
-        // Update the selected song name and refresh the GUI whenever a new song is selected.
+        // Update the selected song name and refresh the GUI whenever a new song is selected or typed.
         comboBoxSongs.addItemListener(e -> {
-            if (e.getStateChange() == ItemEvent.SELECTED && comboBoxSongs.getSelectedItem() != null) {
-                selectedSongName = comboBoxSongs.getSelectedItem().toString().isEmpty() ? "" :
-                        comboBoxSongs.getSelectedItem().toString();
-                updateGUI();
+            if (e.getStateChange() == ItemEvent.SELECTED && comboBoxSongs.getSelectedItem() != null
+                    && !TypeAheadSelector.of(comboBoxSongs, TYPE_AHEAD_NAMES_COUNT).isUpdating()) {
+                String songName = resolveTypedName(comboBoxSongs, SongDetail.NAME, selectedSongName);
+                if (songName != null) {
+                    selectedSongName = songName;
+                    updateGUI();
+                }
             }
         });
     }
 
+    /**
+     * Resolves the item of a name combo box, which the user may have typed, to one of the names the combo
+     * box can offer. A name the combo box offers (ignoring case and accents) is used as it is spelled in
+     * the song file. Otherwise the names of the catalog close to the typed text are looked up with its
+     * trigram index on a background thread, and those the combo box offers are proposed in a "Did you
+     * mean" dialog; the chosen name is then selected, which triggers this listener again.
+     *
+     * @param comboBox the combo box whose item was selected or typed.
+     * @param songDetail the detail listed by the combo box.
+     * @param previousName the name selected before, restored if nothing is chosen.
+     * @return the name to select, or null if the selection is being replaced.
+     */
+    private String resolveTypedName(JComboBox<String> comboBox, SongDetail songDetail, String previousName) {
+        String typedName = comboBox.getSelectedItem().toString().trim();
+        if (typedName.isEmpty() || updatingComboBoxes) {
+            return typedName;
+        }
+        AutocompleteIndex offeredNames = TypeAheadSelector.of(comboBox, TYPE_AHEAD_NAMES_COUNT)
+                .getAutocompleteIndex();
+        if (offeredNames == null) {
+            // The names are still being looked up; the typed name is checked by the query.
+            return typedName;
+        }
+        String offeredName = offeredNames.find(typedName);
+        if (offeredName != null) {
+            return offeredName;
+        }
+
+        new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() {
+                // Only propose names that the combo box offers, i.e. that the other selections allow.
+                List<String> suggestions = new ArrayList<>();
+                List<FuzzyMatch> matches = getCatalog().findSimilarDetailValues(songDetail, typedName,
+                        5 * SUGGESTED_NAMES_COUNT);
+                for (FuzzyMatch match : matches) {
+                    String suggestion = offeredNames.find(match.getValue());
+                    if (suggestion != null && !suggestion.isEmpty() && !suggestions.contains(suggestion)
+                            && suggestions.size() < SUGGESTED_NAMES_COUNT) {
+                        suggestions.add(suggestion);
+                    }
+                }
+                return suggestions;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    proposeNames(comboBox, songDetail, typedName, previousName, get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    System.err.println("Something went wrong while looking up similar names: " + e.getCause());
+                    comboBox.setSelectedItem(previousName);
+                }
+            }
+        }.execute();
+        return null;
+    }
+
+    /**
+     * Proposes the names close to a typed name that matches none in a "Did you mean" dialog, then selects
+     * the chosen name, or the previous one if none is chosen.
+     *
+     * @param comboBox the combo box the name was typed in.
+     * @param songDetail the detail listed by the combo box.
+     * @param typedName the typed name.
+     * @param previousName the name selected before.
+     * @param suggestions the names the combo box offers that are close to the typed one, closest first.
+     */
+    private void proposeNames(JComboBox<String> comboBox, SongDetail songDetail, String typedName,
+                              String previousName, List<String> suggestions) {
+        String label = songDetail.getName().toLowerCase();
+        Object chosenName = null;
+        if (suggestions.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No " + label + " is close to \"" + typedName + "\".",
+                    "No Match", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            chosenName = JOptionPane.showInputDialog(this,
+                    "No " + label + " is called \"" + typedName + "\". Did you mean:", "Did You Mean?",
+                    JOptionPane.QUESTION_MESSAGE, null, suggestions.toArray(), suggestions.get(0));
+        }
+        comboBox.setSelectedItem(chosenName != null ? chosenName : previousName);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -615,65 +1156,90 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
      */
     @Override
     public void updateStatistics() {
-        // Clear the previous statistics from the display area.
-        statisticsTextArea.setText("");
+        Map<SongProperty, CustomChartAxisValues> axesValues = filteredSongEntriesList.isEmpty() ? null :
+                CustomChart.computeAxesValues(songCatalog, filteredSongEntriesList);
         statisticsTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        statisticsTextArea.setText(getStatisticsText(filteredSongEntriesList, axesValues));
+        if (axesValues == null) {
+            System.err.println("Song entries list is empty!");
+        }
+    }
+
+    /**
+     * Formats the statistics of song entries for the statisticsTextArea: the number of (unique) songs and
+     * artists, then the minimum, maximum, and mean value of each song property, or "n/a" if there are no
+     * song entries. It only reads the catalog, so it may run outside the event dispatch thread.
+     *
+     * @param songEntries the song entries to summarise.
+     * @param axesValues the minimum, maximum, and mean value of each song property, or null if there are
+     *                   no song entries.
+     * @return the text of the statisticsTextArea.
+     */
+    private String getStatisticsText(List<SongEntry> songEntries,
+                                     Map<SongProperty, CustomChartAxisValues> axesValues) {
+        StringBuilder text = new StringBuilder();
+
+        // Summarise how many (unique) songs and artists are currently shown.
+        appendUniqueCounts(songEntries, text);
 
         // Check if there are any songs to calculate statistics for.
-        if (filteredSongEntriesList.isEmpty()) {
-            // Build and display the header row to describe each song property column.
-            StringBuilder headerBuilder = new StringBuilder();
+        if (axesValues == null) {
+            // Build the header row to describe each song property column.
             for (SongProperty songProperty : SongProperty.values()) {
-                headerBuilder.append("-").append(songProperty.getName());
+                text.append("-").append(songProperty.getName());
             }
-            statisticsTextArea.append(headerBuilder.append("-\n").toString());
+            text.append("-\n");
 
             // Display "n/a" for all statistics when there are no songs to analyze.
             String noData = " -n/a".repeat(SongProperty.values().length);
-            statisticsTextArea.append("Minimum:" + noData + "-\n");
-            statisticsTextArea.append("Maximum:" + noData + "-\n");
-            statisticsTextArea.append("Mean:" + noData + "-\n");
-            System.err.println("Song entries list is empty!");
-            return;
+            text.append("Minimum:").append(noData).append("-\n");
+            text.append("Maximum:").append(noData).append("-\n");
+            text.append("Mean:").append(noData).append("-\n");
+            return text.toString();
         }
 
-        // Calculate and store the minimum, maximum, and mean values for each song property.
-        HashMap<SongProperty, Double> minimumValues = new HashMap<>();
-        HashMap<SongProperty, Double> maximumValues = new HashMap<>();
-        HashMap<SongProperty, Double> meanValues = new HashMap<>();
-        for (SongProperty songProperty : SongProperty.values()) {
-            minimumValues.put(songProperty, songCatalog.getMinimumValue(songProperty, filteredSongEntriesList));
-            maximumValues.put(songProperty, songCatalog.getMaximumValue(songProperty, filteredSongEntriesList));
-            meanValues.put(songProperty, songCatalog.getAverageValue(songProperty, filteredSongEntriesList));
-        }
+        // Append the minimum, maximum, and mean values for each song property.
+        appendStatistics("Minimum:", axesValues, CustomChartAxisValues::getMin, text);
+        appendStatistics("Maximum:", axesValues, CustomChartAxisValues::getMax, text);
+        appendStatistics("Mean:", axesValues, CustomChartAxisValues::getAverage, text);
+        return text.toString();
+    }
 
-        // Append the calculated statistics to the text area.
-        appendStatistics("Minimum:", minimumValues, statisticsTextArea);
-        appendStatistics("Maximum:", maximumValues, statisticsTextArea);
-        appendStatistics("Mean:", meanValues, statisticsTextArea);
+    /**
+     * Appends the number of songs, unique songs and unique artists in song entries.
+     * The number of songs counts rows of the song file, so collapsed duplicates are included.
+     * The unique counts are obtained from the configured {@link DistinctCounter}, so they are either exact
+     * or HyperLogLog estimates, as labelled at the end of the line.
+     * @param songEntries The song entries to count.
+     * @param text The text to append the counts to.
+     */
+    private void appendUniqueCounts(List<SongEntry> songEntries, StringBuilder text) {
+        text.append(String.format("Songs: %d | Unique songs: %d | Unique artists: %d (%s)\n",
+                songCatalog.getRowCount(songEntries),
+                distinctCounter.countUniqueSongs(songEntries),
+                distinctCounter.countUniqueArtists(songEntries),
+                distinctCounter.describe()));
     }
 
     /**
-     * Appends statistical values for a given type (min, max, mean) to the text area.
+     * Appends statistical values for a given type (min, max, mean) to the text.
      * @param label The label for the statistic type (e.g., "Minimum:").
-     * @param values The calculated values for each song property.
-     * @param textArea The JTextArea to append the results to.
+     * @param axesValues The calculated values for each song property.
+     * @param statistic The statistic of the axis values to append.
+     * @param text The text to append the results to.
      */
-    private void appendStatistics(String label, HashMap<SongProperty, Double> values, JTextArea textArea) {
+    private void appendStatistics(String label, Map<SongProperty, CustomChartAxisValues> axesValues,
+                                  ToDoubleFunction<CustomChartAxisValues> statistic, StringBuilder text) {
         // Starting the line with the label
-        StringBuilder lineBuilder = new StringBuilder();
-        lineBuilder.append(String.format("%-8s", label));
+        text.append(String.format("%-8s", label));
 
         // Append each song property value, formatted with two decimal places
         for (SongProperty songProperty : SongProperty.values()) {
-            double value = values.get(songProperty);
+            double value = statistic.applyAsDouble(axesValues.get(songProperty));
             // Use String.format to ensure consistent decimal places and add vertical bars for separation
-            lineBuilder.append(String.format(" | %-16s: %9.2f", songProperty.getName(), value));
+            text.append(String.format(" | %-16s: %9.2f", songProperty.getName(), value));
         }
-        lineBuilder.append(" |\n"); // Close the line with a vertical bar
-
-        // Append the constructed line to the text area
-        textArea.append(lineBuilder.toString());
+        text.append(" |\n"); // Close the line with a vertical bar
     }
 
     /**
@@ -708,4 +1274,15 @@ public class SpotifyDashboardPanel extends AbstractSpotifyDashboardPanel {
         // Return the selection state of the average checkbox.
         return averageCheckBox.isSelected();
     }
+
+    /**
+     * Checks if the clusters checkbox is selected.
+     *
+     * @return true if the clusters checkbox is selected; false otherwise.
+     */
+    @Override
+    public boolean isClustersCheckBoxSelected() {
+        // Return the selection state of the clusters checkbox.
+        return clustersCheckBox.isSelected();
+    }
 }
@@ -0,0 +1,133 @@
+package uk.ac.sheffield.com1003.assignment2023.gui;
+
+import uk.ac.sheffield.com1003.assignment2023.AutocompleteIndex;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.List;
+
+/**
+ * Turns a name combo box into a type-ahead field: on every keystroke, the list of the combo box is
+ * replaced by the most popular names starting with the typed text, looked up in an
+ * {@link AutocompleteIndex}. The combo box only ever holds those few names (and the empty name that
+ * clears the selection), however many names the index has.
+ * <p>
+ * The selector is kept as a client property of its combo box, see {@link #of(JComboBox, int)}.
+ */
+public class TypeAheadSelector {
+
+    private static final String CLIENT_PROPERTY = TypeAheadSelector.class.getName();
+
+    private final JComboBox<String> comboBox;
+    private final JTextField editor;
+    private final int suggestionCount;
+    private AutocompleteIndex autocompleteIndex;
+    // Set while the list or the text is changed here rather than by the user
+    private boolean updating;
+
+    private TypeAheadSelector(JComboBox<String> comboBox, int suggestionCount) {
+        this.comboBox = comboBox;
+        this.suggestionCount = suggestionCount;
+        comboBox.setEditable(true);
+        this.editor = (JTextField) comboBox.getEditor().getEditorComponent();
+        editor.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textTyped();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textTyped();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not change the text.
+            }
+        });
+    }
+
+    /**
+     * Returns the type-ahead selector of a combo box, making the combo box a type-ahead field on first use.
+     *
+     * @param comboBox the combo box.
+     * @param suggestionCount the number of names listed while typing.
+     * @return the selector of the combo box.
+     */
+    public static TypeAheadSelector of(JComboBox<String> comboBox, int suggestionCount) {
+        Object selector = comboBox.getClientProperty(CLIENT_PROPERTY);
+        if (selector == null) {
+            selector = new TypeAheadSelector(comboBox, suggestionCount);
+            comboBox.putClientProperty(CLIENT_PROPERTY, selector);
+        }
+        return (TypeAheadSelector) selector;
+    }
+
+    /**
+     * Sets the names to choose from and lists the most popular ones, with the given name selected.
+     *
+     * @param autocompleteIndex the index of the names.
+     * @param selectedName the name to select, or the empty String for none.
+     */
+    public void setAutocompleteIndex(AutocompleteIndex autocompleteIndex, String selectedName) {
+        this.autocompleteIndex = autocompleteIndex;
+        listSuggestions("", selectedName);
+    }
+
+    /**
+     * @return the index of the names to choose from.
+     */
+    public AutocompleteIndex getAutocompleteIndex() {
+        return autocompleteIndex;
+    }
+
+    /**
+     * @return true while the selector itself changes the combo box, so its events are not the user's.
+     */
+    public boolean isUpdating() {
+        return updating;
+    }
+
+    private void textTyped() {
+        // Only react to the user's typing; the list cannot be changed while the document notifies.
+        if (updating || autocompleteIndex == null || !editor.isFocusOwner()) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            String text = editor.getText();
+            int caretPosition = editor.getCaretPosition();
+            listSuggestions(text.trim(), text);
+            updating = true;
+            try {
+                editor.setText(text);
+                editor.setCaretPosition(Math.min(caretPosition, text.length()));
+            } finally {
+                updating = false;
+            }
+            if (comboBox.isShowing() && comboBox.getItemCount() > 1) {
+                comboBox.hidePopup();  // resizes the popup to the new list
+                comboBox.showPopup();
+            }
+        });
+    }
+
+    private void listSuggestions(String prefix, String selectedName) {
+        List<String> suggestions = autocompleteIndex.suggest(prefix, suggestionCount);
+        DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+        model.addElement("");  // The empty option allows for no selection.
+        for (String suggestion : suggestions) {
+            if (!suggestion.isEmpty()) {
+                model.addElement(suggestion);
+            }
+        }
+        model.setSelectedItem(selectedName);
+        updating = true;
+        try {
+            comboBox.setModel(model);
+        } finally {
+            updating = false;
+        }
+    }
+}
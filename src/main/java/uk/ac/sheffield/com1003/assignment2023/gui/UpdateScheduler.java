@@ -0,0 +1,238 @@
+package uk.ac.sheffield.com1003.assignment2023.gui;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Coalesces the updates requested by bursts of GUI events into one update per frame.
+ * <p>
+ * An update is made of stages, run in the order they were added, each depending on the output of the
+ * stages before it (e.g. populating the combo boxes, then executing the query). Events only mark a stage
+ * dirty, which also dirties every stage after it, and start a one-shot timer of one frame if it is not
+ * already running. When the timer fires, every dirty stage runs once, however many events dirtied it.
+ * A stage dirtied again while the update runs (e.g. by the item events of a combo box it populates) runs
+ * later in the same update if it has not run yet, and in the next frame otherwise.
+ * <p>
+ * The time taken by every stage is recorded. Work that finishes outside the scheduler, such as a query
+ * computed on a background thread, can record its own timings with {@link #recordTiming(String, long)}.
+ * All methods must be called on the event dispatch thread.
+ */
+public class UpdateScheduler {
+
+    // Delay between the first event of a burst and the update, in milliseconds (one frame at 60 fps)
+    public static final int DEFAULT_FRAME_MILLIS = 16;
+
+    private final List<String> stageNames = new ArrayList<>();
+    private final List<Runnable> stageActions = new ArrayList<>();
+    private boolean[] dirtyStages = new boolean[0];
+    private final Timer timer;
+    private boolean updating = false;
+    // Number of markDirty calls since the last update, and in the last update
+    private int pendingRequests;
+    private int lastRequestCount;
+    // Timings of every stage (and recorded timing) by name, in the order they were first seen
+    private final Map<String, StageTiming> timings = new LinkedHashMap<>();
+
+    /**
+     * The time taken by one stage of the updates.
+     */
+    public static class StageTiming {
+
+        private final String name;
+        private int runCount;
+        private long lastNanos;
+        private long totalNanos;
+        private long maxNanos;
+
+        public StageTiming(String name) {
+            this.name = name;
+        }
+
+        private void record(long nanos) {
+            runCount++;
+            lastNanos = nanos;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRunCount() {
+            return runCount;
+        }
+
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %.1f ms", name, lastNanos / 1e6);
+        }
+    }
+
+    /**
+     * Constructs a scheduler that runs updates one frame (at 60 fps) after the first event of a burst.
+     */
+    public UpdateScheduler() {
+        this(DEFAULT_FRAME_MILLIS);
+    }
+
+    /**
+     * @param frameMillis the delay between the first event of a burst and the update, in milliseconds.
+     * @throws IllegalArgumentException if the delay is negative.
+     */
+    public UpdateScheduler(int frameMillis) throws IllegalArgumentException {
+        if (frameMillis < 0) {
+            throw new IllegalArgumentException("The frame delay must not be negative (was " + frameMillis + ").");
+        }
+        timer = new Timer(frameMillis, e -> runPendingUpdates());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Adds a stage after the existing ones.
+     *
+     * @param name the name of the stage, used to mark it dirty and to report its timing.
+     * @param action what the stage does.
+     * @throws IllegalArgumentException if a stage already has that name.
+     */
+    public void addStage(String name, Runnable action) throws IllegalArgumentException {
+        if (stageNames.contains(name)) {
+            throw new IllegalArgumentException("There is already a stage named " + name + ".");
+        }
+        stageNames.add(name);
+        stageActions.add(action);
+        boolean[] dirty = new boolean[stageNames.size()];
+        System.arraycopy(dirtyStages, 0, dirty, 0, dirtyStages.length);
+        dirtyStages = dirty;
+    }
+
+    /**
+     * Marks a stage, and every stage after it, to be run by the next update, which starts one frame
+     * later unless one is already pending.
+     *
+     * @param name the name of the stage.
+     * @throws NoSuchElementException if there is no stage with that name.
+     */
+    public void markDirty(String name) throws NoSuchElementException {
+        int stage = stageNames.indexOf(name);
+        if (stage < 0) {
+            throw new NoSuchElementException("There is no stage named " + name + ".");
+        }
+        for (int later = stage; later < dirtyStages.length; later++) {
+            dirtyStages[later] = true;
+        }
+        pendingRequests++;
+        if (!updating && !timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * @param name the name of a stage.
+     * @return whether the stage will run in the next update.
+     */
+    public boolean isDirty(String name) {
+        int stage = stageNames.indexOf(name);
+        return stage >= 0 && dirtyStages[stage];
+    }
+
+    /**
+     * Runs the dirty stages now, in order and each at most once, instead of waiting for the timer.
+     * Stages dirtied again after they ran are left for the next frame.
+     */
+    public void runPendingUpdates() {
+        if (updating) {
+            return;
+        }
+        timer.stop();
+        updating = true;
+        lastRequestCount = pendingRequests;
+        pendingRequests = 0;
+        try {
+            for (int stage = 0; stage < dirtyStages.length; stage++) {
+                if (!dirtyStages[stage]) {
+                    continue;
+                }
+                dirtyStages[stage] = false;
+                long start = System.nanoTime();
+                stageActions.get(stage).run();
+                recordTiming(stageNames.get(stage), System.nanoTime() - start);
+            }
+        } finally {
+            updating = false;
+        }
+        for (boolean dirty : dirtyStages) {
+            if (dirty) {
+                timer.start();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records the time taken by work that was not run as a stage, e.g. a query computed on a background
+     * thread, so that it is reported with the stages.
+     *
+     * @param name the name of the work.
+     * @param nanos the time it took, in nanoseconds.
+     */
+    public void recordTiming(String name, long nanos) {
+        timings.computeIfAbsent(name, StageTiming::new).record(nanos);
+    }
+
+    /**
+     * @return the timing of every stage and recorded work, in the order they were first run.
+     */
+    public List<StageTiming> getTimings() {
+        return List.copyOf(timings.values());
+    }
+
+    /**
+     * @param name the name of a stage or of recorded work.
+     * @return its timing.
+     * @throws NoSuchElementException if it has not run yet.
+     */
+    public StageTiming getTiming(String name) throws NoSuchElementException {
+        StageTiming timing = timings.get(name);
+        if (timing == null) {
+            throw new NoSuchElementException(name + " has not run yet.");
+        }
+        return timing;
+    }
+
+    /**
+     * @return the number of requests (calls to {@link #markDirty(String)}) served by the last update.
+     */
+    public int getLastRequestCount() {
+        return lastRequestCount;
+    }
+
+    /**
+     * Describes the last timing of every stage and recorded work, e.g. for a status bar.
+     *
+     * @return the timings, separated by vertical bars.
+     */
+    public String describeTimings() {
+        StringBuilder description = new StringBuilder();
+        for (StageTiming timing : timings.values()) {
+            description.append(description.length() == 0 ? "" : " | ").append(timing);
+        }
+        return description.toString();
+    }
+}
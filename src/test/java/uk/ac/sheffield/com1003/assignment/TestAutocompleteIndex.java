@@ -0,0 +1,110 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.AutocompleteIndex;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.TextTokenizer;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAutocompleteIndex {
+
+    @Test
+    public void testSuggestOrdersByPopularity() {
+        Map<String, Double> weightedValues = new HashMap<>();
+        weightedValues.put("Taylor Swift", 90.0);
+        weightedValues.put("Tayc", 60.0);
+        weightedValues.put("Tame Impala", 80.0);
+        weightedValues.put("taylor swift", 90.0);
+        weightedValues.put("Ti\u00ebsto", 70.0);
+        weightedValues.put("Queen", 95.0);
+        AutocompleteIndex autocompleteIndex = new AutocompleteIndex(weightedValues);
+
+        assertEquals(6, autocompleteIndex.size());
+        // Equal popularity is broken alphabetically.
+        assertEquals(List.of("Taylor Swift", "taylor swift", "Tayc"), autocompleteIndex.suggest("TAY", 10));
+        assertEquals(List.of("Taylor Swift", "taylor swift"), autocompleteIndex.suggest("tay", 2));
+        assertEquals(List.of("Ti\u00ebsto"), autocompleteIndex.suggest("tie", 10));
+        assertEquals(List.of("Queen", "Taylor Swift", "taylor swift"), autocompleteIndex.suggest("", 3));
+        assertTrue(autocompleteIndex.suggest("x", 10).isEmpty());
+        assertTrue(autocompleteIndex.suggest("t", 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> autocompleteIndex.suggest("t", -1));
+    }
+
+    @Test
+    public void testFindIgnoresCaseAndAccents() {
+        Map<String, Double> weightedValues = new HashMap<>();
+        weightedValues.put("Bad Guy", 40.0);
+        weightedValues.put("bad guy", 80.0);
+        weightedValues.put("Ti\u00ebsto", 70.0);
+        AutocompleteIndex autocompleteIndex = new AutocompleteIndex(weightedValues);
+
+        assertEquals("Bad Guy", autocompleteIndex.find("Bad Guy"));
+        assertEquals("bad guy", autocompleteIndex.find("BAD GUY"));
+        assertEquals("Ti\u00ebsto", autocompleteIndex.find("tiesto"));
+        assertNull(autocompleteIndex.find("bad"));
+        assertNull(new AutocompleteIndex(new HashMap<>()).find("bad"));
+    }
+
+    @Test
+    public void testSuggestMatchesSortingThePrefixRange() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        Map<String, Double> popularity = new HashMap<>();
+        for (SongEntry songEntry : songEntries) {
+            popularity.merge(songEntry.getSongArtist(), songEntry.getSongProperty(SongProperty.POPULARITY),
+                    Math::max);
+        }
+        AutocompleteIndex autocompleteIndex = songCatalog.getAutocompleteIndex(SongDetail.ARTIST);
+        assertSame(autocompleteIndex, songCatalog.getAutocompleteIndex(SongDetail.ARTIST));
+        assertEquals(popularity.size(), autocompleteIndex.size());
+
+        Random random = new Random(38);
+        List<String> artists = List.copyOf(popularity.keySet());
+        for (int lookup = 0; lookup < 200; lookup++) {
+            String artist = artists.get(random.nextInt(artists.size()));
+            String prefix = TextTokenizer.fold(
+                    artist.substring(0, Math.min(artist.length(), 1 + random.nextInt(3))));
+            List<String> expected = artists.stream()
+                    .filter(name -> TextTokenizer.fold(name).startsWith(prefix))
+                    .sorted(Comparator.comparing((String name) -> -popularity.get(name)))
+                    .limit(10)
+                    .toList();
+            List<String> suggestions = songCatalog.suggestDetailValues(SongDetail.ARTIST, prefix, 10);
+            assertEquals(expected.size(), suggestions.size());
+            for (int rank = 0; rank < suggestions.size(); rank++) {
+                assertTrue(TextTokenizer.fold(suggestions.get(rank)).startsWith(prefix));
+                assertEquals(popularity.get(expected.get(rank)), popularity.get(suggestions.get(rank)));
+            }
+        }
+    }
+
+    @Test
+    public void testSelectionIndexesAreKept() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        String artist = songCatalog.getSongEntriesList().get(0).getSongArtist();
+        AutocompleteIndex albums = songCatalog.getAutocompleteIndex(SongDetail.ALBUM_NAME, artist, "", "");
+        assertSame(albums, songCatalog.getAutocompleteIndex(SongDetail.ALBUM_NAME, artist, "", ""));
+        assertSame(songCatalog.getAutocompleteIndex(SongDetail.ALBUM_NAME),
+                songCatalog.getAutocompleteIndex(SongDetail.ALBUM_NAME, "", "", ""));
+
+        // Only the albums of the selected artist are offered
+        long albumCount = songCatalog.getSongEntriesList().stream()
+                .filter(songEntry -> songEntry.getSongArtist().equals(artist))
+                .map(SongEntry::getSongAlbumName)
+                .distinct()
+                .count();
+        assertEquals(albumCount, albums.size());
+    }
+}
@@ -0,0 +1,73 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.BatchReport;
+import uk.ac.sheffield.com1003.assignment2023.CatalogSummary;
+import uk.ac.sheffield.com1003.assignment2023.DistinctCounter;
+import uk.ac.sheffield.com1003.assignment2023.QueryParser;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBatchReport {
+
+    @Test
+    public void testReportHoldsEveryQuery() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<Query> queries = new QueryParser().buildQueries(TestCommon.tokenizeString(
+                "select songs where energy > 0.8 select songs where tempo > 1000".toLowerCase()));
+        List<SongEntry> expected = queries.get(0).executeQuery(songCatalog);
+
+        Path directory = Files.createTempDirectory("report");
+        try {
+            new BatchReport(songCatalog, queries, new DistinctCounter()).write(directory);
+
+            // The summary has the lines of the CLI
+            List<String> summary = Files.readAllLines(directory.resolve("summary.txt"));
+            List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+            DistinctCounter distinctCounter = new DistinctCounter();
+            assertEquals(CatalogSummary.formatUniqueSongs(distinctCounter.countUniqueSongs(songEntries),
+                    songCatalog.getRowCount(songEntries), distinctCounter), summary.get(0));
+            assertEquals(CatalogSummary.formatPropertyStatistics(songCatalog, songEntries),
+                    summary.subList(2, summary.size()));
+
+            // Every query has its name, then its row count on the next line
+            List<String> queryReport = Files.readAllLines(directory.resolve("queries.txt"));
+            int first = queryReport.indexOf("query-01 " + queries.get(0));
+            assertTrue(first >= 0);
+            assertTrue(queryReport.get(first + 1).startsWith(String.format("Rows: %d (%d song entries) in ",
+                    songCatalog.getRowCount(expected), expected.size())));
+            int second = queryReport.indexOf("query-02 " + queries.get(1));
+            assertTrue(second >= 0);
+            assertTrue(queryReport.get(second + 1).startsWith("Rows: 0 (0 song entries) in "));
+
+            // A header row, then a row per song entry
+            assertEquals(expected.size() + 1, Files.readAllLines(directory.resolve("query-01.tsv")).size());
+            assertEquals(1, Files.readAllLines(directory.resolve("query-02.tsv")).size());
+
+            // The chart is drawn for the non-empty results only
+            BufferedImage chart = ImageIO.read(directory.resolve("query-01.png").toFile());
+            assertEquals(BatchReport.CHART_WIDTH, chart.getWidth());
+            assertEquals(BatchReport.CHART_HEIGHT, chart.getHeight());
+            assertFalse(Files.exists(directory.resolve("query-02.png")));
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.ColumnMemory;
+import uk.ac.sheffield.com1003.assignment2023.LoadMode;
+import uk.ac.sheffield.com1003.assignment2023.LoadProgressListener;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.SongColumnsSnapshot;
+import uk.ac.sheffield.com1003.assignment2023.StorageBackend;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestColumnMemory {
+
+    @Test
+    public void testDirectColumnsMatchHeapColumns() throws IOException {
+        SongCatalog heapCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        try (SongCatalog directCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, ColumnMemory.DIRECT)) {
+            assertTrue(directCatalog.getSongColumns().getColumn(SongProperty.ENERGY).isDirect());
+            assertTrue(directCatalog.getSongColumns().getColumn(SongDetail.NAME).isDirect());
+            assertSameSongEntries(heapCatalog.getSongEntriesList(), directCatalog.getSongEntriesList());
+        }
+    }
+
+    @Test
+    public void testMappedSnapshotIsWrittenReusedAndRebuilt() throws IOException {
+        Path directory = Files.createTempDirectory("snapshot");
+        Path songFile = Files.copy(Path.of(TestCommon.SONG_FILE), directory.resolve("songs.tsv"));
+        Path snapshotFile = SongColumnsSnapshot.defaultPath(songFile.toString());
+        try {
+            SongCatalog heapCatalog = new SongCatalog(songFile.toString(), LoadMode.COLLAPSE_DUPLICATES);
+            assertFalse(SongColumnsSnapshot.isUpToDate(snapshotFile, songFile, LoadMode.COLLAPSE_DUPLICATES));
+
+            try (SongCatalog mappedCatalog = new SongCatalog(songFile.toString(), LoadMode.COLLAPSE_DUPLICATES,
+                    ColumnMemory.MAPPED)) {
+                assertEquals(ColumnMemory.MAPPED, mappedCatalog.getSongColumns().getColumnMemory());
+                assertSameSongEntries(heapCatalog.getSongEntriesList(), mappedCatalog.getSongEntriesList());
+            }
+            assertTrue(SongColumnsSnapshot.isUpToDate(snapshotFile, songFile, LoadMode.COLLAPSE_DUPLICATES));
+            // The snapshot records the load mode and the version of the song file it was built from.
+            assertFalse(SongColumnsSnapshot.isUpToDate(snapshotFile, songFile, LoadMode.ALL_ROWS));
+            Files.setLastModifiedTime(songFile, FileTime.fromMillis(0));
+            assertFalse(SongColumnsSnapshot.isUpToDate(snapshotFile, songFile, LoadMode.COLLAPSE_DUPLICATES));
+
+            try (SongCatalog rebuiltCatalog = new SongCatalog(songFile.toString(), LoadMode.COLLAPSE_DUPLICATES,
+                    ColumnMemory.MAPPED)) {
+                assertTrue(SongColumnsSnapshot.isUpToDate(snapshotFile, songFile, LoadMode.COLLAPSE_DUPLICATES));
+                assertSameSongEntries(heapCatalog.getSongEntriesList(), rebuiltCatalog.getSongEntriesList());
+            }
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(songFile);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void testMappedSnapshotCanBeKeptInAnotherDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("snapshots");
+        Path snapshotFile = SongColumnsSnapshot.pathIn(directory, TestCommon.SONG_FILE);
+        try {
+            try (SongCatalog mappedCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS,
+                    StorageBackend.COLUMNS, ColumnMemory.MAPPED, directory, LoadProgressListener.NONE)) {
+                assertSameSongEntries(new SongCatalog(TestCommon.SONG_FILE).getSongEntriesList(),
+                        mappedCatalog.getSongEntriesList());
+            }
+            assertTrue(SongColumnsSnapshot.isUpToDate(snapshotFile, Path.of(TestCommon.SONG_FILE), LoadMode.ALL_ROWS));
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void testMappedCatalogHeapDoesNotGrowWithTheRows() throws IOException {
+        Path directory = Files.createTempDirectory("rows");
+        List<String> lines = Files.readAllLines(Path.of(TestCommon.SONG_FILE));
+        Path smallFile = directory.resolve("small.tsv");
+        Path largeFile = directory.resolve("large.tsv");
+        Files.write(smallFile, lines);
+        List<String> largeLines = new ArrayList<>(lines);
+        for (int copy = 1; copy < 8; copy++) {
+            largeLines.addAll(lines.subList(1, lines.size()));
+        }
+        Files.write(largeFile, largeLines);
+        try {
+            // Write both snapshots first, so that the measured loads only map them
+            retainedHeap(smallFile, directory);
+            retainedHeap(largeFile, directory);
+            long smallHeap = retainedHeap(smallFile, directory);
+            long largeHeap = retainedHeap(largeFile, directory);
+            long addedRows = largeLines.size() - lines.size();
+            // A song entry per row would take at least 16 bytes a row
+            assertTrue(largeHeap - smallHeap < 2 * addedRows,
+                    "retained " + smallHeap + " bytes for " + (lines.size() - 1) + " rows and " + largeHeap +
+                            " bytes for " + (largeLines.size() - 1) + " rows");
+        } finally {
+            for (Path file : List.of(smallFile, largeFile)) {
+                Files.deleteIfExists(SongColumnsSnapshot.pathIn(directory, file.toString()));
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Loads a catalog of mapped columns and returns how much more heap is used while it is open.
+     */
+    private static long retainedHeap(Path songFile, Path snapshotDirectory) throws IOException {
+        long before = usedHeap();
+        try (SongCatalog catalog = new SongCatalog(songFile.toString(), LoadMode.ALL_ROWS, StorageBackend.COLUMNS,
+                ColumnMemory.MAPPED, snapshotDirectory, LoadProgressListener.NONE)) {
+            long retained = usedHeap() - before;
+            assertFalse(catalog.getSongEntriesList().isEmpty());
+            return retained;
+        }
+    }
+
+    /**
+     * Returns the heap in use after collecting garbage, as the least of a few attempts.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    @Test
+    public void testClosedCatalogCannotBeRead() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, ColumnMemory.DIRECT);
+        SongEntry songEntry = catalog.getSongEntriesList().get(0);
+        catalog.close();
+        assertTrue(catalog.getSongColumns().isClosed());
+        assertThrows(IllegalStateException.class, () -> songEntry.getSongProperty(SongProperty.TEMPO));
+        assertThrows(IllegalStateException.class, songEntry::getSongName);
+    }
+
+    private static void assertSameSongEntries(List<SongEntry> expected, List<SongEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.get(row).getId(), actual.get(row).getId());
+            assertEquals(expected.get(row).getMultiplicity(), actual.get(row).getMultiplicity());
+            for (SongProperty songProperty : SongProperty.values()) {
+                assertEquals(Double.doubleToRawLongBits(expected.get(row).getSongProperty(songProperty)),
+                        Double.doubleToRawLongBits(actual.get(row).getSongProperty(songProperty)));
+            }
+            for (SongDetail songDetail : SongDetail.values()) {
+                assertEquals(expected.get(row).getSongDetail(songDetail), actual.get(row).getSongDetail(songDetail));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.gui.CustomChart;
+import uk.ac.sheffield.com1003.assignment2023.gui.CustomChartPanel;
+import uk.ac.sheffield.com1003.assignment2023.gui.SpotifyDashboardPanel;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCustomChartPanel {
+
+    @Test
+    public void testLayersAreOnlyRenderedWhenTheirInputsChange()
+            throws IOException, InterruptedException, InvocationTargetException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        SwingUtilities.invokeAndWait(() -> {
+            CustomChart customChart = new CustomChart(songCatalog, songEntries);
+            CustomChartPanel customChartPanel =
+                    new CustomChartPanel(new SpotifyDashboardPanel(songCatalog), customChart);
+            customChartPanel.setSize(800, 400);
+
+            paint(customChartPanel);
+            BufferedImage first = paint(customChartPanel);
+            assertEquals(2, customChartPanel.getPaintCount());
+            assertEquals(1, customChartPanel.getStaticLayerRenderCount());
+            assertEquals(1, customChartPanel.getDataLayerRenderCount());
+            assertTrue(customChartPanel.getLastPaintNanos() > 0);
+
+            // New values only render the data layer again.
+            customChart.updateCustomChartContents(songEntries.subList(0, songEntries.size() / 2));
+            paint(customChartPanel);
+            assertEquals(1, customChartPanel.getStaticLayerRenderCount());
+            assertEquals(2, customChartPanel.getDataLayerRenderCount());
+
+            // Resizing renders both layers again, and painting twice at the same size gives the same pixels.
+            customChartPanel.setSize(600, 400);
+            BufferedImage resized = paint(customChartPanel);
+            assertEquals(2, customChartPanel.getStaticLayerRenderCount());
+            assertEquals(3, customChartPanel.getDataLayerRenderCount());
+            customChartPanel.setSize(800, 400);
+            BufferedImage restored = paint(customChartPanel);
+            assertEquals(600, resized.getWidth());
+            assertEquals(first.getRGB(400, 200), restored.getRGB(400, 200));
+            assertTrue(customChartPanel.describePaintCost().startsWith("Last paint "));
+        });
+    }
+
+    private static BufferedImage paint(CustomChartPanel customChartPanel) {
+        Dimension size = customChartPanel.getSize();
+        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            customChartPanel.paint(g2d);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,73 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.DensityGrid;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDensityGrid {
+
+    @Test
+    public void testParallelBinningCountsEveryRowOnce() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        // Enough entries to be split across threads
+        List<SongEntry> songEntries = new ArrayList<>();
+        for (int copy = 0; copy < 20; copy++) {
+            songEntries.addAll(songCatalog.getSongEntriesList());
+        }
+        DensityGrid densityGrid = new DensityGrid(SongProperty.LOUDNESS, -30, 0, SongProperty.ENERGY, 0, 1, 64, 48);
+        densityGrid.addAll(songEntries);
+
+        long[][] expected = new long[64][48];
+        long outside = 0;
+        long rows = 0;
+        for (SongEntry songEntry : songEntries) {
+            int column = densityGrid.getColumn(songEntry.getSongProperty(SongProperty.LOUDNESS));
+            int row = densityGrid.getRow(songEntry.getSongProperty(SongProperty.ENERGY));
+            rows += songEntry.getMultiplicity();
+            if (column < 0 || row < 0) {
+                outside += songEntry.getMultiplicity();
+            } else {
+                expected[column][row] += songEntry.getMultiplicity();
+            }
+        }
+        long maxCount = 0;
+        for (int column = 0; column < 64; column++) {
+            for (int row = 0; row < 48; row++) {
+                assertEquals(expected[column][row], densityGrid.getCount(column, row));
+                maxCount = Math.max(maxCount, expected[column][row]);
+            }
+        }
+        assertEquals(rows - outside, densityGrid.getTotalCount());
+        assertEquals(outside, densityGrid.getOutsideCount());
+        assertEquals(maxCount, densityGrid.getMaxCount());
+
+        // Adding more entries adds to the counts.
+        densityGrid.addAll(songEntries);
+        assertEquals(2 * (rows - outside), densityGrid.getTotalCount());
+    }
+
+    @Test
+    public void testBinsCoverTheWholeRange() {
+        DensityGrid densityGrid = new DensityGrid(SongProperty.TEMPO, 50, 250, SongProperty.VALENCE, 0, 1, 10, 4);
+        assertEquals(0, densityGrid.getColumn(50));
+        assertEquals(9, densityGrid.getColumn(250));
+        assertEquals(4, densityGrid.getColumn(149));
+        assertEquals(-1, densityGrid.getColumn(250.5));
+        assertEquals(-1, densityGrid.getRow(Double.NaN));
+        assertEquals(3, densityGrid.getRow(0.99));
+        assertThrows(IndexOutOfBoundsException.class, () -> densityGrid.getCount(10, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DensityGrid(SongProperty.TEMPO, 1, 0, SongProperty.VALENCE, 0, 1, 10, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DensityGrid(SongProperty.TEMPO, 0, 1, SongProperty.VALENCE, 0, 1, 0, 4));
+    }
+}
@@ -0,0 +1,56 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.DistinctCounter;
+import uk.ac.sheffield.com1003.assignment2023.HyperLogLog;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDistinctCounter {
+
+    @Test
+    public void testExactCountsOfExampleDataset() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        DistinctCounter counter = new DistinctCounter();
+
+        assertEquals(28348, counter.countUniqueSongs(catalog.getSongEntriesList()));
+        assertEquals(10687, counter.countUniqueArtists(catalog.getSongEntriesList()));
+    }
+
+    @Test
+    public void testExactCountIgnoresIds() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        String line = "Black Or White\tMichael Jackson\t254933\tDangerous\t0\t0.518\t0.9\t-3.748" +
+                "\t0.0933\t0.172\t0.0315\t0.0713\t0.872\t115.029";
+        List<SongEntry> duplicates = List.of(
+                new SongEntry(1, catalog.parseSongEntryLine(line)),
+                new SongEntry(2, catalog.parseSongEntryLine(line)),
+                new SongEntry(3, catalog.parseSongEntryLine(line.replace("115.029", "115.03"))));
+
+        assertEquals(2, new DistinctCounter().countUniqueSongs(duplicates));
+        assertEquals(1, new DistinctCounter().countUniqueArtists(duplicates));
+    }
+
+    @Test
+    public void testApproximateCountIsWithinErrorBound() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        int precision = 14;
+        DistinctCounter counter = new DistinctCounter(DistinctCounter.Mode.APPROXIMATE, precision);
+
+        long estimate = counter.countUniqueSongs(catalog.getSongEntriesList());
+        double tolerance = 4 * HyperLogLog.relativeStandardError(precision) * 28348;
+        assertTrue(Math.abs(estimate - 28348) <= tolerance, "estimate " + estimate + " is too far off");
+    }
+
+    @Test
+    public void testInvalidPrecisionIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DistinctCounter(DistinctCounter.Mode.APPROXIMATE, HyperLogLog.MAX_PRECISION + 1));
+    }
+}
@@ -0,0 +1,89 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.ColumnEncoding;
+import uk.ac.sheffield.com1003.assignment2023.EncodedColumn;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongPropertyMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestEncodedColumn {
+
+    @Test
+    public void testCatalogValuesAreIdenticalToParsedValues() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<String> lines = Files.readAllLines(Path.of(TestCommon.SONG_FILE));
+        List<SongEntry> songEntries = catalog.getSongEntriesList();
+
+        assertEquals(lines.size() - 1, songEntries.size());
+        for (int row = 0; row < songEntries.size(); row++) {
+            SongPropertyMap parsed = catalog.parseSongEntryLine(lines.get(row + 1));
+            for (SongProperty songProperty : SongProperty.values()) {
+                assertEquals(Double.doubleToRawLongBits(parsed.getProperty(songProperty)),
+                        Double.doubleToRawLongBits(songEntries.get(row).getSongProperty(songProperty)));
+            }
+        }
+        assertEquals(ColumnEncoding.BYTE, catalog.getSongColumns().getColumn(SongProperty.POPULARITY).getEncoding());
+    }
+
+    @Test
+    public void testNarrowestExactEncodingIsChosen() {
+        assertEquals(ColumnEncoding.BYTE, EncodedColumn.encode(new double[]{0, 55, 100}).getEncoding());
+        assertEquals(ColumnEncoding.BYTE, EncodedColumn.encode(new double[]{-0.5, 0.1, 0.2}).getEncoding());
+        assertEquals(ColumnEncoding.SHORT, EncodedColumn.encode(new double[]{0.001, 0.815, 1}).getEncoding());
+        assertEquals(ColumnEncoding.INT, EncodedColumn.encode(new double[]{0, 254933}).getEncoding());
+        assertEquals(ColumnEncoding.FLOAT, EncodedColumn.encode(new double[]{(float) 0.1, -0.0}).getEncoding());
+        assertEquals(ColumnEncoding.DOUBLE, EncodedColumn.encode(new double[]{1 / 3d, Math.PI}).getEncoding());
+    }
+
+    @Test
+    public void testRangeBoundsMatchTheDecodedValues() {
+        // 1.1 * 100 and 0.07 * 100 are not whole numbers in binary, yet must find exactly the rows equal to them
+        EncodedColumn column = EncodedColumn.encode(new double[]{1.1, 1.15, 2.3, 0.07});
+        assertEquals(ColumnEncoding.BYTE, column.getEncoding());
+        assertArrayEquals(new int[]{0, 1, 2}, column.findRows(1.1, 10));
+        assertArrayEquals(new int[]{3}, column.findRows(0, 1.1));
+        assertArrayEquals(new int[]{0}, column.findRows(1.1, 1.15));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, column.findRows(0.07, 10));
+        assertArrayEquals(new int[]{}, column.findRows(0, 0.07));
+        assertArrayEquals(new int[]{3}, column.findRows(0.07, 0.08));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, column.findRows(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        assertArrayEquals(new int[]{}, column.findRows(2.31, 1e300));
+    }
+
+    @Test
+    public void testRangeOfRowsIsSearchedLikeTheWholeColumn() {
+        double[][] columns = {{1.1, 1.15, 2.3, 0.07, 1.1, 5}, {0.001, 0.815, 1, 0.5, 0.815, 0},
+                {0, 254933, 3, 254933, 7, 1}, {(float) 0.1, -0.0, 0.0, (float) 0.1, 2, -1},
+                {1 / 3d, Math.PI, -1 / 3d, 1 / 3d, 0, Math.E}};
+        for (double[] values : columns) {
+            EncodedColumn column = EncodedColumn.encode(values);
+            for (double from : values) {
+                for (double to : new double[]{from, Math.nextUp(from), 3, Double.POSITIVE_INFINITY}) {
+                    int[] allRows = column.findRows(from, to);
+                    assertArrayEquals(Arrays.stream(allRows).filter(row -> row >= 1 && row < 5).toArray(),
+                            column.findRows(from, to, 1, 5), column.getEncoding() + " [" + from + ", " + to + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEncodedValuesRoundTrip() {
+        double[] values = {-3.748, 0.0713, 115.029, -0.0, Double.NaN, 1e300, (float) 0.1};
+        EncodedColumn column = EncodedColumn.encode(values);
+        for (int row = 0; row < values.length; row++) {
+            assertEquals(Double.doubleToRawLongBits(values[row]), Double.doubleToRawLongBits(column.get(row)));
+        }
+    }
+}
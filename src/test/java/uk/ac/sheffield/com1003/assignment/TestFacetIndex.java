@@ -0,0 +1,92 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.FacetIndex;
+import uk.ac.sheffield.com1003.assignment2023.LoadMode;
+import uk.ac.sheffield.com1003.assignment2023.RowOrder;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFacetIndex {
+
+    @Test
+    public void testSelectionsMatchFilteringTheCatalog() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.COLLAPSE_DUPLICATES);
+        FacetIndex facetIndex = songCatalog.getFacetIndex();
+        assertSame(facetIndex, songCatalog.getFacetIndex());
+
+        SongEntry songEntry = songCatalog.getSongEntriesList().get(0);
+        String artist = songEntry.getSongArtist();
+        String album = songEntry.getSongAlbumName();
+        String song = songEntry.getSongName();
+        String[][] selections = {
+                {artist, "", ""}, {"", album, ""}, {"", "", song}, {artist.toUpperCase(), album, ""},
+                {artist, "", song}, {artist, album, song}, {"Nobody", "", ""}, {"", "", ""}
+        };
+        for (String[] selection : selections) {
+            List<SongEntry> expected = filter(songCatalog, selection);
+            assertEquals(expected, facetIndex.getSongEntries(selection[0], selection[1], selection[2]));
+            assertEquals(songCatalog.getRowCount(expected),
+                    facetIndex.getRowCount(selection[0], selection[1], selection[2]));
+
+            for (SongDetail songDetail : SongDetail.values()) {
+                Map<String, List<SongEntry>> expectedValues = new LinkedHashMap<>();
+                expected.forEach(entry -> expectedValues
+                        .computeIfAbsent(entry.getSongDetail(songDetail), value -> new ArrayList<>()).add(entry));
+                List<FacetIndex.FacetValue> facetValues = facetIndex.getFacetValues(songDetail, selection[0],
+                        selection[1], selection[2]);
+                assertEquals(expectedValues.size(), facetValues.size());
+                for (FacetIndex.FacetValue facetValue : facetValues) {
+                    List<SongEntry> valueEntries = expectedValues.get(facetValue.getValue());
+                    assertEquals(songCatalog.getRowCount(valueEntries), facetValue.getRowCount());
+                    assertEquals(songCatalog.getMaximumValue(SongProperty.POPULARITY, valueEntries),
+                            facetValue.getPopularity(), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAlbumsOfAnArtistComeInAlbumOrder() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<FacetIndex.FacetValue> albums = songCatalog.getFacetIndex()
+                .getFacetValues(SongDetail.ALBUM_NAME, "Ed Sheeran", "", "");
+        assertFalse(albums.isEmpty());
+        for (int album = 1; album < albums.size(); album++) {
+            assertTrue(albums.get(album - 1).getValue().compareToIgnoreCase(albums.get(album).getValue()) <= 0);
+        }
+    }
+
+    @Test
+    public void testFacetIndexIsRebuiltWhenRowsAreReordered() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        FacetIndex facetIndex = songCatalog.getFacetIndex();
+        songCatalog.reorderRows(RowOrder.byProperty(SongProperty.TEMPO));
+        assertNotSame(facetIndex, songCatalog.getFacetIndex());
+        String[] selection = {"Ed Sheeran", "", ""};
+        assertEquals(filter(songCatalog, selection),
+                songCatalog.getFacetIndex().getSongEntries(selection[0], selection[1], selection[2]));
+    }
+
+    private static List<SongEntry> filter(SongCatalog songCatalog, String[] selection) {
+        List<SongEntry> songEntries = new ArrayList<>(songCatalog.getSongEntriesList());
+        SongDetail[] details = {SongDetail.ARTIST, SongDetail.ALBUM_NAME, SongDetail.NAME};
+        for (int detail = 0; detail < details.length; detail++) {
+            if (!selection[detail].isEmpty()) {
+                songEntries = songCatalog.getSongEntriesList(songEntries, details[detail], selection[detail]);
+            }
+        }
+        return songEntries;
+    }
+}
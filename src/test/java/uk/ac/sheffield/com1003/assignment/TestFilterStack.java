@@ -0,0 +1,161 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.FilterStack;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFilterStack {
+
+    private static final SubQuery ENERGY = new SubQuery(SongProperty.ENERGY, ">", 0.5);
+    private static final SubQuery DANCEABILITY = new SubQuery(SongProperty.DANCEABILITY, ">=", 0.6);
+    private static final SubQuery TEMPO = new SubQuery(SongProperty.TEMPO, "<", 120);
+
+    @Test
+    public void testChangesReuseTheCachedPrefix() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        FilterStack filterStack = new FilterStack(songEntries);
+        assertSame(songEntries, filterStack.getResult());
+
+        filterStack.add(ENERGY);
+        filterStack.add(DANCEABILITY);
+        assertEquals(filter(songEntries, ENERGY, DANCEABILITY), filterStack.getResult());
+        assertEquals(0, filterStack.getReusedCount());
+        assertEquals(2, filterStack.getAppliedCount());
+
+        // Adding a filter only applies that filter to the cached result.
+        filterStack.add(TEMPO);
+        assertEquals(filter(songEntries, ENERGY, DANCEABILITY, TEMPO), filterStack.getResult());
+        assertEquals(2, filterStack.getReusedCount());
+        assertEquals(1, filterStack.getAppliedCount());
+
+        // Removing a filter reuses the filters before it.
+        filterStack.remove(1);
+        assertEquals(List.of(ENERGY, TEMPO), filterStack.getSubQueries());
+        assertEquals(filter(songEntries, ENERGY, TEMPO), filterStack.getResult());
+        assertEquals(1, filterStack.getReusedCount());
+
+        // Undo is served from the cache.
+        assertTrue(filterStack.undo());
+        assertEquals(filter(songEntries, ENERGY, DANCEABILITY, TEMPO), filterStack.getResult());
+        assertEquals(3, filterStack.getReusedCount());
+        assertEquals(0, filterStack.getAppliedCount());
+
+        filterStack.move(2, 0);
+        assertEquals(List.of(TEMPO, ENERGY, DANCEABILITY), filterStack.getSubQueries());
+        assertEquals(filter(songEntries, ENERGY, DANCEABILITY, TEMPO), filterStack.getResult());
+
+        filterStack.clear();
+        assertSame(songEntries, filterStack.getResult());
+        assertTrue(filterStack.undo());
+        assertEquals(3, filterStack.getSubQueries().size());
+        filterStack.getResult();
+        assertEquals(0, filterStack.getAppliedCount());
+    }
+
+    @Test
+    public void testCacheStaysWithinItsMemoryBound() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        FilterStack filterStack = new FilterStack(songEntries, 0);
+        filterStack.add(ENERGY);
+        filterStack.add(DANCEABILITY);
+        assertEquals(filter(songEntries, ENERGY, DANCEABILITY), filterStack.getResult());
+        // Only the latest result is kept.
+        assertEquals(1, filterStack.getCachedPrefixCount());
+        filterStack.remove(1);
+        assertEquals(filter(songEntries, ENERGY), filterStack.getResult());
+        assertEquals(1, filterStack.getAppliedCount());
+
+        assertThrows(IllegalArgumentException.class, () -> new FilterStack(songEntries, -1));
+        assertFalse(new FilterStack(songEntries).undo());
+    }
+
+    @Test
+    public void testNewBaseEntriesDropTheCache() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        FilterStack filterStack = new FilterStack(songEntries);
+        filterStack.add(ENERGY);
+        filterStack.getResult();
+
+        // The same list keeps the cache; a copy is new base entries, without comparing its song entries.
+        filterStack.setBaseEntries(songEntries);
+        filterStack.getResult();
+        assertEquals(1, filterStack.getReusedCount());
+        filterStack.setBaseEntries(new ArrayList<>(songEntries));
+        filterStack.getResult();
+        assertEquals(0, filterStack.getReusedCount());
+
+        List<SongEntry> firstHalf = songEntries.subList(0, songEntries.size() / 2);
+        filterStack.setBaseEntries(firstHalf);
+        assertEquals(filter(firstHalf, ENERGY), filterStack.getResult());
+        assertEquals(0, filterStack.getReusedCount());
+    }
+
+    @Test
+    public void testInterruptedFilteringIsCancelled() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        FilterStack filterStack = new FilterStack(songEntries);
+        filterStack.add(ENERGY);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, filterStack::getResult);
+        } finally {
+            Thread.interrupted();
+        }
+        // Nothing was cached, and the next result is complete.
+        assertEquals(0, filterStack.getCachedPrefixCount());
+        assertEquals(filter(songEntries, ENERGY), filterStack.getResult());
+        assertEquals(1, filterStack.getAppliedCount());
+    }
+
+    @Test
+    public void testResultsListTheEntriesTheAppliedFiltersRemoved() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        FilterStack filterStack = new FilterStack(songEntries);
+        filterStack.add(ENERGY);
+        FilterStack.Result first = filterStack.computeResult();
+        assertEquals(0, first.getReusedCount());
+        assertEquals(songEntries.size(), first.getSongEntries().size() + first.getRemovedEntries().size());
+
+        filterStack.add(DANCEABILITY);
+        filterStack.add(TEMPO);
+        FilterStack.Result narrowed = filterStack.computeResult();
+        assertTrue(narrowed.narrows(songEntries, first.getSubQueries()));
+        List<SongEntry> removed = new ArrayList<>(first.getSongEntries());
+        removed.removeAll(new HashSet<>(narrowed.getSongEntries()));
+        assertEquals(removed, narrowed.getRemovedEntries());
+
+        // Removing a filter does not narrow the previous result.
+        filterStack.remove(0);
+        FilterStack.Result widened = filterStack.computeResult();
+        assertFalse(widened.narrows(songEntries, narrowed.getSubQueries()));
+        assertEquals(filter(songEntries, DANCEABILITY, TEMPO), widened.getSongEntries());
+    }
+
+    private static List<SongEntry> filter(List<SongEntry> songEntries, SubQuery... subQueries) {
+        List<SongEntry> matchingEntries = new ArrayList<>();
+        for (SongEntry songEntry : songEntries) {
+            if (FilterStack.matches(songEntry, List.of(subQueries))) {
+                matchingEntries.add(songEntry);
+            }
+        }
+        return matchingEntries;
+    }
+}
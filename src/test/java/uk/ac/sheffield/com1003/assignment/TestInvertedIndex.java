@@ -0,0 +1,117 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.InvertedIndex;
+import uk.ac.sheffield.com1003.assignment2023.QueryParser;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.SongMatch;
+import uk.ac.sheffield.com1003.assignment2023.TextTokenizer;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInvertedIndex {
+
+    @Test
+    public void testTokenizerFoldsCaseAndAccents() {
+        assertEquals(List.of("tough", "love", "tiesto", "remix", "radio", "edit"),
+                TextTokenizer.tokenize("Tough Love - Ti\u00ebsto Remix / Radio Edit"));
+        assertEquals(List.of(), TextTokenizer.tokenize(" - / "));
+    }
+
+    @Test
+    public void testMatchAllFindsRowsContainingEveryTerm() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        InvertedIndex textIndex = catalog.getTextIndex();
+        BitSet rows = textIndex.matchAll("Remix RADIO");
+
+        BitSet expected = new BitSet();
+        List<SongEntry> songEntries = catalog.getSongEntriesList();
+        for (int row = 0; row < songEntries.size(); row++) {
+            SongEntry songEntry = songEntries.get(row);
+            List<String> terms = TextTokenizer.tokenize(songEntry.getSongName() + " " + songEntry.getSongArtist()
+                    + " " + songEntry.getSongAlbumName());
+            if (terms.contains("remix") && terms.contains("radio"))
+                expected.set(row);
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, rows);
+        assertTrue(textIndex.matchAll("remix nosuchwordanywhere").isEmpty());
+        assertEquals(expected.cardinality(), textIndex.rankRows(rows, "remix radio").length);
+    }
+
+    @Test
+    public void testSearchRanksRarerTermsHigher() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongMatch> matches = catalog.searchSongs("remix tiesto", 20);
+
+        assertEquals(20, matches.size());
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).getScore() >= matches.get(i).getScore());
+        }
+        // "tiesto" is much rarer than "remix", so the best matches contain it.
+        String best = matches.get(0).getSongEntry().getSongName() + " " + matches.get(0).getSongEntry().getSongArtist();
+        assertTrue(TextTokenizer.tokenize(best).contains("tiesto"));
+    }
+
+    @Test
+    public void testMatchClauseIntersectsWithSubQueries() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<Query> queries = new QueryParser().buildQueries(
+                Arrays.asList("select songs where match tiesto and energy > 0.9".split(" ")));
+        assertEquals(1, queries.size());
+        assertEquals("tiesto", queries.get(0).getMatchText());
+
+        List<SongEntry> result = queries.get(0).executeQuery(catalog);
+        BitSet textRows = catalog.getTextIndex().matchAll("tiesto");
+        assertFalse(result.isEmpty());
+        assertTrue(result.size() < textRows.cardinality());
+        for (SongEntry songEntry : result) {
+            assertTrue(songEntry.getSongProperty(SongProperty.ENERGY) > 0.9);
+            assertTrue(textRows.get(catalog.getPositionOfId(songEntry.getId())));
+        }
+    }
+
+    @Test
+    public void testAndWithinMatchWordsIsAWord() {
+        List<Query> queries = new QueryParser().buildQueries(
+                Arrays.asList("select songs where match rock and roll and energy > 0.5 and match live".split(" ")));
+        assertEquals(1, queries.size());
+        assertEquals("rock and roll live", queries.get(0).getMatchText());
+        assertEquals(1, queries.get(0).getSubQueryList().size());
+        assertFalse(queries.get(0).isRankedByRelevance());
+    }
+
+    @Test
+    public void testMatchKeepsCatalogOrderAndRankOrdersByRelevance() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        QueryParser queryParser = new QueryParser();
+        Query matchQuery = queryParser.buildQueries(
+                Arrays.asList("select songs where match remix tiesto".split(" "))).get(0);
+        Query rankQuery = queryParser.buildQueries(
+                Arrays.asList("select songs where rank remix tiesto".split(" "))).get(0);
+        assertTrue(rankQuery.isRankedByRelevance());
+
+        List<SongEntry> matched = matchQuery.executeQuery(catalog);
+        List<SongEntry> ranked = rankQuery.executeQuery(catalog);
+        assertTrue(matched.size() > 1);
+        assertEquals(matched.size(), ranked.size());
+        for (int i = 1; i < matched.size(); i++) {
+            assertTrue(catalog.getPositionOfId(matched.get(i - 1).getId())
+                    < catalog.getPositionOfId(matched.get(i).getId()));
+        }
+        BitSet rows = catalog.getTextIndex().matchAll("remix tiesto");
+        int[] rankedRows = catalog.getTextIndex().rankRows(rows, "remix tiesto");
+        for (int i = 0; i < ranked.size(); i++) {
+            assertEquals(rankedRows[i], catalog.getPositionOfId(ranked.get(i).getId()));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.KMeansClustering;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.SongClustering;
+import uk.ac.sheffield.com1003.assignment2023.SongFeatureMatrix;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.gui.CustomChart;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestKMeansClustering {
+
+    @Test
+    public void testEverySongIsAssignedToACluster() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        SongClustering clustering = catalog.clusterSongs(5);
+
+        long total = 0;
+        for (int clusterId = 0; clusterId < clustering.getClusterCount(); clusterId++) {
+            assertTrue(clustering.getClusterSize(clusterId) > 0);
+            total += clustering.getClusterSize(clusterId);
+        }
+        assertEquals(catalog.getSongEntriesList().size(), total);
+        for (SongEntry songEntry : catalog.getSongEntriesList()) {
+            assertTrue(songEntry.getClusterId() >= 0 && songEntry.getClusterId() < 5);
+        }
+    }
+
+    @Test
+    public void testClusteringIsDeterministic() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        SongFeatureMatrix matrix = catalog.getFeatureMatrix();
+        SongClustering first = new KMeansClustering(6).cluster(matrix);
+        SongClustering second = new KMeansClustering(6).cluster(matrix);
+
+        for (int row = 0; row < matrix.size(); row++) {
+            assertEquals(first.getClusterId(row), second.getClusterId(row));
+        }
+    }
+
+    @Test
+    public void testMoreClustersReduceInertia() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        SongFeatureMatrix matrix = catalog.getFeatureMatrix();
+
+        double oneCluster = new KMeansClustering(1).cluster(matrix).getInertia();
+        double eightClusters = new KMeansClustering(8).cluster(matrix).getInertia();
+        assertTrue(eightClusters < oneCluster);
+    }
+
+    @Test
+    public void testQueryFiltersOnCluster() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        catalog.setClusterCount(4);
+
+        List<SongEntry> songEntries = new Query(new ArrayList<>(), 2).executeQuery(catalog);
+        assertEquals(catalog.getClustering().getClusterSize(2), songEntries.size());
+        for (SongEntry songEntry : songEntries) {
+            assertEquals(2, songEntry.getClusterId());
+        }
+    }
+
+    @Test
+    public void testInvalidClusterCountIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new KMeansClustering(0));
+    }
+
+    @Test
+    public void testClusterAveragesAreComputedBeforeTheChartIsUpdated() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = catalog.getSongEntriesList();
+        CustomChart customChart = new CustomChart(catalog, songEntries);
+        assertTrue(customChart.getClusterAverages().isEmpty());
+
+        Map<Integer, Map<SongProperty, Double>> clusterAverages =
+                CustomChart.computeClusterAverages(catalog, songEntries);
+        assertEquals(catalog.getClustering().getClusterCount(), clusterAverages.size());
+        customChart.updateCustomChartContents(songEntries, CustomChart.computeAxesValues(catalog, songEntries),
+                clusterAverages);
+        assertSame(clusterAverages, customChart.getClusterAverages());
+        for (Map<SongProperty, Double> clusterAverage : clusterAverages.values()) {
+            double energy = clusterAverage.get(SongProperty.ENERGY);
+            assertTrue(energy >= catalog.getMinimumValue(SongProperty.ENERGY, songEntries));
+            assertTrue(energy <= catalog.getMaximumValue(SongProperty.ENERGY, songEntries));
+        }
+    }
+}
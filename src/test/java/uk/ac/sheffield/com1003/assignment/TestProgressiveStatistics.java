@@ -0,0 +1,59 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.FilterStack;
+import uk.ac.sheffield.com1003.assignment2023.ProgressiveStatistics;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestProgressiveStatistics {
+
+    @Test
+    public void testEstimatesBecomeExact() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        List<SubQuery> subQueries = List.of(new SubQuery(SongProperty.ENERGY, ">", 0.5),
+                new SubQuery(SongProperty.DANCEABILITY, "<=", 0.7));
+        FilterStack filterStack = new FilterStack(songEntries);
+        subQueries.forEach(filterStack::add);
+        List<SongEntry> expected = filterStack.getResult();
+        long expectedRows = songCatalog.getRowCount(expected);
+        double expectedTempo = expected.stream()
+                .mapToDouble(s -> s.getMultiplicity() * s.getSongProperty(SongProperty.TEMPO)).sum() / expectedRows;
+
+        ProgressiveStatistics statistics = new ProgressiveStatistics(songEntries, subQueries, 42);
+        assertThrows(NoSuchElementException.class, () -> statistics.getEstimatedAverage(SongProperty.TEMPO));
+
+        // A sample of a few percent is close to the exact values, within (twice) its confidence intervals
+        statistics.sampleMore(2000);
+        assertFalse(statistics.isExact());
+        assertEquals(2000, statistics.getSampledCount());
+        assertTrue(statistics.getRowCountMargin() > 0);
+        assertEquals(expectedRows, statistics.getEstimatedRowCount(), 2 * statistics.getRowCountMargin());
+        assertEquals(expectedTempo, statistics.getEstimatedAverage(SongProperty.TEMPO),
+                2 * statistics.getAverageMargin(SongProperty.TEMPO));
+
+        // Every entry is visited exactly once, after which the statistics are exact
+        statistics.sampleMore(songEntries.size());
+        assertTrue(statistics.isExact());
+        assertEquals(songEntries.size(), statistics.getSampledCount());
+        assertEquals(new HashSet<>(expected), new HashSet<>(statistics.getMatchingEntries()));
+        assertEquals(expected.size(), statistics.getMatchingEntries().size());
+        assertEquals(expectedRows, statistics.getEstimatedRowCount(), 1e-6);
+        assertEquals(0, statistics.getRowCountMargin(), 1e-6);
+        assertEquals(expectedTempo, statistics.getEstimatedAverage(SongProperty.TEMPO), 1e-9);
+        assertEquals(0, statistics.getAverageMargin(SongProperty.TEMPO), 1e-9);
+        assertEquals(expected.stream().mapToDouble(s -> s.getSongProperty(SongProperty.TEMPO)).max().orElseThrow(),
+                statistics.getSampledMaximum(SongProperty.TEMPO));
+    }
+}
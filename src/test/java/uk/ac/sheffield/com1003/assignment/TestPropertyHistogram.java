@@ -0,0 +1,74 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.FilterStack;
+import uk.ac.sheffield.com1003.assignment2023.PropertyHistogram;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPropertyHistogram {
+
+    @Test
+    public void testCountsMatchTheValues() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        PropertyHistogram histogram = new PropertyHistogram(SongProperty.TEMPO, 60, 200, 14);
+        histogram.addAll(songEntries);
+
+        long[] expected = new long[14];
+        long outside = 0;
+        for (SongEntry songEntry : songEntries) {
+            double tempo = songEntry.getSongProperty(SongProperty.TEMPO);
+            if (tempo < 60 || tempo > 200) {
+                outside += songEntry.getMultiplicity();
+            } else {
+                expected[Math.min(13, (int) ((tempo - 60) / 10))] += songEntry.getMultiplicity();
+            }
+        }
+        for (int bin = 0; bin < 14; bin++) {
+            assertEquals(expected[bin], histogram.getCount(bin));
+        }
+        assertEquals(outside, histogram.getOutsideCount());
+        assertEquals(songCatalog.getRowCount(songEntries) - outside, histogram.getTotalCount());
+        assertEquals(70, histogram.getBinStart(1));
+        assertEquals(13, histogram.getBin(200));
+        assertThrows(IndexOutOfBoundsException.class, () -> histogram.getCount(14));
+        assertThrows(IllegalArgumentException.class, () -> new PropertyHistogram(SongProperty.TEMPO, 0, 1, 0));
+    }
+
+    @Test
+    public void testRemovingFilteredOutEntriesMatchesACount() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        FilterStack filterStack = new FilterStack(songEntries);
+        filterStack.add(new SubQuery(SongProperty.ENERGY, ">", 0.4));
+        FilterStack.Result previous = filterStack.computeResult();
+        PropertyHistogram histogram = new PropertyHistogram(SongProperty.DANCEABILITY, 0, 1, 20);
+        histogram.addAll(previous.getSongEntries());
+
+        filterStack.add(new SubQuery(SongProperty.VALENCE, "<", 0.5));
+        FilterStack.Result narrowed = filterStack.computeResult();
+        assertTrue(narrowed.narrows(previous.getBaseEntries(), previous.getSubQueries()));
+        // The previous counts are left as they are, e.g. while they are still drawn
+        PropertyHistogram previousHistogram = new PropertyHistogram(histogram);
+        histogram.removeAll(narrowed.getRemovedEntries());
+        assertEquals(songCatalog.getRowCount(previous.getSongEntries()),
+                previousHistogram.getTotalCount() + previousHistogram.getOutsideCount());
+
+        PropertyHistogram counted = new PropertyHistogram(SongProperty.DANCEABILITY, 0, 1, 20);
+        counted.addAll(narrowed.getSongEntries());
+        for (int bin = 0; bin < 20; bin++) {
+            assertEquals(counted.getCount(bin), histogram.getCount(bin));
+        }
+        assertEquals(counted.getMaxCount(), histogram.getMaxCount());
+        assertEquals(counted.getTotalCount(), histogram.getTotalCount());
+    }
+}
@@ -0,0 +1,113 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.DetailSortIndex;
+import uk.ac.sheffield.com1003.assignment2023.PropertySortIndex;
+import uk.ac.sheffield.com1003.assignment2023.RowOrder;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.gui.SongEntryTableModel;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPropertySortIndex {
+
+    @Test
+    public void testSortMatchesAStableComparatorSort() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        // Sort a subset, e.g. the result of a query.
+        List<SongEntry> energetic = songEntries.stream()
+                .filter(songEntry -> songEntry.getSongProperty(SongProperty.ENERGY) > 0.7).toList();
+
+        for (SongProperty songProperty : SongProperty.values()) {
+            PropertySortIndex sortIndex = songCatalog.getPropertySortIndex(songProperty);
+            assertSame(sortIndex, songCatalog.getPropertySortIndex(songProperty));
+            Comparator<Integer> byValue = Comparator.comparingDouble(
+                    index -> energetic.get(index).getSongProperty(songProperty));
+            int[] ascending = IntStream.range(0, energetic.size()).boxed().sorted(byValue)
+                    .mapToInt(Integer::intValue).toArray();
+            int[] descending = IntStream.range(0, energetic.size()).boxed()
+                    .sorted(byValue.reversed().thenComparing(Comparator.naturalOrder()))
+                    .mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(ascending, sortIndex.sort(energetic, true));
+            assertArrayEquals(descending, sortIndex.sort(energetic, false));
+        }
+    }
+
+    @Test
+    public void testRanksSurviveReorderingTheRows() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        PropertySortIndex sortIndex = songCatalog.getPropertySortIndex(SongProperty.TEMPO);
+        songCatalog.reorderRows(RowOrder.byProperty(SongProperty.ENERGY));
+        assertSame(sortIndex, songCatalog.getPropertySortIndex(SongProperty.TEMPO));
+
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        int[] sorted = sortIndex.sort(songEntries, true);
+        for (int row = 1; row < sorted.length; row++) {
+            SongEntry previous = songEntries.get(sorted[row - 1]);
+            SongEntry current = songEntries.get(sorted[row]);
+            assertTrue(previous.getSongProperty(SongProperty.TEMPO) <= current.getSongProperty(SongProperty.TEMPO));
+            assertEquals(previous.getSongProperty(SongProperty.TEMPO) == current.getSongProperty(SongProperty.TEMPO),
+                    sortIndex.getRank(previous.getId()) == sortIndex.getRank(current.getId()));
+        }
+        assertEquals(sortIndex.getDistinctValueCount() - 1,
+                sortIndex.getRank(songEntries.get(sorted[sorted.length - 1]).getId()));
+        assertThrows(NoSuchElementException.class, () -> sortIndex.getRank(-1));
+    }
+
+    @Test
+    public void testNameSortMatchesACaseInsensitiveComparatorSort() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> energetic = songCatalog.getSongEntriesList().stream()
+                .filter(songEntry -> songEntry.getSongProperty(SongProperty.ENERGY) > 0.7).toList();
+
+        for (SongDetail songDetail : SongDetail.values()) {
+            DetailSortIndex sortIndex = songCatalog.getDetailSortIndex(songDetail);
+            assertSame(sortIndex, songCatalog.getDetailSortIndex(songDetail));
+            Comparator<Integer> byName = Comparator.comparing(
+                    index -> energetic.get(index).getSongDetail(songDetail), String.CASE_INSENSITIVE_ORDER);
+            int[] ascending = IntStream.range(0, energetic.size()).boxed().sorted(byName)
+                    .mapToInt(Integer::intValue).toArray();
+            int[] descending = IntStream.range(0, energetic.size()).boxed()
+                    .sorted(byName.reversed().thenComparing(Comparator.naturalOrder()))
+                    .mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(ascending, sortIndex.sort(energetic, true));
+            assertArrayEquals(descending, sortIndex.sort(energetic, false));
+        }
+    }
+
+    @Test
+    public void testTableModelReadsRowsInViewOrder() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList().subList(0, 100);
+        SongEntryTableModel tableModel = new SongEntryTableModel();
+        int popularityColumn = 3 + SongProperty.POPULARITY.ordinal();
+        assertEquals(SongProperty.POPULARITY, SongEntryTableModel.getColumnProperty(popularityColumn));
+
+        tableModel.setSongEntries(songEntries,
+                SongEntryTableModel.computeViewOrder(songCatalog, songEntries, popularityColumn, false));
+        assertEquals(100, tableModel.getRowCount());
+        for (int row = 1; row < tableModel.getRowCount(); row++) {
+            assertTrue((Double) tableModel.getValueAt(row - 1, popularityColumn) >=
+                    (Double) tableModel.getValueAt(row, popularityColumn));
+        }
+
+        tableModel.setSongEntries(songEntries, SongEntryTableModel.computeViewOrder(songCatalog, songEntries, 0, true));
+        for (int row = 1; row < tableModel.getRowCount(); row++) {
+            assertTrue(((String) tableModel.getValueAt(row - 1, 0))
+                    .compareToIgnoreCase((String) tableModel.getValueAt(row, 0)) <= 0);
+        }
+        assertEquals(tableModel.getSongEntry(0).getSongArtist(), tableModel.getValueAt(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> tableModel.setSongEntries(songEntries, new int[3]));
+    }
+}
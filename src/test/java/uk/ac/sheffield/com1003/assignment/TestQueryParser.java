@@ -19,4 +19,14 @@ public class TestQueryParser {
         assertEquals(1, queries.get(0).getSubQueryList().size());
     }
 
+    @Test
+    public void testReadClusterCondition() {
+        QueryParser parser = new QueryParser();
+        List<Query> queries = parser.buildQueries(TestCommon.tokenizeString(
+                "select songs where cluster == 3 and energy > 0.8 select songs where cluster > 3"));
+        assertEquals(1, queries.size());
+        assertEquals(3, queries.get(0).getClusterId());
+        assertEquals(1, queries.get(0).getSubQueryList().size());
+    }
+
 }
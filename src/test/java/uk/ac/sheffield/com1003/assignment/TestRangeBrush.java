@@ -0,0 +1,90 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.FilterStack;
+import uk.ac.sheffield.com1003.assignment2023.RangeBrush;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRangeBrush {
+
+    @Test
+    public void testSelectionMatchesAScanAsRangesMove() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        RangeBrush rangeBrush = new RangeBrush(songCatalog, songEntries, SongProperty.ENERGY, SongProperty.TEMPO);
+        assertEquals(songEntries.size(), rangeBrush.getSelectedEntryCount());
+        assertTrue(rangeBrush.getSubQueries().isEmpty());
+
+        // Widening, narrowing and moving ranges, as a drag does
+        rangeBrush.setRange(SongProperty.ENERGY, 0.3, 0.6);
+        assertMatchesScan(songCatalog, songEntries, rangeBrush);
+        rangeBrush.setRange(SongProperty.TEMPO, 90, 130);
+        assertMatchesScan(songCatalog, songEntries, rangeBrush);
+        rangeBrush.setRange(SongProperty.ENERGY, 0.5, 0.9);
+        assertMatchesScan(songCatalog, songEntries, rangeBrush);
+        rangeBrush.setRange(SongProperty.TEMPO, 125, 126);
+        assertMatchesScan(songCatalog, songEntries, rangeBrush);
+        rangeBrush.clearRange(SongProperty.ENERGY);
+        assertMatchesScan(songCatalog, songEntries, rangeBrush);
+        assertEquals(2, rangeBrush.getSubQueries().size());
+
+        assertThrows(NoSuchElementException.class, () -> rangeBrush.setRange(SongProperty.VALENCE, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> rangeBrush.setRange(SongProperty.TEMPO, 2, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RangeBrush(songCatalog, songEntries));
+    }
+
+    @Test
+    public void testBrushesShareSortedEntriesAndAveragesDoNotDrift() throws IOException {
+        SongCatalog songCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = songCatalog.getSongEntriesList();
+        RangeBrush.SortedEntries sortedEntries = RangeBrush.prepare(songCatalog, songEntries, SongProperty.LOUDNESS);
+        RangeBrush first = new RangeBrush(sortedEntries);
+        RangeBrush second = new RangeBrush(sortedEntries);
+        double average = first.getAverage(SongProperty.DURATION);
+
+        // Many moves of the range, as a long drag does, then back to every song entry
+        for (int move = 0; move < 2000; move++) {
+            first.setRange(SongProperty.LOUDNESS, -30 + move % 17, -3 + move % 5);
+        }
+        assertMatchesScan(songCatalog, songEntries, first);
+        first.clearRange(SongProperty.LOUDNESS);
+        assertEquals(songEntries.size(), first.getSelectedEntryCount());
+        assertEquals(average, first.getAverage(SongProperty.DURATION), Math.abs(average) * 1e-12);
+        // The other brush over the same sorted entries was left as it was
+        assertEquals(songEntries.size(), second.getSelectedEntryCount());
+        assertEquals(average, second.getAverage(SongProperty.DURATION));
+    }
+
+    /**
+     * Checks that the song entries, rows and averages of a brush are those of a scan with its filters.
+     */
+    private static void assertMatchesScan(SongCatalog songCatalog, List<SongEntry> songEntries,
+                                          RangeBrush rangeBrush) {
+        List<SubQuery> subQueries = rangeBrush.getSubQueries();
+        List<SongEntry> expected = songEntries.stream()
+                .filter(songEntry -> FilterStack.matches(songEntry, subQueries))
+                .collect(Collectors.toList());
+        assertEquals(expected, rangeBrush.getSelectedEntries());
+        assertEquals(expected.size(), rangeBrush.getSelectedEntryCount());
+        assertEquals(songCatalog.getRowCount(expected), rangeBrush.getSelectedRowCount());
+        if (!expected.isEmpty()) {
+            double sum = 0;
+            for (SongEntry songEntry : expected) {
+                sum += songEntry.getMultiplicity() * songEntry.getSongProperty(SongProperty.VALENCE);
+            }
+            assertEquals(sum / songCatalog.getRowCount(expected), rangeBrush.getAverage(SongProperty.VALENCE),
+                    1e-9);
+        }
+    }
+}
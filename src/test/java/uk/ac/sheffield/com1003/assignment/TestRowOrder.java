@@ -0,0 +1,87 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.RowOrder;
+import uk.ac.sheffield.com1003.assignment2023.ScanStatistics;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRowOrder {
+
+    @Test
+    public void testSortByPropertyIsStable() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> expected = new ArrayList<>(catalog.getSongEntriesList());
+        expected.sort(Comparator.comparingDouble(songEntry -> songEntry.getSongProperty(SongProperty.POPULARITY)));
+
+        catalog.reorderRows(RowOrder.byProperty(SongProperty.POPULARITY));
+
+        assertEquals(expected, catalog.getSongEntriesList());
+    }
+
+    @Test
+    public void testFileOrderIsKeptAfterReordering() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> fileOrder = new ArrayList<>(catalog.getSongEntriesList());
+
+        catalog.reorderRows(RowOrder.fromName("zorder:energy,danceability"));
+
+        assertNotEquals(fileOrder, catalog.getSongEntriesList());
+        assertEquals(fileOrder, catalog.getSongEntriesInFileOrder());
+        for (int position = 0; position < catalog.getSongEntriesList().size(); position += 997) {
+            SongEntry songEntry = catalog.getSongEntriesList().get(position);
+            assertEquals(position, catalog.getPositionOfId(songEntry.getId()));
+            assertEquals(songEntry, catalog.getSongEntryById(songEntry.getId()));
+        }
+
+        catalog.reorderRows(RowOrder.FILE_ORDER);
+        assertEquals(fileOrder, catalog.getSongEntriesList());
+    }
+
+    @Test
+    public void testReorderingLeavesTheCurrentListUnchanged() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> currentList = catalog.getSongEntriesList();
+        List<SongEntry> fileOrder = new ArrayList<>(currentList);
+
+        catalog.reorderRows(RowOrder.byProperty(SongProperty.TEMPO));
+
+        assertEquals(fileOrder, currentList);
+        assertNotSame(currentList, catalog.getSongEntriesList());
+    }
+
+    @Test
+    public void testZOrderImprovesPruning() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        Query query = new Query(List.of(
+                new SubQuery(SongProperty.ENERGY, ">", 0.8),
+                new SubQuery(SongProperty.DANCEABILITY, ">", 0.8)));
+        ScanStatistics fileOrderStatistics = new ScanStatistics();
+        List<SongEntry> fileOrderResults = catalog.executeQuery(query, fileOrderStatistics);
+
+        catalog.reorderRows(RowOrder.fromName("zorder:energy,danceability"));
+        ScanStatistics zOrderStatistics = new ScanStatistics();
+        List<SongEntry> zOrderResults = catalog.executeQuery(query, zOrderStatistics);
+
+        assertEquals(new HashSet<>(fileOrderResults), new HashSet<>(zOrderResults));
+        assertTrue(zOrderStatistics.getCheckedRows() * 4 < fileOrderStatistics.getCheckedRows());
+    }
+
+    @Test
+    public void testUnknownRowOrderIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RowOrder.fromName("zorder:energy,loudest"));
+        assertThrows(IllegalArgumentException.class, () -> RowOrder.fromName("zorder:"));
+    }
+}
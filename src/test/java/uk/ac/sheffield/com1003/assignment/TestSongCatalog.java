@@ -1,17 +1,23 @@
 package uk.ac.sheffield.com1003.assignment;
 
 import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment2023.ColumnMemory;
+import uk.ac.sheffield.com1003.assignment2023.LoadMode;
 import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.StorageBackend;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
 import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongPropertyMap;
 import uk.ac.sheffield.com1003.assignment.common.TestCommon;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestSongCatalog {
 
@@ -52,4 +58,45 @@ public class TestSongCatalog {
         assertEquals(5, songCatalog.getAverageValue(SongProperty.ENERGY, list));
     }
 
+    @Test
+    public void testCollapsedCatalogKeepsCanonicalEntries() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.COLLAPSE_DUPLICATES);
+
+        assertEquals(28348, catalog.getSongEntriesList().size());
+        assertEquals(32833, catalog.getRowCount(catalog.getSongEntriesList()));
+    }
+
+    @Test
+    public void testCollapsedCatalogAggregatesMatchFullCatalog() throws IOException {
+        SongCatalog fullCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        SongCatalog collapsedCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.COLLAPSE_DUPLICATES);
+
+        for (SongProperty songProperty : SongProperty.values()) {
+            assertEquals(fullCatalog.getAverageValue(songProperty, fullCatalog.getSongEntriesList()),
+                    collapsedCatalog.getAverageValue(songProperty, collapsedCatalog.getSongEntriesList()));
+            assertEquals(fullCatalog.getMinimumValue(songProperty, fullCatalog.getSongEntriesList()),
+                    collapsedCatalog.getMinimumValue(songProperty, collapsedCatalog.getSongEntriesList()));
+            assertEquals(fullCatalog.getMaximumValue(songProperty, fullCatalog.getSongEntriesList()),
+                    collapsedCatalog.getMaximumValue(songProperty, collapsedCatalog.getSongEntriesList()));
+        }
+    }
+
+    @Test
+    public void testLoadProgressIsReported() throws IOException {
+        List<long[]> reports = new ArrayList<>();
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, StorageBackend.COLUMNS,
+                ColumnMemory.HEAP, (bytesRead, totalBytes, rowsRead) ->
+                reports.add(new long[]{bytesRead, totalBytes, rowsRead}));
+
+        // Reports every few thousand rows, with growing counts, then once the whole file is read
+        assertTrue(reports.size() > 1);
+        for (int index = 1; index < reports.size(); index++) {
+            assertTrue(reports.get(index)[0] >= reports.get(index - 1)[0]);
+            assertTrue(reports.get(index)[2] > reports.get(index - 1)[2]);
+        }
+        long[] last = reports.get(reports.size() - 1);
+        assertEquals(Files.size(Path.of(TestCommon.SONG_FILE)), last[0]);
+        assertEquals(last[0], last[1]);
+        assertEquals(catalog.getSongEntriesList().size(), last[2]);
+    }
 }
@@ -0,0 +1,61 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.DistanceMetric;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.SongFeatureMatrix;
+import uk.ac.sheffield.com1003.assignment2023.SongNeighbour;
+import uk.ac.sheffield.com1003.assignment2023.SongSimilarityIndex;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSongSimilarityIndex {
+
+    @Test
+    public void testTreeMatchesBruteForce() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        SongSimilarityIndex index = catalog.getSimilarityIndex();
+
+        for (DistanceMetric metric : DistanceMetric.values()) {
+            List<SongEntry> songEntries = catalog.getSongEntriesList();
+            for (int row = 0; row < songEntries.size(); row += 4099) {
+                double[] query = SongFeatureMatrix.getRawFeatures(songEntries.get(row));
+                List<SongNeighbour> fromTree = index.findNearest(query, 10, metric);
+                List<SongNeighbour> fromScan = index.findNearestBruteForce(query, 10, metric);
+
+                assertEquals(fromScan.size(), fromTree.size());
+                for (int rank = 0; rank < fromScan.size(); rank++) {
+                    assertEquals(fromScan.get(rank).getDistance(), fromTree.get(rank).getDistance(), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSimilarSongsExcludeTheSongItself() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        SongEntry songEntry = catalog.getSongEntryById(42);
+
+        List<SongNeighbour> neighbours = catalog.findSimilarSongs(42, 5, DistanceMetric.EUCLIDEAN);
+
+        assertEquals(5, neighbours.size());
+        for (int rank = 0; rank < neighbours.size(); rank++) {
+            assertNotEquals(songEntry, neighbours.get(rank).getSongEntry());
+            if (rank > 0) {
+                assertTrue(neighbours.get(rank - 1).getDistance() <= neighbours.get(rank).getDistance());
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownSongIdIsRejected() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        assertThrows(NoSuchElementException.class, () -> catalog.findSimilarSongs(-1, 5, DistanceMetric.COSINE));
+    }
+}
@@ -0,0 +1,146 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.ColumnMemory;
+import uk.ac.sheffield.com1003.assignment2023.LoadMode;
+import uk.ac.sheffield.com1003.assignment2023.RowOrder;
+import uk.ac.sheffield.com1003.assignment2023.ScanStatistics;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.SongStorage;
+import uk.ac.sheffield.com1003.assignment2023.StorageBackend;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSongStorage {
+
+    @Test
+    public void testBackendsStoreTheSameRows() throws IOException {
+        SongCatalog objectCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.COLLAPSE_DUPLICATES,
+                StorageBackend.OBJECTS, ColumnMemory.HEAP);
+        SongCatalog columnCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.COLLAPSE_DUPLICATES,
+                StorageBackend.COLUMNS, ColumnMemory.HEAP);
+        SongStorage objects = objectCatalog.getSongStorage();
+        SongStorage columns = columnCatalog.getSongStorage();
+
+        assertEquals(objects.size(), columns.size());
+        for (int row = 0; row < objects.size(); row++) {
+            assertEquals(objects.getId(row), columns.getId(row));
+            assertEquals(objects.getMultiplicity(row), columns.getMultiplicity(row));
+            for (SongProperty songProperty : SongProperty.values()) {
+                assertEquals(objects.getProperty(row, songProperty), columns.getProperty(row, songProperty));
+            }
+            for (SongDetail songDetail : SongDetail.values()) {
+                assertEquals(objects.getDetail(row, songDetail), columns.getDetail(row, songDetail));
+            }
+            assertEquals(columns.getSongEntry(row), columns.getSongEntry(row));
+        }
+        assertEquals(objectCatalog.getRowCount(objectCatalog.getSongEntriesList()),
+                columnCatalog.getRowCount(columnCatalog.getSongEntriesList()));
+    }
+
+    @Test
+    public void testQueriesGiveTheSameResultOnEveryBackend() throws IOException {
+        Query query = new Query(List.of(new SubQuery(SongProperty.ENERGY, ">", 0.8),
+                new SubQuery(SongProperty.DANCEABILITY, ">", 0.8)));
+        List<SongEntry> objectResult = query.executeQuery(new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS,
+                StorageBackend.OBJECTS, ColumnMemory.HEAP));
+        List<SongEntry> columnResult = query.executeQuery(new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS,
+                StorageBackend.COLUMNS, ColumnMemory.HEAP));
+
+        assertFalse(objectResult.isEmpty());
+        assertEquals(objectResult.size(), columnResult.size());
+        for (int i = 0; i < objectResult.size(); i++) {
+            assertEquals(objectResult.get(i).getId(), columnResult.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testStorageReadsGiveTheSameResultsAsTheSongEntries() throws IOException {
+        List<SubQuery> subQueries = List.of(new SubQuery(SongProperty.ENERGY, ">=", 0.5),
+                new SubQuery(SongProperty.POPULARITY, "!=", 50), new SubQuery(SongProperty.DANCEABILITY, "<", 0.8),
+                new SubQuery(SongProperty.TEMPO, "<=", 130), new SubQuery(SongProperty.LIVENESS, ">", 0.1),
+                new SubQuery(SongProperty.POPULARITY, "=", 60));
+        for (StorageBackend storageBackend : StorageBackend.values()) {
+            SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.COLLAPSE_DUPLICATES, storageBackend,
+                    ColumnMemory.HEAP);
+            // The second pass reads a reordered list, whose rows are not a range of rows of the storage
+            for (int pass = 0; pass < 2; pass++) {
+                List<SongEntry> rows = catalog.getSongEntriesList();
+                List<SongEntry> songEntries = new ArrayList<>(rows);
+                for (SongProperty songProperty : SongProperty.values()) {
+                    assertEquals(catalog.getMinimumValue(songProperty, songEntries),
+                            catalog.getMinimumValue(songProperty, rows));
+                    assertEquals(catalog.getMaximumValue(songProperty, songEntries),
+                            catalog.getMaximumValue(songProperty, rows));
+                    assertEquals(catalog.getAverageValue(songProperty, songEntries),
+                            catalog.getAverageValue(songProperty, rows));
+                }
+                assertEquals(catalog.getRowCount(songEntries), catalog.getRowCount(rows));
+
+                for (int count = 1; count <= subQueries.size(); count++) {
+                    Query query = new Query(subQueries.subList(0, count));
+                    List<SongEntry> expected = new ArrayList<>();
+                    for (SongEntry songEntry : songEntries) {
+                        if (query.songEntryMatchesSubQueries(songEntry, query.getSubQueryList())) {
+                            expected.add(songEntry);
+                        }
+                    }
+                    assertEquals(expected, catalog.executeQuery(query, new ScanStatistics()),
+                            storageBackend + " " + query.getSubQueryList());
+                }
+                catalog.reorderRows(RowOrder.byProperty(SongProperty.TEMPO));
+            }
+        }
+    }
+
+    @Test
+    public void testBackendsFindTheSameRowsByDetail() throws IOException {
+        SongStorage objects = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, StorageBackend.OBJECTS,
+                ColumnMemory.HEAP).getSongStorage();
+        SongStorage columns = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, StorageBackend.COLUMNS,
+                ColumnMemory.HEAP).getSongStorage();
+
+        String artist = objects.getDetail(0, SongDetail.ARTIST);
+        assertTrue(objects.findRows(SongDetail.ARTIST, artist).length > 0);
+        assertArrayEquals(objects.findRows(SongDetail.ARTIST, artist), columns.findRows(SongDetail.ARTIST, artist));
+        assertArrayEquals(objects.findRowsWithPrefix(SongDetail.NAME, "Lo"),
+                columns.findRowsWithPrefix(SongDetail.NAME, "Lo"));
+        assertEquals(0, columns.findRows(SongDetail.ARTIST, "No such artist").length);
+        for (SongDetail songDetail : SongDetail.values()) {
+            assertEquals(new HashSet<>(objects.getDistinctDetails(songDetail)),
+                    new HashSet<>(columns.getDistinctDetails(songDetail)));
+        }
+    }
+
+    @Test
+    public void testIterationFollowsRowOrder() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, StorageBackend.OBJECTS,
+                ColumnMemory.HEAP);
+        int row = 0;
+        for (SongEntry songEntry : catalog.getSongStorage()) {
+            assertSame(catalog.getSongEntriesList().get(row++), songEntry);
+        }
+        assertEquals(catalog.getSongStorage().size(), row);
+    }
+
+    @Test
+    public void testOnlyColumnsCanBeHeldOffHeap() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, StorageBackend.OBJECTS,
+                ColumnMemory.HEAP);
+        assertThrows(IllegalStateException.class, catalog::getSongColumns);
+        assertThrows(IllegalArgumentException.class, () -> new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS,
+                StorageBackend.OBJECTS, ColumnMemory.DIRECT));
+        assertEquals(StorageBackend.OBJECTS, StorageBackend.fromName("objects"));
+    }
+}
@@ -0,0 +1,99 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.ColumnMemory;
+import uk.ac.sheffield.com1003.assignment2023.LoadMode;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.StorageBackend;
+import uk.ac.sheffield.com1003.assignment2023.StringColumn;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStringColumn {
+
+    private static final String[] VALUES = {"Remix", "Love Song", "Love", "\u00c9t\u00e9", "Zebra", "", "Love Song",
+            "Remix (feat. X)", "Love Story", "\uD83C\uDFB5 Beats", "Remix"};
+
+    @Test
+    public void testValuesRoundTrip() {
+        StringColumn column = StringColumn.of(VALUES);
+        assertEquals(VALUES.length, column.size());
+        assertEquals(9, column.getDictionarySize());
+        for (int row = 0; row < VALUES.length; row++) {
+            assertEquals(VALUES[row], column.get(row));
+        }
+        assertEquals(VALUES.length, column.toDirect().size());
+        assertEquals(VALUES[9], column.toDirect().get(9));
+    }
+
+    @Test
+    public void testEqualityAndPrefixSearchIgnoreCase() {
+        StringColumn column = StringColumn.of(VALUES);
+        int[] remixRange = column.findCodeRange("remix");
+        assertArrayEquals(new int[]{0, 10}, column.findRows(remixRange[0], remixRange[1]));
+        int[] emptyRange = column.findCodeRange("");
+        assertArrayEquals(new int[]{5}, column.findRows(emptyRange[0], emptyRange[1]));
+        int[] partialRange = column.findCodeRange("Remi");
+        assertEquals(partialRange[0], partialRange[1]);
+
+        int[] loveRange = column.findPrefixRange("LOVE");
+        assertEquals(3, loveRange[1] - loveRange[0]);
+        assertArrayEquals(new int[]{1, 2, 6, 8}, column.findRows(loveRange[0], loveRange[1]));
+        int[] accentRange = column.findPrefixRange("\u00e9T");
+        assertArrayEquals(new int[]{3}, column.findRows(accentRange[0], accentRange[1]));
+        int[] emojiRange = column.findPrefixRange("\uD83C\uDFB5 b");
+        assertArrayEquals(new int[]{9}, column.findRows(emojiRange[0], emojiRange[1]));
+        int[] missingRange = column.findPrefixRange("Q");
+        assertEquals(missingRange[0], missingRange[1]);
+        int[] everyRange = column.findPrefixRange("");
+        assertEquals(column.getDictionarySize(), everyRange[1] - everyRange[0]);
+    }
+
+    @Test
+    public void testSpellingsInAnyCaseHaveConsecutiveCodes() {
+        StringColumn column = StringColumn.of(new String[]{"abc", "ABD", "Abc", "abd", "ab", "ABC"});
+        assertEquals(6, column.getDictionarySize());
+        int[] abcRange = column.findCodeRange("aBc");
+        assertArrayEquals(new int[]{0, 2, 5}, column.findRows(abcRange[0], abcRange[1]));
+        int[] abdRange = column.findPrefixRange("ABD");
+        assertArrayEquals(new int[]{1, 3}, column.findRows(abdRange[0], abdRange[1]));
+        int[] abRange = column.findPrefixRange("ab");
+        assertEquals(6, column.findRows(abRange[0], abRange[1]).length);
+        for (int code = 1; code < column.getDictionarySize(); code++) {
+            assertTrue(column.getValue(code - 1).compareToIgnoreCase(column.getValue(code)) <= 0);
+        }
+    }
+
+    @Test
+    public void testCatalogSearchMatchesObjectBackend() throws IOException {
+        SongCatalog columnCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        SongCatalog objectCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS, StorageBackend.OBJECTS,
+                ColumnMemory.HEAP);
+        String artist = columnCatalog.getSongEntriesList().get(0).getSongArtist();
+
+        assertSameIds(objectCatalog.findSongEntriesByDetail(SongDetail.ARTIST, artist),
+                columnCatalog.findSongEntriesByDetail(SongDetail.ARTIST, artist));
+        assertSameIds(columnCatalog.findSongEntriesByDetail(SongDetail.ARTIST, artist),
+                columnCatalog.findSongEntriesByDetail(SongDetail.ARTIST, artist.toUpperCase()));
+        List<SongEntry> songEntries = columnCatalog.findSongEntriesByDetailPrefix(SongDetail.NAME, "lo");
+        assertSameIds(objectCatalog.findSongEntriesByDetailPrefix(SongDetail.NAME, "lo"), songEntries);
+        assertFalse(songEntries.isEmpty());
+        for (SongEntry songEntry : songEntries) {
+            assertTrue(songEntry.getSongName().regionMatches(true, 0, "lo", 0, 2));
+        }
+        assertTrue(columnCatalog.findSongEntriesByDetail(SongDetail.ARTIST, "No Such Artist").isEmpty());
+    }
+
+    private static void assertSameIds(List<SongEntry> expected, List<SongEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.ColumnMemory;
+import uk.ac.sheffield.com1003.assignment2023.FuzzyMatch;
+import uk.ac.sheffield.com1003.assignment2023.LoadMode;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.StorageBackend;
+import uk.ac.sheffield.com1003.assignment2023.TrigramIndex;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTrigramIndex {
+
+    @Test
+    public void testBoundedEditDistance() {
+        assertEquals(0, TrigramIndex.boundedEditDistance("bieber", "bieber", 2));
+        assertEquals(3, TrigramIndex.boundedEditDistance("kitten", "sitting", 3));
+        // A swap of adjacent letters is one edit.
+        assertEquals(1, TrigramIndex.boundedEditDistance("beiber", "bieber", 2));
+        assertEquals(2, TrigramIndex.boundedEditDistance("", "ab", 2));
+        // Distances beyond the bound are reported as bound + 1.
+        assertEquals(3, TrigramIndex.boundedEditDistance("kitten", "sitting", 2));
+        assertEquals(2, TrigramIndex.boundedEditDistance("abc", "abcdefgh", 1));
+        assertThrows(IllegalArgumentException.class, () -> TrigramIndex.boundedEditDistance("a", "b", -1));
+    }
+
+    @Test
+    public void testFindSimilarRanksCloserNamesFirst() {
+        TrigramIndex trigramIndex = new TrigramIndex(List.of("Justin Bieber", "Ed Sheeran", "Taylor Swift",
+                "Bieber Tribute Band", "Ed Sheeran", "Berner"));
+        assertEquals(5, trigramIndex.size());
+
+        List<FuzzyMatch> matches = trigramIndex.findSimilar("Beiber", 10);
+        assertEquals("Justin Bieber", matches.get(0).getValue());
+        assertEquals(1, matches.get(0).getDistance());
+        assertEquals("Bieber Tribute Band", matches.get(1).getValue());
+        assertEquals("Berner", matches.get(2).getValue());
+
+        assertEquals("Taylor Swift", trigramIndex.findSimilar("taylr swift", 10).get(0).getValue());
+        assertEquals(1, trigramIndex.findSimilar("ED SHERAN", 1).size());
+        assertTrue(trigramIndex.findSimilar("Metallica", 10).isEmpty());
+        assertTrue(trigramIndex.findSimilar("Beiber", 0, 10).isEmpty());
+        assertTrue(trigramIndex.findSimilar(" - ", 10).isEmpty());
+    }
+
+    @Test
+    public void testCatalogFindsMisspelledArtists() throws IOException {
+        SongCatalog objectCatalog = new SongCatalog(TestCommon.SONG_FILE, LoadMode.ALL_ROWS,
+                StorageBackend.OBJECTS, ColumnMemory.HEAP);
+        SongCatalog columnCatalog = new SongCatalog(TestCommon.SONG_FILE);
+        for (SongCatalog catalog : List.of(objectCatalog, columnCatalog)) {
+            List<FuzzyMatch> matches = catalog.findSimilarDetailValues(SongDetail.ARTIST, "Beiber", 5);
+            assertEquals("Justin Bieber", matches.get(0).getValue());
+            assertEquals("Ed Sheeran",
+                    catalog.findSimilarDetailValues(SongDetail.ARTIST, "ed sheran", 5).get(0).getValue());
+        }
+        assertEquals(objectCatalog.getTrigramIndex(SongDetail.ARTIST).size(),
+                columnCatalog.getTrigramIndex(SongDetail.ARTIST).size());
+        assertSame(columnCatalog.getTrigramIndex(SongDetail.NAME), columnCatalog.getTrigramIndex(SongDetail.NAME));
+    }
+}
@@ -0,0 +1,82 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment2023.gui.UpdateScheduler;
+
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestUpdateScheduler {
+
+    @Test
+    public void testBurstsRunEveryStageOnce() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(() -> {
+            List<String> runs = new ArrayList<>();
+            // The timer never fires during the test; updates are run explicitly.
+            UpdateScheduler scheduler = new UpdateScheduler(60_000);
+            scheduler.addStage("combo boxes", () -> runs.add("combo boxes"));
+            scheduler.addStage("query", () -> runs.add("query"));
+            scheduler.addStage("chart", () -> runs.add("chart"));
+
+            // Marking a stage dirties the stages after it.
+            scheduler.markDirty("query");
+            scheduler.markDirty("chart");
+            scheduler.markDirty("query");
+            assertFalse(scheduler.isDirty("combo boxes"));
+            assertTrue(scheduler.isDirty("chart"));
+            scheduler.runPendingUpdates();
+            assertEquals(List.of("query", "chart"), runs);
+            assertEquals(3, scheduler.getLastRequestCount());
+
+            runs.clear();
+            scheduler.markDirty("combo boxes");
+            scheduler.markDirty("chart");
+            scheduler.runPendingUpdates();
+            assertEquals(List.of("combo boxes", "query", "chart"), runs);
+
+            // Nothing is left to run.
+            runs.clear();
+            scheduler.runPendingUpdates();
+            assertTrue(runs.isEmpty());
+
+            assertEquals(2, scheduler.getTiming("query").getRunCount());
+            assertEquals(1, scheduler.getTiming("combo boxes").getRunCount());
+            assertTrue(scheduler.describeTimings().startsWith("query "));
+            assertThrows(NoSuchElementException.class, () -> scheduler.markDirty("table"));
+            assertThrows(IllegalArgumentException.class, () -> scheduler.addStage("query", () -> { }));
+        });
+    }
+
+    @Test
+    public void testStagesDirtiedDuringAnUpdateRunOnce() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(() -> {
+            List<String> runs = new ArrayList<>();
+            UpdateScheduler scheduler = new UpdateScheduler(60_000);
+            scheduler.addStage("combo boxes", () -> {
+                runs.add("combo boxes");
+                // Populating a combo box fires item events that request the query again.
+                scheduler.markDirty("query");
+            });
+            scheduler.addStage("query", () -> {
+                runs.add("query");
+                // A stage already run this update is left for the next frame.
+                scheduler.markDirty("combo boxes");
+            });
+
+            scheduler.markDirty("combo boxes");
+            scheduler.runPendingUpdates();
+            assertEquals(List.of("combo boxes", "query"), runs);
+            assertTrue(scheduler.isDirty("combo boxes"));
+
+            scheduler.recordTiming("filters", 2_000_000);
+            assertEquals(2_000_000, scheduler.getTiming("filters").getLastNanos());
+            assertThrows(NoSuchElementException.class, () -> scheduler.getTiming("statistics"));
+            assertThrows(IllegalArgumentException.class, () -> new UpdateScheduler(-1));
+        });
+    }
+}
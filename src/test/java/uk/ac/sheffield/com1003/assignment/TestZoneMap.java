@@ -0,0 +1,143 @@
+package uk.ac.sheffield.com1003.assignment;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.sheffield.com1003.assignment.common.TestCommon;
+import uk.ac.sheffield.com1003.assignment2023.ScanStatistics;
+import uk.ac.sheffield.com1003.assignment2023.SongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.ZoneMap;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.AbstractSongCatalog;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.Query;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongDetail;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongEntry;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongProperty;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SongPropertyMap;
+import uk.ac.sheffield.com1003.assignment2023.codeprovided.SubQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestZoneMap {
+
+    @Test
+    public void testBlockBoundsAndClassification() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SongEntry> songEntries = catalog.getSongEntriesList().subList(0, 10);
+        ZoneMap zoneMap = new ZoneMap(songEntries, 4);
+
+        assertEquals(3, zoneMap.getBlockCount());
+        assertEquals(10, zoneMap.getBlockEnd(2));
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+        for (SongEntry songEntry : songEntries.subList(0, 4)) {
+            minimum = Math.min(minimum, songEntry.getSongProperty(SongProperty.ENERGY));
+            maximum = Math.max(maximum, songEntry.getSongProperty(SongProperty.ENERGY));
+        }
+        assertEquals(minimum, zoneMap.getMinimum(SongProperty.ENERGY, 0));
+        assertEquals(maximum, zoneMap.getMaximum(SongProperty.ENERGY, 0));
+        assertEquals(songEntries.stream().mapToDouble(songEntry -> songEntry.getSongProperty(SongProperty.ENERGY))
+                .min().orElseThrow(), zoneMap.getMinimum(SongProperty.ENERGY));
+        assertEquals(songEntries.stream().mapToDouble(songEntry -> songEntry.getSongProperty(SongProperty.ENERGY))
+                .max().orElseThrow(), zoneMap.getMaximum(SongProperty.ENERGY));
+
+        assertEquals(ZoneMap.BlockMatch.NONE, zoneMap.classify(0, new SubQuery(SongProperty.ENERGY, ">", maximum)));
+        assertEquals(ZoneMap.BlockMatch.ALL, zoneMap.classify(0, new SubQuery(SongProperty.ENERGY, ">=", minimum)));
+        assertEquals(ZoneMap.BlockMatch.SOME, zoneMap.classify(0, new SubQuery(SongProperty.ENERGY, "<", maximum)));
+        assertEquals(ZoneMap.BlockMatch.ALL, zoneMap.classify(0, new SubQuery(SongProperty.ENERGY, "!=", maximum + 1)));
+    }
+
+    @Test
+    public void testPrunedQueryMatchesFullScan() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        List<SubQuery> subQueries = List.of(
+                new SubQuery(SongProperty.POPULARITY, ">", 90),
+                new SubQuery(SongProperty.LIVENESS, "<=", 0.9));
+        ScanStatistics scanStatistics = new ScanStatistics();
+
+        List<SongEntry> pruned = catalog.executeQuery(new Query(subQueries), scanStatistics);
+
+        List<SongEntry> expected = new ArrayList<>();
+        for (SongEntry songEntry : catalog.getSongEntriesList()) {
+            if (songEntry.getSongProperty(SongProperty.POPULARITY) > 90 &&
+                    songEntry.getSongProperty(SongProperty.LIVENESS) <= 0.9)
+                expected.add(songEntry);
+        }
+        assertEquals(expected, pruned);
+        assertEquals(catalog.getZoneMap().getBlockCount(), scanStatistics.getTotalBlocks());
+    }
+
+    @Test
+    public void testQueryWithoutConditionsAcceptsEveryBlock() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        ScanStatistics scanStatistics = new ScanStatistics();
+
+        List<SongEntry> songEntries = catalog.executeQuery(new Query(new ArrayList<>()), scanStatistics);
+
+        assertEquals(catalog.getSongEntriesList().size(), songEntries.size());
+        assertEquals(scanStatistics.getTotalBlocks(), scanStatistics.getAcceptedBlocks());
+        assertEquals(0, scanStatistics.getCheckedRows());
+    }
+
+    @Test
+    public void testCatalogWithoutIndexesIsScanned() throws IOException {
+        SongCatalog catalog = new SongCatalog(TestCommon.SONG_FILE);
+        AbstractSongCatalog plainCatalog = new PlainSongCatalog(catalog);
+        Query query = new Query(List.of(new SubQuery(SongProperty.ENERGY, ">", 0.9)),
+                SongEntry.NO_CLUSTER, "remix");
+
+        List<SongEntry> scanned = query.executeQuery(plainCatalog);
+
+        // Without a text index the words are matched as substrings, e.g. "remixed" for "remix"
+        assertFalse(scanned.isEmpty());
+        assertTrue(scanned.containsAll(query.executeQuery(catalog)));
+        for (SongEntry songEntry : scanned) {
+            assertTrue(songEntry.getSongProperty(SongProperty.ENERGY) > 0.9);
+        }
+    }
+
+    /**
+     * A catalog with the song entries of another one but no indexes, as a catalog of the provided code.
+     */
+    private static class PlainSongCatalog extends AbstractSongCatalog {
+
+        private final SongCatalog songCatalog;
+
+        private PlainSongCatalog(SongCatalog songCatalog) {
+            this.songCatalog = songCatalog;
+            this.songEntriesList = songCatalog.getSongEntriesList();
+        }
+
+        @Override
+        public List<SongEntry> getSongEntriesList(List<SongEntry> filteredSongEntriesList, SongDetail songDetail,
+                                                  String name) {
+            return songCatalog.getSongEntriesList(filteredSongEntriesList, songDetail, name);
+        }
+
+        @Override
+        public SongPropertyMap parseSongEntryLine(String line) {
+            return songCatalog.parseSongEntryLine(line);
+        }
+
+        @Override
+        public double getMinimumValue(SongProperty songProperty, List<SongEntry> songEntriesList) {
+            return songCatalog.getMinimumValue(songProperty, songEntriesList);
+        }
+
+        @Override
+        public double getMaximumValue(SongProperty songProperty, List<SongEntry> songEntriesList) {
+            return songCatalog.getMaximumValue(songProperty, songEntriesList);
+        }
+
+        @Override
+        public double getAverageValue(SongProperty songProperty, List<SongEntry> songEntriesList) {
+            return songCatalog.getAverageValue(songProperty, songEntriesList);
+        }
+
+        @Override
+        public List<SongEntry> getFirstFiveSongEntries() {
+            return songCatalog.getFirstFiveSongEntries();
+        }
+    }
+}